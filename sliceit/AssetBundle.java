@@ -0,0 +1,376 @@
+package sliceit;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The AssetBundle class keeps the game's images already decoded in one file,
+ * so loading them costs little more than reading the bytes.
+ * <p>
+ * Decoding a PNG inflates and unfilters every row, which takes most of the
+ * start-up time on the slower cabinets. {@link #build(Path, String...)} does
+ * that once and writes the raw pixels of every image to the bundle:
+ * translucent images as premultiplied ARGB, the form Java2D blends from, and
+ * opaque ones as RGB. The file starts with a magic number, the format version,
+ * the byte order of the pixels (the order of the machine that built it) and an
+ * index giving, for each image, its path, the size and modification time the
+ * PNG had when it was bundled, its width and height and where its pixels are.
+ * </p>
+ * <p>
+ * A bundle is memory-mapped when opened, and an image's pixels are copied
+ * straight from the mapping into a new image's raster, row by row. They are
+ * copied rather than wrapped because Java2D does not cache or accelerate an
+ * image whose pixel array was handed to it. If a PNG has changed since the
+ * bundle was built, its entry is stale and {@link #readImage(String)} decodes
+ * the PNG instead, so edited art shows up without rebuilding the bundle.
+ * </p>
+ */
+public class AssetBundle {
+	/** First four bytes of every bundle ("SLAB"). */
+	public static final int MAGIC = 0x534C4142;
+	/** Version of the format written by this class. */
+	public static final short VERSION = 1;
+	/** The bundle the game reads, in its working folder. */
+	public static final String DEFAULT_FILE = "assets.bundle";
+	/** Byte order flag for pixels stored big-endian. */
+	private static final byte BIG_ENDIAN = 0;
+	/** Byte order flag for pixels stored little-endian. */
+	private static final byte LITTLE_ENDIAN = 1;
+
+	/** The bundle in the working folder, opened on first use, or null if it cannot be used. */
+	private static AssetBundle shared;
+	/** True once opening the shared bundle has been tried. */
+	private static boolean sharedOpened;
+
+	/** The mapped file. */
+	private final MappedByteBuffer mapped;
+	/** Index of the bundled images, by path. */
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * Where one image lives in the bundle, and what its PNG looked like when it
+	 * was bundled.
+	 */
+	private static class Entry {
+		/** Size of the PNG in bytes. */
+		long sourceLength;
+		/** Modification time of the PNG, in milliseconds. */
+		long sourceModified;
+		/** Width of the image. */
+		int width;
+		/** Height of the image. */
+		int height;
+		/** True for premultiplied ARGB pixels, false for opaque RGB ones. */
+		boolean alpha;
+		/** Offset of the first pixel from the start of the file. */
+		long offset;
+	}
+
+	/**
+	 * Opens a bundle by mapping it into memory.
+	 */
+	private AssetBundle(MappedByteBuffer mapped) {
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Opens a bundle.
+	 *
+	 * @param path the bundle file
+	 * @return the bundle
+	 * @throws IOException if the file cannot be read or is not a bundle of this
+	 *                     version
+	 */
+	public static AssetBundle open(Path path) throws IOException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			//the mapping stays valid after the channel is closed
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		AssetBundle bundle = new AssetBundle(mapped);
+		try {
+			bundle.readIndex();
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException(path + " is truncated or corrupt", e);
+		}
+		return bundle;
+	}
+
+	/**
+	 * Reads the header and the index.
+	 */
+	private void readIndex() throws IOException {
+		ByteBuffer in = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+		if (in.getInt() != MAGIC) {
+			throw new IOException("Not an asset bundle");
+		}
+		short version = in.getShort();
+		if (version != VERSION) {
+			throw new IOException("Asset bundle version " + version + " is not supported");
+		}
+		ByteOrder order = in.get() == LITTLE_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		mapped.order(order);
+		int count = in.getInt();
+		for (int i = 0; i < count; i++) {
+			byte[] name = new byte[in.getShort() & 0xffff];
+			in.get(name);
+			Entry entry = new Entry();
+			entry.sourceLength = in.getLong();
+			entry.sourceModified = in.getLong();
+			entry.width = in.getInt();
+			entry.height = in.getInt();
+			entry.alpha = in.get() != 0;
+			entry.offset = in.getLong();
+			if (entry.offset + 4L * entry.width * entry.height > mapped.capacity()) {
+				throw new IOException("Asset bundle entry runs past the end of the file");
+			}
+			entries.put(new String(name, StandardCharsets.UTF_8), entry);
+		}
+	}
+
+	/**
+	 * Writes a bundle holding the given images. The bundle is written next to
+	 * its final place and then renamed over it, so a game that has the old
+	 * bundle mapped never sees a half-written file.
+	 *
+	 * @param path  the bundle file
+	 * @param paths paths of the PNGs to bundle, as the game names them
+	 * @throws IOException if an image cannot be read or the bundle cannot be
+	 *                     written
+	 */
+	public static void build(Path path, String... paths) throws IOException {
+		List<BufferedImage> images = new ArrayList<>();
+		//the pixels follow the index, so first work out how long the index is
+		int indexLength = 4 + 2 + 1 + 4;
+		for (String name : paths) {
+			indexLength += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4 + 4 + 1 + 8;
+		}
+		ByteBuffer index = ByteBuffer.allocate(indexLength);
+		index.putInt(MAGIC).putShort(VERSION);
+		index.put(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN);
+		index.putInt(paths.length);
+		long offset = (indexLength + 7) & ~7L;
+		for (String name : paths) {
+			File file = new File(name);
+			BufferedImage image = ImageIO.read(file);
+			if (image == null) {
+				throw new IOException("Not an image: " + name);
+			}
+			images.add(image);
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			index.putShort((short) bytes.length).put(bytes);
+			index.putLong(file.length()).putLong(file.lastModified());
+			index.putInt(image.getWidth()).putInt(image.getHeight());
+			index.put((byte) (image.getColorModel().hasAlpha() ? 1 : 0));
+			index.putLong(offset);
+			offset += 4L * image.getWidth() * image.getHeight();
+		}
+		index.flip();
+
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = 0;
+			while (index.hasRemaining()) {
+				position += channel.write(index, position);
+			}
+			position = (position + 7) & ~7L;
+			for (BufferedImage image : images) {
+				position = writePixels(channel, position, image);
+			}
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Writes the pixels of one image in native byte order, premultiplied if it
+	 * is translucent.
+	 *
+	 * @return the position after the pixels
+	 */
+	private static long writePixels(FileChannel channel, long position, BufferedImage image) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		//let Java2D do the premultiplying, with the same rounding it uses when drawing
+		BufferedImage converted = new BufferedImage(width, height,
+				image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = converted.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		ByteBuffer rows = ByteBuffer.allocate(4 * width * Math.min(height, 64)).order(ByteOrder.nativeOrder());
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			converted.getRaster().getDataElements(0, y, width, 1, row);
+			rows.asIntBuffer().put(row);
+			rows.position(rows.position() + 4 * width);
+			if (!rows.hasRemaining() || y == height - 1) {
+				rows.flip();
+				while (rows.hasRemaining()) {
+					position += channel.write(rows, position);
+				}
+				rows.clear();
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Checks whether an image is in the bundle and its PNG has not changed
+	 * since.
+	 *
+	 * @param path the path of the PNG
+	 * @return true if the bundled pixels can be used
+	 */
+	public boolean isCurrent(String path) {
+		Entry entry = entries.get(path);
+		if (entry == null) {
+			return false;
+		}
+		File file = new File(path);
+		return file.length() == entry.sourceLength && file.lastModified() == entry.sourceModified;
+	}
+
+	/**
+	 * Returns a bundled image, copied out of the mapping.
+	 *
+	 * @param path the path of the PNG
+	 * @return a new image, or null if the image is not bundled or its PNG has
+	 *         changed since
+	 */
+	public BufferedImage getImage(String path) {
+		if (!isCurrent(path)) {
+			return null;
+		}
+		Entry entry = entries.get(path);
+		BufferedImage image = new BufferedImage(entry.width, entry.height,
+				entry.alpha ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB);
+		IntBuffer pixels = mapped.duplicate().order(mapped.order()).position((int) entry.offset).asIntBuffer();
+		int[] row = new int[entry.width];
+		for (int y = 0; y < entry.height; y++) {
+			pixels.get(row);
+			//setDataElements keeps the image eligible for caching in video memory
+			image.getRaster().setDataElements(0, y, entry.width, 1, row);
+		}
+		return image;
+	}
+
+	/**
+	 * Returns the number of images in the bundle.
+	 *
+	 * @return the number of images
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Reads an image the game needs, from the bundle in the working folder if
+	 * it is there and current, otherwise by decoding the PNG.
+	 *
+	 * @param path the path of the PNG
+	 * @return the image, or null if the PNG is not an image
+	 * @throws IOException if the PNG cannot be read
+	 */
+	public static BufferedImage readImage(String path) throws IOException {
+		AssetBundle bundle = shared();
+		if (bundle != null) {
+			BufferedImage image = bundle.getImage(path);
+			if (image != null) {
+				return image;
+			}
+		}
+		return ImageIO.read(new File(path));
+	}
+
+	/**
+	 * Returns the bundle in the working folder, opening it the first time.
+	 *
+	 * @return the bundle, or null if there is none or it cannot be read
+	 */
+	private static synchronized AssetBundle shared() {
+		if (!sharedOpened) {
+			sharedOpened = true;
+			Path path = Paths.get(DEFAULT_FILE);
+			if (Files.exists(path)) {
+				try {
+					shared = open(path);
+				} catch (IOException e) {
+					//decode the PNGs instead
+					e.printStackTrace();
+				}
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Builds the bundle of the game's images, then times loading them from it
+	 * against decoding the PNGs.
+	 * <p>
+	 * Options: {@code --out <file>} names the bundle (default assets.bundle);
+	 * any other arguments are the PNGs to bundle (default every PNG in images/).
+	 * </p>
+	 *
+	 * @param args command line arguments
+	 * @throws IOException if an image cannot be read or the bundle cannot be
+	 *                     written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path out = Paths.get(DEFAULT_FILE);
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--out") && i + 1 < args.length) {
+				out = Paths.get(args[++i]);
+			} else {
+				paths.add(args[i]);
+			}
+		}
+		if (paths.isEmpty()) {
+			String[] names = new File("images").list((dir, name) -> name.endsWith(".png"));
+			if (names == null) {
+				throw new IOException("No images folder");
+			}
+			Arrays.sort(names);
+			for (String name : names) {
+				paths.add("images/" + name);
+			}
+		}
+		build(out, paths.toArray(new String[0]));
+		System.out.println("Bundled " + paths.size() + " images into " + out + " (" + Files.size(out) + " bytes)");
+
+		long start = System.nanoTime();
+		for (String path : paths) {
+			ImageIO.read(new File(path));
+		}
+		long decodeNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		AssetBundle bundle = open(out);
+		for (String path : paths) {
+			bundle.getImage(path);
+		}
+		long bundleNanos = System.nanoTime() - start;
+		System.out.printf("Decoding the PNGs took %.1f ms, loading the bundle %.1f ms%n", decodeNanos / 1e6,
+				bundleNanos / 1e6);
+	}
+}
@@ -0,0 +1,325 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The AssetWatcher thread reloads the sprites, the play background and the
+ * difficulty settings when their files change, so new art and tuning show up
+ * in a running game.
+ * <p>
+ * It watches the folders holding the sprite layout file, every sheet the
+ * layout uses, the background and the settings file. Editors often write a
+ * file in several steps, so after a change it waits until the folders have
+ * been quiet for {@link #QUIET_MILLIS} before reloading. Decoded sheets are
+ * kept between reloads and only the changed ones are decoded again; the atlas
+ * is then repacked, which is cheap next to decoding.
+ * </p>
+ * <p>
+ * Everything is decoded on this thread. A finished atlas, background or
+ * settings object is handed whole to a callback, which swaps it in (for the
+ * game, on the event thread between two frames), so a frame never sees half
+ * of a reload. A new atlas must give every sprite the same id as the old one,
+ * since the running world holds ids; a layout file that adds or removes
+ * sprites is reported and left for the next launch. A file that cannot be
+ * read, typically because it is still being written, is reported and the old
+ * asset kept until the file changes again.
+ * </p>
+ */
+public class AssetWatcher extends Thread {
+	/** How long the watched folders must be quiet before a reload, in milliseconds. */
+	public static final long QUIET_MILLIS = 200;
+
+	/** Path of the sprite layout file, as given to {@link TextureAtlas#load(String, Map)}. */
+	private final String specPath;
+	/** Path of the play background. */
+	private final String backgroundPath;
+	/** Path of the difficulty settings. */
+	private final String configPath;
+	/** Given every reloaded atlas. */
+	private final Consumer<TextureAtlas> onAtlas;
+	/** Given every reloaded background. */
+	private final Consumer<BufferedImage> onBackground;
+	/** Given every reloaded set of difficulty settings. */
+	private final Consumer<DifficultyConfig> onConfig;
+	/** Decoded sprite sheets, by the path given in the layout file. */
+	private final Map<String, BufferedImage> sheets = new HashMap<>();
+	/** The layout file's sheet paths, by absolute path. */
+	private final Map<Path, String> sheetPaths = new HashMap<>();
+	/** Folders already registered with the watch service. */
+	private final Set<Path> folders = new HashSet<>();
+	/** Notifies the thread of changes in the watched folders. */
+	private final WatchService watcher;
+	/** The atlas most recently loaded. */
+	private TextureAtlas atlas;
+	/** Number of assets reloaded and handed over. */
+	private volatile int reloads;
+	/** Number of reloads that failed or were refused. */
+	private volatile int failures;
+	/** Number of sprite sheets decoded, including the first load. */
+	private volatile int decodedSheets;
+	/** Flag telling the loop to keep going. */
+	private volatile boolean running = true;
+
+	/**
+	 * Constructs an AssetWatcher. Nothing is watched until {@link #loadAtlas()}
+	 * or {@link #adoptAtlas(TextureAtlas, Map)} has been called, and nothing is
+	 * reloaded until the thread is started.
+	 *
+	 * @param specPath       path of the sprite layout file
+	 * @param backgroundPath path of the play background
+	 * @param configPath     path of the difficulty settings
+	 * @param onAtlas        given each reloaded atlas, on this thread
+	 * @param onBackground   given each reloaded background, on this thread
+	 * @param onConfig       given each reloaded set of settings, on this thread
+	 * @throws IOException if the watch service cannot be opened
+	 */
+	public AssetWatcher(String specPath, String backgroundPath, String configPath, Consumer<TextureAtlas> onAtlas,
+			Consumer<BufferedImage> onBackground, Consumer<DifficultyConfig> onConfig) throws IOException {
+		super("SliceIt-Assets");
+		setDaemon(true);
+		setPriority(Thread.MIN_PRIORITY);
+		this.specPath = specPath;
+		this.backgroundPath = backgroundPath;
+		this.configPath = configPath;
+		this.onAtlas = onAtlas;
+		this.onBackground = onBackground;
+		this.onConfig = onConfig;
+		watcher = FileSystems.getDefault().newWatchService();
+		watch(absolute(backgroundPath));
+		watch(absolute(configPath));
+	}
+
+	/**
+	 * Loads the sprites for the first time, keeping the decoded sheets for later
+	 * reloads and watching the folders they are in. Must be called before the
+	 * thread is started.
+	 *
+	 * @return the packed atlas
+	 * @throws IOException if the layout file or one of the sheets cannot be read
+	 */
+	public TextureAtlas loadAtlas() throws IOException {
+		Map<String, BufferedImage> decoded = new HashMap<>();
+		TextureAtlas loaded = TextureAtlas.load(specPath, decoded);
+		adoptAtlas(loaded, decoded);
+		return loaded;
+	}
+
+	/**
+	 * Takes an atlas loaded elsewhere, such as by a {@link StartupLoader}, as the
+	 * first one, keeping its decoded sheets for later reloads and watching the
+	 * folders they are in. Must be called before the thread is started.
+	 *
+	 * @param loaded  the atlas
+	 * @param decoded the sheets it was packed from, by the path given in the
+	 *                layout file
+	 * @throws IOException if a folder cannot be watched
+	 */
+	public void adoptAtlas(TextureAtlas loaded, Map<String, BufferedImage> decoded) throws IOException {
+		sheets.putAll(decoded);
+		decodedSheets += decoded.size();
+		atlas = loaded;
+		watch(absolute(specPath));
+		for (String sheet : sheets.keySet()) {
+			Path path = absolute(sheet);
+			sheetPaths.put(path, sheet);
+			watch(path);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				Set<Path> changed = new HashSet<>();
+				collect(watcher.take(), changed);
+				//wait for the editor to finish writing
+				WatchKey more;
+				while ((more = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					collect(more, changed);
+				}
+				reload(changed);
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			//halted
+		}
+	}
+
+	/**
+	 * Adds the files a watch key reports as changed to the set and re-arms the
+	 * key.
+	 */
+	private static void collect(WatchKey key, Set<Path> changed) {
+		Path folder = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				continue;
+			}
+			changed.add(folder.resolve((Path) event.context()).toAbsolutePath().normalize());
+		}
+		key.reset();
+	}
+
+	/**
+	 * Reloads whatever depends on the changed files.
+	 */
+	private void reload(Set<Path> changed) {
+		boolean sprites = changed.contains(absolute(specPath));
+		for (Path path : changed) {
+			String sheet = sheetPaths.get(path);
+			if (sheet != null) {
+				//forget the old pixels so only this sheet is decoded again
+				sheets.remove(sheet);
+				sprites = true;
+			}
+		}
+		if (sprites && atlas != null) {
+			reloadAtlas();
+		}
+		if (changed.contains(absolute(backgroundPath))) {
+			reloadBackground();
+		}
+		if (changed.contains(absolute(configPath))) {
+			reloadConfig();
+		}
+	}
+
+	/**
+	 * Repacks the atlas, decoding the sheets that are no longer cached.
+	 */
+	private void reloadAtlas() {
+		try {
+			int before = sheets.size();
+			TextureAtlas next = TextureAtlas.load(specPath, sheets);
+			decodedSheets += sheets.size() - before;
+			if (!atlas.hasSameIds(next)) {
+				failures++;
+				System.err.println(specPath + " now lists different sprites; restart the game to use it");
+				return;
+			}
+			//a layout change may name new sheets
+			for (String sheet : sheets.keySet()) {
+				Path path = absolute(sheet);
+				if (sheetPaths.put(path, sheet) == null) {
+					watch(path);
+				}
+			}
+			atlas = next;
+			reloads++;
+			onAtlas.accept(next);
+		} catch (IOException | RuntimeException e) {
+			failures++;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Decodes the background again.
+	 */
+	private void reloadBackground() {
+		try {
+			BufferedImage image = AssetBundle.readImage(backgroundPath);
+			if (image == null) {
+				throw new IOException("Not an image: " + backgroundPath);
+			}
+			reloads++;
+			onBackground.accept(image);
+		} catch (IOException e) {
+			failures++;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads the difficulty settings again.
+	 */
+	private void reloadConfig() {
+		try {
+			DifficultyConfig config = DifficultyConfig.load(configPath);
+			reloads++;
+			onConfig.accept(config);
+		} catch (IOException e) {
+			failures++;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts watching the folder holding a file, if it is not watched already.
+	 */
+	private void watch(Path file) throws IOException {
+		Path folder = file.getParent();
+		if (folder != null && folders.add(folder)) {
+			//editors that save by renaming a temporary file produce a create rather than a modify
+			folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+	}
+
+	/**
+	 * Returns a path as the watch service reports it.
+	 */
+	private static Path absolute(String path) {
+		return Paths.get(path).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Stops watching and waits for the thread to finish.
+	 */
+	public void halt() {
+		running = false;
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (Thread.currentThread() != this && isAlive()) {
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of assets reloaded and handed over.
+	 *
+	 * @return the number of reloads
+	 */
+	public int getReloads() {
+		return reloads;
+	}
+
+	/**
+	 * Returns the number of reloads that failed or were refused.
+	 *
+	 * @return the number of failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns the number of sprite sheets decoded so far, including the first
+	 * load.
+	 *
+	 * @return the number of sheets decoded
+	 */
+	public int getDecodedSheets() {
+		return decodedSheets;
+	}
+}
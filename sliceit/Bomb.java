@@ -9,17 +9,18 @@ import javax.imageio.ImageIO;
 
 /**
  * This represents a bomb object in the game. It handles movement, rendering,
- * and hit detection.
+ * and hit detection. Its movement is kept by a {@link Motion}, to a fraction of
+ * a pixel.
  */
 public class Bomb {
-	/** The x and y coordinates of the bomb */
-	private int x, y;
-	/** The horizontal and vertical velocity of the bomb */
-	private float velocityX, velocityY;
+	/** The position, velocity and gravity of the bomb, and its path over the last update */
+	private final Motion motion;
 	/** The actual bomb */
 	private BufferedImage image;
 	/** Was the bomb hit? true of false */
 	private boolean bombHit = false;
+	/** Atlas id of the bomb sprite, or -1 when not drawn from an atlas */
+	private int spriteId = -1;
 
 	/**
 	 * Constructs a Bomb Object with specified parameters.
@@ -32,14 +33,12 @@ public class Bomb {
 	 */
 	public Bomb(BufferedImage image, int x, int y, float velocityX, float velocityY) {
 		this.image = image;
-		this.x = x;
-		this.y = y;
-		this.velocityX = velocityX;
-		this.velocityY = velocityY;
+		this.motion = new Motion(x, y, velocityX, velocityY, 0.5f);
 	}
 
 	/**
-	 * Checks if the bomb is off the screen or not.
+	 * Checks if the bomb is off the screen or not. The bomb counts as off the
+	 * screen only if it was below it for the whole of its last update.
 	 * 
 	 * @param panelWidth  The width of the game panel
 	 * @param panelHeight The height of the game panel
@@ -47,20 +46,25 @@ public class Bomb {
 	 *         or not
 	 */
 	public boolean isOffScreen(int panelWidth, int panelHeight) {
-		return y > panelHeight;
+		return motion.getMinY() > panelHeight;
 	}
 
 	/**
 	 * Updates the bomb position based on the velocity of the bomb. Applies gravity
-	 * to the bomb.
+	 * to the bomb. The tick is split into {@link Motion#DEFAULT_SUBSTEPS}
+	 * sub-steps.
 	 */
 	public void update() {
-		//move bomb horizontally
-		x += velocityX;
-		//move bomb vertically
-		y += velocityY;
-		//apply gravity
-		velocityY += 0.5f;
+		update(Motion.DEFAULT_SUBSTEPS);
+	}
+
+	/**
+	 * Updates the bomb by one tick, split into the given number of sub-steps.
+	 *
+	 * @param substeps The number of sub-steps, at least 1.
+	 */
+	public void update(int substeps) {
+		motion.step(substeps);
 	}
 
 	/**
@@ -70,39 +74,49 @@ public class Bomb {
 	 */
 	public void draw(Graphics2D g2d) {
 		if (!bombHit) {
-			g2d.drawImage(image, x, y, null);
+			g2d.drawImage(image, getX(), getY(), null);
 		}
 	}
 
 	/**
-	 * Checks if a given point is within the bomb's boundaries.
+	 * Checks if a given point is within the bomb's boundaries at any moment of
+	 * its last update, when the drag sample was taken.
 	 *
 	 * @param clickX The x-coordinate of the point.
 	 * @param clickY The y-coordinate of the point.
-	 * @return Returns true if the point is within the bomb's boundaries and false
+	 * @return Returns true if the point was within the bomb's boundaries and false
 	 *         otherwise.
 	 */
 	public boolean isHit(int clickX, int clickY) {
-		//Is click in bounds of the bomb?
-		return clickX >= x && clickX <= x + image.getWidth() && clickY >= y && clickY <= y + image.getHeight();
+		//Was click in bounds of the bomb along its path?
+		return motion.sweptContains(clickX, clickY, image.getWidth(), image.getHeight());
 	}
 
 	/**
-	 * Gets the x-coordinate of the bomb.
+	 * Gets the x-coordinate of the bomb, rounded down to a whole pixel.
 	 *
 	 * @return The x-coordinate of the bomb.
 	 */
 	public int getX() {
-		return x;
+		return (int) Math.floor(motion.getX());
 	}
 
 	/**
-	 * Gets the y-coordinate of the bomb.
+	 * Gets the y-coordinate of the bomb, rounded down to a whole pixel.
 	 *
 	 * @return The y-coordinate of the bomb.
 	 */
 	public int getY() {
-		return y;
+		return (int) Math.floor(motion.getY());
+	}
+
+	/**
+	 * Gets the exact position, velocity and last path of the bomb.
+	 *
+	 * @return The bomb's motion.
+	 */
+	public Motion getMotion() {
+		return motion;
 	}
 
 	/**
@@ -114,6 +128,60 @@ public class Bomb {
 		return image;
 	}
 
+	/**
+	 * Gets the horizontal velocity of the bomb.
+	 *
+	 * @return The horizontal velocity.
+	 */
+	public float getVelocityX() {
+		return motion.getVelocityX();
+	}
+
+	/**
+	 * Gets the vertical velocity of the bomb.
+	 *
+	 * @return The vertical velocity.
+	 */
+	public float getVelocityY() {
+		return motion.getVelocityY();
+	}
+
+	/**
+	 * Gets the gravity applied to the bomb on every update.
+	 *
+	 * @return The gravity.
+	 */
+	public float getGravity() {
+		return motion.getGravity();
+	}
+
+	/**
+	 * Sets the gravity applied to the bomb on every update.
+	 *
+	 * @param gravity The new gravity.
+	 */
+	public void setGravity(float gravity) {
+		motion.setGravity(gravity);
+	}
+
+	/**
+	 * Gets the atlas id of the bomb sprite.
+	 *
+	 * @return The sprite id, or -1 if none was set.
+	 */
+	public int getSpriteId() {
+		return spriteId;
+	}
+
+	/**
+	 * Sets the atlas id of the bomb sprite.
+	 *
+	 * @param spriteId The sprite id.
+	 */
+	public void setSpriteId(int spriteId) {
+		this.spriteId = spriteId;
+	}
+
 	/**
 	 * Testing for the Bomb Class
 	 */
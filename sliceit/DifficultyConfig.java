@@ -0,0 +1,395 @@
+package sliceit;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+/**
+ * The DifficultyConfig class holds the tuning values for spawning and physics:
+ * how often fruits and bombs appear over the course of a round, how fast they
+ * are launched, gravity, and extra waves.
+ * <p>
+ * The values are read from a properties file (config/difficulty.properties) so
+ * they can be changed without recompiling. Every value has a default equal to
+ * the game's original hard-coded behaviour.
+ * </p>
+ */
+public class DifficultyConfig {
+	/** Most sub-steps a tick may be split into. */
+	public static final int MAX_SUBSTEPS = 64;
+	/** Length of a round in seconds. */
+	private int gameSeconds = 60;
+	/** Spawn chance per tick for fruits, as second/value curve points. */
+	private float[][] fruitRate = { { 0f }, { 0.05f } };
+	/** Spawn chance per tick for bombs, as second/value curve points. */
+	private float[][] bombRate = { { 0f }, { 0.02f } };
+	/** Multiplier applied to every rate and wave. */
+	private double countScale = 1;
+	/** Lowest and highest upward launch speed of a fruit. */
+	private float fruitSpeedMin = 10, fruitSpeedMax = 15;
+	/** Largest sideways speed of a fruit, in either direction. */
+	private float fruitDrift = 2;
+	/** Lowest and highest upward launch speed of a bomb. */
+	private float bombSpeedMin = 10, bombSpeedMax = 15;
+	/** Largest sideways speed of a bomb, in either direction. */
+	private float bombDrift = 2;
+	/** Gravity applied to fruits every tick. */
+	private float fruitGravity = 0.3f;
+	/** Gravity applied to bombs every tick. */
+	private float bombGravity = 0.5f;
+	/** Number of sub-steps fruits and bombs move in per tick. */
+	private int substeps = Motion.DEFAULT_SUBSTEPS;
+	/** Waves as rows of {second, fruits, bombs}. */
+	private int[][] waves = new int[0][];
+	/** Number of ticks a wave is spread over. */
+	private int waveSpread = 15;
+
+	/**
+	 * Constructs a DifficultyConfig with the default values.
+	 */
+	public DifficultyConfig() {
+	}
+
+	/**
+	 * Reads a DifficultyConfig from a properties file. Keys that are missing keep
+	 * their default value.
+	 *
+	 * @param path path of the properties file
+	 * @return the loaded configuration
+	 * @throws IOException if the file cannot be read or a value is malformed
+	 */
+	public static DifficultyConfig load(String path) throws IOException {
+		Properties props = new Properties();
+		try (Reader reader = new FileReader(path)) {
+			props.load(reader);
+		}
+		DifficultyConfig config = new DifficultyConfig();
+		try {
+			config.apply(props);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(path + ": " + e.getMessage(), e);
+		}
+		return config;
+	}
+
+	/**
+	 * Overwrites the values present in the given properties.
+	 */
+	private void apply(Properties props) {
+		gameSeconds = (int) number(props, "game.seconds", gameSeconds);
+		fruitRate = curve(props, "fruit.rate", fruitRate);
+		bombRate = curve(props, "bomb.rate", bombRate);
+		countScale = number(props, "count.scale", countScale);
+		fruitSpeedMin = (float) number(props, "fruit.speed.min", fruitSpeedMin);
+		fruitSpeedMax = (float) number(props, "fruit.speed.max", fruitSpeedMax);
+		fruitDrift = (float) number(props, "fruit.drift", fruitDrift);
+		bombSpeedMin = (float) number(props, "bomb.speed.min", bombSpeedMin);
+		bombSpeedMax = (float) number(props, "bomb.speed.max", bombSpeedMax);
+		bombDrift = (float) number(props, "bomb.drift", bombDrift);
+		fruitGravity = (float) number(props, "fruit.gravity", fruitGravity);
+		bombGravity = (float) number(props, "bomb.gravity", bombGravity);
+		substeps = (int) number(props, "physics.substeps", substeps);
+		if (substeps < 1 || substeps > MAX_SUBSTEPS) {
+			throw new IllegalArgumentException("physics.substeps must be between 1 and " + MAX_SUBSTEPS);
+		}
+		waveSpread = Math.max(1, (int) number(props, "wave.spread", waveSpread));
+
+		String waveText = props.getProperty("waves", "").trim();
+		if (!waveText.isEmpty()) {
+			String[] entries = waveText.split(",");
+			waves = new int[entries.length][];
+			for (int i = 0; i < entries.length; i++) {
+				String[] parts = entries[i].trim().split(":");
+				if (parts.length < 2 || parts.length > 3) {
+					throw new IllegalArgumentException("bad wave entry: " + entries[i]);
+				}
+				waves[i] = new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+						parts.length == 3 ? Integer.parseInt(parts[2].trim()) : 0 };
+			}
+		}
+	}
+
+	/**
+	 * Writes every value in binary form, so a recorded round can be replayed with
+	 * exactly the settings it was played with.
+	 *
+	 * @param out the buffer to write to
+	 */
+	public void writeTo(ByteBuffer out) {
+		out.putInt(gameSeconds);
+		writeCurve(out, fruitRate);
+		writeCurve(out, bombRate);
+		out.putDouble(countScale);
+		out.putFloat(fruitSpeedMin).putFloat(fruitSpeedMax).putFloat(fruitDrift);
+		out.putFloat(bombSpeedMin).putFloat(bombSpeedMax).putFloat(bombDrift);
+		out.putFloat(fruitGravity).putFloat(bombGravity);
+		out.putInt(substeps);
+		out.putInt(waves.length);
+		for (int[] wave : waves) {
+			out.putInt(wave[0]).putInt(wave[1]).putInt(wave[2]);
+		}
+		out.putInt(waveSpread);
+	}
+
+	/**
+	 * Reads values written by {@link #writeTo(ByteBuffer)}.
+	 *
+	 * @param in the buffer to read from
+	 * @return the configuration
+	 */
+	public static DifficultyConfig readFrom(ByteBuffer in) {
+		DifficultyConfig config = new DifficultyConfig();
+		config.gameSeconds = in.getInt();
+		config.fruitRate = readCurve(in);
+		config.bombRate = readCurve(in);
+		config.countScale = in.getDouble();
+		config.fruitSpeedMin = in.getFloat();
+		config.fruitSpeedMax = in.getFloat();
+		config.fruitDrift = in.getFloat();
+		config.bombSpeedMin = in.getFloat();
+		config.bombSpeedMax = in.getFloat();
+		config.bombDrift = in.getFloat();
+		config.fruitGravity = in.getFloat();
+		config.bombGravity = in.getFloat();
+		config.substeps = in.getInt();
+		config.waves = new int[in.getInt()][];
+		for (int i = 0; i < config.waves.length; i++) {
+			config.waves[i] = new int[] { in.getInt(), in.getInt(), in.getInt() };
+		}
+		config.waveSpread = in.getInt();
+		return config;
+	}
+
+	/**
+	 * Writes a curve as its point count followed by the seconds and values.
+	 */
+	private static void writeCurve(ByteBuffer out, float[][] curve) {
+		out.putInt(curve[0].length);
+		for (int row = 0; row < 2; row++) {
+			for (float f : curve[row]) {
+				out.putFloat(f);
+			}
+		}
+	}
+
+	/**
+	 * Reads a curve written by writeCurve.
+	 */
+	private static float[][] readCurve(ByteBuffer in) {
+		float[][] curve = new float[2][in.getInt()];
+		for (int row = 0; row < 2; row++) {
+			for (int i = 0; i < curve[row].length; i++) {
+				curve[row][i] = in.getFloat();
+			}
+		}
+		return curve;
+	}
+
+	/**
+	 * Reads a single number, or returns the fallback if the key is missing.
+	 */
+	private static double number(Properties props, String key, double fallback) {
+		String value = props.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return fallback;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("bad number for " + key + ": " + value);
+		}
+	}
+
+	/**
+	 * Reads a curve written as "second:value" points separated by commas.
+	 */
+	private static float[][] curve(Properties props, String key, float[][] fallback) {
+		String value = props.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return fallback;
+		}
+		String[] points = value.split(",");
+		float[][] result = new float[2][points.length];
+		for (int i = 0; i < points.length; i++) {
+			String[] parts = points[i].trim().split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("bad curve point for " + key + ": " + points[i]);
+			}
+			result[0][i] = Float.parseFloat(parts[0].trim());
+			result[1][i] = Float.parseFloat(parts[1].trim());
+			if (i > 0 && result[0][i] <= result[0][i - 1]) {
+				throw new IllegalArgumentException(key + " points must be in increasing time order");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluates a curve at the given time, interpolating between points and holding
+	 * the first and last values outside them.
+	 */
+	static float sample(float[][] curve, float seconds) {
+		float[] times = curve[0];
+		float[] values = curve[1];
+		if (seconds <= times[0]) {
+			return values[0];
+		}
+		for (int i = 1; i < times.length; i++) {
+			if (seconds < times[i]) {
+				float t = (seconds - times[i - 1]) / (times[i] - times[i - 1]);
+				return values[i - 1] + t * (values[i] - values[i - 1]);
+			}
+		}
+		return values[values.length - 1];
+	}
+
+	/**
+	 * Returns the fruit spawn chance per tick at the given time into the round,
+	 * before the count scale is applied.
+	 *
+	 * @param seconds time since the round started
+	 * @return the spawn chance
+	 */
+	public float getFruitRate(float seconds) {
+		return sample(fruitRate, seconds);
+	}
+
+	/**
+	 * Returns the bomb spawn chance per tick at the given time into the round,
+	 * before the count scale is applied.
+	 *
+	 * @param seconds time since the round started
+	 * @return the spawn chance
+	 */
+	public float getBombRate(float seconds) {
+		return sample(bombRate, seconds);
+	}
+
+	/**
+	 * Returns the length of a round in seconds.
+	 *
+	 * @return the length of a round in seconds
+	 */
+	public int getGameSeconds() {
+		return gameSeconds;
+	}
+
+	/**
+	 * Returns the multiplier applied to every rate and wave.
+	 *
+	 * @return the multiplier applied to every rate and wave
+	 */
+	public double getCountScale() {
+		return countScale;
+	}
+
+	/**
+	 * Sets the multiplier applied to every rate and wave.
+	 *
+	 * @param countScale the new multiplier
+	 */
+	public void setCountScale(double countScale) {
+		this.countScale = countScale;
+	}
+
+	/**
+	 * Returns the lowest upward launch speed of a fruit.
+	 *
+	 * @return the lowest upward launch speed of a fruit
+	 */
+	public float getFruitSpeedMin() {
+		return fruitSpeedMin;
+	}
+
+	/**
+	 * Returns the highest upward launch speed of a fruit.
+	 *
+	 * @return the highest upward launch speed of a fruit
+	 */
+	public float getFruitSpeedMax() {
+		return fruitSpeedMax;
+	}
+
+	/**
+	 * Returns the largest sideways speed of a fruit.
+	 *
+	 * @return the largest sideways speed of a fruit
+	 */
+	public float getFruitDrift() {
+		return fruitDrift;
+	}
+
+	/**
+	 * Returns the lowest upward launch speed of a bomb.
+	 *
+	 * @return the lowest upward launch speed of a bomb
+	 */
+	public float getBombSpeedMin() {
+		return bombSpeedMin;
+	}
+
+	/**
+	 * Returns the highest upward launch speed of a bomb.
+	 *
+	 * @return the highest upward launch speed of a bomb
+	 */
+	public float getBombSpeedMax() {
+		return bombSpeedMax;
+	}
+
+	/**
+	 * Returns the largest sideways speed of a bomb.
+	 *
+	 * @return the largest sideways speed of a bomb
+	 */
+	public float getBombDrift() {
+		return bombDrift;
+	}
+
+	/**
+	 * Returns the gravity applied to fruits every tick.
+	 *
+	 * @return the gravity applied to fruits every tick
+	 */
+	public float getFruitGravity() {
+		return fruitGravity;
+	}
+
+	/**
+	 * Returns the gravity applied to bombs every tick.
+	 *
+	 * @return the gravity applied to bombs every tick
+	 */
+	public float getBombGravity() {
+		return bombGravity;
+	}
+
+	/**
+	 * Returns the number of sub-steps fruits and bombs move in per tick.
+	 *
+	 * @return the sub-steps per tick
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Returns the waves as rows of {second, fruits, bombs}.
+	 *
+	 * @return the waves as rows of {second, fruits, bombs}
+	 */
+	public int[][] getWaves() {
+		return waves;
+	}
+
+	/**
+	 * Returns the number of ticks a wave is spread over.
+	 *
+	 * @return the number of ticks a wave is spread over
+	 */
+	public int getWaveSpread() {
+		return waveSpread;
+	}
+}
@@ -0,0 +1,137 @@
+package sliceit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The DragQueue class carries mouse drag samples from the input side (the Swing
+ * event thread, or anything else producing slices) to the simulation thread.
+ * <p>
+ * It is a fixed-size ring of packed x/y pairs. Any number of threads may offer
+ * samples, but only the simulation thread polls them. Nothing is allocated per
+ * sample; when the ring is full new samples are dropped and counted.
+ * </p>
+ */
+public class DragQueue {
+	/** Value returned by {@link #poll()} when the queue is empty. */
+	public static final long EMPTY = Long.MIN_VALUE;
+
+	/** The packed samples. */
+	private final long[] samples;
+	/** Per-slot sequence numbers telling producers and the consumer whose turn it is. */
+	private final AtomicLongArray sequence;
+	/** Mask used to turn a position into a slot index. */
+	private final int mask;
+	/** Position the next producer will claim. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Position the consumer will read next; only touched by the consumer. */
+	private long head;
+	/** Number of samples dropped because the queue was full. */
+	private final AtomicInteger dropped = new AtomicInteger();
+
+	/**
+	 * Constructs a DragQueue holding at least the given number of samples.
+	 *
+	 * @param capacity the minimum number of samples the queue can hold
+	 */
+	public DragQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		samples = new long[size];
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequence.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds a drag sample to the queue.
+	 *
+	 * @param x the x-coordinate of the sample
+	 * @param y the y-coordinate of the sample
+	 * @return true if the sample was queued; false if the queue was full
+	 */
+	public boolean offer(int x, int y) {
+		long pos;
+		while (true) {
+			pos = tail.get();
+			long diff = sequence.get((int) pos & mask) - pos;
+			if (diff == 0) {
+				//slot is free, try to claim it
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+			} else if (diff < 0) {
+				//consumer has not read this slot yet, so the ring is full
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+		int slot = (int) pos & mask;
+		samples[slot] = pack(x, y);
+		sequence.lazySet(slot, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the oldest sample. Only the simulation thread may call this.
+	 *
+	 * @return the packed sample, or {@link #EMPTY} if there is none
+	 */
+	public long poll() {
+		int slot = (int) head & mask;
+		if (sequence.get(slot) != head + 1) {
+			return EMPTY;
+		}
+		long sample = samples[slot];
+		sequence.lazySet(slot, head + samples.length);
+		head++;
+		return sample;
+	}
+
+	/**
+	 * Throws away every queued sample. Only the simulation thread may call this.
+	 */
+	public void clear() {
+		while (poll() != EMPTY) {
+			// keep draining
+		}
+	}
+
+	/**
+	 * Packs a point into a single long.
+	 */
+	static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the x-coordinate of a packed sample.
+	 *
+	 * @param sample a value returned by {@link #poll()}
+	 * @return the x-coordinate
+	 */
+	public static int x(long sample) {
+		return (int) (sample >> 32);
+	}
+
+	/**
+	 * Returns the y-coordinate of a packed sample.
+	 *
+	 * @param sample a value returned by {@link #poll()}
+	 * @return the y-coordinate
+	 */
+	public static int y(long sample) {
+		return (int) sample;
+	}
+
+	/**
+	 * Returns how many samples were dropped because the queue was full.
+	 *
+	 * @return the dropped sample count
+	 */
+	public int getDropped() {
+		return dropped.get();
+	}
+}
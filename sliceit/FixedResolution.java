@@ -0,0 +1,169 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * The FixedResolution class lets the game be drawn at one internal size and
+ * shown in a window of any size.
+ * <p>
+ * Each frame is drawn into an offscreen image of the internal size and then
+ * copied to the window with a single scaled draw, centred with black bars to
+ * keep its shape. By default the image is enlarged by the largest whole factor
+ * that fits, using nearest-neighbour scaling, so pixels stay sharp; in smooth
+ * mode it fills as much of the window as it can with bilinear scaling. Either
+ * way the cost of drawing the frame itself no longer depends on the size of
+ * the screen.
+ * </p>
+ * <p>
+ * Mouse positions in the window are mapped back to internal coordinates so
+ * slices line up with what is on screen.
+ * </p>
+ */
+public class FixedResolution {
+	/** Internal width the game is drawn at. */
+	private final int width;
+	/** Internal height the game is drawn at. */
+	private final int height;
+	/** Whether to scale by any factor with bilinear filtering. */
+	private final boolean smooth;
+	/** The offscreen frame, created the first time it is needed. */
+	private BufferedImage buffer;
+	/** Where the frame was last shown in the window (x, y, width, height). */
+	private int destX, destY, destWidth, destHeight;
+
+	/**
+	 * Constructs a FixedResolution.
+	 *
+	 * @param width  the internal width
+	 * @param height the internal height
+	 * @param smooth true to fill the window with bilinear scaling; false for
+	 *               whole-number nearest-neighbour scaling
+	 */
+	public FixedResolution(int width, int height, boolean smooth) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Render size must be positive: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.smooth = smooth;
+		this.destWidth = width;
+		this.destHeight = height;
+	}
+
+	/**
+	 * Creates a FixedResolution from a size written as "widthxheight", such as
+	 * "500x500".
+	 *
+	 * @param size   the internal size
+	 * @param smooth true for bilinear scaling to fill the window
+	 * @return the new FixedResolution
+	 */
+	public static FixedResolution parse(String size, boolean smooth) {
+		String[] parts = size.toLowerCase().split("x");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Render size must look like 500x500: " + size);
+		}
+		return new FixedResolution(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), smooth);
+	}
+
+	/**
+	 * Returns a graphics context for drawing the next frame at the internal size.
+	 * The caller must dispose of it before calling present.
+	 *
+	 * @return a graphics context on the offscreen frame
+	 */
+	public Graphics2D begin() {
+		if (buffer == null) {
+			buffer = TextureAtlas.createCompatibleImage(width, height);
+		}
+		return buffer.createGraphics();
+	}
+
+	/**
+	 * Works out where the frame goes in a window of the given size.
+	 *
+	 * @param windowWidth  the width of the window
+	 * @param windowHeight the height of the window
+	 */
+	public void layout(int windowWidth, int windowHeight) {
+		double fit = Math.min(windowWidth / (double) width, windowHeight / (double) height);
+		double scale;
+		if (smooth || fit < 1) {
+			//fill the window; a window smaller than the frame always needs a fraction
+			scale = fit;
+		} else {
+			scale = Math.floor(fit);
+		}
+		destWidth = Math.max(1, (int) (width * scale));
+		destHeight = Math.max(1, (int) (height * scale));
+		destX = (windowWidth - destWidth) / 2;
+		destY = (windowHeight - destHeight) / 2;
+	}
+
+	/**
+	 * Copies the finished frame to the window, scaled and centred, and paints the
+	 * unused border black.
+	 *
+	 * @param g2d          the window's graphics context
+	 * @param windowWidth  the width of the window
+	 * @param windowHeight the height of the window
+	 */
+	public void present(Graphics2D g2d, int windowWidth, int windowHeight) {
+		layout(windowWidth, windowHeight);
+		g2d.setColor(Color.black);
+		if (destX > 0) {
+			g2d.fillRect(0, 0, destX, windowHeight);
+			g2d.fillRect(destX + destWidth, 0, windowWidth - destX - destWidth, windowHeight);
+		}
+		if (destY > 0) {
+			g2d.fillRect(0, 0, windowWidth, destY);
+			g2d.fillRect(0, destY + destHeight, windowWidth, windowHeight - destY - destHeight);
+		}
+		boolean whole = destWidth % width == 0 && destHeight % height == 0;
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, whole && !smooth
+				? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+				: RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g2d.drawImage(buffer, destX, destY, destX + destWidth, destY + destHeight, 0, 0, width, height, null);
+	}
+
+	/**
+	 * Maps a window x-coordinate to the internal frame.
+	 *
+	 * @param windowX the x-coordinate in the window
+	 * @return the matching internal x-coordinate
+	 */
+	public int toInternalX(int windowX) {
+		return Math.floorDiv((windowX - destX) * width, destWidth);
+	}
+
+	/**
+	 * Maps a window y-coordinate to the internal frame.
+	 *
+	 * @param windowY the y-coordinate in the window
+	 * @return the matching internal y-coordinate
+	 */
+	public int toInternalY(int windowY) {
+		return Math.floorDiv((windowY - destY) * height, destHeight);
+	}
+
+	/**
+	 * Returns the internal width the game is drawn at.
+	 *
+	 * @return the internal width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the internal height the game is drawn at.
+	 *
+	 * @return the internal height
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
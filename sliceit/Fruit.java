@@ -7,25 +7,26 @@ import java.awt.image.BufferedImage;
 /**
  * The Fruit class represents a fruit object in the game that moves with a given
  * velocity and is affected by gravity. Each fruit has a position, size, image,
- * and velocity in both x and y directions.
+ * and velocity in both x and y directions. Its movement is kept by a
+ * {@link Motion}, to a fraction of a pixel.
  * 
  * <p>
  * Fruits can be updated (to move their position), drawn on the screen, checked
  * for off-screen status, and tested for whether a point lies within them
  */
 public class Fruit {
-	/** The x-coordinate and y-coordinate of the fruit */
-	private int x, y;
+	/** The position, velocity and gravity of the fruit, and its path over the last update. */
+	private final Motion motion;
 	/** The width and height of the fruit */
 	private float width, height;
-	/** The horizontal and vertical velocity of the fruit. */
-	private float velocityX, velocityY;
 	/** The image representing the fruit. */
 	private BufferedImage image;
 	/** The image representing the fruit after it has been sliced. */
 	private BufferedImage slicedImage;
 	/** boolean that indicates whether the fruit has been sliced. */
 	private boolean isSliced = false;
+	/** Atlas ids of the whole and sliced sprites, or -1 when not drawn from an atlas. */
+	private int spriteId = -1, slicedSpriteId = -1;
 
 	/**
 	 * Constructs a new Fruit object with the specified image, position, and
@@ -39,10 +40,7 @@ public class Fruit {
 	 */
 	public Fruit(BufferedImage image, BufferedImage slicedImage, int x, int y, float velocityX, float velocityY) {
 		this.image = image;
-		this.x = x;
-		this.y = y;
-		this.velocityX = velocityX;
-		this.velocityY = velocityY;
+		this.motion = new Motion(x, y, velocityX, velocityY, 0.3f);
 		this.width = image.getWidth();
 		this.height = image.getHeight();
 		this.slicedImage = slicedImage;
@@ -51,14 +49,21 @@ public class Fruit {
 
 	/**
 	 * This method updates the fruit's position based on its current velocity and
-	 * applies gravity to the vertical velocity.
+	 * applies gravity to the vertical velocity, in
+	 * {@link Motion#DEFAULT_SUBSTEPS} sub-steps.
 	 */
 	public void update() {
-		//move fruit horizontally
-		x += velocityX;
-		//move fruit vertically
-		y += velocityY;
-		velocityY += 0.3f; // gravity application
+		update(Motion.DEFAULT_SUBSTEPS);
+	}
+
+	/**
+	 * Updates the fruit's position and velocity by one tick, split into the
+	 * given number of sub-steps.
+	 *
+	 * @param substeps the number of sub-steps, at least 1
+	 */
+	public void update(int substeps) {
+		motion.step(substeps);
 	}
 
 	/**
@@ -68,9 +73,9 @@ public class Fruit {
 	 */
 	public void draw(Graphics2D g2d) {
 		if (isSliced) {
-			g2d.drawImage(slicedImage, x, y, null);
+			g2d.drawImage(slicedImage, getX(), getY(), null);
 		} else {
-			g2d.drawImage(image, x, y, null);
+			g2d.drawImage(image, getX(), getY(), null);
 		}
 	}
 
@@ -86,64 +91,79 @@ public class Fruit {
 
 	/**
 	 * Determines whether the fruit has moved off-screen based on the dimensions of
-	 * the panel.
+	 * the panel. A fruit counts as off-screen only if it was off-screen for the
+	 * whole of its last update.
 	 * 
 	 * @param panelWidth  the width of the panel
 	 * @param panelHeight the height of the panel
 	 * @return true if the fruit is completely off-screen; false otherwise
 	 */
 	public boolean isOffScreen(int panelWidth, int panelHeight) {
-		//is the fruit within the bounds of the panel dimensions
-		return (x + width < 0 || x - width > panelWidth || y - height > panelHeight);
+		//is the fruit's path within the bounds of the panel dimensions
+		return (motion.getMaxX() + width < 0 || motion.getMinX() - width > panelWidth
+				|| motion.getMinY() - height > panelHeight);
 	}
 
 	/**
 	 * Checks whether the fruit contains the specified point. This is for detecting
-	 * if a user interaction occurred over the fruit.
+	 * if a user interaction occurred over the fruit. The drag sample was taken
+	 * some time during the last update, so the fruit's whole path over that
+	 * update is checked.
 	 * 
 	 * @param mx is the x-coordinate of the point to check
 	 * @param my is the y-coordinate of the point to check
-	 * @return true if the specified point is within the fruit's boundaries; false
-	 *         otherwise
+	 * @return true if the specified point was within the fruit's boundaries;
+	 *         false otherwise
 	 */
 	public boolean contains(int mx, int my) {
-		return mx >= x && mx <= x + width && my >= y && my <= y + height;
+		return motion.sweptContains(mx, my, width, height);
 	}
 
 	/**
-	 * Returns the current x-coordinate of the fruit.
+	 * Returns the current x-coordinate of the fruit, rounded down to a whole
+	 * pixel.
 	 *
 	 * @return the current x-coordinate
 	 */
 	public int getX() {
-		return x;
+		return (int) Math.floor(motion.getX());
 	}
 
 	/**
-	 * Sets the x-coordinate of the fruit.
+	 * Sets the x-coordinate of the fruit, placing it there without a path.
 	 *
 	 * @param x the new x-coordinate to set
 	 */
 	public void setX(int x) {
-		this.x = x;
+		motion.moveTo(x, motion.getY());
 	}
 
 	/**
-	 * Returns the current y-coordinate of the fruit.
+	 * Returns the current y-coordinate of the fruit, rounded down to a whole
+	 * pixel.
 	 *
 	 * @return the current y-coordinate
 	 */
 	public int getY() {
-		return y;
+		return (int) Math.floor(motion.getY());
 	}
 
 	/**
-	 * Sets the y-coordinate of the fruit.
+	 * Sets the y-coordinate of the fruit, placing it there without a path.
 	 *
 	 * @param y the new y-coordinate to set
 	 */
 	public void setY(int y) {
-		this.y = y;
+		motion.moveTo(motion.getX(), y);
+	}
+
+	/**
+	 * Returns the exact position, velocity and last path of the fruit.
+	 *
+	 * @return the fruit's motion
+	 */
+	public Motion getMotion() {
+		return motion;
 	}
 
 	/**
@@ -171,7 +191,7 @@ public class Fruit {
 	 * @return the current horizontal velocity
 	 */
 	public float getVelocityX() {
-		return velocityX;
+		return motion.getVelocityX();
 	}
 
 	/**
@@ -180,7 +200,25 @@ public class Fruit {
 	 * @return the current vertical velocity
 	 */
 	public float getVelocityY() {
-		return velocityY;
+		return motion.getVelocityY();
+	}
+
+	/**
+	 * Returns the gravity applied to the fruit on every update.
+	 *
+	 * @return the gravity
+	 */
+	public float getGravity() {
+		return motion.getGravity();
+	}
+
+	/**
+	 * Sets the gravity applied to the fruit on every update.
+	 *
+	 * @param gravity the new gravity
+	 */
+	public void setGravity(float gravity) {
+		motion.setGravity(gravity);
 	}
 
 	/**
@@ -201,6 +239,27 @@ public class Fruit {
 		return slicedImage;
 	}
 
+	/**
+	 * Sets the atlas sprites used to draw the fruit before and after slicing.
+	 *
+	 * @param spriteId       the atlas id of the whole fruit
+	 * @param slicedSpriteId the atlas id of the sliced fruit
+	 */
+	public void setSpriteIds(int spriteId, int slicedSpriteId) {
+		this.spriteId = spriteId;
+		this.slicedSpriteId = slicedSpriteId;
+	}
+
+	/**
+	 * Returns the atlas id of the sprite matching the fruit's current state.
+	 *
+	 * @return the sliced sprite id if the fruit has been sliced, otherwise the
+	 *         whole sprite id
+	 */
+	public int getSpriteId() {
+		return isSliced ? slicedSpriteId : spriteId;
+	}
+
 	/**
 	 * Checks whether the fruit has been sliced.
 	 *
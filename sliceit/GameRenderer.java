@@ -0,0 +1,134 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * The GameRenderer class draws a frame of the game from a {@link WorldSnapshot}:
+ * the background, the fruits and bombs, and the score and time HUD.
+ * <p>
+ * It only needs a Graphics2D to draw on, so the same code paints the game
+ * panel on screen and offscreen images in the stress test.
+ * </p>
+ * <p>
+ * When a {@link QualityController} is attached, the scene is drawn at the
+ * quality level it asks for; without one it is always drawn at full quality.
+ * </p>
+ */
+public class GameRenderer {
+	/** The background of the play area, or null to use a plain color; replaced when it is reloaded. */
+	private volatile BufferedImage background;
+	/** Draws the sprites from the texture atlas. */
+	private final SpriteBatch batch;
+	/** Draws the score and time read-outs. */
+	private final HudRenderer hud;
+	/** Decides how much detail to draw, or null for full detail. */
+	private QualityController quality;
+	/** Reduced resolution frame, upscaled to the window at the lowest quality. */
+	private BufferedImage lowRes;
+
+	/**
+	 * Constructs a GameRenderer.
+	 *
+	 * @param background the background image, or null for a plain pink background
+	 * @param batch      the sprite batch used for fruits, bombs and explosions
+	 * @param hud        the HUD renderer used for the score and time
+	 */
+	public GameRenderer(BufferedImage background, SpriteBatch batch, HudRenderer hud) {
+		this.background = background;
+		this.batch = batch;
+		this.hud = hud;
+	}
+
+	/**
+	 * Draws the background and every sprite of the snapshot.
+	 *
+	 * @param g2d      the graphics context to draw on
+	 * @param width    the width of the area being drawn
+	 * @param height   the height of the area being drawn
+	 * @param snapshot the world state to draw
+	 */
+	public void drawScene(Graphics2D g2d, int width, int height, WorldSnapshot snapshot) {
+		float scale = quality == null ? 1f : quality.getRenderScale();
+		if (scale >= 1f) {
+			drawFrame(g2d, width, height, snapshot);
+			return;
+		}
+		//draw into a smaller image and stretch it over the area in one go
+		int lowWidth = Math.max(1, (int) (width * scale));
+		int lowHeight = Math.max(1, (int) (height * scale));
+		if (lowRes == null || lowRes.getWidth() != lowWidth || lowRes.getHeight() != lowHeight) {
+			lowRes = TextureAtlas.createCompatibleImage(lowWidth, lowHeight);
+		}
+		Graphics2D lowG = lowRes.createGraphics();
+		try {
+			lowG.scale(lowWidth / (double) width, lowHeight / (double) height);
+			drawFrame(lowG, width, height, snapshot);
+		} finally {
+			lowG.dispose();
+		}
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, quality.getBackgroundInterpolation());
+		g2d.drawImage(lowRes, 0, 0, width, height, 0, 0, lowWidth, lowHeight, null);
+	}
+
+	/**
+	 * Draws the background and sprites at the given size on any graphics context.
+	 */
+	private void drawFrame(Graphics2D g2d, int width, int height, WorldSnapshot snapshot) {
+		//draw background image, stretched to the whole area
+		BufferedImage background = this.background;
+		if (background != null) {
+			if (quality != null) {
+				g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, quality.getBackgroundInterpolation());
+			}
+			g2d.drawImage(background, 0, 0, width, height, null);
+		} else {
+			g2d.setColor(Color.pink);
+			g2d.fillRect(0, 0, width, height);
+		}
+		snapshot.draw(g2d, batch, quality == null ? 1 : quality.getParticleStride());
+	}
+
+	/**
+	 * Draws another background from the next frame on.
+	 *
+	 * @param background the new background image, or null for a plain pink background
+	 */
+	public void setBackground(BufferedImage background) {
+		this.background = background;
+	}
+
+	/**
+	 * Attaches a quality controller that decides how much detail to draw.
+	 *
+	 * @param quality the controller, or null to always draw at full quality
+	 */
+	public void setQuality(QualityController quality) {
+		this.quality = quality;
+	}
+
+	/**
+	 * Draws the score and time along the top of the area, centred in the same 30px
+	 * strip the old labels used.
+	 *
+	 * @param g2d           the graphics context to draw on
+	 * @param points        the score to show
+	 * @param timeRemaining the seconds left to show
+	 */
+	public void drawHud(Graphics2D g2d, int points, int timeRemaining) {
+		int hudY = -7 + (30 - hud.getHeight()) / 2;
+		hud.drawScore(g2d, 0, hudY, points);
+		hud.drawTime(g2d, 300, hudY, timeRemaining);
+	}
+
+	/**
+	 * Returns the sprite batch used by this renderer.
+	 *
+	 * @return the sprite batch
+	 */
+	public SpriteBatch getBatch() {
+		return batch;
+	}
+}
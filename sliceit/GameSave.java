@@ -0,0 +1,378 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The GameSave class writes a round in progress to a small binary file and
+ * reads it back, so a closed window or a crash does not lose the round.
+ * <p>
+ * The file starts with a magic number, the format version and the size of a
+ * slot, followed by two slots. Saves take turns between the slots, and each
+ * one holds a sequence number, the length and CRC of its contents, the
+ * player's name, the seconds left, the {@link DifficultyConfig} the round is
+ * played with and the {@link GameWorld} state. Loading picks the newest slot
+ * whose CRC matches, so a crash halfway through a save still leaves the one
+ * before it, and rebuilds the round's spawn schedule from its own settings,
+ * whatever the settings file says by then.
+ * </p>
+ * <p>
+ * The state is encoded into one reusable direct buffer and written with a
+ * single positional {@link FileChannel} write to a channel that stays open,
+ * with no opening, renaming or syncing on the way. That keeps a full screen
+ * well under a millisecond, so the game saves every few seconds from the
+ * simulation thread. The channel is opened by
+ * {@link #prepare(GameWorld, DifficultyConfig)} when the round starts, keeping
+ * a save already in the file. Saves every few seconds are too rare for the JIT
+ * compiler to reach on its own, so the same call also encodes the round a few
+ * times first; without that the first saves of a session run interpreted and
+ * take several milliseconds.
+ * </p>
+ * <p>
+ * The file is never truncated in place. A new file, and one whose slots a
+ * save has outgrown, is written whole to a temporary file that is then moved
+ * over the old one, so a crash at any point leaves a complete save behind.
+ * </p>
+ */
+public class GameSave {
+	/** First four bytes of every save file ("SLIC"). */
+	public static final int MAGIC = 0x534C4943;
+	/** Version of the format written by this class. */
+	public static final short VERSION = 4;
+	/** Bytes before the first slot: magic, version and slot size. */
+	private static final int HEADER_SIZE = 4 + 2 + 4;
+	/** Bytes at the start of a slot: sequence number, length and CRC. */
+	private static final int SLOT_HEADER_SIZE = 8 + 4 + 4;
+	/** Size of each slot in a new file, enough for a busy screen. */
+	private static final int DEFAULT_SLOT_SIZE = 64 * 1024;
+	/** Times a round is encoded while preparing, enough to get the encoding compiled. */
+	private static final int WARM_UP_ENCODES = 20;
+
+	/** Where the save is kept. */
+	private final Path path;
+	/** Reused encode buffer; grows when a save does not fit. */
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(32 * 1024);
+	/** Checksum of each slot's contents. */
+	private final CRC32 crc = new CRC32();
+	/** The open save file, or null until prepared. */
+	private FileChannel channel;
+	/** Size of each slot in the open file. */
+	private int slotSize;
+	/** Sequence number of the last save; its slot is sequence % 2. */
+	private long sequence;
+	/** Seconds left in the round, as read by the last load. */
+	private int timeRemaining;
+	/** Player's name, as read by the last load. */
+	private String username;
+	/** Difficulty settings of the round, as read by the last load. */
+	private DifficultyConfig config;
+	/** How long the last save took, in nanoseconds. */
+	private long lastSaveNanos;
+
+	/**
+	 * Constructs a GameSave kept at the given path.
+	 *
+	 * @param path the save file
+	 */
+	public GameSave(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Opens the save file ready for the round's saves and encodes the round a
+	 * few times without writing it, so the first save has neither to open the
+	 * file nor to run uncompiled code. A file already holding a save is kept as
+	 * it is, and the next save goes to the slot not holding the newest save;
+	 * otherwise a file with two empty slots is put in place. Call when the round
+	 * starts, before the simulation thread does.
+	 *
+	 * @param world  the round that will be saved
+	 * @param config the difficulty settings it is played with
+	 * @throws IOException if the file cannot be opened or created
+	 */
+	public void prepare(GameWorld world, DifficultyConfig config) throws IOException {
+		open();
+		for (int i = 0; i < WARM_UP_ENCODES; i++) {
+			encode(world, config, 0, null);
+		}
+	}
+
+	/**
+	 * Opens the save file if it is not open yet, keeping a save already in it.
+	 */
+	private void open() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		if (Files.exists(path)) {
+			ByteBuffer in = readFile();
+			if (in.limit() >= HEADER_SIZE && in.getInt(0) == MAGIC && in.getShort(4) == VERSION
+					&& in.getInt(6) > SLOT_HEADER_SIZE && in.getInt(6) <= Integer.MAX_VALUE / 4) {
+				int size = in.getInt(6);
+				long newest = 0;
+				for (int slot = 0; slot < 2; slot++) {
+					newest = Math.max(newest, validSequence(in, HEADER_SIZE + slot * size, size));
+				}
+				channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				slotSize = size;
+				sequence = newest;
+				return;
+			}
+		}
+		layOut(Math.max(DEFAULT_SLOT_SIZE, buffer.capacity()), null);
+	}
+
+	/**
+	 * Saves a round. Must be called from the thread that owns the world.
+	 *
+	 * @param world         the round to save
+	 * @param config        the difficulty settings the round is played with
+	 * @param timeRemaining the seconds left in the round
+	 * @param username      the player's name
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(GameWorld world, DifficultyConfig config, int timeRemaining, String username)
+			throws IOException {
+		long start = System.nanoTime();
+		encode(world, config, timeRemaining, username);
+		sequence++;
+		buffer.putLong(0, sequence);
+		buffer.position(0);
+
+		if (channel == null) {
+			open();
+		}
+		if (buffer.limit() > slotSize) {
+			//the save has outgrown the slots: a new file with bigger slots replaces the old one whole
+			layOut(Math.max(buffer.capacity(), 2 * slotSize), buffer);
+		} else {
+			long offset = HEADER_SIZE + (sequence % 2) * (long) slotSize;
+			while (buffer.hasRemaining()) {
+				offset += channel.write(buffer, offset);
+			}
+		}
+		lastSaveNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Encodes a slot into the buffer and flips it, filling in the length and CRC
+	 * but not the sequence number.
+	 */
+	private void encode(GameWorld world, DifficultyConfig config, int timeRemaining, String username) {
+		byte[] name = (username == null ? "" : username).getBytes(StandardCharsets.UTF_8);
+		while (true) {
+			try {
+				buffer.clear();
+				buffer.position(SLOT_HEADER_SIZE);
+				buffer.putInt(timeRemaining);
+				buffer.putShort((short) name.length);
+				buffer.put(name);
+				config.writeTo(buffer);
+				world.writeState(buffer);
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+			}
+		}
+		int length = buffer.position() - SLOT_HEADER_SIZE;
+		buffer.flip();
+		buffer.position(SLOT_HEADER_SIZE);
+		crc.reset();
+		crc.update(buffer);
+		buffer.putInt(8, length);
+		buffer.putInt(12, (int) crc.getValue());
+	}
+
+	/**
+	 * Writes a new save file with slots of the given size to a temporary file,
+	 * moves it over the old one and opens it. The new file holds the given
+	 * save in its slot, or no save at all.
+	 *
+	 * @param newSlotSize the slot size
+	 * @param save        an encoded save to put in slot sequence % 2, or null
+	 */
+	private void layOut(int newSlotSize, ByteBuffer save) throws IOException {
+		close();
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putShort(VERSION).putInt(newSlotSize).flip();
+			out.write(header, 0);
+			//an all-zero slot never passes the checks, so the other slot reads as empty
+			out.write(ByteBuffer.allocate(SLOT_HEADER_SIZE), HEADER_SIZE + (1 - sequence % 2) * (long) newSlotSize);
+			long offset = HEADER_SIZE + (sequence % 2) * (long) newSlotSize;
+			if (save != null) {
+				while (save.hasRemaining()) {
+					offset += out.write(save, offset);
+				}
+			} else {
+				out.write(ByteBuffer.allocate(SLOT_HEADER_SIZE), offset);
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		slotSize = newSlotSize;
+	}
+
+	/**
+	 * Reads the whole save file into a heap buffer.
+	 */
+	private ByteBuffer readFile() throws IOException {
+		ByteBuffer in;
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+			in = ByteBuffer.allocate((int) file.size());
+			while (in.hasRemaining() && file.read(in) >= 0) {
+				//keep reading until the whole file is in
+			}
+		}
+		in.flip();
+		return in;
+	}
+
+	/**
+	 * Loads the newest complete save into a world, rebuilding its spawn schedule
+	 * from the difficulty settings saved with it. The seconds left, the player's
+	 * name and those settings are then available from
+	 * {@link #getTimeRemaining()}, {@link #getUsername()} and
+	 * {@link #getConfig()}.
+	 *
+	 * @param world the world to restore into; no simulation may be running
+	 * @throws IOException if the file cannot be read or holds no valid save
+	 */
+	public void load(GameWorld world) throws IOException {
+		ByteBuffer in = readFile();
+		try {
+			if (in.getInt() != MAGIC) {
+				throw new IOException(path + " is not a SliceIt save");
+			}
+			short version = in.getShort();
+			if (version != VERSION) {
+				throw new IOException(path + " is save format " + version + ", expected " + VERSION);
+			}
+			int size = in.getInt();
+			int best = -1;
+			long bestSequence = 0;
+			for (int slot = 0; slot < 2; slot++) {
+				long seq = validSequence(in, HEADER_SIZE + slot * size, size);
+				if (seq > bestSequence) {
+					bestSequence = seq;
+					best = slot;
+				}
+			}
+			if (best < 0) {
+				throw new IOException(path + " holds no complete save");
+			}
+			in.position(HEADER_SIZE + best * size + SLOT_HEADER_SIZE);
+			timeRemaining = in.getInt();
+			byte[] name = new byte[in.getShort()];
+			in.get(name);
+			username = new String(name, StandardCharsets.UTF_8);
+			DifficultyConfig saved = DifficultyConfig.readFrom(in);
+			world.readState(in, saved);
+			config = saved;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException(path + " is cut short", e);
+		}
+	}
+
+	/**
+	 * Returns the sequence number of a slot, or 0 if it is empty, cut short or
+	 * fails its CRC.
+	 */
+	private long validSequence(ByteBuffer in, int offset, int size) {
+		if (offset + SLOT_HEADER_SIZE > in.limit()) {
+			return 0;
+		}
+		long seq = in.getLong(offset);
+		int length = in.getInt(offset + 8);
+		int expected = in.getInt(offset + 12);
+		int end = offset + SLOT_HEADER_SIZE + length;
+		if (seq <= 0 || length < 0 || length > size - SLOT_HEADER_SIZE || end > in.limit()) {
+			return 0;
+		}
+		CRC32 check = new CRC32();
+		check.update(in.array(), offset + SLOT_HEADER_SIZE, length);
+		return (int) check.getValue() == expected ? seq : 0;
+	}
+
+	/**
+	 * Checks whether there is a save to resume.
+	 *
+	 * @return true if the save file exists
+	 */
+	public boolean exists() {
+		return Files.exists(path);
+	}
+
+	/**
+	 * Closes the save file; the next prepare or save opens it again.
+	 */
+	public void close() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * Removes the save, once its round has ended.
+	 */
+	public void delete() {
+		close();
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the seconds left in the round read by the last load.
+	 *
+	 * @return the seconds left
+	 */
+	public int getTimeRemaining() {
+		return timeRemaining;
+	}
+
+	/**
+	 * Returns the player's name read by the last load.
+	 *
+	 * @return the player's name
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Returns the difficulty settings of the round read by the last load.
+	 *
+	 * @return the round's settings
+	 */
+	public DifficultyConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Returns how long the last save took.
+	 *
+	 * @return the save time in nanoseconds
+	 */
+	public long getLastSaveNanos() {
+		return lastSaveNanos;
+	}
+}
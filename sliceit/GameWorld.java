@@ -0,0 +1,662 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The GameWorld class holds the state of a running round: the fruits and bombs
+ * on screen, the particles thrown off by slices and explosions, the player's
+ * score and the schedule of what to spawn next.
+ * <p>
+ * While a round is running the world belongs to the simulation thread. The
+ * game panel never reads it directly; it draws the {@link WorldSnapshot}s the
+ * world writes at the end of every tick.
+ * </p>
+ */
+public class GameWorld {
+	/** Most particles alive at once; bursts are thinned out as this fills up. */
+	public static final int PARTICLE_CAPACITY = 4096;
+	/** Points scored for each fruit sliced. */
+	public static final int FRUIT_POINTS = 10;
+	/** List containing all the fruits currently on the screen. */
+	private final List<Fruit> fruits = new ArrayList<>();
+	/** List containing all the bombs currently on the screen. */
+	private final List<Bomb> bombs = new ArrayList<>();
+	/** The fruits sorted by height, for finding those near a drag sample. */
+	private final SweepIndex<Fruit> fruitsByY = new SweepIndex<>(Fruit::getMotion,
+			f -> (int) Math.ceil(f.getHeight()));
+	/** The bombs sorted by height, for finding those near a drag sample. */
+	private final SweepIndex<Bomb> bombsByY = new SweepIndex<>(Bomb::getMotion, b -> b.getImage().getHeight());
+	/** Index positions of the objects hit by the current drag sample. */
+	private int[] hits = new int[16];
+	/** The bombs hit by the current drag sample, kept as the hits array grows. */
+	private Bomb[] hitBombs = new Bomb[16];
+	/** Every fruit and bomb launch of the round, worked out from its seed. */
+	private SpawnSchedule schedule;
+	/** Number of ticks simulated since the round started. */
+	private long tickCount;
+	/** Number of sub-steps every fruit and bomb takes per tick. */
+	private int substeps = Motion.DEFAULT_SUBSTEPS;
+	/** Array holding images of unsliced fruits. */
+	private final BufferedImage[] unslicedFruits;
+	/** Array holding images of sliced fruits. */
+	private final BufferedImage[] slicedFruits;
+	/** The image representing a bomb object in the game. */
+	private final BufferedImage bomb;
+	/** Atlas id of the first unsliced fruit; fruit n uses this id plus n. */
+	private final int fruitSprite;
+	/** Atlas id of the first sliced fruit; fruit n uses this id plus n. */
+	private final int slicedSprite;
+	/** Atlas id of the bomb. */
+	private final int bombSprite;
+	/** Atlas id of the first left fruit half, or -1 if the atlas has no halves. */
+	private final int halfLeftSprite;
+	/** Atlas id of the first right fruit half, or -1 if the atlas has no halves. */
+	private final int halfRightSprite;
+	/** Width of a left fruit half, where the right half starts. */
+	private final int halfWidth;
+	/** Juice, fruit halves and explosion debris. */
+	private final ParticleSystem particles = new ParticleSystem(PARTICLE_CAPACITY);
+	/** Width of the play area, set by the game panel when it is laid out. */
+	private volatile int width;
+	/** Height of the play area, set by the game panel when it is laid out. */
+	private volatile int height;
+	/** Player's current score during the game. */
+	private int points = 0;
+	/** Flag indicating whether a bomb has been sliced. */
+	private volatile boolean gameOver = false;
+	/** Bounds of the bomb that ended the game (x, y, width, height). */
+	private int hitX, hitY, hitWidth, hitHeight;
+	/** Whether slicing a bomb ends the game; turned off by the stress test. */
+	private boolean bombsEndGame = true;
+	/** Number of bombs sliced this round. */
+	private int bombsHit;
+
+	/**
+	 * Constructs a new GameWorld that spawns objects using the "fruit", "sliced"
+	 * and "bomb" groups of the given atlas. If the atlas also has "halfLeft" and
+	 * "halfRight" groups, sliced fruits fly apart in two halves.
+	 *
+	 * @param atlas the packed game sprites
+	 */
+	public GameWorld(TextureAtlas atlas) {
+		this.unslicedFruits = atlas.getImages("fruit");
+		this.slicedFruits = atlas.getImages("sliced");
+		this.bomb = atlas.getCell(atlas.getId("bomb"));
+		this.fruitSprite = atlas.getId("fruit");
+		this.slicedSprite = atlas.getId("sliced");
+		this.bombSprite = atlas.getId("bomb");
+		if (atlas.getCount("halfLeft") > 0 && atlas.getCount("halfRight") > 0) {
+			this.halfLeftSprite = atlas.getId("halfLeft");
+			this.halfRightSprite = atlas.getId("halfRight");
+			this.halfWidth = atlas.getCellWidth(halfLeftSprite);
+		} else {
+			this.halfLeftSprite = -1;
+			this.halfRightSprite = -1;
+			this.halfWidth = 0;
+		}
+		reset(new DifficultyConfig(), System.nanoTime());
+	}
+
+	/**
+	 * Clears the screen and score and builds the spawn schedule for a new round.
+	 * Must only be called while no simulation thread is running.
+	 *
+	 * @param config the difficulty settings for the round
+	 * @param seed   the seed deciding every spawn of the round
+	 */
+	public void reset(DifficultyConfig config, long seed) {
+		schedule = new SpawnSchedule(config, unslicedFruits.length, seed);
+		substeps = config.getSubsteps();
+		tickCount = 0;
+		points = 0;
+		bombsHit = 0;
+		fruits.clear();
+		bombs.clear();
+		fruitsByY.clear();
+		bombsByY.clear();
+		particles.reset(seed);
+		gameOver = false;
+	}
+
+	/**
+	 * Sets the size of the play area used for spawning and off-screen checks.
+	 *
+	 * @param width  the width of the game panel
+	 * @param height the height of the game panel
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Returns the width of the play area.
+	 *
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the play area.
+	 *
+	 * @return the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Advances the world by one tick: launches whatever the schedule has for this
+	 * tick, moves everything and removes whatever has left the screen. Once the
+	 * game is over only the particles keep moving, so the explosion debris can
+	 * settle while everything else stays frozen.
+	 */
+	public void tick() {
+		int panelWidth = width;
+		int panelHeight = height;
+		particles.update(panelHeight);
+		if (gameOver) {
+			return;
+		}
+		syncIndexes();
+		int first = schedule.getStart(tickCount);
+		int end = schedule.getEnd(tickCount);
+
+		// launch this tick's fruits before moving, so they move on the tick they appear
+		for (int e = first; e < end; e++) {
+			if (schedule.getType(e) == SpawnSchedule.FRUIT) {
+				spawnFruit(e, panelWidth, panelHeight);
+			}
+		}
+
+		// Update fruit positions
+		int culled = moveFruits(panelWidth, panelHeight);
+		fruitsByY.update();
+		if (culled > 0) {
+			fruitsByY.cull(culled, f -> f.isOffScreen(panelWidth, panelHeight));
+		}
+
+		// Go through bombs
+		culled = moveBombs(panelWidth, panelHeight);
+		bombsByY.update();
+		if (culled > 0) {
+			bombsByY.cull(culled, b -> b.isOffScreen(panelWidth, panelHeight));
+		}
+
+		// bombs are launched after moving, so they first move on the next tick
+		for (int e = first; e < end; e++) {
+			if (schedule.getType(e) == SpawnSchedule.BOMB) {
+				spawnBomb(e, panelWidth, panelHeight);
+			}
+		}
+		tickCount++;
+	}
+
+	/**
+	 * Moves every fruit and removes those that have left the screen, in one pass
+	 * that closes the gaps as it goes, so the rest keep their order and a tick
+	 * stays linear however many fruits leave.
+	 *
+	 * @return the number of fruits removed
+	 */
+	private int moveFruits(int panelWidth, int panelHeight) {
+		int n = fruits.size();
+		int kept = 0;
+		for (int i = 0; i < n; i++) {
+			Fruit f = fruits.get(i);
+			f.update(substeps);
+			//keep the fruits still on screen
+			if (!f.isOffScreen(panelWidth, panelHeight)) {
+				fruits.set(kept++, f);
+			}
+		}
+		fruits.subList(kept, n).clear();
+		return n - kept;
+	}
+
+	/**
+	 * Moves every bomb and removes those that have left the screen, in one pass
+	 * like {@link #moveFruits(int, int)}.
+	 *
+	 * @return the number of bombs removed
+	 */
+	private int moveBombs(int panelWidth, int panelHeight) {
+		int n = bombs.size();
+		int kept = 0;
+		for (int i = 0; i < n; i++) {
+			Bomb b = bombs.get(i);
+			b.update(substeps);
+			//keep the bombs still on screen
+			if (!b.isOffScreen(panelWidth, panelHeight)) {
+				bombs.set(kept++, b);
+			}
+		}
+		bombs.subList(kept, n).clear();
+		return n - kept;
+	}
+
+	/**
+	 * Launches the fruit described by a schedule event from the bottom of the
+	 * panel.
+	 *
+	 * OpenAI.(2025). ChatGPT [Large Language Model]
+	 * When prompted with, "How do I create objects of fruit and bomb using the images from the lists? I also want them to have velocityX and velocityY", the generated code includes the if statements
+	 */
+	private void spawnFruit(int event, int panelWidth, int panelHeight) {
+		// which fruit to spawn was picked when the schedule was built
+		int fruitIndex = schedule.getVariant(event);
+		 // load the unsliced fruit image at that index
+		BufferedImage img = unslicedFruits[fruitIndex];
+		// place the fruit so it appears fully within the panel
+		int x = schedule.getX(event, panelWidth - img.getWidth());
+		// start the fruit at the bottom of the panel
+		int y = panelHeight - img.getHeight();
+		// load the  sliced‐fruit image for when it’s cut
+		BufferedImage slicedImg = slicedFruits[fruitIndex];
+		// construct a new Fruit object with the chosen images and velocities
+		Fruit fruit = new Fruit(img, slicedImg, x, y, schedule.getVelocityX(event), schedule.getVelocityY(event));
+		fruit.setSpriteIds(fruitSprite + fruitIndex, slicedSprite + fruitIndex);
+		fruit.setGravity(schedule.getFruitGravity());
+		// add the new fruit to the list of active fruits so it will be updated and drawn
+		fruits.add(fruit);
+		fruitsByY.add(fruit);
+	}
+
+	/**
+	 * Launches the bomb described by a schedule event from the bottom of the
+	 * panel.
+	 */
+	private void spawnBomb(int event, int panelWidth, int panelHeight) {
+		if (bomb == null) {
+			return;
+		}
+		// place the bomb so it appears fully within the panel
+		int x = schedule.getX(event, panelWidth - bomb.getWidth());
+		// position the bomb so its bottom edge sits at the bottom of the panel
+		int y = panelHeight - bomb.getHeight();
+		// create a new Bomb object with the chosen position and velocities
+		Bomb newBomb = new Bomb(bomb, x, y, schedule.getVelocityX(event), schedule.getVelocityY(event));
+		newBomb.setSpriteId(bombSprite);
+		newBomb.setGravity(schedule.getBombGravity());
+		// adds the new bomb to the list so it gets updated and drawn each frame
+		bombs.add(newBomb);
+		bombsByY.add(newBomb);
+	}
+
+	/**
+	 * Rebuilds the sorted indexes if objects were added to or removed from the
+	 * lists from outside the world, as tests do.
+	 */
+	private void syncIndexes() {
+		if (fruitsByY.size() != fruits.size()) {
+			fruitsByY.rebuild(fruits);
+		}
+		if (bombsByY.size() != bombs.size()) {
+			bombsByY.rebuild(bombs);
+		}
+	}
+
+	/**
+	 * Sorts the first found entries of {@link #hits} by serial number, which is
+	 * the order of the world's lists. Only a few objects are hit at once, so an
+	 * insertion sort is enough.
+	 */
+	private void sortHits(SweepIndex<?> index, int found) {
+		for (int i = 1; i < found; i++) {
+			int hit = hits[i];
+			int j = i - 1;
+			while (j >= 0 && index.getSerial(hits[j]) > index.getSerial(hit)) {
+				hits[j + 1] = hits[j];
+				j--;
+			}
+			hits[j + 1] = hit;
+		}
+	}
+
+	/**
+	 * Checks if the mouse sliced a bomb or fruit at the given point. Fruits under
+	 * the point are sliced and scored; a bomb under the point ends the game.
+	 * Only the objects in the band of the sorted indexes around the point are
+	 * checked, and those hit are handled in list order as before.
+	 *
+	 * OpenAI.(2025). ChatGPT [Large Language Model]
+	 * When prompted with, "How can I check if mouse has been dragged on the fruit and bomb?" , I provided the fruit and bomb class as well and this was the generated code.
+	 *
+	 * @param mouseX the x-coordinate of the drag sample
+	 * @param mouseY the y-coordinate of the drag sample
+	 * @return true if a bomb was hit and the game is now over; false otherwise
+	 */
+	public boolean slice(int mouseX, int mouseY) {
+		if (gameOver) {
+			return false;
+		}
+
+		syncIndexes();
+
+		// Check if held down mouse is in same coordinate as fruit
+		int found = 0;
+		for (int i = fruitsByY.start(mouseY), end = fruitsByY.end(mouseY); i < end; i++) {
+			Fruit f = fruitsByY.get(i);
+			if (!f.getIsSliced() && f.contains(mouseX, mouseY)) {
+				found = addHit(found, i);
+			}
+		}
+		sortHits(fruitsByY, found);
+		for (int h = 0; h < found; h++) {
+			Fruit f = fruitsByY.get(hits[h]);
+			splash(f);
+			f.slice();
+			//if so add points
+			points += FRUIT_POINTS;
+		}
+
+		// Check for bomb slicing.
+		found = 0;
+		for (int i = bombsByY.start(mouseY), end = bombsByY.end(mouseY); i < end; i++) {
+			//check if mouse has hit the bomb
+			if (bombsByY.get(i).isHit(mouseX, mouseY)) {
+				found = addHit(found, i);
+			}
+		}
+		if (found == 0) {
+			return false;
+		}
+		sortHits(bombsByY, found);
+		//look the bombs up before removing any moves the rest of the index
+		if (hitBombs.length < found) {
+			hitBombs = new Bomb[hits.length];
+		}
+		for (int h = 0; h < found; h++) {
+			hitBombs[h] = bombsByY.get(hits[h]);
+		}
+		boolean over = false;
+		for (int h = 0; h < found && !over; h++) {
+			Bomb b = hitBombs[h];
+			//remember where the bomb was so the explosion can be centred on it
+			hitX = b.getX();
+			hitY = b.getY();
+			hitWidth = b.getImage().getWidth();
+			hitHeight = b.getImage().getHeight();
+			bombs.remove(b);
+			bombsByY.remove(b);
+			bombsHit++;
+			explode(getHitCenterX(), getHitCenterY());
+			over = bombsEndGame;
+		}
+		//let go of the bombs so removed ones can be collected
+		Arrays.fill(hitBombs, 0, found, null);
+		if (over) {
+			gameOver = true;
+		}
+		return over;
+	}
+
+	/**
+	 * Records an index position in {@link #hits}, growing it when full.
+	 */
+	private int addHit(int found, int position) {
+		if (found == hits.length) {
+			hits = Arrays.copyOf(hits, found * 2);
+		}
+		hits[found] = position;
+		return found + 1;
+	}
+
+	/**
+	 * Throws juice out of a fruit that is being sliced and, when the atlas has
+	 * them, sends its two halves flying apart.
+	 */
+	private void splash(Fruit f) {
+		int kind = kindOf(f);
+		//only the first colors of the palette are juice
+		if (kind >= ParticleSystem.SMOKE) {
+			kind = 0;
+		}
+		float cx = f.getX() + f.getWidth() / 2;
+		float cy = f.getY() + f.getHeight() / 2;
+		particles.burst(cx, cy, 24, 5f, kind, 2, 30, 0.25f);
+		if (halfLeftSprite >= 0) {
+			particles.emitSprite(f.getX(), f.getY(), f.getVelocityX() - 1.5f, f.getVelocityY(), halfLeftSprite + kind,
+					200, f.getGravity());
+			particles.emitSprite(f.getX() + halfWidth, f.getY(), f.getVelocityX() + 1.5f, f.getVelocityY(),
+					halfRightSprite + kind, 200, f.getGravity());
+		}
+	}
+
+	/**
+	 * Works out which fruit of the sheet a fruit is from its sprite id. Fruits
+	 * without an atlas sprite (as in tests) count as the first fruit.
+	 */
+	private int kindOf(Fruit f) {
+		int kind = f.getSpriteId() - (f.getIsSliced() ? slicedSprite : fruitSprite);
+		return kind >= 0 && kind < unslicedFruits.length ? kind : 0;
+	}
+
+	/**
+	 * Throws smoke, fire and sparks out from where a bomb was sliced.
+	 */
+	private void explode(int cx, int cy) {
+		particles.burst(cx, cy, 60, 6f, ParticleSystem.SMOKE, 4, 60, 0.05f);
+		particles.burst(cx, cy, 50, 9f, ParticleSystem.FIRE, 3, 40, 0.15f);
+		particles.burst(cx, cy, 40, 12f, ParticleSystem.SPARK, 2, 30, 0.3f);
+	}
+
+	/**
+	 * Copies what needs to be drawn into the given snapshot: fruits first, then
+	 * bombs, then the particles and the score. Sliced fruits are left out when
+	 * their halves are flying as particles.
+	 *
+	 * @param snapshot the snapshot to overwrite
+	 */
+	public void writeSnapshot(WorldSnapshot snapshot) {
+		snapshot.clear();
+		for (int i = 0; i < fruits.size(); i++) {
+			Fruit f = fruits.get(i);
+			if (halfLeftSprite >= 0 && f.getIsSliced()) {
+				continue;
+			}
+			snapshot.add(f.getSpriteId(), f.getX(), f.getY());
+		}
+		for (int i = 0; i < bombs.size(); i++) {
+			Bomb b = bombs.get(i);
+			snapshot.add(b.getSpriteId(), b.getX(), b.getY());
+		}
+		particles.writeTo(snapshot);
+		snapshot.setPoints(points);
+	}
+
+	/**
+	 * Writes everything needed to carry on the round later: the seed and tick of
+	 * the spawn schedule, the score, whether a bomb has ended the game and where
+	 * it was, every fruit, bomb and particle. Must be called from the thread that
+	 * owns the world.
+	 *
+	 * @param out the buffer to write to
+	 */
+	public void writeState(ByteBuffer out) {
+		out.putLong(schedule.getSeed());
+		out.putLong(tickCount);
+		out.putInt(points);
+		out.putInt(bombsHit);
+		out.put((byte) (gameOver ? 1 : 0));
+		out.putInt(hitX).putInt(hitY).putInt(hitWidth).putInt(hitHeight);
+		out.putInt(fruits.size());
+		for (int i = 0; i < fruits.size(); i++) {
+			Fruit f = fruits.get(i);
+			out.put((byte) kindOf(f));
+			out.put((byte) (f.getIsSliced() ? 1 : 0));
+			f.getMotion().writeState(out);
+		}
+		out.putInt(bombs.size());
+		for (int i = 0; i < bombs.size(); i++) {
+			bombs.get(i).getMotion().writeState(out);
+		}
+		particles.writeState(out);
+	}
+
+	/**
+	 * Replaces the round with one written by {@link #writeState(ByteBuffer)}. The
+	 * spawn schedule is rebuilt from the saved seed, so the rest of the round
+	 * plays out as it would have. Must only be called while no simulation thread
+	 * is running.
+	 *
+	 * @param in     the buffer to read from
+	 * @param config the difficulty settings to rebuild the schedule with
+	 * @throws IOException if the saved state does not fit this world
+	 */
+	public void readState(ByteBuffer in, DifficultyConfig config) throws IOException {
+		reset(config, in.getLong());
+		tickCount = in.getLong();
+		points = in.getInt();
+		bombsHit = in.getInt();
+		boolean over = in.get() != 0;
+		hitX = in.getInt();
+		hitY = in.getInt();
+		hitWidth = in.getInt();
+		hitHeight = in.getInt();
+		int fruitCount = in.getInt();
+		for (int i = 0; i < fruitCount; i++) {
+			int kind = in.get();
+			boolean sliced = in.get() != 0;
+			if (kind < 0 || kind >= unslicedFruits.length) {
+				throw new IOException("Saved fruit " + kind + " is not in the sprite sheet");
+			}
+			Fruit fruit = new Fruit(unslicedFruits[kind], slicedFruits[kind], 0, 0, 0, 0);
+			fruit.getMotion().readState(in);
+			fruit.setSpriteIds(fruitSprite + kind, slicedSprite + kind);
+			if (sliced) {
+				fruit.slice();
+			}
+			fruits.add(fruit);
+		}
+		int bombCount = in.getInt();
+		for (int i = 0; i < bombCount; i++) {
+			Bomb b = new Bomb(bomb, 0, 0, 0, 0);
+			b.getMotion().readState(in);
+			b.setSpriteId(bombSprite);
+			bombs.add(b);
+		}
+		particles.readState(in);
+		//the restored lists are in the order they were saved, so the serials come out the same
+		fruitsByY.rebuild(fruits);
+		bombsByY.rebuild(bombs);
+		//a rollback past a bomb hit must not bring the round back to life
+		gameOver = over;
+	}
+
+	/**
+	 * Returns the number of ticks simulated since the round started.
+	 *
+	 * @return the tick count
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * Returns the number of sub-steps every fruit and bomb takes per tick.
+	 *
+	 * @return the sub-steps per tick
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Returns the spawn schedule of the current round.
+	 *
+	 * @return the schedule
+	 */
+	public SpawnSchedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Sets whether slicing a bomb ends the game. When off, a sliced bomb is just
+	 * removed and counted, so automated runs can keep going.
+	 *
+	 * @param bombsEndGame true for normal play
+	 */
+	public void setBombsEndGame(boolean bombsEndGame) {
+		this.bombsEndGame = bombsEndGame;
+	}
+
+	/**
+	 * Returns the number of bombs sliced this round.
+	 *
+	 * @return the bomb count
+	 */
+	public int getBombsHit() {
+		return bombsHit;
+	}
+
+	/**
+	 * Returns the player's current score.
+	 *
+	 * @return the score
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * Checks whether a bomb has been sliced this round.
+	 *
+	 * @return true if the game is over; false otherwise
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	/**
+	 * Returns the x-coordinate of the centre of the bomb that ended the game.
+	 *
+	 * @return the centre x-coordinate
+	 */
+	public int getHitCenterX() {
+		return hitX + hitWidth / 2;
+	}
+
+	/**
+	 * Returns the y-coordinate of the centre of the bomb that ended the game.
+	 *
+	 * @return the centre y-coordinate
+	 */
+	public int getHitCenterY() {
+		return hitY + hitHeight / 2;
+	}
+
+	/**
+	 * Returns the particle system of the world.
+	 *
+	 * @return the particles
+	 */
+	public ParticleSystem getParticles() {
+		return particles;
+	}
+
+	/**
+	 * Returns the list of fruits currently on the screen.
+	 *
+	 * @return the live fruit list
+	 */
+	public List<Fruit> getFruits() {
+		return fruits;
+	}
+
+	/**
+	 * Returns the list of bombs currently on the screen.
+	 *
+	 * @return the live bomb list
+	 */
+	public List<Bomb> getBombs() {
+		return bombs;
+	}
+}
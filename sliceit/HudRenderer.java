@@ -0,0 +1,174 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * The HudRenderer class draws the "Score" and "Time" read-outs straight onto
+ * the game panel.
+ *
+ * <p>
+ * Every glyph the HUD can show is rendered once into a small atlas image when
+ * the renderer is created. Drawing a value then only formats the integer into a
+ * reused digit buffer and copies the matching atlas cells, so no Strings are
+ * built and no layout happens while the game is running.
+ * </p>
+ */
+public class HudRenderer {
+	/** Index of the "Score: " caption in the atlas. */
+	private static final int SCORE_CAPTION = 0;
+	/** Index of the "Time: " caption in the atlas. */
+	private static final int TIME_CAPTION = 1;
+	/** Index of the first digit glyph ("0") in the atlas. */
+	private static final int FIRST_DIGIT = 2;
+	/** Index of the minus sign glyph in the atlas. */
+	private static final int MINUS = FIRST_DIGIT + 10;
+	/** Text of every entry in the atlas, in atlas order. */
+	private static final String[] ENTRIES = { "Score: ", "Time: ", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+			"-" };
+
+	/** Image holding all pre-rendered captions and glyphs side by side. */
+	private final BufferedImage atlas;
+	/** The x-offset of each entry inside the atlas. */
+	private final int[] entryX = new int[ENTRIES.length];
+	/** The width of each entry inside the atlas. */
+	private final int[] entryWidth = new int[ENTRIES.length];
+	/** The height shared by every entry (the font's line height). */
+	private final int height;
+	/** Reused buffer the digits of a value are written into (int has at most 10 digits plus a sign). */
+	private final int[] digits = new int[11];
+
+	/**
+	 * Constructs a HudRenderer and pre-renders the glyph atlas with the given font
+	 * and color.
+	 *
+	 * @param font  the font used for the captions and digits
+	 * @param color the color of the text
+	 */
+	public HudRenderer(Font font, Color color) {
+		//measure every entry with a scratch image so we know how big the atlas must be
+		BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D sg = scratch.createGraphics();
+		FontMetrics metrics = sg.getFontMetrics(font);
+		sg.dispose();
+
+		int atlasWidth = 0;
+		for (int i = 0; i < ENTRIES.length; i++) {
+			entryX[i] = atlasWidth;
+			entryWidth[i] = metrics.stringWidth(ENTRIES[i]);
+			atlasWidth += entryWidth[i];
+		}
+		height = metrics.getHeight();
+
+		atlas = TextureAtlas.createCompatibleImage(atlasWidth, height);
+		Graphics2D g = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setFont(font);
+		g.setColor(color);
+		//draw each entry into its own cell along the baseline
+		for (int i = 0; i < ENTRIES.length; i++) {
+			g.drawString(ENTRIES[i], entryX[i], metrics.getAscent());
+		}
+		g.dispose();
+	}
+
+	/**
+	 * Draws "Score: " followed by the given value.
+	 *
+	 * @param g2d   the graphics context to draw on
+	 * @param x     the x-coordinate of the left edge of the text
+	 * @param y     the y-coordinate of the top edge of the text
+	 * @param value the score to show
+	 * @return the x-coordinate just past the last glyph drawn
+	 */
+	public int drawScore(Graphics2D g2d, int x, int y, int value) {
+		return drawValue(g2d, SCORE_CAPTION, x, y, value);
+	}
+
+	/**
+	 * Draws "Time: " followed by the given value.
+	 *
+	 * @param g2d   the graphics context to draw on
+	 * @param x     the x-coordinate of the left edge of the text
+	 * @param y     the y-coordinate of the top edge of the text
+	 * @param value the time remaining to show
+	 * @return the x-coordinate just past the last glyph drawn
+	 */
+	public int drawTime(Graphics2D g2d, int x, int y, int value) {
+		return drawValue(g2d, TIME_CAPTION, x, y, value);
+	}
+
+	/**
+	 * Draws a caption and then the digits of the value, one atlas cell at a time.
+	 */
+	private int drawValue(Graphics2D g2d, int caption, int x, int y, int value) {
+		x = drawEntry(g2d, caption, x, y);
+		int count = formatInt(value, digits);
+		for (int i = 0; i < count; i++) {
+			x = drawEntry(g2d, digits[i], x, y);
+		}
+		return x;
+	}
+
+	/**
+	 * Copies a single atlas entry to the screen.
+	 */
+	private int drawEntry(Graphics2D g2d, int entry, int x, int y) {
+		int sx = entryX[entry];
+		int w = entryWidth[entry];
+		g2d.drawImage(atlas, x, y, x + w, y + height, sx, 0, sx + w, height, null);
+		return x + w;
+	}
+
+	/**
+	 * Writes the atlas entry index of each character of the value into the buffer,
+	 * most significant digit first, without building a String.
+	 *
+	 * @param value the value to format
+	 * @param out   the buffer to fill; must hold at least 11 entries
+	 * @return the number of entries written
+	 */
+	static int formatInt(int value, int[] out) {
+		int count = 0;
+		//work with a negative number so Integer.MIN_VALUE does not overflow
+		int n = value;
+		if (n >= 0) {
+			n = -n;
+		} else {
+			out[count++] = MINUS;
+		}
+		int start = count;
+		do {
+			out[count++] = FIRST_DIGIT - (n % 10);
+			n /= 10;
+		} while (n != 0);
+		//digits were written least significant first, so flip them
+		for (int i = start, j = count - 1; i < j; i++, j--) {
+			int tmp = out[i];
+			out[i] = out[j];
+			out[j] = tmp;
+		}
+		return count;
+	}
+
+	/**
+	 * Converts a formatted entry index back into the character it shows. Used by
+	 * tests to check {@link #formatInt(int, int[])}.
+	 */
+	static char entryChar(int entry) {
+		return ENTRIES[entry].charAt(0);
+	}
+
+	/**
+	 * Returns the height of the HUD text.
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
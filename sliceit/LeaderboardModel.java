@@ -0,0 +1,129 @@
+package sliceit;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+
+/**
+ * The LeaderboardModel class shows a {@link ScoreStore} in a list, one row per
+ * rank, reading the rows a page at a time as the list asks for them.
+ * <p>
+ * A list only asks for the rows it shows, so opening the board reads one page
+ * and scrolling reads the pages scrolled to; the last {@link #CACHED_PAGES}
+ * pages are kept. Rows past the store's top scores show {@link #PENDING} until
+ * the store's full ranking is built, and the list is refreshed when it is.
+ * The model must only be used on the event thread.
+ * </p>
+ */
+public class LeaderboardModel extends AbstractListModel<String> {
+	private static final long serialVersionUID = 1L;
+	/** Number of ranks read at a time. */
+	public static final int PAGE_SIZE = 64;
+	/** Number of pages kept. */
+	public static final int CACHED_PAGES = 32;
+	/** Shown for a rank that cannot be read yet. */
+	public static final String PENDING = "...";
+
+	/** The scores shown. */
+	private final transient ScoreStore store;
+	/** Recently read pages by page number, least recently used first. */
+	private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+			return size() > CACHED_PAGES;
+		}
+	};
+	/** Names of the page being read. */
+	private final String[] names = new String[PAGE_SIZE];
+	/** Scores of the page being read. */
+	private final int[] scores = new int[PAGE_SIZE];
+	/** Most rows shown. */
+	private final int limit;
+	/** Number of rows, as of the last refresh. */
+	private int size;
+
+	/**
+	 * Constructs a LeaderboardModel showing every score in a store.
+	 *
+	 * @param store the scores to show
+	 */
+	public LeaderboardModel(ScoreStore store) {
+		this(store, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructs a LeaderboardModel showing the best scores in a store.
+	 *
+	 * @param store the scores to show
+	 * @param limit the most ranks shown
+	 */
+	public LeaderboardModel(ScoreStore store, int limit) {
+		this.store = store;
+		this.limit = limit;
+		this.size = Math.min(store.size(), limit);
+		store.onRanked(() -> SwingUtilities.invokeLater(this::refresh));
+	}
+
+	/**
+	 * Forgets the pages read so far and tells the list every row may have
+	 * changed, after scores were added or the full ranking was built.
+	 */
+	public void refresh() {
+		pages.clear();
+		int old = size;
+		size = Math.min(store.size(), limit);
+		if (size > old) {
+			fireIntervalAdded(this, old, size - 1);
+		} else if (size < old) {
+			fireIntervalRemoved(this, size, old - 1);
+		}
+		if (size > 0) {
+			fireContentsChanged(this, 0, size - 1);
+		}
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		int page = index / PAGE_SIZE;
+		String[] rows = pages.get(page);
+		if (rows == null) {
+			int from = page * PAGE_SIZE;
+			//reading past the top scores would wait for the ranking to be built
+			if (!store.isRanked() && from + PAGE_SIZE > ScoreStore.TOP_SIZE) {
+				return PENDING;
+			}
+			rows = readPage(from);
+			pages.put(page, rows);
+		}
+		int row = index - page * PAGE_SIZE;
+		return row < rows.length ? rows[row] : PENDING;
+	}
+
+	/**
+	 * Reads and formats the page of ranks starting at the given rank.
+	 */
+	private String[] readPage(int from) {
+		int n;
+		try {
+			n = store.readRanks(from, names, scores);
+		} catch (IOException e) {
+			e.printStackTrace();
+			n = 0;
+		}
+		String[] rows = new String[n];
+		for (int i = 0; i < n; i++) {
+			rows[i] = (from + i + 1) + ". " + names[i] + " - " + scores[i] + " pts";
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,784 @@
+package sliceit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The LockstepSession class plays one round head to head against another
+ * cabinet: both run the same seeded {@link GameWorld} and feed it the same
+ * drag samples from both players in the same order, so their worlds stay
+ * identical while only the players' inputs cross the network.
+ * <p>
+ * Each tick the local player's drag samples are taken from their
+ * {@link DragQueue} and scheduled {@link #DEFAULT_INPUT_DELAY} ticks ahead,
+ * which gives them time to reach the peer before that tick is simulated. The
+ * inputs are sent over UDP from a non-blocking {@link DatagramChannel}, with
+ * every tick the peer has not yet acknowledged repeated in each packet, so a
+ * lost packet is covered by the next one. A tick is stored as its sample count
+ * and the first sample's coordinates, then one-byte steps between samples, so
+ * a player costs a few KB/s.
+ * </p>
+ * <p>
+ * If the peer's input for a tick has not arrived when the tick is due, the
+ * session predicts that the peer did nothing and carries on. When the input
+ * arrives and it was not empty, the world is rolled back to the state saved
+ * before that tick and simulated forward again. The session never predicts
+ * more than {@link #MAX_PREDICTION} ticks ahead of the peer; past that it
+ * waits. A session that finds itself ahead of the peer's clock also skips
+ * every other tick until the peer catches up, so a peer that fell behind does
+ * not keep sending late inputs. Every {@link #CHECK_INTERVAL} ticks both sides exchange a CRC of the
+ * world state to detect a desync.
+ * </p>
+ * <p>
+ * The round ends on the same tick on both cabinets: the last tick of the
+ * shared spawn schedule, past which the session keeps exchanging inputs
+ * without simulating, or the tick a bomb ended the game. Then
+ * {@link #isFinished()} reports when every input up to it has arrived on both
+ * sides, so the scores and the loser can no longer change.
+ * </p>
+ * <p>
+ * Player 0 hosts: it picks the seed and sends it to player 1 when the session
+ * starts. Player 0's samples are applied before player 1's each tick, and each
+ * player is credited the points and bombs of their own samples.
+ * </p>
+ */
+public class LockstepSession {
+	/** Ticks between taking a local input and simulating it. */
+	public static final int DEFAULT_INPUT_DELAY = 3;
+	/** Most ticks the session may run ahead of the peer's confirmed inputs. */
+	public static final int MAX_PREDICTION = 16;
+	/** Ticks the session may run ahead of the peer before it slows down. */
+	private static final int MAX_AHEAD = 2;
+	/** Ticks between state checksums. */
+	public static final int CHECK_INTERVAL = 50;
+	/** Most drag samples kept per player per tick; more are dropped. */
+	public static final int MAX_SAMPLES = 16;
+	/** Ticks of inputs and states kept; covers the farthest a peer can be ahead or behind. */
+	private static final int RING = 64;
+	/** Most ticks of input repeated in one packet; more than a peer can fall behind. */
+	private static final int MAX_TICKS_PER_PACKET = 48;
+	/** First two bytes of every packet ("SL"). */
+	private static final short MAGIC = 0x534C;
+	/** Packet type announcing a player, and the seed when sent by the host. */
+	private static final byte HELLO = 1;
+	/** Packet type carrying inputs. */
+	private static final byte INPUT = 2;
+	/** Step value meaning an absolute position follows. */
+	private static final byte ESCAPE = Byte.MIN_VALUE;
+
+	/** The world both cabinets simulate. */
+	private final GameWorld world;
+	/** Difficulty settings of the round, needed to restore saved states. */
+	private final DifficultyConfig config;
+	/** Where this player's drag samples arrive. */
+	private final DragQueue localInput;
+	/** This player's number, 0 for the host or 1. */
+	private final int player;
+	/** The peer's address. */
+	private final SocketAddress peer;
+	/** The non-blocking UDP channel. */
+	private final DatagramChannel channel;
+	/** Ticks between taking a local input and simulating it. */
+	private final int inputDelay;
+	/** Reused buffers for sending and receiving packets. */
+	private final ByteBuffer out = ByteBuffer.allocate(1500), in = ByteBuffer.allocate(1500);
+	/** Seed of the round; the host's own, or the one the host sent. */
+	private long seed;
+	/** True once both players know the seed. */
+	private volatile boolean connected;
+
+	/** Drag samples per player and ring slot, as x/y pairs. */
+	private final short[][][] samples = new short[2][RING][MAX_SAMPLES * 2];
+	/** Number of samples per player and ring slot. */
+	private final int[][] sampleCounts = new int[2][RING];
+	/** Tick whose input each player's ring slot holds, or -1. */
+	private final long[][] inputTicks = new long[2][RING];
+	/** Next tick whose local input will be taken. */
+	private long nextLocalTick;
+	/** Highest tick up to which every peer input has arrived. */
+	private long remoteConfirmed = -1;
+	/** Highest tick of ours the peer has acknowledged. */
+	private long peerAck = -1;
+	/** Earliest tick that must be simulated again, or Long.MAX_VALUE. */
+	private long rollbackFrom = Long.MAX_VALUE;
+	/** Next tick to simulate; read by the event thread for the clock. */
+	private volatile long tick;
+	/** The peer's next tick to simulate, as of its latest packet. */
+	private long peerTick;
+	/** True if the last tick was skipped to let the peer catch up. */
+	private boolean waited;
+
+	/** World state saved before each tick in the ring. */
+	private final ByteBuffer[] states = new ByteBuffer[RING];
+	/** Points and bombs of each player before each tick in the ring. */
+	private final int[][] savedPoints = new int[2][RING], savedBombs = new int[2][RING];
+	/** Player who ended the game before each tick in the ring, or -1. */
+	private final int[] savedLoser = new int[RING];
+	/** Points and bombs hit by each player. */
+	private final int[] points = new int[2], bombs = new int[2];
+	/** Player whose bomb ended the game, or -1. */
+	private int loser = -1;
+	/** Tick in which the loser's bomb ended the game, if there is a loser. */
+	private long lostAt;
+
+	/** Computes the state checksums. */
+	private final CRC32 crc = new CRC32();
+	/** Latest tick we have checksummed. */
+	private long checkTick = -1;
+	/** Checksum of the state before checkTick. */
+	private int checkValue;
+	/** Latest tick the peer has checksummed. */
+	private long peerCheckTick = -1;
+	/** The peer's checksum of the state before peerCheckTick. */
+	private int peerCheckValue;
+	/** Latest tick whose checksums have been compared. */
+	private long comparedTick = -1;
+
+	/** Packets and bytes sent. */
+	private long packetsSent, bytesSent;
+	/** Number of rollbacks and ticks simulated again. */
+	private long rollbacks, resimulatedTicks;
+	/** Number of ticks spent waiting for the peer, stalled or letting it catch up. */
+	private long stalls;
+	/** Number of checksums that did not match the peer's. */
+	private long desyncs;
+	/** Local samples dropped because a tick already had MAX_SAMPLES. */
+	private long droppedSamples;
+	/** Drop every nth packet sent, to test lossy links; 0 to drop none. */
+	private int dropEvery;
+
+	/**
+	 * Opens a session on a local UDP port. The world is reset with the shared
+	 * seed once the peer answers; until then {@link #advance()} only says hello.
+	 *
+	 * @param world      the world to simulate; its play area must be the same size on both cabinets
+	 * @param config     the difficulty settings, the same on both cabinets
+	 * @param localInput the queue this player's drag samples arrive on
+	 * @param player     0 to host, 1 to join
+	 * @param localPort  the UDP port to listen on
+	 * @param peer       the peer's address
+	 * @param seed       the seed to play with if hosting; ignored when joining
+	 * @param inputDelay ticks between taking a local input and simulating it
+	 * @throws IOException if the port cannot be opened
+	 */
+	public LockstepSession(GameWorld world, DifficultyConfig config, DragQueue localInput, int player, int localPort,
+			SocketAddress peer, long seed, int inputDelay) throws IOException {
+		if (player != 0 && player != 1) {
+			throw new IllegalArgumentException("Player must be 0 or 1, not " + player);
+		}
+		if (inputDelay < 0 || inputDelay > MAX_PREDICTION) {
+			throw new IllegalArgumentException("Input delay must be 0 to " + MAX_PREDICTION + ", not " + inputDelay);
+		}
+		this.world = world;
+		this.config = config;
+		this.localInput = localInput;
+		this.player = player;
+		this.peer = peer;
+		this.seed = seed;
+		this.inputDelay = inputDelay;
+		for (int p = 0; p < 2; p++) {
+			Arrays.fill(inputTicks[p], -1);
+		}
+		channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(localPort));
+		channel.configureBlocking(false);
+	}
+
+	/**
+	 * Parses a peer address given as host:port.
+	 *
+	 * @param text the address, such as 192.168.1.20:7777
+	 * @return the address
+	 * @throws IllegalArgumentException if the text is not host:port
+	 */
+	public static InetSocketAddress parseAddress(String text) {
+		int colon = text.lastIndexOf(':');
+		if (colon <= 0) {
+			throw new IllegalArgumentException("Expected host:port, not " + text);
+		}
+		return new InetSocketAddress(text.substring(0, colon), Integer.parseInt(text.substring(colon + 1)));
+	}
+
+	/**
+	 * Runs one tick of the session: takes in the peer's packets, rolls back if a
+	 * late input changed the past, simulates the next tick unless the peer is too
+	 * far behind or the schedule has run out, and sends this player's
+	 * inputs. Must be called once per tick from the thread that owns the world.
+	 *
+	 * @return true if a tick was simulated; false while connecting, waiting for the peer or once time is up
+	 * @throws IOException if the channel fails
+	 */
+	public boolean advance() throws IOException {
+		receive();
+		if (!connected) {
+			sendHello();
+			return false;
+		}
+		catchUp();
+		if (tick >= world.getSchedule().getTicks()) {
+			//time is up; keep exchanging inputs until both sides have settled
+			checksum();
+			sendInputs();
+			return false;
+		}
+		//run at half speed while ahead, so a peer that fell behind catches up instead of
+		//having each of its inputs arrive late and roll us back
+		boolean ahead = tick - peerTick > MAX_AHEAD && !waited;
+		if (ahead || tick - remoteConfirmed > MAX_PREDICTION) {
+			waited = true;
+			stalls++;
+			sendInputs();
+			return false;
+		}
+		waited = false;
+		takeLocalInput(tick + inputDelay);
+		simulate(tick);
+		tick++;
+		checksum();
+		sendInputs();
+		return true;
+	}
+
+	/**
+	 * Takes in the peer's packets, rolls back if needed and sends this player's
+	 * inputs, without simulating a new tick. Used to settle both sides at the end
+	 * of a round.
+	 *
+	 * @throws IOException if the channel fails
+	 */
+	public void sync() throws IOException {
+		receive();
+		if (connected) {
+			catchUp();
+			checksum();
+			sendInputs();
+		} else {
+			sendHello();
+		}
+	}
+
+	/**
+	 * Rolls back and simulates forward again if a late input changed the past.
+	 */
+	private void catchUp() throws IOException {
+		if (rollbackFrom >= tick) {
+			rollbackFrom = Long.MAX_VALUE;
+			return;
+		}
+		long from = rollbackFrom;
+		rollbackFrom = Long.MAX_VALUE;
+		int slot = (int) (from % RING);
+		ByteBuffer state = states[slot].duplicate();
+		state.flip();
+		world.readState(state, config);
+		for (int p = 0; p < 2; p++) {
+			points[p] = savedPoints[p][slot];
+			bombs[p] = savedBombs[p][slot];
+		}
+		loser = savedLoser[slot];
+		for (long t = from; t < tick; t++) {
+			simulate(t);
+		}
+		rollbacks++;
+		resimulatedTicks += tick - from;
+	}
+
+	/**
+	 * Moves the local drag samples that have arrived into the input of a tick.
+	 */
+	private void takeLocalInput(long target) {
+		while (nextLocalTick <= target) {
+			int slot = (int) (nextLocalTick % RING);
+			int count = 0;
+			if (nextLocalTick == target) {
+				for (long s = localInput.poll(); s != DragQueue.EMPTY; s = localInput.poll()) {
+					if (count == MAX_SAMPLES) {
+						droppedSamples++;
+						continue;
+					}
+					samples[player][slot][count * 2] = (short) DragQueue.x(s);
+					samples[player][slot][count * 2 + 1] = (short) DragQueue.y(s);
+					count++;
+				}
+			}
+			//ticks before the first delayed one have no local input
+			sampleCounts[player][slot] = count;
+			inputTicks[player][slot] = nextLocalTick;
+			nextLocalTick++;
+		}
+	}
+
+	/**
+	 * Returns the last tick of the round: the one in which a bomb ended the game,
+	 * or else the last tick of the spawn schedule.
+	 */
+	private long lastTick() {
+		return loser >= 0 ? lostAt : world.getSchedule().getTicks() - 1;
+	}
+
+	/**
+	 * Checks whether the round is over and settled: the last tick has been
+	 * simulated with every input up to it, and the peer has acknowledged every
+	 * input of ours up to it, so both cabinets agree on the scores and the
+	 * loser. Must be called from the thread that owns the world.
+	 *
+	 * @return true once the result can no longer change
+	 */
+	public boolean isFinished() {
+		if (!connected) {
+			return false;
+		}
+		long last = lastTick();
+		return tick > last && remoteConfirmed >= last && peerAck >= last && rollbackFrom == Long.MAX_VALUE;
+	}
+
+	/**
+	 * Saves the state before a tick, applies both players' inputs and advances
+	 * the world. A peer input that has not arrived counts as no input.
+	 */
+	private void simulate(long t) {
+		int slot = (int) (t % RING);
+		saveState(slot);
+		for (int p = 0; p < 2; p++) {
+			if (inputTicks[p][slot] != t) {
+				continue;
+			}
+			int pointsBefore = world.getPoints();
+			int bombsBefore = world.getBombsHit();
+			short[] xy = samples[p][slot];
+			for (int i = 0; i < sampleCounts[p][slot]; i++) {
+				world.slice(xy[i * 2], xy[i * 2 + 1]);
+			}
+			points[p] += world.getPoints() - pointsBefore;
+			bombs[p] += world.getBombsHit() - bombsBefore;
+			if (loser < 0 && world.isGameOver()) {
+				loser = p;
+				lostAt = t;
+			}
+		}
+		world.tick();
+	}
+
+	/**
+	 * Writes the world and the players' scores into a ring slot.
+	 */
+	private void saveState(int slot) {
+		while (true) {
+			if (states[slot] == null) {
+				states[slot] = ByteBuffer.allocate(64 * 1024);
+			}
+			try {
+				states[slot].clear();
+				world.writeState(states[slot]);
+				break;
+			} catch (BufferOverflowException e) {
+				states[slot] = ByteBuffer.allocate(states[slot].capacity() * 2);
+			}
+		}
+		for (int p = 0; p < 2; p++) {
+			savedPoints[p][slot] = points[p];
+			savedBombs[p][slot] = bombs[p];
+		}
+		savedLoser[slot] = loser;
+	}
+
+	/**
+	 * Checksums the state before each checked tick once every input before it is
+	 * final, and compares it with the peer's if that has already arrived.
+	 */
+	private void checksum() {
+		long next = checkTick < 0 ? CHECK_INTERVAL : checkTick + CHECK_INTERVAL;
+		//the state before a tick is final once every input before it has arrived
+		if (next > tick - 1 || next - 1 > remoteConfirmed) {
+			return;
+		}
+		ByteBuffer state = states[(int) (next % RING)].duplicate();
+		state.flip();
+		crc.reset();
+		crc.update(state);
+		checkTick = next;
+		checkValue = (int) crc.getValue();
+		compareCheck();
+	}
+
+	/**
+	 * Compares the peer's latest checksum with ours if both are for the same tick.
+	 */
+	private void compareCheck() {
+		if (checkTick > comparedTick && peerCheckTick == checkTick) {
+			comparedTick = checkTick;
+			if (peerCheckValue != checkValue) {
+				desyncs++;
+				System.out.println("Lockstep desync at tick " + checkTick);
+			}
+		}
+	}
+
+	/**
+	 * Sends a hello packet; the host's carries the seed.
+	 */
+	private void sendHello() throws IOException {
+		out.clear();
+		out.putShort(MAGIC).put(HELLO).put((byte) player).putLong(player == 0 ? seed : 0);
+		send();
+	}
+
+	/**
+	 * Sends every local input the peer has not acknowledged, oldest first, with
+	 * our acknowledgement and latest checksum.
+	 */
+	private void sendInputs() throws IOException {
+		//oldest first: the peer cannot confirm anything past the first tick it is missing
+		long first = peerAck + 1;
+		out.clear();
+		out.putShort(MAGIC).put(INPUT).put((byte) player);
+		out.putInt((int) tick).putInt((int) remoteConfirmed).putInt((int) checkTick).putInt(checkValue);
+		out.putInt((int) first);
+		int countAt = out.position();
+		out.put((byte) 0);
+		int count = 0;
+		for (long t = first; t < nextLocalTick && count < MAX_TICKS_PER_PACKET; t++) {
+			int slot = (int) (t % RING);
+			//leave room for a tick of escaped samples
+			if (out.remaining() < 1 + MAX_SAMPLES * 5) {
+				break;
+			}
+			encodeTick(samples[player][slot], sampleCounts[player][slot]);
+			count++;
+		}
+		out.put(countAt, (byte) count);
+		send();
+	}
+
+	/**
+	 * Writes one tick of samples: the count, the first sample in full, then the
+	 * step to each next sample as two bytes, or an escape and the sample in full
+	 * when the step is too long.
+	 */
+	private void encodeTick(short[] xy, int count) {
+		out.put((byte) count);
+		for (int i = 0; i < count; i++) {
+			int x = xy[i * 2];
+			int y = xy[i * 2 + 1];
+			if (i > 0) {
+				int dx = x - xy[i * 2 - 2];
+				int dy = y - xy[i * 2 - 1];
+				if (dx > ESCAPE && dx <= Byte.MAX_VALUE && dy >= Byte.MIN_VALUE && dy <= Byte.MAX_VALUE) {
+					out.put((byte) dx).put((byte) dy);
+					continue;
+				}
+				out.put(ESCAPE);
+			}
+			out.putShort((short) x).putShort((short) y);
+		}
+	}
+
+	/**
+	 * Sends the packet in the output buffer to the peer.
+	 */
+	private void send() throws IOException {
+		out.flip();
+		packetsSent++;
+		if (dropEvery > 0 && packetsSent % dropEvery == 0) {
+			return;
+		}
+		bytesSent += out.remaining();
+		channel.send(out, peer);
+	}
+
+	/**
+	 * Reads every packet that has arrived from the peer.
+	 */
+	private void receive() throws IOException {
+		while (true) {
+			in.clear();
+			SocketAddress from = channel.receive(in);
+			if (from == null) {
+				return;
+			}
+			if (!from.equals(peer)) {
+				continue;
+			}
+			in.flip();
+			try {
+				read();
+			} catch (BufferUnderflowException e) {
+				//a cut-short packet is ignored; the next one repeats its inputs
+			}
+		}
+	}
+
+	/**
+	 * Handles one packet from the peer.
+	 */
+	private void read() throws IOException {
+		if (in.getShort() != MAGIC) {
+			return;
+		}
+		byte type = in.get();
+		int from = in.get();
+		if (from != 1 - player) {
+			return;
+		}
+		if (type == HELLO) {
+			long peerSeed = in.getLong();
+			if (!connected) {
+				if (player == 1) {
+					seed = peerSeed;
+				}
+				start();
+			} else if (player == 0) {
+				//the joiner is still waiting for the seed; our first hello may have gone before it was listening
+				sendHello();
+			}
+			return;
+		}
+		if (type != INPUT) {
+			return;
+		}
+		if (!connected) {
+			//the host missed the joiner's hello but the joiner is already playing
+			if (player == 1) {
+				return;
+			}
+			start();
+		}
+		peerTick = Math.max(peerTick, in.getInt());
+		peerAck = Math.max(peerAck, in.getInt());
+		int remoteCheckTick = in.getInt();
+		int remoteCheckValue = in.getInt();
+		if (remoteCheckTick > peerCheckTick) {
+			peerCheckTick = remoteCheckTick;
+			peerCheckValue = remoteCheckValue;
+			compareCheck();
+		}
+		long first = in.getInt();
+		int count = in.get() & 0xff;
+		int remote = 1 - player;
+		for (long t = first; t < first + count; t++) {
+			int slot = (int) (t % RING);
+			boolean wanted = t > remoteConfirmed && t < tick + RING - MAX_PREDICTION
+					&& inputTicks[remote][slot] != t;
+			int n = decodeTick(wanted ? samples[remote][slot] : null);
+			if (!wanted) {
+				continue;
+			}
+			sampleCounts[remote][slot] = n;
+			inputTicks[remote][slot] = t;
+			//the tick was simulated as if the peer did nothing; redo it if they did something
+			if (t < tick && n > 0) {
+				rollbackFrom = Math.min(rollbackFrom, t);
+			}
+		}
+		while (inputTicks[remote][(int) ((remoteConfirmed + 1) % RING)] == remoteConfirmed + 1) {
+			remoteConfirmed++;
+		}
+	}
+
+	/**
+	 * Reads one tick of samples, storing them if a destination is given.
+	 *
+	 * @return the number of samples
+	 */
+	private int decodeTick(short[] xy) {
+		int count = Math.min(in.get() & 0xff, MAX_SAMPLES);
+		int x = 0;
+		int y = 0;
+		for (int i = 0; i < count; i++) {
+			byte dx = i == 0 ? ESCAPE : in.get();
+			if (dx == ESCAPE) {
+				x = in.getShort();
+				y = in.getShort();
+			} else {
+				x += dx;
+				y += in.get();
+			}
+			if (xy != null) {
+				xy[i * 2] = (short) x;
+				xy[i * 2 + 1] = (short) y;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Starts the round once both players know the seed.
+	 */
+	private void start() {
+		connected = true;
+		world.reset(config, seed);
+	}
+
+	/**
+	 * Closes the UDP channel.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Drops every nth packet sent, to test how the session copes with loss.
+	 *
+	 * @param n the interval, or 0 to drop none
+	 */
+	void setDropEvery(int n) {
+		dropEvery = n;
+	}
+
+	/**
+	 * Checks whether the peer has answered and the round has started.
+	 *
+	 * @return true once connected
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * Returns this player's number.
+	 *
+	 * @return 0 for the host, 1 for the joiner
+	 */
+	public int getPlayer() {
+		return player;
+	}
+
+	/**
+	 * Returns the next tick to simulate, which is also the number simulated.
+	 *
+	 * @return the tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the highest tick up to which every peer input has arrived.
+	 *
+	 * @return the confirmed tick, or -1
+	 */
+	public long getRemoteConfirmed() {
+		return remoteConfirmed;
+	}
+
+	/**
+	 * Returns the points scored by a player's own slices.
+	 *
+	 * @param p the player, 0 or 1
+	 * @return the player's points
+	 */
+	public int getPoints(int p) {
+		return points[p];
+	}
+
+	/**
+	 * Returns the bombs a player has sliced.
+	 *
+	 * @param p the player, 0 or 1
+	 * @return the player's bombs hit
+	 */
+	public int getBombsHit(int p) {
+		return bombs[p];
+	}
+
+	/**
+	 * Returns the player whose bomb ended the game.
+	 *
+	 * @return the player, or -1 if no bomb has ended it
+	 */
+	public int getLoser() {
+		return loser;
+	}
+
+	/**
+	 * Returns the seed of the round.
+	 *
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the number of packets sent, including any deliberately dropped.
+	 *
+	 * @return the packet count
+	 */
+	public long getPacketsSent() {
+		return packetsSent;
+	}
+
+	/**
+	 * Returns the number of bytes sent, not counting UDP and IP headers.
+	 *
+	 * @return the byte count
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of rollbacks.
+	 *
+	 * @return the rollback count
+	 */
+	public long getRollbacks() {
+		return rollbacks;
+	}
+
+	/**
+	 * Returns the number of ticks simulated again after rollbacks.
+	 *
+	 * @return the tick count
+	 */
+	public long getResimulatedTicks() {
+		return resimulatedTicks;
+	}
+
+	/**
+	 * Returns the number of ticks spent waiting for the peer.
+	 *
+	 * @return the stall count
+	 */
+	public long getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * Returns the number of checksums that did not match the peer's.
+	 *
+	 * @return the desync count
+	 */
+	public long getDesyncs() {
+		return desyncs;
+	}
+
+	/**
+	 * Returns the latest tick whose checksum has been compared with the peer's.
+	 *
+	 * @return the tick, or -1 if none has been compared yet
+	 */
+	public long getComparedTick() {
+		return comparedTick;
+	}
+
+	/**
+	 * Returns the number of local samples dropped for going over MAX_SAMPLES in a tick.
+	 *
+	 * @return the dropped count
+	 */
+	public long getDroppedSamples() {
+		return droppedSamples;
+	}
+}
@@ -0,0 +1,327 @@
+package sliceit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Motion class moves one fruit or bomb along its ballistic path, keeping
+ * its position to a fraction of a pixel and remembering the path it took over
+ * the last tick.
+ * <p>
+ * A tick is split into a number of equal sub-steps. Each sub-step moves the
+ * position by the velocity and then adds gravity to the vertical velocity,
+ * both scaled to the sub-step's length; with one sub-step this is the game's
+ * original update, and more sub-steps follow the true parabola more closely.
+ * The path over a tick is then the line through the sub-step positions, and
+ * {@link #sweptContains(float, float, float, float)} checks a point against
+ * every position the object's box took along it, so a drag sample taken while
+ * a fast object passed by hits it even though the object has moved on by the
+ * end of the tick. Off-screen checks use the box around the whole path, so an
+ * object is only dropped once it spent a full tick off screen.
+ * </p>
+ * <p>
+ * Only float additions and multiplications are used, in a fixed order, and
+ * Java evaluates those identically on every machine, so the same start gives
+ * bit-identical paths on every run; replays and networked games depend on
+ * this. {@link #writeState(ByteBuffer)} saves the start of the last tick
+ * rather than its end, and {@link #readState(ByteBuffer)} steps it again, so a
+ * restored object has the same position and path as the one that was saved.
+ * </p>
+ */
+public class Motion {
+	/** Number of sub-steps per tick when none is given. */
+	public static final int DEFAULT_SUBSTEPS = 4;
+
+	/** Top-left corner, in pixels. */
+	private float x, y;
+	/** Velocity, in pixels per tick. */
+	private float velocityX, velocityY;
+	/** Added to the vertical velocity every tick. */
+	private float gravity;
+	/** Position and vertical velocity at the start of the last tick. */
+	private float startX, startY, startVelocityY;
+	/** Sub-steps taken in the last tick, or 0 if the object has not moved since it was placed. */
+	private int substeps;
+	/** Highest and lowest y the corner reached in the last tick. */
+	private float minY, maxY;
+
+	/**
+	 * Constructs a Motion at rest at the given position.
+	 *
+	 * @param x         the x-coordinate of the top-left corner
+	 * @param y         the y-coordinate of the top-left corner
+	 * @param velocityX the horizontal velocity
+	 * @param velocityY the vertical velocity
+	 * @param gravity   the amount added to the vertical velocity every tick
+	 */
+	public Motion(float x, float y, float velocityX, float velocityY, float gravity) {
+		this.velocityX = velocityX;
+		this.velocityY = velocityY;
+		this.gravity = gravity;
+		moveTo(x, y);
+	}
+
+	/**
+	 * Makes this motion a copy of another, including the path of its last tick.
+	 *
+	 * @param other the motion to copy
+	 */
+	public void set(Motion other) {
+		x = other.x;
+		y = other.y;
+		velocityX = other.velocityX;
+		velocityY = other.velocityY;
+		gravity = other.gravity;
+		startX = other.startX;
+		startY = other.startY;
+		startVelocityY = other.startVelocityY;
+		substeps = other.substeps;
+		minY = other.minY;
+		maxY = other.maxY;
+	}
+
+	/**
+	 * Places the object without moving it there, forgetting the last path.
+	 *
+	 * @param x the new x-coordinate
+	 * @param y the new y-coordinate
+	 */
+	public void moveTo(float x, float y) {
+		this.x = x;
+		this.y = y;
+		startX = x;
+		startY = y;
+		startVelocityY = velocityY;
+		substeps = 0;
+		minY = y;
+		maxY = y;
+	}
+
+	/**
+	 * Advances the object by one tick.
+	 *
+	 * @param substeps the number of sub-steps to split the tick into, at least 1
+	 */
+	public void step(int substeps) {
+		startX = x;
+		startY = y;
+		startVelocityY = velocityY;
+		this.substeps = substeps;
+		float h = 1f / substeps;
+		float px = x;
+		float py = y;
+		float vy = velocityY;
+		float dx = velocityX * h;
+		float dv = gravity * h;
+		float low = py;
+		float high = py;
+		for (int i = 0; i < substeps; i++) {
+			px += dx;
+			py += vy * h;
+			vy += dv;
+			low = Math.min(low, py);
+			high = Math.max(high, py);
+		}
+		x = px;
+		y = py;
+		velocityY = vy;
+		minY = low;
+		maxY = high;
+	}
+
+	/**
+	 * Checks whether a box of the given size following this object contained a
+	 * point at any moment of the last tick, or, if the object has not moved
+	 * since it was placed, whether it contains the point now.
+	 *
+	 * @param px     the x-coordinate of the point
+	 * @param py     the y-coordinate of the point
+	 * @param width  the width of the box
+	 * @param height the height of the box
+	 * @return true if the point was inside the box
+	 */
+	public boolean sweptContains(float px, float py, float width, float height) {
+		//cheap reject against the box around the whole path
+		if (px < getMinX() || px > getMaxX() + width || py < minY || py > maxY + height) {
+			return false;
+		}
+		if (substeps == 0) {
+			return true;
+		}
+		//the box contains the point while its corner is inside this rectangle
+		float left = px - width;
+		float top = py - height;
+		//walk the sub-steps again with exactly the arithmetic of step()
+		float h = 1f / substeps;
+		float dx = velocityX * h;
+		float dv = gravity * h;
+		float ax = startX;
+		float ay = startY;
+		float vy = startVelocityY;
+		for (int i = 0; i < substeps; i++) {
+			float bx = ax + dx;
+			float by = ay + vy * h;
+			vy += dv;
+			if (segmentHits(ax, ay, bx, by, left, top, px, py)) {
+				return true;
+			}
+			ax = bx;
+			ay = by;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the segment from a to b passes through a rectangle, by
+	 * clipping it against the rectangle's horizontal and vertical slabs.
+	 */
+	private static boolean segmentHits(float ax, float ay, float bx, float by, float left, float top, float right,
+			float bottom) {
+		float enter = 0;
+		float leave = 1;
+		float dx = bx - ax;
+		if (dx == 0) {
+			if (ax < left || ax > right) {
+				return false;
+			}
+		} else {
+			float t0 = (left - ax) / dx;
+			float t1 = (right - ax) / dx;
+			enter = Math.max(enter, Math.min(t0, t1));
+			leave = Math.min(leave, Math.max(t0, t1));
+		}
+		float dy = by - ay;
+		if (dy == 0) {
+			if (ay < top || ay > bottom) {
+				return false;
+			}
+		} else {
+			float t0 = (top - ay) / dy;
+			float t1 = (bottom - ay) / dy;
+			enter = Math.max(enter, Math.min(t0, t1));
+			leave = Math.min(leave, Math.max(t0, t1));
+		}
+		return enter <= leave;
+	}
+
+	/**
+	 * Writes the start of the last tick and the sub-steps it took, which is all
+	 * {@link #readState(ByteBuffer)} needs to rebuild the motion exactly.
+	 *
+	 * @param out the buffer to write to
+	 */
+	public void writeState(ByteBuffer out) {
+		out.putFloat(startX).putFloat(startY).putFloat(velocityX).putFloat(startVelocityY).putFloat(gravity);
+		out.put((byte) substeps);
+	}
+
+	/**
+	 * Replaces this motion with one written by {@link #writeState(ByteBuffer)},
+	 * stepping the saved tick again.
+	 *
+	 * @param in the buffer to read from
+	 */
+	public void readState(ByteBuffer in) {
+		float sx = in.getFloat();
+		float sy = in.getFloat();
+		velocityX = in.getFloat();
+		velocityY = in.getFloat();
+		gravity = in.getFloat();
+		int saved = in.get();
+		moveTo(sx, sy);
+		if (saved > 0) {
+			step(saved);
+		}
+	}
+
+	/**
+	 * Returns the x-coordinate of the top-left corner.
+	 *
+	 * @return the x-coordinate
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y-coordinate of the top-left corner.
+	 *
+	 * @return the y-coordinate
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the leftmost x-coordinate the corner had in the last tick.
+	 *
+	 * @return the smallest x-coordinate
+	 */
+	public float getMinX() {
+		return Math.min(startX, x);
+	}
+
+	/**
+	 * Returns the rightmost x-coordinate the corner had in the last tick.
+	 *
+	 * @return the largest x-coordinate
+	 */
+	public float getMaxX() {
+		return Math.max(startX, x);
+	}
+
+	/**
+	 * Returns the highest y-coordinate (the smallest value) the corner had in the
+	 * last tick.
+	 *
+	 * @return the smallest y-coordinate
+	 */
+	public float getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Returns the lowest y-coordinate (the largest value) the corner had in the
+	 * last tick.
+	 *
+	 * @return the largest y-coordinate
+	 */
+	public float getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Returns the horizontal velocity.
+	 *
+	 * @return the horizontal velocity
+	 */
+	public float getVelocityX() {
+		return velocityX;
+	}
+
+	/**
+	 * Returns the vertical velocity.
+	 *
+	 * @return the vertical velocity
+	 */
+	public float getVelocityY() {
+		return velocityY;
+	}
+
+	/**
+	 * Returns the amount added to the vertical velocity every tick.
+	 *
+	 * @return the gravity
+	 */
+	public float getGravity() {
+		return gravity;
+	}
+
+	/**
+	 * Sets the amount added to the vertical velocity every tick.
+	 *
+	 * @param gravity the new gravity
+	 */
+	public void setGravity(float gravity) {
+		this.gravity = gravity;
+	}
+}
@@ -0,0 +1,308 @@
+package sliceit;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The ParticleSystem class simulates short-lived effects: juice splashes and
+ * flying fruit halves when a fruit is sliced, and debris when a bomb goes off.
+ * <p>
+ * Particles are not objects. Every property lives in a fixed-size primitive
+ * array and new particles are written into the next slot of a ring, so
+ * emitting thousands of particles a second creates no garbage. When the system
+ * gets busy, bursts are thinned out, and once it is full the oldest particles
+ * are overwritten first.
+ * </p>
+ * <p>
+ * The random spread of each burst comes from a small generator seeded with the
+ * round, so the same round always produces the same particles.
+ * </p>
+ */
+public class ParticleSystem {
+	/** Palette index of the debris colors, after the seven juice colors. */
+	public static final int SMOKE = 7, FIRE = 8, SPARK = 9;
+	/**
+	 * Particle colors. The first seven are the juice of each fruit, in the order of
+	 * the fruit sheet (apple, peach, pear, coconut, lemon, plum, watermelon).
+	 */
+	static final Color[] PALETTE = { new Color(200, 20, 30), new Color(250, 140, 40), new Color(210, 225, 110),
+			new Color(245, 245, 235), new Color(245, 230, 60), new Color(120, 40, 140), new Color(235, 50, 70),
+			new Color(60, 60, 60), new Color(250, 120, 20), new Color(255, 220, 90) };
+	/** Marker in the sprite array for a particle drawn as a colored square. */
+	public static final int NO_SPRITE = -1;
+
+	/** Position of each particle. */
+	private final float[] x, y;
+	/** Velocity of each particle. */
+	private final float[] vx, vy;
+	/** Gravity added to each particle's vertical velocity every tick. */
+	private final float[] gravity;
+	/** Ticks left before each particle disappears; 0 means the slot is free. */
+	private final int[] life;
+	/** Palette index of each square particle. */
+	private final int[] color;
+	/** Atlas sprite of each particle, or NO_SPRITE for a square. */
+	private final int[] sprite;
+	/** Size in pixels of each square particle. */
+	private final int[] size;
+	/** Slot the next particle is written to. */
+	private int cursor;
+	/** Number of particles alive. */
+	private int live;
+	/** Number of particles left out of bursts because the system was busy. */
+	private long thinned;
+	/** State of the random generator (xorshift). */
+	private long seed = 1;
+
+	/**
+	 * Constructs a ParticleSystem holding at most the given number of particles.
+	 *
+	 * @param capacity the maximum number of live particles
+	 */
+	public ParticleSystem(int capacity) {
+		x = new float[capacity];
+		y = new float[capacity];
+		vx = new float[capacity];
+		vy = new float[capacity];
+		gravity = new float[capacity];
+		life = new int[capacity];
+		color = new int[capacity];
+		sprite = new int[capacity];
+		size = new int[capacity];
+	}
+
+	/**
+	 * Removes every particle and restarts the random generator.
+	 *
+	 * @param seed the seed for the random spread of bursts
+	 */
+	public void reset(long seed) {
+		for (int i = 0; i < life.length; i++) {
+			life[i] = 0;
+		}
+		cursor = 0;
+		live = 0;
+		thinned = 0;
+		//xorshift must never be seeded with 0
+		this.seed = seed == 0 ? 1 : seed;
+	}
+
+	/**
+	 * Emits a burst of square particles flying out in every direction.
+	 *
+	 * @param cx       the x-coordinate of the burst's centre
+	 * @param cy       the y-coordinate of the burst's centre
+	 * @param count    how many particles to emit when the system is not busy
+	 * @param speed    the highest speed of a particle
+	 * @param colorIdx the palette index of the particles
+	 * @param minSize  the smallest particle size in pixels
+	 * @param lifetime how many ticks the particles live
+	 * @param fall     gravity applied to the particles
+	 * @return the number of particles actually emitted
+	 */
+	public int burst(float cx, float cy, int count, float speed, int colorIdx, int minSize, int lifetime,
+			float fall) {
+		int n = budget(count);
+		for (int i = 0; i < n; i++) {
+			//random direction and speed, thrown a little upwards
+			float dx = nextFloat() * 2 - 1;
+			float dy = nextFloat() * 2 - 1;
+			float s = speed * (0.3f + 0.7f * nextFloat());
+			int slot = allocate();
+			x[slot] = cx;
+			y[slot] = cy;
+			vx[slot] = dx * s;
+			vy[slot] = dy * s - speed * 0.3f;
+			gravity[slot] = fall;
+			life[slot] = lifetime - (int) (nextFloat() * lifetime / 3);
+			color[slot] = colorIdx;
+			sprite[slot] = NO_SPRITE;
+			size[slot] = minSize + (int) (nextFloat() * 3);
+		}
+		return n;
+	}
+
+	/**
+	 * Emits a single particle drawn with an atlas sprite, such as a fruit half.
+	 *
+	 * @param px       the x-coordinate of the sprite's top left corner
+	 * @param py       the y-coordinate of the sprite's top left corner
+	 * @param pvx      the horizontal velocity
+	 * @param pvy      the vertical velocity
+	 * @param spriteId the atlas id to draw
+	 * @param lifetime how many ticks the particle lives
+	 * @param fall     gravity applied to the particle
+	 */
+	public void emitSprite(float px, float py, float pvx, float pvy, int spriteId, int lifetime, float fall) {
+		int slot = allocate();
+		x[slot] = px;
+		y[slot] = py;
+		vx[slot] = pvx;
+		vy[slot] = pvy;
+		gravity[slot] = fall;
+		life[slot] = lifetime;
+		color[slot] = 0;
+		sprite[slot] = spriteId;
+		size[slot] = 0;
+	}
+
+	/**
+	 * Works out how many particles of a burst to emit. Up to half full every
+	 * particle is emitted; beyond that the burst shrinks in proportion to the free
+	 * space, but never below one particle.
+	 */
+	private int budget(int count) {
+		int capacity = life.length;
+		int half = capacity / 2;
+		if (live <= half) {
+			return count;
+		}
+		int n = (int) ((long) count * (capacity - live) / (capacity - half));
+		n = Math.max(n, 1);
+		thinned += count - n;
+		return n;
+	}
+
+	/**
+	 * Returns the next slot of the ring, overwriting whatever was there.
+	 */
+	private int allocate() {
+		int slot = cursor;
+		cursor = (cursor + 1) % life.length;
+		if (life[slot] == 0) {
+			live++;
+		}
+		return slot;
+	}
+
+	/**
+	 * Moves every live particle one tick and removes the ones that have expired or
+	 * fallen below the play area.
+	 *
+	 * @param bottom the y-coordinate of the bottom of the play area
+	 */
+	public void update(int bottom) {
+		for (int i = 0; i < life.length; i++) {
+			if (life[i] == 0) {
+				continue;
+			}
+			x[i] += vx[i];
+			y[i] += vy[i];
+			vy[i] += gravity[i];
+			life[i]--;
+			if (y[i] > bottom) {
+				life[i] = 0;
+			}
+			if (life[i] == 0) {
+				live--;
+			}
+		}
+	}
+
+	/**
+	 * Copies every live particle into a snapshot so it can be drawn.
+	 *
+	 * @param snapshot the snapshot to fill
+	 */
+	public void writeTo(WorldSnapshot snapshot) {
+		for (int i = 0; i < life.length; i++) {
+			if (life[i] != 0) {
+				snapshot.addParticle((int) x[i], (int) y[i], sprite[i], color[i], size[i]);
+			}
+		}
+	}
+
+	/**
+	 * Writes every live particle, the ring position and the random generator
+	 * state to a buffer.
+	 *
+	 * @param out the buffer to write to
+	 */
+	public void writeState(ByteBuffer out) {
+		out.putInt(life.length);
+		out.putInt(cursor);
+		out.putLong(seed);
+		out.putLong(thinned);
+		out.putInt(live);
+		for (int i = 0; i < life.length; i++) {
+			if (life[i] == 0) {
+				continue;
+			}
+			out.putShort((short) i);
+			out.putFloat(x[i]).putFloat(y[i]).putFloat(vx[i]).putFloat(vy[i]).putFloat(gravity[i]);
+			out.putShort((short) life[i]);
+			out.put((byte) color[i]);
+			out.put((byte) size[i]);
+			out.putShort((short) sprite[i]);
+		}
+	}
+
+	/**
+	 * Replaces every particle with the ones read from a buffer written by
+	 * {@link #writeState(ByteBuffer)}.
+	 *
+	 * @param in the buffer to read from
+	 * @throws IOException if the state was saved with a different capacity
+	 */
+	public void readState(ByteBuffer in) throws IOException {
+		if (in.getInt() != life.length) {
+			throw new IOException("Saved particles have a different capacity");
+		}
+		reset(1);
+		cursor = in.getInt();
+		seed = in.getLong();
+		thinned = in.getLong();
+		live = in.getInt();
+		for (int n = 0; n < live; n++) {
+			int i = in.getShort() & 0xffff;
+			x[i] = in.getFloat();
+			y[i] = in.getFloat();
+			vx[i] = in.getFloat();
+			vy[i] = in.getFloat();
+			gravity[i] = in.getFloat();
+			life[i] = in.getShort();
+			color[i] = in.get();
+			size[i] = in.get();
+			sprite[i] = in.getShort();
+		}
+	}
+
+	/**
+	 * Returns a random float from 0 up to 1 using xorshift.
+	 */
+	private float nextFloat() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 7;
+		seed ^= seed << 17;
+		return (seed >>> 40) / (float) (1 << 24);
+	}
+
+	/**
+	 * Returns the number of live particles.
+	 *
+	 * @return the live particle count
+	 */
+	public int getLive() {
+		return live;
+	}
+
+	/**
+	 * Returns the number of particles left out of bursts because the system was
+	 * busy.
+	 *
+	 * @return the thinned particle count
+	 */
+	public long getThinned() {
+		return thinned;
+	}
+
+	/**
+	 * Returns the maximum number of live particles.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return life.length;
+	}
+}
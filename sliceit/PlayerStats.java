@@ -0,0 +1,490 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The PlayerStats class adds up every finished round, per player and for the
+ * venue by hour and by day, as the rounds end.
+ * <p>
+ * Each round is one call to {@link #record(String, long, int, int, long,
+ * boolean)}. It adds to the player's running totals (games, points, best
+ * score, fruits sliced, time played and bomb deaths) and to the totals of the
+ * hour it ended in, so every figure is read straight from a counter and no
+ * round is ever looked at again. Hours are kept in a ring of {@link #HOURS}
+ * slots. Every record compacts the ring: hours more than
+ * {@link #HOURLY_RETENTION} hours older than the newest are folded into the
+ * ring of {@link #DAYS} day totals and their slots freed, so the hourly
+ * detail covers the last day while day totals go back more than a year. A
+ * day's total is its folded total plus whichever of its hours are not folded
+ * yet. Hours and days are those of the venue's time zone.
+ * </p>
+ * <p>
+ * The counters are saved to a small file after each round, written to a
+ * temporary file first and moved over the old one. Run
+ * {@code java sliceit.SliceItController --stats [file]} to print the players
+ * and the last day's and week's totals.
+ * </p>
+ */
+public class PlayerStats {
+	/** File signature, "SLPS". */
+	public static final int MAGIC = 0x534C5053;
+	/** Current file format version. */
+	public static final int VERSION = 1;
+	/** Default file the game keeps its statistics in. */
+	public static final String DEFAULT_FILE = "player-stats.dat";
+	/** Index of the number of games in a set of totals. */
+	public static final int GAMES = 0;
+	/** Index of the points scored in a set of totals. */
+	public static final int POINTS = 1;
+	/** Index of the fruits sliced in a set of totals. */
+	public static final int SLICES = 2;
+	/** Index of the milliseconds played in a set of totals. */
+	public static final int PLAY_MILLIS = 3;
+	/** Index of the rounds lost to a bomb in a set of totals. */
+	public static final int BOMB_DEATHS = 4;
+	/** Number of counters in a set of totals. */
+	public static final int FIELDS = 5;
+	/** Number of hour slots. */
+	public static final int HOURS = 48;
+	/** Hours kept with their own totals before they are folded into their day. */
+	public static final int HOURLY_RETENTION = 24;
+	/** Number of day slots. */
+	public static final int DAYS = 400;
+	/** Milliseconds in an hour. */
+	private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+	/** Marks an unused hour or day slot. */
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	/** Time zone whose hours and days the totals are kept by. */
+	private final ZoneId zone;
+	/** Player number of each lower-case name. */
+	private final Map<String, Integer> ids = new HashMap<>();
+	/** Name of each player, as first entered. */
+	private String[] names = new String[16];
+	/** Games, best score and bomb deaths of each player. */
+	private int[] games = new int[16], best = new int[16], bombDeaths = new int[16];
+	/** Points, fruits sliced and milliseconds played of each player. */
+	private long[] points = new long[16], slices = new long[16], playMillis = new long[16];
+	/** Number of players. */
+	private int playerCount;
+	/** Local hour number held by each hour slot, or {@link #EMPTY}. */
+	private final long[] hourOf = new long[HOURS];
+	/** Totals of each hour slot, {@link #FIELDS} counters per slot. */
+	private final long[] hourTotals = new long[HOURS * FIELDS];
+	/** Local day number held by each day slot, or {@link #EMPTY}. */
+	private final long[] dayOf = new long[DAYS];
+	/** Folded totals of each day slot, {@link #FIELDS} counters per slot. */
+	private final long[] dayTotals = new long[DAYS * FIELDS];
+	/** Newest local hour recorded. */
+	private long latestHour = EMPTY;
+
+	/**
+	 * Constructs an empty PlayerStats keeping hours and days of a time zone.
+	 *
+	 * @param zone the venue's time zone
+	 */
+	public PlayerStats(ZoneId zone) {
+		this.zone = zone;
+		Arrays.fill(hourOf, EMPTY);
+		Arrays.fill(dayOf, EMPTY);
+	}
+
+	/**
+	 * Adds a finished round.
+	 *
+	 * @param name       the player's name
+	 * @param timeMillis when the round ended, in milliseconds since the epoch
+	 * @param score      the points scored
+	 * @param sliced     the fruits sliced
+	 * @param played     how long the round lasted, in milliseconds
+	 * @param bombDeath  true if the round ended because the player sliced a bomb
+	 */
+	public void record(String name, long timeMillis, int score, int sliced, long played, boolean bombDeath) {
+		int id = player(name);
+		games[id]++;
+		points[id] += score;
+		best[id] = games[id] == 1 ? score : Math.max(best[id], score);
+		slices[id] += sliced;
+		playMillis[id] += played;
+		if (bombDeath) {
+			bombDeaths[id]++;
+		}
+
+		long hour = localHour(timeMillis);
+		if (latestHour == EMPTY || hour > latestHour) {
+			latestHour = hour;
+		}
+		long[] totals;
+		int base;
+		if (hour <= latestHour - HOURLY_RETENTION) {
+			//a round from before the hourly detail, e.g. after the clock was set back
+			totals = dayTotals;
+			base = daySlot(Math.floorDiv(hour, 24));
+		} else {
+			totals = hourTotals;
+			base = hourSlot(hour);
+		}
+		if (base >= 0) {
+			totals[base + GAMES]++;
+			totals[base + POINTS] += score;
+			totals[base + SLICES] += sliced;
+			totals[base + PLAY_MILLIS] += played;
+			if (bombDeath) {
+				totals[base + BOMB_DEATHS]++;
+			}
+		}
+		compact();
+	}
+
+	/**
+	 * Folds every hour more than {@link #HOURLY_RETENTION} hours older than the
+	 * newest into its day and frees its slot.
+	 */
+	private void compact() {
+		for (int slot = 0; slot < HOURS; slot++) {
+			if (hourOf[slot] != EMPTY && hourOf[slot] <= latestHour - HOURLY_RETENTION) {
+				fold(slot);
+			}
+		}
+	}
+
+	/**
+	 * Folds the totals of an hour slot into its day and frees the slot.
+	 */
+	private void fold(int slot) {
+		int day = daySlot(Math.floorDiv(hourOf[slot], 24));
+		if (day >= 0) {
+			for (int f = 0; f < FIELDS; f++) {
+				dayTotals[day + f] += hourTotals[slot * FIELDS + f];
+			}
+		}
+		Arrays.fill(hourTotals, slot * FIELDS, slot * FIELDS + FIELDS, 0);
+		hourOf[slot] = EMPTY;
+	}
+
+	/**
+	 * Returns the offset of an hour's totals in the hour ring, taking over the
+	 * slot from an older hour if needed.
+	 */
+	private int hourSlot(long hour) {
+		int slot = (int) Math.floorMod(hour, (long) HOURS);
+		if (hourOf[slot] != hour) {
+			if (hourOf[slot] != EMPTY) {
+				fold(slot);
+			}
+			hourOf[slot] = hour;
+		}
+		return slot * FIELDS;
+	}
+
+	/**
+	 * Returns the offset of a day's totals in the day ring, taking over the slot
+	 * from an older day if needed, or -1 if the day is older than the ring.
+	 */
+	private int daySlot(long day) {
+		int slot = (int) Math.floorMod(day, (long) DAYS);
+		if (dayOf[slot] != day) {
+			if (dayOf[slot] != EMPTY && dayOf[slot] > day) {
+				return -1;
+			}
+			dayOf[slot] = day;
+			Arrays.fill(dayTotals, slot * FIELDS, slot * FIELDS + FIELDS, 0);
+		}
+		return slot * FIELDS;
+	}
+
+	/**
+	 * Returns the player number of a name, adding the player if new.
+	 */
+	private int player(String name) {
+		String key = name.toLowerCase(Locale.ROOT);
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		if (playerCount == names.length) {
+			int capacity = playerCount * 2;
+			names = Arrays.copyOf(names, capacity);
+			games = Arrays.copyOf(games, capacity);
+			best = Arrays.copyOf(best, capacity);
+			bombDeaths = Arrays.copyOf(bombDeaths, capacity);
+			points = Arrays.copyOf(points, capacity);
+			slices = Arrays.copyOf(slices, capacity);
+			playMillis = Arrays.copyOf(playMillis, capacity);
+		}
+		names[playerCount] = name;
+		ids.put(key, playerCount);
+		return playerCount++;
+	}
+
+	/**
+	 * Returns the hour number of a time in the venue's time zone, counting from
+	 * the start of 1970 there.
+	 */
+	private long localHour(long timeMillis) {
+		long offset = zone.getRules().getOffset(Instant.ofEpochMilli(timeMillis)).getTotalSeconds() * 1000L;
+		return Math.floorDiv(timeMillis + offset, HOUR_MILLIS);
+	}
+
+	/**
+	 * Returns one total of the hour a time falls in. Hours that have been
+	 * folded into their day read as 0.
+	 *
+	 * @param timeMillis any time in the hour, in milliseconds since the epoch
+	 * @param field      which total: {@link #GAMES}, {@link #POINTS},
+	 *                   {@link #SLICES}, {@link #PLAY_MILLIS} or
+	 *                   {@link #BOMB_DEATHS}
+	 * @return the total
+	 */
+	public long getHourTotal(long timeMillis, int field) {
+		long hour = localHour(timeMillis);
+		int slot = (int) Math.floorMod(hour, (long) HOURS);
+		return hourOf[slot] == hour ? hourTotals[slot * FIELDS + field] : 0;
+	}
+
+	/**
+	 * Returns one total of the day a time falls in, adding the hours of that day
+	 * not yet folded into it.
+	 *
+	 * @param timeMillis any time in the day, in milliseconds since the epoch
+	 * @param field      which total, as for {@link #getHourTotal(long, int)}
+	 * @return the total
+	 */
+	public long getDayTotal(long timeMillis, int field) {
+		long day = Math.floorDiv(localHour(timeMillis), 24);
+		int slot = (int) Math.floorMod(day, (long) DAYS);
+		long total = dayOf[slot] == day ? dayTotals[slot * FIELDS + field] : 0;
+		for (int h = 0; h < HOURS; h++) {
+			if (hourOf[h] != EMPTY && Math.floorDiv(hourOf[h], 24) == day) {
+				total += hourTotals[h * FIELDS + field];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Finds a player by name, ignoring case.
+	 *
+	 * @param name the name
+	 * @return the player number, or -1 if the player has not finished a round
+	 */
+	public int find(String name) {
+		Integer id = ids.get(name.toLowerCase(Locale.ROOT));
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the number of players.
+	 *
+	 * @return the number of players
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	/**
+	 * Returns a player's name.
+	 *
+	 * @param id the player number
+	 * @return the name as first entered
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of rounds a player finished.
+	 *
+	 * @param id the player number
+	 * @return the number of games
+	 */
+	public int getGames(int id) {
+		return games[id];
+	}
+
+	/**
+	 * Returns a player's best score.
+	 *
+	 * @param id the player number
+	 * @return the best score
+	 */
+	public int getBestScore(int id) {
+		return best[id];
+	}
+
+	/**
+	 * Returns a player's average score per round.
+	 *
+	 * @param id the player number
+	 * @return the average score
+	 */
+	public double getAverageScore(int id) {
+		return games[id] == 0 ? 0 : (double) points[id] / games[id];
+	}
+
+	/**
+	 * Returns how many fruits a player slices per minute of play.
+	 *
+	 * @param id the player number
+	 * @return the fruits sliced per minute
+	 */
+	public double getSlicesPerMinute(int id) {
+		return playMillis[id] == 0 ? 0 : slices[id] * 60_000.0 / playMillis[id];
+	}
+
+	/**
+	 * Returns the number of rounds a player lost to a bomb.
+	 *
+	 * @param id the player number
+	 * @return the bomb deaths
+	 */
+	public int getBombDeaths(int id) {
+		return bombDeaths[id];
+	}
+
+	/**
+	 * Saves the statistics, writing a temporary file and moving it over the old
+	 * one so a crash leaves either the old or the new file whole.
+	 *
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		int size = 4 + 4 + 8 + 4 + HOURS * (8 + FIELDS * 8) + DAYS * (8 + FIELDS * 8);
+		byte[][] encoded = new byte[playerCount][];
+		for (int i = 0; i < playerCount; i++) {
+			encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+			size += 2 + encoded[i].length + 3 * 4 + 3 * 8;
+		}
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.putInt(MAGIC).putInt(VERSION).putLong(latestHour).putInt(playerCount);
+		for (int i = 0; i < playerCount; i++) {
+			out.putShort((short) encoded[i].length).put(encoded[i]);
+			out.putInt(games[i]).putInt(best[i]).putInt(bombDeaths[i]);
+			out.putLong(points[i]).putLong(slices[i]).putLong(playMillis[i]);
+		}
+		for (int slot = 0; slot < HOURS; slot++) {
+			out.putLong(hourOf[slot]);
+			for (int f = 0; f < FIELDS; f++) {
+				out.putLong(hourTotals[slot * FIELDS + f]);
+			}
+		}
+		for (int slot = 0; slot < DAYS; slot++) {
+			out.putLong(dayOf[slot]);
+			for (int f = 0; f < FIELDS; f++) {
+				out.putLong(dayTotals[slot * FIELDS + f]);
+			}
+		}
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(tmp, out.array());
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads statistics written by {@link #save(Path)}.
+	 *
+	 * @param file the file to read
+	 * @param zone the venue's time zone
+	 * @return the statistics
+	 * @throws IOException if the file cannot be read or is not a statistics file
+	 */
+	public static PlayerStats load(Path file, ZoneId zone) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+		PlayerStats stats = new PlayerStats(zone);
+		try {
+			if (in.getInt() != MAGIC) {
+				throw new IOException(file + " is not a SliceIt statistics file");
+			}
+			int version = in.getInt();
+			if (version != VERSION) {
+				throw new IOException(file + " is statistics format " + version + ", expected " + VERSION);
+			}
+			stats.latestHour = in.getLong();
+			int count = in.getInt();
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[in.getShort() & 0xffff];
+				in.get(name);
+				int id = stats.player(new String(name, StandardCharsets.UTF_8));
+				stats.games[id] = in.getInt();
+				stats.best[id] = in.getInt();
+				stats.bombDeaths[id] = in.getInt();
+				stats.points[id] = in.getLong();
+				stats.slices[id] = in.getLong();
+				stats.playMillis[id] = in.getLong();
+			}
+			for (int slot = 0; slot < HOURS; slot++) {
+				stats.hourOf[slot] = in.getLong();
+				for (int f = 0; f < FIELDS; f++) {
+					stats.hourTotals[slot * FIELDS + f] = in.getLong();
+				}
+			}
+			for (int slot = 0; slot < DAYS; slot++) {
+				stats.dayOf[slot] = in.getLong();
+				for (int f = 0; f < FIELDS; f++) {
+					stats.dayTotals[slot * FIELDS + f] = in.getLong();
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException(file + " is cut short", e);
+		}
+		return stats;
+	}
+
+	/**
+	 * Prints every player's statistics and the venue's totals for each of the
+	 * last 24 hours and the last 7 days.
+	 *
+	 * @param args the statistics file, player-stats.dat if none is given
+	 * @throws IOException if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE);
+		PlayerStats stats = load(file, ZoneId.systemDefault());
+		System.out.printf("%-20s %6s %6s %8s %8s %6s%n", "Player", "Games", "Best", "Average", "Fruit/m", "Bombs");
+		for (int id = 0; id < stats.getPlayerCount(); id++) {
+			System.out.printf("%-20s %6d %6d %8.1f %8.1f %6d%n", stats.getName(id), stats.getGames(id),
+					stats.getBestScore(id), stats.getAverageScore(id), stats.getSlicesPerMinute(id),
+					stats.getBombDeaths(id));
+		}
+		long now = System.currentTimeMillis();
+		System.out.println();
+		System.out.printf("%-16s %6s %8s %8s %6s%n", "Hour", "Games", "Points", "Fruit", "Bombs");
+		for (int h = 23; h >= 0; h--) {
+			stats.printTotals(now - h * HOUR_MILLIS, "yyyy-MM-dd HH:00", false);
+		}
+		System.out.println();
+		System.out.printf("%-16s %6s %8s %8s %6s%n", "Day", "Games", "Points", "Fruit", "Bombs");
+		for (int d = 6; d >= 0; d--) {
+			stats.printTotals(now - d * 24 * HOUR_MILLIS, "yyyy-MM-dd", true);
+		}
+	}
+
+	/**
+	 * Prints one line of hour or day totals for the report.
+	 */
+	private void printTotals(long timeMillis, String pattern, boolean day) {
+		String label = LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), zone)
+				.format(DateTimeFormatter.ofPattern(pattern));
+		long[] totals = new long[FIELDS];
+		for (int f = 0; f < FIELDS; f++) {
+			totals[f] = day ? getDayTotal(timeMillis, f) : getHourTotal(timeMillis, f);
+		}
+		System.out.printf("%-16s %6d %8d %8d %6d%n", label, totals[GAMES], totals[POINTS], totals[SLICES],
+				totals[BOMB_DEATHS]);
+	}
+}
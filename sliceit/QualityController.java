@@ -0,0 +1,169 @@
+package sliceit;
+
+import java.awt.RenderingHints;
+
+/**
+ * The QualityController class watches how long each frame takes to paint and
+ * lowers or raises the rendering quality to keep painting inside the tick
+ * budget on slower machines.
+ * <p>
+ * Frame times are kept in a rolling window. When the average of a full window
+ * goes over the budget the quality drops one level straight away; it only
+ * comes back up after several windows in a row well under the budget, so the
+ * level does not flicker between two settings. Every change is logged.
+ * </p>
+ * <p>
+ * Only drawing is affected. The simulation never reads the quality level, so
+ * a round plays out exactly the same at every level.
+ * </p>
+ */
+public class QualityController {
+	/** Best quality: smooth background, every particle and frame, full resolution. */
+	public static final int HIGH = 0;
+	/** Lowest quality: everything below, plus a half resolution frame. */
+	public static final int LOWEST = 3;
+	/** Names of the levels, used in the log. */
+	private static final String[] LEVEL_NAMES = { "high", "medium", "low", "lowest" };
+	/** Background interpolation of each level. */
+	private static final Object[] INTERPOLATION = { RenderingHints.VALUE_INTERPOLATION_BILINEAR,
+			RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR,
+			RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR };
+	/** Each level draws one square particle out of this many. */
+	private static final int[] PARTICLE_STRIDE = { 1, 1, 2, 3 };
+	/** Each level moves the explosion on by this many frames at a time. */
+	private static final int[] EXPLOSION_STEP = { 1, 1, 2, 2 };
+	/** Fraction of the window size each level renders at before upscaling. */
+	private static final float[] RENDER_SCALE = { 1f, 1f, 1f, 0.5f };
+	/** Number of frames averaged before each decision. */
+	public static final int WINDOW = 30;
+	/** Number of good windows in a row needed before raising the quality. */
+	private static final int WINDOWS_TO_RAISE = 4;
+	/** Fraction of the budget below which a window counts as good. */
+	private static final double RAISE_FRACTION = 0.5;
+
+	/** The time a frame may take, in nanoseconds. */
+	private final long budgetNanos;
+	/** The most recent frame times. */
+	private final long[] frameNanos = new long[WINDOW];
+	/** Number of frames recorded since the window was last emptied. */
+	private int frames;
+	/** Sum of the frame times in the window. */
+	private long windowNanos;
+	/** Number of good windows in a row. */
+	private int goodWindows;
+	/** The current quality level, from HIGH to LOWEST. */
+	private volatile int level = HIGH;
+	/** Whether the level may change at all. */
+	private boolean adaptive = true;
+
+	/**
+	 * Constructs a QualityController starting at the highest quality.
+	 *
+	 * @param budgetNanos the time a frame may take, in nanoseconds
+	 */
+	public QualityController(long budgetNanos) {
+		this.budgetNanos = budgetNanos;
+	}
+
+	/**
+	 * Records how long a frame took to paint and changes the quality level if the
+	 * window is full and calls for it.
+	 *
+	 * @param nanos the paint time of the frame in nanoseconds
+	 */
+	public void recordFrame(long nanos) {
+		windowNanos += nanos - frameNanos[frames % WINDOW];
+		frameNanos[frames % WINDOW] = nanos;
+		frames++;
+		if (!adaptive || frames < WINDOW || frames % WINDOW != 0) {
+			return;
+		}
+		long average = windowNanos / WINDOW;
+		if (average > budgetNanos) {
+			goodWindows = 0;
+			if (level < LOWEST) {
+				change(level + 1, average);
+			}
+		} else if (average < budgetNanos * RAISE_FRACTION) {
+			goodWindows++;
+			if (goodWindows >= WINDOWS_TO_RAISE && level > HIGH) {
+				change(level - 1, average);
+			}
+		} else {
+			goodWindows = 0;
+		}
+	}
+
+	/**
+	 * Switches to a new level, logs it and starts a fresh window so the next
+	 * decision only looks at frames drawn at the new level.
+	 */
+	private void change(int newLevel, long average) {
+		System.out.printf("Quality %s -> %s (average frame %.1f ms, budget %.1f ms)%n", LEVEL_NAMES[level],
+				LEVEL_NAMES[newLevel], average / 1e6, budgetNanos / 1e6);
+		level = newLevel;
+		goodWindows = 0;
+		frames = 0;
+		windowNanos = 0;
+		for (int i = 0; i < WINDOW; i++) {
+			frameNanos[i] = 0;
+		}
+	}
+
+	/**
+	 * Fixes the quality at a level, or lets it adapt again.
+	 *
+	 * @param fixedLevel the level to keep, or -1 to adapt to the frame times
+	 */
+	public void setFixedLevel(int fixedLevel) {
+		adaptive = fixedLevel < 0;
+		if (!adaptive) {
+			level = Math.min(Math.max(fixedLevel, HIGH), LOWEST);
+		}
+	}
+
+	/**
+	 * Returns the current quality level.
+	 *
+	 * @return a level from HIGH to LOWEST
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the interpolation to use when scaling the background.
+	 *
+	 * @return a RenderingHints interpolation value
+	 */
+	public Object getBackgroundInterpolation() {
+		return INTERPOLATION[level];
+	}
+
+	/**
+	 * Returns how many square particles to step over for each one drawn.
+	 *
+	 * @return 1 to draw every particle, 2 for every other one, and so on
+	 */
+	public int getParticleStride() {
+		return PARTICLE_STRIDE[level];
+	}
+
+	/**
+	 * Returns how many explosion frames to advance at a time.
+	 *
+	 * @return the frame step
+	 */
+	public int getExplosionStep() {
+		return EXPLOSION_STEP[level];
+	}
+
+	/**
+	 * Returns the fraction of the window size to render at before upscaling.
+	 *
+	 * @return a scale from 0 up to 1
+	 */
+	public float getRenderScale() {
+		return RENDER_SCALE[level];
+	}
+}
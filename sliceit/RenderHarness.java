@@ -0,0 +1,360 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The RenderHarness class draws scripted scenes offscreen, exactly as the game
+ * panel would, so rendering can be checked and timed on machines without a
+ * display.
+ * <p>
+ * Each scene is a world played from a fixed seed for a fixed number of ticks
+ * with a fixed slicing pattern, optionally with an explosion playing and a
+ * fixed quality level. It is drawn into a {@code 500x500} image through the
+ * same {@link GameRenderer}, {@link SpriteAnimator} and HUD calls as the game
+ * panel, then compared with a golden image: a pixel differs when any channel
+ * is more than {@link #CHANNEL_TOLERANCE} away, and a scene fails when more
+ * than {@link #MAX_DIFFERING} of its pixels differ. A failing scene leaves the
+ * actual image and a diff (differing pixels in red) next to the golden one.
+ * </p>
+ * <p>
+ * It then times drawing alone, without the simulation, on still scenes of
+ * several sizes and reports frames per second for each. Run it with
+ * {@code java -Djava.awt.headless=true sliceit.SliceItController --render [options]}.
+ * Options are {@code --golden golden}, {@code --update} to rewrite the golden
+ * images instead of checking them, {@code --counts 100,1000,10000},
+ * {@code --seconds 2} and {@code --out render-results.txt}. The run exits with
+ * status 1 if any scene differs. Golden images depend on the fonts and the
+ * Java 2D pipeline, so a new build machine should regenerate them once.
+ * </p>
+ */
+public class RenderHarness {
+	/** Width and height of the offscreen frame, the same as the game window. */
+	public static final int SIZE = 500;
+	/** Largest difference in any channel for two pixels to count as the same. */
+	public static final int CHANNEL_TOLERANCE = 8;
+	/** Largest fraction of differing pixels a scene may have and still match. */
+	public static final double MAX_DIFFERING = 0.001;
+	/** Names of the scripted scenes, in the order they are checked. */
+	public static final String[] SCENES = { "start", "midround", "explosion", "crowd", "lowquality" };
+	/** How long each explosion frame is shown, as in the game. */
+	private static final long EXPLOSION_FRAME_NANOS = 10_000_000L;
+	/** Seconds shown on the HUD of every scene. */
+	private static final int SCENE_SECONDS = 42;
+
+	/** The sprites shared by every scene. */
+	private final TextureAtlas atlas;
+	/** Draws the sprites. */
+	private final SpriteBatch batch;
+	/** Draws the background, sprites and HUD. */
+	private final GameRenderer renderer;
+	/** Built-in difficulty settings, so the scenes do not follow the tuning file. */
+	private final DifficultyConfig config = new DifficultyConfig();
+
+	/**
+	 * Runs the harness from the command line.
+	 *
+	 * @param args the options described in the class comment
+	 * @throws IOException if the assets cannot be loaded or the results cannot be
+	 *                     written
+	 */
+	public static void main(String[] args) throws IOException {
+		File golden = new File("golden");
+		boolean update = false;
+		int[] counts = { 100, 1000, 10000 };
+		int seconds = 2;
+		String out = "render-results.txt";
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--update":
+				update = true;
+				break;
+			case "--golden":
+				golden = new File(args[++i]);
+				break;
+			case "--counts":
+				String[] parts = args[++i].split(",");
+				counts = new int[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					counts[j] = Integer.parseInt(parts[j].trim());
+				}
+				break;
+			case "--seconds":
+				seconds = Integer.parseInt(args[++i]);
+				break;
+			case "--out":
+				out = args[++i];
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		RenderHarness harness = new RenderHarness();
+		boolean passed = true;
+		if (update) {
+			harness.updateGolden(golden);
+		} else {
+			passed = harness.checkGolden(golden);
+		}
+		harness.reportThroughput(counts, seconds, new File(out));
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Constructs a RenderHarness, loading the same sprites, background and HUD
+	 * font as the game.
+	 *
+	 * @throws IOException if the sprites cannot be loaded
+	 */
+	public RenderHarness() throws IOException {
+		atlas = TextureAtlas.load("images/sprites.txt");
+		batch = new SpriteBatch(atlas);
+		BufferedImage background = null;
+		try {
+			background = ImageIO.read(new File("images/playBackgrnd.png"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		HudRenderer hud = new HudRenderer(new Font("Arial Black", Font.BOLD, 24), Color.black);
+		renderer = new GameRenderer(background, batch, hud);
+	}
+
+	/**
+	 * Plays a world from a fixed seed, sweeping a slice across the screen every
+	 * few ticks so there are sliced fruits and flying halves.
+	 *
+	 * @param target the rough number of live objects, or 0 for a normal round
+	 * @param ticks  the number of ticks to play
+	 * @return the world after the last tick
+	 */
+	GameWorld playWorld(int target, int ticks) {
+		DifficultyConfig scaled = new DifficultyConfig();
+		if (target > 0) {
+			scaled.setCountScale(StressTest.countScaleFor(config, target));
+		}
+		GameWorld world = new GameWorld(atlas);
+		world.setBombsEndGame(false);
+		world.setSize(SIZE, SIZE);
+		world.reset(scaled, 21L);
+		for (int t = 0; t < ticks; t++) {
+			if (t % 5 == 0) {
+				int y = 80 + (t * 13) % 340;
+				for (int x = 0; x < SIZE; x += 10) {
+					world.slice(x, y);
+				}
+			}
+			world.tick();
+		}
+		return world;
+	}
+
+	/**
+	 * Draws one of the scripted scenes.
+	 *
+	 * @param scene one of {@link #SCENES}
+	 * @return a new image holding the frame
+	 * @throws IllegalArgumentException if there is no such scene
+	 */
+	public BufferedImage render(String scene) {
+		GameWorld world;
+		SpriteAnimator animations = new SpriteAnimator();
+		QualityController quality = null;
+		switch (scene) {
+		case "start":
+			world = playWorld(0, 1);
+			break;
+		case "midround":
+			world = playWorld(0, 150);
+			break;
+		case "explosion":
+			world = playWorld(0, 150);
+			int explosion = atlas.getId("explosion");
+			//the fifth frame, centred on the screen as over a bomb
+			animations.play(explosion, atlas.getImages("explosion").length, EXPLOSION_FRAME_NANOS,
+					(SIZE - atlas.getCellWidth(explosion)) / 2, (SIZE - atlas.getCellHeight(explosion)) / 2, 0L, null);
+			break;
+		case "crowd":
+			world = playWorld(1000, 150);
+			break;
+		case "lowquality":
+			world = playWorld(1000, 150);
+			quality = new QualityController(SimulationThread.TICK_NANOS);
+			quality.setFixedLevel(QualityController.LOWEST);
+			break;
+		default:
+			throw new IllegalArgumentException("No scene called " + scene);
+		}
+		WorldSnapshot snapshot = new WorldSnapshot();
+		world.writeSnapshot(snapshot);
+		BufferedImage frame = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = frame.createGraphics();
+		try {
+			renderer.setQuality(quality);
+			drawFrame(g2d, snapshot, animations, 4 * EXPLOSION_FRAME_NANOS + 1, quality);
+		} finally {
+			renderer.setQuality(null);
+			g2d.dispose();
+		}
+		return frame;
+	}
+
+	/**
+	 * Draws a frame the way the game panel does: the scene, then the
+	 * animations, then the HUD.
+	 */
+	private void drawFrame(Graphics2D g2d, WorldSnapshot snapshot, SpriteAnimator animations, long now,
+			QualityController quality) {
+		renderer.drawScene(g2d, SIZE, SIZE, snapshot);
+		animations.draw(g2d, batch, now, quality == null ? 1 : quality.getExplosionStep());
+		renderer.drawHud(g2d, snapshot.getPoints(), SCENE_SECONDS);
+	}
+
+	/**
+	 * Counts the pixels of two images that differ by more than the tolerance in
+	 * any channel, optionally marking them in a diff image.
+	 *
+	 * @param expected  the golden image
+	 * @param actual    the image just drawn
+	 * @param tolerance the largest channel difference still counted as equal
+	 * @param diff      an image of the same size to mark differing pixels red
+	 *                  on a dimmed copy of the actual image, or null
+	 * @return the number of differing pixels, or every pixel if the sizes differ
+	 */
+	public static int countDiffering(BufferedImage expected, BufferedImage actual, int tolerance, BufferedImage diff) {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+			return actual.getWidth() * actual.getHeight();
+		}
+		int width = actual.getWidth();
+		int[] a = expected.getRGB(0, 0, width, actual.getHeight(), null, 0, width);
+		int[] b = actual.getRGB(0, 0, width, actual.getHeight(), null, 0, width);
+		int differing = 0;
+		for (int i = 0; i < a.length; i++) {
+			int pa = a[i];
+			int pb = b[i];
+			boolean same = Math.abs((pa >> 16 & 0xff) - (pb >> 16 & 0xff)) <= tolerance
+					&& Math.abs((pa >> 8 & 0xff) - (pb >> 8 & 0xff)) <= tolerance
+					&& Math.abs((pa & 0xff) - (pb & 0xff)) <= tolerance;
+			if (!same) {
+				differing++;
+			}
+			if (diff != null) {
+				diff.setRGB(i % width, i / width, same ? (pb >> 2) & 0x3f3f3f : 0xff0000);
+			}
+		}
+		return differing;
+	}
+
+	/**
+	 * Draws every scene and compares it with its golden image, printing one line
+	 * per scene. A failing scene's image and diff are written beside the golden
+	 * one as scene-actual.png and scene-diff.png.
+	 *
+	 * @param dir the directory holding the golden images
+	 * @return true if every scene matched
+	 * @throws IOException if an image cannot be read or written
+	 */
+	public boolean checkGolden(File dir) throws IOException {
+		boolean passed = true;
+		int allowed = (int) (SIZE * SIZE * MAX_DIFFERING);
+		for (String scene : SCENES) {
+			File file = new File(dir, scene + ".png");
+			if (!file.exists()) {
+				System.out.println(scene + " MISSING " + file + " (run with --update)");
+				passed = false;
+				continue;
+			}
+			BufferedImage expected = ImageIO.read(file);
+			BufferedImage actual = render(scene);
+			BufferedImage diff = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+			int differing = countDiffering(expected, actual, CHANNEL_TOLERANCE, diff);
+			boolean ok = differing <= allowed;
+			System.out.println(scene + " " + differing + " pixels differ " + (ok ? "PASS" : "FAIL"));
+			if (!ok) {
+				ImageIO.write(actual, "png", new File(dir, scene + "-actual.png"));
+				ImageIO.write(diff, "png", new File(dir, scene + "-diff.png"));
+				passed = false;
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * Draws every scene and writes it as the new golden image.
+	 *
+	 * @param dir the directory to write the golden images to
+	 * @throws IOException if an image cannot be written
+	 */
+	public void updateGolden(File dir) throws IOException {
+		dir.mkdirs();
+		for (String scene : SCENES) {
+			ImageIO.write(render(scene), "png", new File(dir, scene + ".png"));
+			System.out.println(scene + " written");
+		}
+	}
+
+	/**
+	 * Measures how many frames per second a still scene can be drawn at, after
+	 * a short warm up.
+	 *
+	 * @param snapshot the scene to draw
+	 * @param millis   how long to draw for, in milliseconds
+	 * @return the frames per second
+	 */
+	public double measureFramesPerSecond(WorldSnapshot snapshot, long millis) {
+		SpriteAnimator animations = new SpriteAnimator();
+		BufferedImage frame = TextureAtlas.createCompatibleImage(SIZE, SIZE);
+		Graphics2D g2d = frame.createGraphics();
+		try {
+			long warmUpEnd = System.nanoTime() + millis * 1_000_000L / 4;
+			while (System.nanoTime() < warmUpEnd) {
+				drawFrame(g2d, snapshot, animations, 0L, null);
+			}
+			long start = System.nanoTime();
+			long end = start + millis * 1_000_000L;
+			long frames = 0;
+			long now;
+			while ((now = System.nanoTime()) < end) {
+				drawFrame(g2d, snapshot, animations, 0L, null);
+				frames++;
+			}
+			return frames / ((now - start) / 1e9);
+		} finally {
+			g2d.dispose();
+		}
+	}
+
+	/**
+	 * Measures every size and writes one line per size to the console and to a
+	 * results file.
+	 *
+	 * @param counts  the rough numbers of live objects to measure
+	 * @param seconds how long to draw each size for
+	 * @param out     the results file
+	 * @throws IOException if the results cannot be written
+	 */
+	public void reportThroughput(int[] counts, int seconds, File out) throws IOException {
+		try (PrintWriter writer = new PrintWriter(new FileWriter(out))) {
+			writer.println("# SliceIt render throughput " + new Date() + ", Java " + System.getProperty("java.version")
+					+ ", " + SIZE + "x" + SIZE + ", " + seconds + " s per size");
+			writer.println("# target sprites frames/s ms/frame");
+			for (int target : counts) {
+				WorldSnapshot snapshot = new WorldSnapshot();
+				playWorld(target, 150).writeSnapshot(snapshot);
+				double fps = measureFramesPerSecond(snapshot, seconds * 1000L);
+				String line = String.format("%d %d %.1f %.3f", target, snapshot.getCount() + snapshot.getParticleCount(),
+						fps, 1000 / fps);
+				writer.println(line);
+				System.out.println(line);
+			}
+		}
+	}
+}
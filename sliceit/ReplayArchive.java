@@ -0,0 +1,315 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The ReplayArchive class keeps every recorded round of a cabinet in a few
+ * large segment files instead of one small file per round.
+ * <p>
+ * Rounds are appended one after another to the current segment through a
+ * {@link MappedByteBuffer}; when a segment is full the next round starts a new
+ * one. A small index file holds one fixed-size entry per round (its id, start
+ * time, segment, offset, length, tick count and final score), so finding a
+ * round is a binary search in memory and reading it maps just that round's
+ * bytes, never a whole segment. The round is written before its index entry,
+ * so a crash can only lose the round being written; a torn last entry is cut
+ * off when the archive is next opened.
+ * </p>
+ * <p>
+ * Segments older than the retention period are deleted when the archive is
+ * opened, together with their index entries.
+ * </p>
+ * <p>
+ * Run {@code java sliceit.SliceItController --replay [dir] [id]} to list the
+ * rounds in an archive, or to replay one into a fresh world and check that it
+ * scores exactly as it did when it was played.
+ * </p>
+ */
+public class ReplayArchive {
+	/** Default size of a segment file (64 MB). */
+	public static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+	/** Default retention period (30 days). */
+	public static final long RETENTION_MILLIS = 30L * 24 * 60 * 60 * 1000;
+	/** Bytes per index entry. */
+	private static final int ENTRY_SIZE = 40;
+	/** Name of the index file. */
+	private static final String INDEX_NAME = "sessions.idx";
+
+	/** The directory holding the index and segments. */
+	private final Path dir;
+	/** Largest number of bytes written to one segment. */
+	private final int segmentSize;
+	/** The index file, positioned after its last whole entry. */
+	private FileChannel index;
+	/** Session ids, in increasing order. */
+	private long[] ids = new long[64];
+	/** Start time of each session, in milliseconds since the epoch. */
+	private long[] starts = new long[64];
+	/** Segment number, offset, length, ticks and final score of each session. */
+	private int[] segments = new int[64], offsets = new int[64], lengths = new int[64], ticks = new int[64],
+			points = new int[64];
+	/** Number of sessions in the index. */
+	private int count;
+	/** Segment new sessions are appended to. */
+	private int currentSegment;
+	/** Bytes used in the current segment. */
+	private int currentUsed;
+
+	/**
+	 * Opens (or creates) an archive with the default segment size and retention.
+	 *
+	 * @param dir the directory holding the archive
+	 * @throws IOException if the directory or index cannot be read
+	 */
+	public ReplayArchive(Path dir) throws IOException {
+		this(dir, SEGMENT_SIZE, RETENTION_MILLIS);
+	}
+
+	/**
+	 * Opens (or creates) an archive, first deleting segments older than the
+	 * retention period.
+	 *
+	 * @param dir             the directory holding the archive
+	 * @param segmentSize     the largest number of bytes per segment
+	 * @param retentionMillis how long to keep segments, in milliseconds
+	 * @throws IOException if the directory or index cannot be read
+	 */
+	public ReplayArchive(Path dir, int segmentSize, long retentionMillis) throws IOException {
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(dir);
+		readIndex();
+		prune(System.currentTimeMillis() - retentionMillis);
+		index = FileChannel.open(dir.resolve(INDEX_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		//cut off an entry torn by a crash, or every entry written after it would be out of step
+		long whole = (long) count * ENTRY_SIZE;
+		index.truncate(whole);
+		index.position(whole);
+		if (count > 0) {
+			currentSegment = segments[count - 1];
+			currentUsed = offsets[count - 1] + lengths[count - 1];
+		}
+	}
+
+	/**
+	 * Loads the index into memory, ignoring a torn last entry.
+	 */
+	private void readIndex() throws IOException {
+		Path indexPath = dir.resolve(INDEX_NAME);
+		if (!Files.exists(indexPath)) {
+			return;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+		while (in.remaining() >= ENTRY_SIZE) {
+			add(in.getLong(), in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+			in.getInt();
+		}
+	}
+
+	/**
+	 * Adds an entry to the in-memory index.
+	 */
+	private void add(long id, long start, int segment, int offset, int length, int tickCount, int score) {
+		if (count == ids.length) {
+			int capacity = count * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			segments = Arrays.copyOf(segments, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			ticks = Arrays.copyOf(ticks, capacity);
+			points = Arrays.copyOf(points, capacity);
+		}
+		ids[count] = id;
+		starts[count] = start;
+		segments[count] = segment;
+		offsets[count] = offset;
+		lengths[count] = length;
+		ticks[count] = tickCount;
+		points[count] = score;
+		count++;
+	}
+
+	/**
+	 * Deletes every segment whose newest session started before the cutoff and
+	 * rewrites the index without them. The segment in use is always kept.
+	 */
+	private void prune(long cutoffMillis) throws IOException {
+		int lastSegment = count == 0 ? -1 : segments[count - 1];
+		int keepFrom = 0;
+		//sessions are in segment order, so old segments are all at the front
+		for (int i = 0; i < count; i++) {
+			int segment = segments[i];
+			int end = i;
+			long newest = starts[i];
+			while (end < count && segments[end] == segment) {
+				newest = Math.max(newest, starts[end]);
+				end++;
+			}
+			if (newest >= cutoffMillis || segment == lastSegment) {
+				break;
+			}
+			Files.deleteIfExists(segmentPath(segment));
+			keepFrom = end;
+			i = end - 1;
+		}
+		if (keepFrom == 0) {
+			return;
+		}
+		ByteBuffer out = ByteBuffer.allocate((count - keepFrom) * ENTRY_SIZE);
+		int kept = 0;
+		for (int i = keepFrom; i < count; i++) {
+			writeEntry(out, i);
+			ids[kept] = ids[i];
+			starts[kept] = starts[i];
+			segments[kept] = segments[i];
+			offsets[kept] = offsets[i];
+			lengths[kept] = lengths[i];
+			ticks[kept] = ticks[i];
+			points[kept] = points[i];
+			kept++;
+		}
+		count = kept;
+		out.flip();
+		Path temp = dir.resolve(INDEX_NAME + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+		}
+		Files.move(temp, dir.resolve(INDEX_NAME), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes index entry i to a buffer.
+	 */
+	private void writeEntry(ByteBuffer out, int i) {
+		out.putLong(ids[i]).putLong(starts[i]);
+		out.putInt(segments[i]).putInt(offsets[i]).putInt(lengths[i]).putInt(ticks[i]).putInt(points[i]);
+		out.putInt(0);
+	}
+
+	/**
+	 * Returns the file of a segment.
+	 */
+	private Path segmentPath(int segment) {
+		return dir.resolve(String.format("segment-%05d.dat", segment));
+	}
+
+	/**
+	 * Appends a finished round to the archive.
+	 *
+	 * @param recorder the recording of the round
+	 * @return the id given to the round
+	 * @throws IOException if the round cannot be written
+	 */
+	public long append(SessionRecorder recorder) throws IOException {
+		ByteBuffer record = recorder.getRecord();
+		int length = record.remaining();
+		if (currentUsed > 0 && (long) currentUsed + length > segmentSize) {
+			currentSegment++;
+			currentUsed = 0;
+		}
+		try (FileChannel segment = FileChannel.open(segmentPath(currentSegment), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer out = segment.map(FileChannel.MapMode.READ_WRITE, currentUsed, length);
+			out.put(record);
+			out.force();
+		}
+		long id = count == 0 ? 1 : ids[count - 1] + 1;
+		add(id, recorder.getStartMillis(), currentSegment, currentUsed, length, recorder.getTicks(),
+				recorder.getPoints());
+		ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+		writeEntry(entry, count - 1);
+		entry.flip();
+		while (entry.hasRemaining()) {
+			index.write(entry);
+		}
+		currentUsed += length;
+		return id;
+	}
+
+	/**
+	 * Opens a round for reading, mapping only that round's bytes.
+	 *
+	 * @param id the id of the round
+	 * @return a reader positioned before the round's first tick
+	 * @throws IOException if there is no such round or it cannot be read
+	 */
+	public SessionReader open(long id) throws IOException {
+		int i = Arrays.binarySearch(ids, 0, count, id);
+		if (i < 0) {
+			throw new IOException("No session " + id + " in " + dir);
+		}
+		try (FileChannel segment = FileChannel.open(segmentPath(segments[i]), StandardOpenOption.READ)) {
+			//the mapping stays valid after the channel is closed
+			return new SessionReader(id, segment.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]));
+		}
+	}
+
+	/**
+	 * Closes the index file.
+	 */
+	public void close() {
+		try {
+			index.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the number of rounds in the archive.
+	 *
+	 * @return the round count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the id of a round by its position in the archive, oldest first.
+	 *
+	 * @param i the position, from 0 up to size()
+	 * @return the round's id
+	 */
+	public long getId(int i) {
+		return ids[i];
+	}
+
+	/**
+	 * Lists the rounds in an archive or replays one, from the command line.
+	 *
+	 * @param args the archive directory (default "archive") and optionally a round id
+	 * @throws IOException if the archive cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Path dir = Paths.get(args.length > 0 ? args[0] : "archive");
+		ReplayArchive archive = new ReplayArchive(dir);
+		if (args.length < 2) {
+			System.out.println("id start ticks points segment offset length");
+			for (int i = 0; i < archive.count; i++) {
+				System.out.printf("%d %tF %<tT %d %d %d %d %d%n", archive.ids[i], archive.starts[i], archive.ticks[i],
+						archive.points[i], archive.segments[i], archive.offsets[i], archive.lengths[i]);
+			}
+		} else {
+			long id = Long.parseLong(args[1]);
+			SessionReader reader = archive.open(id);
+			GameWorld world = new GameWorld(TextureAtlas.load("images/sprites.txt"));
+			int mismatches = reader.replay(world);
+			System.out.println("Replayed session " + id + ": " + world.getPoints() + " points, "
+					+ (mismatches == 0 ? "matches the recording" : mismatches + " ticks differ"));
+		}
+		archive.close();
+	}
+}
@@ -0,0 +1,509 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The ScoreStore class keeps every player's latest score in a file, and
+ * answers which scores hold a range of ranks without sorting them again.
+ * <p>
+ * The file holds a short header and then one fixed-size entry per player: the
+ * score, when it was set, a hash of the lower-case name and the name itself,
+ * cut to {@link #NAME_BYTES} bytes of UTF-8. A player's later scores overwrite
+ * their entry in place, and a torn last entry is ignored. Only the scores and
+ * name hashes are kept in memory; names are read from the file for the ranks
+ * being shown.
+ * </p>
+ * <p>
+ * Opening the store reads it once, feeding every score through a
+ * {@link TopScores} heap, so the top of the board is ready after a single pass
+ * with no sort. The full ranking is built by {@link #buildRanks()}, meant to
+ * run in the background: each score is packed with its entry number into a
+ * long that sorts in rank order, and one primitive sort orders them all. From
+ * then on a new or changed score is moved to its rank by binary search.
+ * </p>
+ * <p>
+ * Run {@code java sliceit.SliceItController --scores [options]} to time
+ * opening a store and paging through its ranks. Options are
+ * {@code --count 1000000} and {@code --pages 1000}.
+ * </p>
+ */
+public class ScoreStore {
+	/** File signature, "SLSC". */
+	public static final int MAGIC = 0x534C5343;
+	/** Current file format version. */
+	public static final int VERSION = 1;
+	/** Default file the game keeps its scores in. */
+	public static final String DEFAULT_FILE = "scores.dat";
+	/** Number of best scores kept ready from the moment the store is opened. */
+	public static final int TOP_SIZE = 100;
+	/** Longest name stored, in bytes of UTF-8; longer names are cut short. */
+	public static final int NAME_BYTES = 27;
+	/** Bytes before the first entry: magic and version. */
+	private static final int HEADER_SIZE = 8;
+	/** Bytes per entry: score, time, name hash, name length and name. */
+	private static final int ENTRY_SIZE = 48;
+
+	/** The file, open for reading and writing. */
+	private final FileChannel channel;
+	/** Score of each entry. */
+	private int[] scores = new int[64];
+	/** Hash of each entry's lower-case name. */
+	private long[] keys = new long[64];
+	/** Number of entries. */
+	private int count;
+	/** The best scores, kept while the full ranking is not built. */
+	private final TopScores top = new TopScores(TOP_SIZE);
+	/** The best scores and their entries, best first, copied out of {@link #top}. */
+	private final int[] topScores = new int[TOP_SIZE], topRecords = new int[TOP_SIZE];
+	/** Number of scores in {@link #topScores}, or -1 if they must be copied out again. */
+	private int topCount = -1;
+	/** Every entry packed with its score by {@link #pack(int, int)}, in rank order; null until built. */
+	private long[] ranked;
+	/** Whether the full ranking has been built. */
+	private volatile boolean ranksReady;
+	/** Run once the full ranking has been built. */
+	private final List<Runnable> rankListeners = new ArrayList<>();
+	/** Scratch buffer for one entry. */
+	private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+	/**
+	 * Opens (or creates) a score file and reads its scores.
+	 *
+	 * @param file the score file
+	 * @throws IOException if the file cannot be read or is not a score file
+	 */
+	public ScoreStore(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+				header.flip();
+				channel.write(header, 0);
+			} else {
+				readEntries();
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads every whole entry's score and name hash in large sequential reads,
+	 * offering each score to the top scores on the way.
+	 */
+	private void readEntries() throws IOException {
+		ByteBuffer in = ByteBuffer.allocateDirect(ENTRY_SIZE * 4096);
+		in.limit(HEADER_SIZE);
+		channel.read(in, 0);
+		in.flip();
+		if (in.getInt() != MAGIC) {
+			throw new IOException("Not a score file");
+		}
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported score file version " + version);
+		}
+		long entries = (channel.size() - HEADER_SIZE) / ENTRY_SIZE;
+		if (entries > Integer.MAX_VALUE - 8) {
+			throw new IOException("Too many scores");
+		}
+		scores = new int[Math.max((int) entries, 64)];
+		keys = new long[scores.length];
+		long position = HEADER_SIZE;
+		while (count < entries) {
+			in.clear();
+			in.limit((int) Math.min(in.capacity(), (entries - count) * ENTRY_SIZE));
+			while (in.hasRemaining()) {
+				if (channel.read(in, position + in.position()) < 0) {
+					throw new IOException("Score file shrank while reading");
+				}
+			}
+			position += in.limit();
+			in.flip();
+			while (in.remaining() >= ENTRY_SIZE) {
+				int start = in.position();
+				int score = in.getInt(start);
+				scores[count] = score;
+				keys[count] = in.getLong(start + 12);
+				top.offer(score, count);
+				count++;
+				in.position(start + ENTRY_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Builds the full ranking of every score. Calls to the other methods wait
+	 * while it runs; the listeners added with {@link #onRanked(Runnable)} are run
+	 * afterwards.
+	 */
+	public void buildRanks() {
+		List<Runnable> listeners;
+		synchronized (this) {
+			if (ranksReady) {
+				return;
+			}
+			//room for the scores of this session without growing
+			long[] packed = new long[count + count / 8 + 64];
+			for (int i = 0; i < count; i++) {
+				packed[i] = pack(scores[i], i);
+			}
+			Arrays.sort(packed, 0, count);
+			ranked = packed;
+			ranksReady = true;
+			listeners = new ArrayList<>(rankListeners);
+			rankListeners.clear();
+		}
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Packs a score and its entry number into a long that sorts ascending in
+	 * rank order: higher scores first, then earlier entries.
+	 */
+	private static long pack(int score, int record) {
+		return (long) (Integer.MAX_VALUE - score) << 32 | record;
+	}
+
+	/**
+	 * Adds a listener run once the full ranking is built, on the thread that
+	 * built it; if it already is, the listener is not run.
+	 *
+	 * @param listener the listener
+	 * @return true if the listener was added, false if the ranking is already built
+	 */
+	public synchronized boolean onRanked(Runnable listener) {
+		if (ranksReady) {
+			return false;
+		}
+		rankListeners.add(listener);
+		return true;
+	}
+
+	/**
+	 * Checks whether the full ranking has been built, so that every rank can be
+	 * read without waiting.
+	 *
+	 * @return true once {@link #buildRanks()} has finished
+	 */
+	public boolean isRanked() {
+		return ranksReady;
+	}
+
+	/**
+	 * Adds a new player's score.
+	 *
+	 * @param name  the player's name
+	 * @param score the score
+	 * @return the entry number, to change the score with later
+	 * @throws IOException if the entry cannot be written
+	 */
+	public synchronized int add(String name, int score) throws IOException {
+		int record = count;
+		byte[] bytes = nameBytes(name);
+		entry.clear();
+		Arrays.fill(entry.array(), (byte) 0);
+		entry.putInt(score).putLong(System.currentTimeMillis()).putLong(key(name)).put((byte) bytes.length)
+				.put(bytes);
+		entry.position(ENTRY_SIZE);
+		entry.flip();
+		writeFully(entry, HEADER_SIZE + (long) record * ENTRY_SIZE);
+		if (count == scores.length) {
+			scores = Arrays.copyOf(scores, count * 2);
+			keys = Arrays.copyOf(keys, count * 2);
+		}
+		scores[record] = score;
+		keys[record] = key(name);
+		count++;
+		if (top.offer(score, record)) {
+			topCount = -1;
+		}
+		if (ranksReady) {
+			insertRank(pack(score, record), record);
+		}
+		return record;
+	}
+
+	/**
+	 * Replaces the score of an entry.
+	 *
+	 * @param record the entry number returned by {@link #add(String, int)}
+	 * @param score  the new score
+	 * @throws IOException if the entry cannot be written
+	 */
+	public synchronized void setScore(int record, int score) throws IOException {
+		if (record < 0 || record >= count) {
+			throw new IndexOutOfBoundsException("No score entry " + record);
+		}
+		entry.clear();
+		entry.putInt(score).putLong(System.currentTimeMillis());
+		entry.flip();
+		writeFully(entry, HEADER_SIZE + (long) record * ENTRY_SIZE);
+		int old = scores[record];
+		scores[record] = score;
+		if (ranksReady) {
+			int at = Arrays.binarySearch(ranked, 0, count, pack(old, record));
+			System.arraycopy(ranked, at + 1, ranked, at, count - at - 1);
+			insertRank(pack(score, record), count - 1);
+		} else {
+			//a lowered score may leave the heap, so it is filled again from scratch
+			top.clear();
+			for (int i = 0; i < count; i++) {
+				top.offer(scores[i], i);
+			}
+		}
+		topCount = -1;
+	}
+
+	/**
+	 * Inserts a packed score into the first ranks of the ranking.
+	 *
+	 * @param packed the packed score
+	 * @param length the number of ranks filled before the insert
+	 */
+	private void insertRank(long packed, int length) {
+		if (length == ranked.length) {
+			ranked = Arrays.copyOf(ranked, length * 2);
+		}
+		int at = -Arrays.binarySearch(ranked, 0, length, packed) - 1;
+		System.arraycopy(ranked, at, ranked, at + 1, length - at);
+		ranked[at] = packed;
+	}
+
+	/**
+	 * Finds a player's entry by name, ignoring case.
+	 *
+	 * @param name the name to look for
+	 * @return the entry number, or -1 if nobody has that name
+	 * @throws IOException if a name cannot be read
+	 */
+	public synchronized int find(String name) throws IOException {
+		long key = key(name);
+		String stored = new String(nameBytes(name), StandardCharsets.UTF_8);
+		for (int i = 0; i < count; i++) {
+			//the hash rules out nearly every entry without reading its name
+			if (keys[i] == key && readName(i).equalsIgnoreCase(stored)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the names and scores holding a range of ranks. Ranks within the top
+	 * {@link #TOP_SIZE} are always ready; ranks below wait for the full ranking,
+	 * building it here if nothing else has.
+	 *
+	 * @param from       the first rank, counting from 0
+	 * @param names      array to receive the names
+	 * @param outScores  array to receive the scores
+	 * @return the number of ranks read, less than the array length at the end
+	 *         of the board
+	 * @throws IOException if a name cannot be read
+	 */
+	public int readRanks(int from, String[] names, int[] outScores) throws IOException {
+		if (!ranksReady && from + names.length > TOP_SIZE) {
+			buildRanks();
+		}
+		synchronized (this) {
+			int n = Math.max(0, Math.min(names.length, count - from));
+			if (ranksReady) {
+				for (int i = 0; i < n; i++) {
+					long packed = ranked[from + i];
+					int record = (int) packed;
+					outScores[i] = scores[record];
+					names[i] = readName(record);
+				}
+			} else {
+				if (topCount < 0) {
+					topCount = top.sorted(topScores, topRecords);
+				}
+				for (int i = 0; i < n; i++) {
+					outScores[i] = topScores[from + i];
+					names[i] = readName(topRecords[from + i]);
+				}
+			}
+			return n;
+		}
+	}
+
+	/**
+	 * Reads the name of an entry from the file.
+	 */
+	private String readName(int record) throws IOException {
+		entry.clear();
+		long position = HEADER_SIZE + (long) record * ENTRY_SIZE;
+		while (entry.hasRemaining()) {
+			if (channel.read(entry, position + entry.position()) < 0) {
+				throw new IOException("Score entry " + record + " is cut short");
+			}
+		}
+		int length = Math.min(entry.get(20) & 0xff, NAME_BYTES);
+		return new String(entry.array(), 21, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a buffer at a position of the file.
+	 */
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	/**
+	 * Returns a name as UTF-8, cut at a character boundary to fit
+	 * {@link #NAME_BYTES}.
+	 */
+	private static byte[] nameBytes(String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length <= NAME_BYTES) {
+			return bytes;
+		}
+		int end = NAME_BYTES;
+		//back up over continuation bytes so no character is split
+		while (end > 0 && (bytes[end] & 0xc0) == 0x80) {
+			end--;
+		}
+		return Arrays.copyOf(bytes, end);
+	}
+
+	/**
+	 * Hashes the stored form of a name, ignoring case (64-bit FNV-1a).
+	 */
+	private static long key(String name) {
+		String stored = new String(nameBytes(name), StandardCharsets.UTF_8).toLowerCase();
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < stored.length(); i++) {
+			hash ^= stored.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the score of an entry.
+	 *
+	 * @param record the entry number returned by {@link #add(String, int)}
+	 * @return the score
+	 */
+	public synchronized int getScore(int record) {
+		if (record < 0 || record >= count) {
+			throw new IndexOutOfBoundsException("No score entry " + record);
+		}
+		return scores[record];
+	}
+
+	/**
+	 * Returns the number of players with a score.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Times opening a large score file, reading the top of the board, building
+	 * the full ranking and reading pages from all over it. The file is written
+	 * to a temporary directory and deleted afterwards.
+	 *
+	 * @param args command line arguments
+	 * @throws IOException if the file cannot be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		int count = 1_000_000;
+		int pages = 1000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--count":
+				count = Integer.parseInt(args[i + 1]);
+				break;
+			case "--pages":
+				pages = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		Path dir = Files.createTempDirectory("sliceit-scores");
+		Path file = dir.resolve(DEFAULT_FILE);
+		Random random = new Random(42L);
+		//write the entries directly; adding a million one at a time would time the disk
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+			buffer.putInt(MAGIC).putInt(VERSION);
+			for (int i = 0; i < count; i++) {
+				if (buffer.remaining() < ENTRY_SIZE) {
+					buffer.flip();
+					out.write(buffer);
+					buffer.clear();
+				}
+				String name = "player" + i;
+				byte[] bytes = nameBytes(name);
+				int start = buffer.position();
+				buffer.putInt(random.nextInt(200) * 10).putLong(0).putLong(key(name)).put((byte) bytes.length)
+						.put(bytes);
+				buffer.position(start + ENTRY_SIZE);
+			}
+			buffer.flip();
+			out.write(buffer);
+		}
+
+		String[] names = new String[LeaderboardModel.PAGE_SIZE];
+		int[] values = new int[LeaderboardModel.PAGE_SIZE];
+		long start = System.nanoTime();
+		ScoreStore store = new ScoreStore(file);
+		long openNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		store.readRanks(0, names, values);
+		long topNanos = System.nanoTime() - start;
+		String best = names[0];
+		int bestScore = values[0];
+		start = System.nanoTime();
+		store.buildRanks();
+		long rankNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int p = 0; p < pages; p++) {
+			store.readRanks(random.nextInt(Math.max(count - names.length, 1)), names, values);
+		}
+		long pageNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		int record = store.add("newcomer", 1000);
+		store.setScore(record, 1500);
+		long updateNanos = System.nanoTime() - start;
+		store.close();
+
+		System.out.printf("%d scores, best %s with %d%n", count, best, bestScore);
+		System.out.printf("Open and find the top %d: %.1f ms%n", TOP_SIZE, openNanos / 1e6);
+		System.out.printf("First page of the board:  %.3f ms%n", topNanos / 1e6);
+		System.out.printf("Full ranking (background): %.1f ms%n", rankNanos / 1e6);
+		System.out.printf("Any later page:           %.3f ms%n", pageNanos / 1e6 / pages);
+		System.out.printf("Add and change a score:   %.3f ms%n", updateNanos / 1e6);
+		Files.delete(file);
+		Files.delete(dir);
+	}
+}
@@ -0,0 +1,471 @@
+package sliceit;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * The SessionProfiler class measures where a game session allocates memory
+ * and whether garbage collection pauses line up with slow ticks and frames.
+ * <p>
+ * The simulation tick, the paint and the drag handler each call
+ * {@link #begin(int)} and {@link #end(int)} around their work. These calls read
+ * the current thread's allocated bytes and the clock, and keep them in
+ * preallocated arrays, so they allocate nothing themselves. Each section must
+ * only ever be measured by one thread at a time; the tick runs on the
+ * simulation thread and the other two on the event thread. Every collection
+ * is recorded through the collectors' notifications. Collectors that report
+ * whole concurrent cycles rather than pauses are skipped.
+ * </p>
+ * <p>
+ * A sample is a spike when it takes longer than the spike time. A tick or
+ * frame is also a spike when it starts more than the spike time late, that is
+ * more than one tick plus the spike time after the one before. Gaps of over a
+ * second are taken as play having stopped, for a menu or a dialog. The
+ * {@link #report(PrintWriter)} at the end of the session gives the
+ * allocation of each section, the allocation of every thread, the pauses, and
+ * how many spikes overlapped a pause. The totals cover the whole session; the
+ * spike and pause comparison covers the last {@link #SAMPLES} samples of each
+ * section and the last {@link #PAUSES} pauses. Samples, pauses and the
+ * report all lock the profiler, so the report sees every sample finished
+ * before it started; the lock is never contended outside the report.
+ * </p>
+ * <p>
+ * Start the game with {@code --profile} to write the report to
+ * profile-report.txt when the window is closed.
+ * </p>
+ */
+public class SessionProfiler {
+	/** Section for one simulation tick. */
+	public static final int TICK = 0;
+	/** Section for one paint of the game panel. */
+	public static final int PAINT = 1;
+	/** Section for one mouse drag event. */
+	public static final int INPUT = 2;
+	/** Number of sections. */
+	public static final int SECTIONS = 3;
+	/** Samples kept per section for finding spikes (about 20 minutes of ticks). */
+	public static final int SAMPLES = 1 << 16;
+	/** Collection pauses kept. */
+	public static final int PAUSES = 4096;
+	/** Default spike time, in nanoseconds (one tick). */
+	public static final long SPIKE_NANOS = SimulationThread.TICK_NANOS;
+	/** Gap between samples taken as play having stopped rather than a spike, in nanoseconds (1 s). */
+	private static final long IDLE_NANOS = 1_000_000_000L;
+	/** Number of worst spikes listed in the report. */
+	private static final int WORST_LISTED = 10;
+	/** Name of each section in the report. */
+	private static final String[] SECTION_NAMES = { "tick", "paint", "input" };
+
+	/** Used to read per-thread allocation counters, or null if the JVM has none. */
+	private final com.sun.management.ThreadMXBean threadBean;
+	/** The time a spike must exceed, in nanoseconds. */
+	private final long spikeNanos;
+	/** When the session started, in System.nanoTime() terms. */
+	private final long startNanos;
+	/** When the JVM started, in System.nanoTime() terms, to place the collectors' times. */
+	private final long jvmStartNanos;
+	/** Ids of the threads alive when the session started, in order. */
+	private final long[] startThreadIds;
+	/** Allocated bytes of those threads when the session started. */
+	private final long[] startThreadBytes;
+
+	/** Start time of the open sample of each section. */
+	private final long[] openNanos = new long[SECTIONS];
+	/** Allocated bytes of the measuring thread when the open sample of each section started. */
+	private final long[] openBytes = new long[SECTIONS];
+	/** Start time of each kept sample, SAMPLES per section; this and the sample totals are guarded by this. */
+	private final long[] sampleStart = new long[SECTIONS * SAMPLES];
+	/** Duration of each kept sample. */
+	private final long[] sampleNanos = new long[SECTIONS * SAMPLES];
+	/** Bytes allocated during each kept sample. */
+	private final long[] sampleBytes = new long[SECTIONS * SAMPLES];
+	/** Number of samples taken in each section. */
+	private final long[] samples = new long[SECTIONS];
+	/** Bytes allocated in each section. */
+	private final long[] sectionBytes = new long[SECTIONS];
+	/** Most bytes allocated by one sample of each section. */
+	private final long[] maxBytes = new long[SECTIONS];
+	/** Time spent in each section, in nanoseconds. */
+	private final long[] sectionNanos = new long[SECTIONS];
+
+	/** Start time of each kept pause, in System.nanoTime() terms; guarded by this. */
+	private final long[] pauseStart = new long[PAUSES];
+	/** Duration of each kept pause, in nanoseconds; guarded by this. */
+	private final long[] pauseNanos = new long[PAUSES];
+	/** Collector name of each kept pause; guarded by this. */
+	private final String[] pauseCollector = new String[PAUSES];
+	/** Cause of each kept pause; guarded by this. */
+	private final String[] pauseCause = new String[PAUSES];
+	/** Number of pauses recorded; guarded by this. */
+	private long pauses;
+	/** Total pause time, in nanoseconds; guarded by this. */
+	private long totalPauseNanos;
+
+	/** Collectors the listener was added to. */
+	private final List<NotificationEmitter> emitters = new ArrayList<>();
+	/** Receives a notification after every collection. */
+	private final NotificationListener listener = this::collected;
+
+	/**
+	 * Constructs a SessionProfiler with the default spike time that starts
+	 * listening for collections at once.
+	 */
+	public SessionProfiler() {
+		this(SPIKE_NANOS);
+	}
+
+	/**
+	 * Constructs a SessionProfiler that starts listening for collections at
+	 * once.
+	 *
+	 * @param spikeNanos the time a tick, frame or drag must take to be a spike
+	 */
+	public SessionProfiler(long spikeNanos) {
+		this.spikeNanos = spikeNanos;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+			startThreadIds = threadBean.getAllThreadIds();
+			Arrays.sort(startThreadIds);
+			startThreadBytes = threadBean.getThreadAllocatedBytes(startThreadIds);
+		} else {
+			threadBean = null;
+			startThreadIds = new long[0];
+			startThreadBytes = new long[0];
+		}
+		startNanos = System.nanoTime();
+		jvmStartNanos = startNanos - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			String name = gc.getName();
+			//these report whole concurrent cycles, during which the game keeps running
+			if (name.endsWith("Cycles") || name.contains("Concurrent")) {
+				continue;
+			}
+			if (gc instanceof NotificationEmitter) {
+				NotificationEmitter emitter = (NotificationEmitter) gc;
+				emitter.addNotificationListener(listener, null, null);
+				emitters.add(emitter);
+			}
+		}
+	}
+
+	/**
+	 * Starts measuring a sample of a section on the current thread.
+	 *
+	 * @param section {@link #TICK}, {@link #PAINT} or {@link #INPUT}
+	 */
+	public void begin(int section) {
+		openBytes[section] = threadBean == null ? 0 : threadBean.getCurrentThreadAllocatedBytes();
+		openNanos[section] = System.nanoTime();
+	}
+
+	/**
+	 * Finishes the sample of a section started by {@link #begin(int)} on the
+	 * same thread.
+	 *
+	 * @param section the section passed to begin
+	 */
+	public void end(int section) {
+		long now = System.nanoTime();
+		long bytes = threadBean == null ? 0 : threadBean.getCurrentThreadAllocatedBytes() - openBytes[section];
+		sample(section, openNanos[section], now - openNanos[section], bytes);
+	}
+
+	/**
+	 * Adds a finished sample of a section.
+	 */
+	synchronized void sample(int section, long start, long nanos, long bytes) {
+		int at = section * SAMPLES + (int) (samples[section] & (SAMPLES - 1));
+		sampleStart[at] = start;
+		sampleNanos[at] = nanos;
+		sampleBytes[at] = bytes;
+		samples[section]++;
+		sectionBytes[section] += bytes;
+		sectionNanos[section] += nanos;
+		maxBytes[section] = Math.max(maxBytes[section], bytes);
+	}
+
+	/**
+	 * Records a collection reported by a collector.
+	 */
+	private void collected(Notification notification, Object handback) {
+		if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+			return;
+		}
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+		GcInfo gc = info.getGcInfo();
+		pause(info.getGcName(), info.getGcCause(), jvmStartNanos + gc.getStartTime() * 1_000_000L,
+				gc.getDuration() * 1_000_000L);
+	}
+
+	/**
+	 * Adds a collection pause.
+	 */
+	synchronized void pause(String collector, String cause, long start, long nanos) {
+		int at = (int) (pauses % PAUSES);
+		pauseStart[at] = start;
+		pauseNanos[at] = nanos;
+		pauseCollector[at] = collector;
+		pauseCause[at] = cause;
+		pauses++;
+		totalPauseNanos += nanos;
+	}
+
+	/**
+	 * Stops listening for collections.
+	 */
+	public void close() {
+		for (NotificationEmitter emitter : emitters) {
+			try {
+				emitter.removeNotificationListener(listener);
+			} catch (ListenerNotFoundException e) {
+				e.printStackTrace();
+			}
+		}
+		emitters.clear();
+	}
+
+	/**
+	 * Returns the number of samples taken in a section.
+	 *
+	 * @param section the section
+	 * @return the sample count
+	 */
+	public synchronized long getSamples(int section) {
+		return samples[section];
+	}
+
+	/**
+	 * Returns the bytes allocated in a section, or 0 if the JVM cannot count them.
+	 *
+	 * @param section the section
+	 * @return the allocated bytes
+	 */
+	public synchronized long getAllocatedBytes(int section) {
+		return sectionBytes[section];
+	}
+
+	/**
+	 * Returns the number of collection pauses recorded.
+	 *
+	 * @return the pause count
+	 */
+	public synchronized long getPauses() {
+		return pauses;
+	}
+
+	/**
+	 * Counts the kept samples of a section that are spikes.
+	 *
+	 * @param section the section
+	 * @return the spike count
+	 */
+	public synchronized int countSpikes(int section) {
+		int count = 0;
+		for (long[] spike : spikes()) {
+			if (spike[2] == section) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the kept samples of a section that are spikes overlapping a
+	 * collection pause.
+	 *
+	 * @param section the section
+	 * @return the spike count
+	 */
+	public synchronized int countSpikesDuringPauses(int section) {
+		int count = 0;
+		for (long[] spike : spikes()) {
+			if (spike[2] == section && overlappingPause(spike[0], spike[1]) >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of samples of a section still kept.
+	 */
+	private int kept(int section) {
+		return (int) Math.min(samples[section], SAMPLES);
+	}
+
+	/**
+	 * Finds the spikes among the kept samples, each as {start, end, section,
+	 * allocated bytes}. A slow sample spans itself; a late one also spans the
+	 * gap since the sample before it.
+	 */
+	private List<long[]> spikes() {
+		List<long[]> spikes = new ArrayList<>();
+		for (int s = 0; s < SECTIONS; s++) {
+			long first = samples[s] - kept(s);
+			for (int i = 0; i < kept(s); i++) {
+				int at = s * SAMPLES + (int) ((first + i) & (SAMPLES - 1));
+				long start = sampleStart[at];
+				long end = start + sampleNanos[at];
+				if (s != INPUT && i > 0) {
+					int before = s * SAMPLES + (int) ((first + i - 1) & (SAMPLES - 1));
+					long gap = start - sampleStart[before];
+					if (gap > SimulationThread.TICK_NANOS + spikeNanos && gap < IDLE_NANOS) {
+						spikes.add(new long[] { sampleStart[before] + sampleNanos[before], end, s, sampleBytes[at] });
+						continue;
+					}
+				}
+				if (sampleNanos[at] > spikeNanos) {
+					spikes.add(new long[] { start, end, s, sampleBytes[at] });
+				}
+			}
+		}
+		return spikes;
+	}
+
+	/**
+	 * Returns the index of the longest kept pause overlapping a time span, or -1
+	 * if none does. The collectors give times in whole milliseconds, so the span
+	 * is widened by a millisecond each way.
+	 */
+	private int overlappingPause(long start, long end) {
+		int found = -1;
+		int kept = (int) Math.min(pauses, PAUSES);
+		for (int p = 0; p < kept; p++) {
+			if (overlaps(p, start, end) && (found < 0 || pauseNanos[p] > pauseNanos[found])) {
+				found = p;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Checks whether a kept pause overlaps a time span, widened as for
+	 * {@link #overlappingPause(long, long)}.
+	 */
+	private boolean overlaps(int p, long start, long end) {
+		return pauseStart[p] <= end + 1_000_000L && pauseStart[p] + pauseNanos[p] >= start - 1_000_000L;
+	}
+
+	/**
+	 * Writes the end-of-session report.
+	 *
+	 * @param out where to write the report
+	 */
+	public synchronized void report(PrintWriter out) {
+		List<long[]> spikes = spikes();
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		out.printf("# SliceIt session profile %s, Java %s, %.1f s%n", new Date(), System.getProperty("java.version"),
+				seconds);
+		if (threadBean == null) {
+			out.println("# this JVM cannot count allocated bytes, so allocation reads 0");
+		}
+		out.println();
+		out.println("section   samples   avg-ms   max-ms  alloc-MB  bytes/sample  max-bytes  spikes  during-gc");
+		for (int s = 0; s < SECTIONS; s++) {
+			long n = samples[s];
+			long maxNanos = 0;
+			for (int i = 0; i < kept(s); i++) {
+				maxNanos = Math.max(maxNanos, sampleNanos[s * SAMPLES + i]);
+			}
+			int count = 0;
+			int duringPauses = 0;
+			for (long[] spike : spikes) {
+				if (spike[2] == s) {
+					count++;
+					if (overlappingPause(spike[0], spike[1]) >= 0) {
+						duringPauses++;
+					}
+				}
+			}
+			out.printf("%-8s %8d %8.3f %8.3f %9.2f %13d %10d %7d %10d%n", SECTION_NAMES[s], n,
+					n == 0 ? 0 : sectionNanos[s] / 1e6 / n, maxNanos / 1e6, sectionBytes[s] / (1024.0 * 1024),
+					n == 0 ? 0 : sectionBytes[s] / n, maxBytes[s], count, duringPauses);
+		}
+
+		out.println();
+		out.println("thread                              alloc-MB  MB/s");
+		if (threadBean != null) {
+			long[] ids = threadBean.getAllThreadIds();
+			long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+			Integer[] order = new Integer[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				int before = Arrays.binarySearch(startThreadIds, ids[i]);
+				if (before >= 0 && bytes[i] >= 0) {
+					bytes[i] -= startThreadBytes[before];
+				}
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Long.compare(bytes[b], bytes[a]));
+			for (int i : order) {
+				java.lang.management.ThreadInfo info = threadBean.getThreadInfo(ids[i]);
+				if (info == null || bytes[i] <= 0) {
+					continue;
+				}
+				out.printf("%-34s %9.2f %5.2f%n", info.getThreadName(), bytes[i] / (1024.0 * 1024),
+						bytes[i] / (1024.0 * 1024) / seconds);
+			}
+		}
+
+		out.println();
+		int kept = (int) Math.min(pauses, PAUSES);
+		int causing = 0;
+		for (int p = 0; p < kept; p++) {
+			for (long[] spike : spikes) {
+				if (overlaps(p, spike[0], spike[1])) {
+					causing++;
+					break;
+				}
+			}
+		}
+		out.printf("%d collection pauses, %.1f ms in all; %d of the last %d overlap a spike%n", pauses,
+				totalPauseNanos / 1e6, causing, kept);
+
+		//the worst spikes of the session, and the pause each overlapped
+		out.println();
+		out.println("worst spikes: section  at-s    ms  alloc-bytes  pause");
+		spikes.sort((a, b) -> Long.compare(b[1] - b[0], a[1] - a[0]));
+		for (long[] spike : spikes.subList(0, Math.min(WORST_LISTED, spikes.size()))) {
+			int p = overlappingPause(spike[0], spike[1]);
+			out.printf("              %-7s %6.1f %6.1f %12d  %s%n", SECTION_NAMES[(int) spike[2]],
+					(spike[0] - startNanos) / 1e9, (spike[1] - spike[0]) / 1e6, spike[3],
+					p < 0 ? "-" : String.format("%s (%s) %.1f ms", pauseCollector[p], pauseCause[p], pauseNanos[p] / 1e6));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Stops listening for collections and writes the report to a file.
+	 *
+	 * @param file the report file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void finish(Path file) throws IOException {
+		close();
+		StringWriter text = new StringWriter();
+		report(new PrintWriter(text));
+		Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,220 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The SessionReader class streams a recorded round back one tick at a time,
+ * straight out of the archive's mapped segment.
+ * <p>
+ * Call {@link #nextTick()} to move to the next tick and then read its drag
+ * samples and telemetry. {@link #replay(GameWorld)} feeds the whole round back
+ * into a world and checks that it scores the same as it did when it was played.
+ * </p>
+ */
+public class SessionReader {
+	/** The recorded session, positioned at the next tick. */
+	private final ByteBuffer in;
+	/** The id of the session in its archive. */
+	private final long sessionId;
+	/** When the round started, in milliseconds since the epoch. */
+	private final long startMillis;
+	/** The difficulty settings the round was played with. */
+	private final DifficultyConfig config;
+	/** The world state the round started from. */
+	private final ByteBuffer startState;
+	/** Play area size during the current tick. */
+	private int width, height;
+	/** Drag samples of the current tick, as x/y pairs. */
+	private short[] drags = new short[64];
+	/** Number of drag samples in the current tick. */
+	private int dragCount;
+	/** Telemetry of the current tick. */
+	private int points, fruits, bombs, particles, busyMicros;
+
+	/**
+	 * Constructs a SessionReader over a recorded session.
+	 *
+	 * @param sessionId the id of the session
+	 * @param in        the session bytes, from its start to its end
+	 * @throws IOException if the bytes are not a session this version can read
+	 */
+	public SessionReader(long sessionId, ByteBuffer in) throws IOException {
+		this.sessionId = sessionId;
+		this.in = in;
+		try {
+			if (in.getInt() != SessionRecorder.MAGIC) {
+				throw new IOException("Session " + sessionId + " is not a SliceIt recording");
+			}
+			short version = in.getShort();
+			if (version != SessionRecorder.VERSION) {
+				throw new IOException("Session " + sessionId + " is format " + version + ", expected "
+						+ SessionRecorder.VERSION);
+			}
+			startMillis = in.getLong();
+			config = DifficultyConfig.readFrom(in);
+			int stateLength = in.getInt();
+			startState = in.slice();
+			startState.limit(stateLength);
+			in.position(in.position() + stateLength);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Session " + sessionId + " is cut short", e);
+		}
+	}
+
+	/**
+	 * Moves to the next tick.
+	 *
+	 * @return true if there was another tick; false at the end of the session
+	 */
+	public boolean nextTick() {
+		if (!in.hasRemaining()) {
+			return false;
+		}
+		int flags = in.get();
+		if ((flags & SessionRecorder.FLAG_SIZE) != 0) {
+			width = in.getShort();
+			height = in.getShort();
+		}
+		dragCount = in.getShort() & 0xffff;
+		if (dragCount * 2 > drags.length) {
+			drags = new short[dragCount * 2];
+		}
+		for (int i = 0; i < dragCount * 2; i++) {
+			drags[i] = in.getShort();
+		}
+		points = in.getInt();
+		fruits = in.getShort() & 0xffff;
+		bombs = in.getShort() & 0xffff;
+		particles = in.getShort() & 0xffff;
+		busyMicros = in.getShort() & 0xffff;
+		return true;
+	}
+
+	/**
+	 * Plays the whole session back into a world: restores the starting state, then
+	 * applies each tick's drag samples and advances the world, as the simulation
+	 * thread did.
+	 *
+	 * @param world the world to replay into; no simulation may be running
+	 * @return the number of ticks whose score differed from the recording
+	 * @throws IOException if the starting state does not fit the world
+	 */
+	public int replay(GameWorld world) throws IOException {
+		world.readState(startState.duplicate(), config);
+		int mismatches = 0;
+		while (nextTick()) {
+			world.setSize(width, height);
+			for (int i = 0; i < dragCount; i++) {
+				world.slice(drags[i * 2], drags[i * 2 + 1]);
+			}
+			world.tick();
+			if (world.getPoints() != points) {
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	/**
+	 * Returns the id of the session.
+	 *
+	 * @return the session id
+	 */
+	public long getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns when the round started.
+	 *
+	 * @return the start time in milliseconds since the epoch
+	 */
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * Returns the difficulty settings the round was played with.
+	 *
+	 * @return the difficulty settings
+	 */
+	public DifficultyConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Returns the number of drag samples in the current tick.
+	 *
+	 * @return the drag count
+	 */
+	public int getDragCount() {
+		return dragCount;
+	}
+
+	/**
+	 * Returns the x-coordinate of a drag sample of the current tick.
+	 *
+	 * @param i the sample index
+	 * @return the x-coordinate
+	 */
+	public int getDragX(int i) {
+		return drags[i * 2];
+	}
+
+	/**
+	 * Returns the y-coordinate of a drag sample of the current tick.
+	 *
+	 * @param i the sample index
+	 * @return the y-coordinate
+	 */
+	public int getDragY(int i) {
+		return drags[i * 2 + 1];
+	}
+
+	/**
+	 * Returns the score after the current tick.
+	 *
+	 * @return the score
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * Returns the number of fruits on screen after the current tick.
+	 *
+	 * @return the fruit count
+	 */
+	public int getFruits() {
+		return fruits;
+	}
+
+	/**
+	 * Returns the number of bombs on screen after the current tick.
+	 *
+	 * @return the bomb count
+	 */
+	public int getBombs() {
+		return bombs;
+	}
+
+	/**
+	 * Returns the number of live particles after the current tick.
+	 *
+	 * @return the particle count
+	 */
+	public int getParticles() {
+		return particles;
+	}
+
+	/**
+	 * Returns how long the current tick took to simulate when it was played.
+	 *
+	 * @return the busy time in microseconds
+	 */
+	public int getBusyMicros() {
+		return busyMicros;
+	}
+}
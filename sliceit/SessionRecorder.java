@@ -0,0 +1,178 @@
+package sliceit;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The SessionRecorder class records one round as it is played: the world it
+ * started from, every drag sample the simulation applied and a line of
+ * telemetry for every tick.
+ * <p>
+ * The simulation thread calls {@link #drag(int, int)} for each sample it
+ * applies and {@link #endTick(GameWorld, long)} after each tick. The record
+ * is kept in memory until the round ends and is then appended to a
+ * {@link ReplayArchive} in one piece, so an archive never holds half a round.
+ * </p>
+ * <p>
+ * A tick is stored as a flags byte (bit 0: the play area size follows as two
+ * shorts), the number of drag samples and their coordinates as shorts, then
+ * the score, the fruit, bomb and particle counts and the tick's busy time in
+ * microseconds.
+ * </p>
+ */
+public class SessionRecorder {
+	/** First four bytes of every recorded session ("SLIR"). */
+	public static final int MAGIC = 0x534C4952;
+	/** Version of the session format. */
+	public static final short VERSION = 3;
+	/** Tick flag meaning the play area size follows. */
+	static final int FLAG_SIZE = 1;
+
+	/** The record so far; grows as needed. */
+	private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+	/** When the round started, in milliseconds since the epoch. */
+	private final long startMillis;
+	/** Drag samples of the current tick, as x/y pairs. */
+	private short[] drags = new short[64];
+	/** Number of drag samples in the current tick. */
+	private int dragCount;
+	/** Play area size written with the last tick. */
+	private int lastWidth = -1, lastHeight = -1;
+	/** Number of ticks recorded. */
+	private int ticks;
+	/** Score after the last tick. */
+	private int points;
+
+	/**
+	 * Starts recording a round from the world's current state. Must be called
+	 * before the simulation thread starts.
+	 *
+	 * @param world  the world about to be simulated
+	 * @param config the difficulty settings of the round
+	 */
+	public SessionRecorder(GameWorld world, DifficultyConfig config) {
+		startMillis = System.currentTimeMillis();
+		while (true) {
+			try {
+				buffer.clear();
+				buffer.putInt(MAGIC);
+				buffer.putShort(VERSION);
+				buffer.putLong(startMillis);
+				config.writeTo(buffer);
+				//leave room for the state's length, then write the state itself
+				int lengthAt = buffer.position();
+				buffer.putInt(0);
+				world.writeState(buffer);
+				buffer.putInt(lengthAt, buffer.position() - lengthAt - 4);
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		points = world.getPoints();
+	}
+
+	/**
+	 * Records a drag sample applied during the current tick.
+	 *
+	 * @param x the x-coordinate of the sample
+	 * @param y the y-coordinate of the sample
+	 */
+	public void drag(int x, int y) {
+		if (dragCount * 2 == drags.length) {
+			drags = Arrays.copyOf(drags, drags.length * 2);
+		}
+		drags[dragCount * 2] = clamp(x);
+		drags[dragCount * 2 + 1] = clamp(y);
+		dragCount++;
+	}
+
+	/**
+	 * Finishes the current tick, writing its drag samples and telemetry.
+	 *
+	 * @param world     the world after the tick
+	 * @param busyNanos how long the tick took to simulate
+	 */
+	public void endTick(GameWorld world, long busyNanos) {
+		ensure(1 + 4 + 2 + dragCount * 4 + 4 + 8);
+		int width = world.getWidth();
+		int height = world.getHeight();
+		boolean sizeChanged = width != lastWidth || height != lastHeight;
+		buffer.put((byte) (sizeChanged ? FLAG_SIZE : 0));
+		if (sizeChanged) {
+			buffer.putShort(clamp(width)).putShort(clamp(height));
+			lastWidth = width;
+			lastHeight = height;
+		}
+		buffer.putShort((short) dragCount);
+		for (int i = 0; i < dragCount * 2; i++) {
+			buffer.putShort(drags[i]);
+		}
+		points = world.getPoints();
+		buffer.putInt(points);
+		buffer.putShort((short) Math.min(world.getFruits().size(), 0xffff));
+		buffer.putShort((short) Math.min(world.getBombs().size(), 0xffff));
+		buffer.putShort((short) Math.min(world.getParticles().getLive(), 0xffff));
+		buffer.putShort((short) Math.min(busyNanos / 1000, 0xffff));
+		dragCount = 0;
+		ticks++;
+	}
+
+	/**
+	 * Makes sure the buffer has room for the given number of bytes.
+	 */
+	private void ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			bigger.put(buffer);
+			buffer = bigger;
+		}
+	}
+
+	/**
+	 * Fits a coordinate into a short.
+	 */
+	private static short clamp(int value) {
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+	}
+
+	/**
+	 * Returns the record so far, ready to be copied out.
+	 *
+	 * @return a read-only view from the start of the record to the last tick
+	 */
+	public ByteBuffer getRecord() {
+		ByteBuffer record = buffer.duplicate();
+		record.flip();
+		return record.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns when the round started.
+	 *
+	 * @return the start time in milliseconds since the epoch
+	 */
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * Returns the number of ticks recorded.
+	 *
+	 * @return the tick count
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the score after the last recorded tick.
+	 *
+	 * @return the score
+	 */
+	public int getPoints() {
+		return points;
+	}
+}
@@ -0,0 +1,301 @@
+package sliceit;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The SimulationThread runs the game logic on its own thread at a fixed rate of
+ * one tick every 20 ms, so a slow paint on the Swing event thread no longer
+ * delays the next update (and a slow update no longer delays painting).
+ * <p>
+ * Each tick it applies the queued drag samples, advances the {@link GameWorld}
+ * and publishes a new {@link WorldSnapshot} for the game panel to draw.
+ * </p>
+ */
+public class SimulationThread extends Thread {
+	/** Length of one simulation tick in nanoseconds (20 ms, as the old Swing timer). */
+	public static final long TICK_NANOS = 20_000_000L;
+	/** How many ticks the loop may fall behind before it stops trying to catch up. */
+	private static final int MAX_CATCH_UP_TICKS = 5;
+
+	/** The world being simulated. */
+	private final GameWorld world;
+	/** Drag samples waiting to be applied. */
+	private final DragQueue input;
+	/** Where finished snapshots are published. */
+	private final SnapshotBuffer snapshots;
+	/** Called after every published snapshot, typically to request a repaint. */
+	private final Runnable onFrame;
+	/** Called once, from this thread, when a bomb ends the game. */
+	private final Runnable onBombHit;
+	/** Time between ticks in nanoseconds, or 0 to run ticks back to back. */
+	private final long tickNanos;
+	/** Number of ticks simulated so far. */
+	private volatile long ticks;
+	/** Total time spent simulating and publishing, excluding waits, in nanoseconds. */
+	private volatile long busyNanos;
+	/** Run on this thread every few ticks, such as an autosave, or null. */
+	private Runnable periodicTask;
+	/** Number of ticks between runs of the periodic task. */
+	private int periodicTicks;
+	/** Records the drags and telemetry of every tick, or null. */
+	private SessionRecorder recorder;
+	/** Runs each tick in lockstep with another cabinet instead of applying the input directly, or null. */
+	private LockstepSession lockstep;
+	/** Called once, from this thread, when the lockstep round is over and settled. */
+	private Runnable onLockstepFinished;
+	/** True once the lockstep round has been reported finished. */
+	private boolean lockstepFinished;
+	/** Receives a telemetry record for every tick, or null. */
+	private TelemetryRing telemetry;
+	/** Measures the time and allocation of every tick, or null. */
+	private volatile SessionProfiler profiler;
+	/** Streams every tick to spectators, or null. */
+	private SpectatorServer spectators;
+	/** Flag telling the loop to keep going. */
+	private volatile boolean running = true;
+
+	/**
+	 * Constructs a SimulationThread. The thread does nothing until started.
+	 *
+	 * @param world     the world to simulate
+	 * @param input     queue of drag samples to apply at the start of each tick
+	 * @param snapshots buffer receiving a snapshot after each tick
+	 * @param onFrame   callback run after each published snapshot
+	 * @param onBombHit callback run when a bomb ends the game; the thread keeps
+	 *                  animating particles until halted
+	 */
+	public SimulationThread(GameWorld world, DragQueue input, SnapshotBuffer snapshots, Runnable onFrame,
+			Runnable onBombHit) {
+		this(world, input, snapshots, onFrame, onBombHit, TICK_NANOS);
+	}
+
+	/**
+	 * Constructs a SimulationThread with a custom tick length. A tick length of 0
+	 * runs ticks as fast as possible, which the stress test uses to measure
+	 * throughput.
+	 *
+	 * @param world     the world to simulate
+	 * @param input     queue of drag samples to apply at the start of each tick
+	 * @param snapshots buffer receiving a snapshot after each tick
+	 * @param onFrame   callback run after each published snapshot
+	 * @param onBombHit callback run when a bomb ends the game; the thread keeps
+	 *                  animating particles until halted
+	 * @param tickNanos the time between ticks in nanoseconds, or 0 for no waiting
+	 */
+	public SimulationThread(GameWorld world, DragQueue input, SnapshotBuffer snapshots, Runnable onFrame,
+			Runnable onBombHit, long tickNanos) {
+		super("SliceIt-Simulation");
+		setDaemon(true);
+		this.world = world;
+		this.input = input;
+		this.snapshots = snapshots;
+		this.onFrame = onFrame;
+		this.onBombHit = onBombHit;
+		this.tickNanos = tickNanos;
+	}
+
+	@Override
+	public void run() {
+		long nextTick = System.nanoTime();
+		while (running) {
+			long tickStart = System.nanoTime();
+			//read once, so a profiler set during the tick starts with the next one
+			SessionProfiler profiler = this.profiler;
+			if (profiler != null) {
+				profiler.begin(SessionProfiler.TICK);
+			}
+			//apply every slice the player made since the last tick
+			boolean bombHit = false;
+			int slices = 0;
+			if (lockstep != null) {
+				//the session takes the input, exchanges it with the peer and ticks the world itself
+				bombHit = advanceLockstep();
+			} else {
+				for (long s = input.poll(); s != DragQueue.EMPTY && !bombHit; s = input.poll()) {
+					bombHit = world.slice(DragQueue.x(s), DragQueue.y(s));
+					slices++;
+					if (recorder != null) {
+						recorder.drag(DragQueue.x(s), DragQueue.y(s));
+					}
+				}
+
+				//after a hit the world is frozen and only its particles move
+				world.tick();
+			}
+			publish();
+			ticks++;
+			long spent = System.nanoTime() - tickStart;
+			busyNanos += spent;
+			if (recorder != null) {
+				recorder.endTick(world, spent);
+			}
+			if (telemetry != null) {
+				telemetry.tick(world.getTickCount(), slices, world.getFruits().size(), world.getBombs().size(),
+						world.getParticles().getLive(), world.getPoints(), spent);
+			}
+			if (profiler != null) {
+				profiler.end(SessionProfiler.TICK);
+			}
+
+			if (bombHit) {
+				onBombHit.run();
+			}
+			if (periodicTask != null && ticks % periodicTicks == 0) {
+				periodicTask.run();
+			}
+
+			if (tickNanos == 0) {
+				continue;
+			}
+			//wait for the next tick, but never try to replay a long stall
+			nextTick += tickNanos;
+			long now = System.nanoTime();
+			if (now - nextTick > MAX_CATCH_UP_TICKS * tickNanos) {
+				nextTick = now;
+			}
+			while (running && (now = System.nanoTime()) < nextTick) {
+				LockSupport.parkNanos(this, nextTick - now);
+			}
+		}
+	}
+
+	/**
+	 * Sets a task to run on this thread between ticks, every given number of
+	 * ticks. While it runs, the world is not being changed, so the task may read
+	 * it freely. Must be called before the thread is started.
+	 *
+	 * @param task       the task to run
+	 * @param everyTicks the number of ticks between runs
+	 */
+	public void setPeriodicTask(Runnable task, int everyTicks) {
+		this.periodicTask = task;
+		this.periodicTicks = Math.max(1, everyTicks);
+	}
+
+	/**
+	 * Sets a recorder that is given every drag sample and the telemetry of every
+	 * tick. Must be called before the thread is started.
+	 *
+	 * @param recorder the recorder, or null to record nothing
+	 */
+	public void setRecorder(SessionRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Hands every tick to a lockstep session, which takes the drag samples from
+	 * the input queue, exchanges them with the other cabinet and advances the
+	 * world. Must be called before the thread is started.
+	 *
+	 * @param lockstep   the session, or null to play alone
+	 * @param onFinished callback run once, from this thread, when the session
+	 *                   reports the round over and settled; the thread keeps
+	 *                   exchanging inputs until halted
+	 */
+	public void setLockstep(LockstepSession lockstep, Runnable onFinished) {
+		this.lockstep = lockstep;
+		this.onLockstepFinished = onFinished;
+	}
+
+	/**
+	 * Runs one tick of the lockstep session.
+	 *
+	 * @return true if a bomb ended the game during this tick
+	 */
+	private boolean advanceLockstep() {
+		boolean wasOver = world.isGameOver();
+		try {
+			lockstep.advance();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (!lockstepFinished && lockstep.isFinished()) {
+			lockstepFinished = true;
+			onLockstepFinished.run();
+		}
+		//a late input from the peer may end the game in a tick that has already passed
+		return !wasOver && world.isGameOver();
+	}
+
+	/**
+	 * Sets a ring that is given a telemetry record after every tick. The ring
+	 * never blocks, so a slow disk cannot delay the simulation.
+	 *
+	 * @param telemetry the ring, or null to record nothing
+	 */
+	public void setTelemetry(TelemetryRing telemetry) {
+		this.telemetry = telemetry;
+	}
+
+	/**
+	 * Sets a profiler that measures the time and allocation of every tick. It
+	 * may be set while the thread runs, and takes effect from the next tick.
+	 *
+	 * @param profiler the profiler, or null to measure nothing
+	 */
+	public void setProfiler(SessionProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Sets a server that is given the world after every tick to stream to
+	 * spectators. Publishing only encodes the world; the server thread does the
+	 * sending. Must be called before the thread is started.
+	 *
+	 * @param spectators the server, or null to stream nothing
+	 */
+	public void setSpectators(SpectatorServer spectators) {
+		this.spectators = spectators;
+	}
+
+	/**
+	 * Writes the world into the back snapshot and swaps it to the front.
+	 */
+	private void publish() {
+		WorldSnapshot back = snapshots.beginWrite();
+		if (back != null) {
+			world.writeSnapshot(back);
+			snapshots.publish();
+		}
+		if (spectators != null) {
+			spectators.publish(world);
+		}
+		onFrame.run();
+	}
+
+	/**
+	 * Returns the number of ticks simulated so far.
+	 *
+	 * @return the tick count
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the total time spent simulating, not counting the waits between
+	 * ticks.
+	 *
+	 * @return the busy time in nanoseconds
+	 */
+	public long getBusyNanos() {
+		return busyNanos;
+	}
+
+	/**
+	 * Stops the loop and waits for the thread to finish, so the caller can safely
+	 * read or reset the world afterwards.
+	 */
+	public void halt() {
+		running = false;
+		LockSupport.unpark(this);
+		if (Thread.currentThread() != this) {
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,403 @@
+package sliceit;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The SliceBot class plays the game like a quick, careful player, for load
+ * tests and demos.
+ * <p>
+ * It runs on the simulation thread after every tick, so it may read the world
+ * directly, and feeds its drag samples through the same {@link DragQueue} as
+ * the mouse; the world cannot tell it from a player. Each tick it:
+ * </p>
+ * <ol>
+ * <li>predicts where every fruit and bomb will be over the next
+ * {@link #HORIZON} ticks, stepping copies of their {@link Motion}s together in
+ * a {@link MotionBatch} with the world's sub-steps, exactly as the world
+ * will;</li>
+ * <li>picks the fruit it can reach soonest with a blade that moves at most
+ * {@link #SPEED} pixels a tick, counting any other fruit the swipe would pass
+ * through and rejecting swipes that pass near a bomb on the way;</li>
+ * <li>moves the blade one tick along that swipe and offers a drag sample every
+ * few pixels, stopping short of any bomb the samples would touch.</li>
+ * </ol>
+ * <p>
+ * Planning stops as soon as the tick's time budget is spent and goes with the
+ * best swipe found so far, so the bot never holds up the simulation however
+ * many objects are on screen. The planning times it records make it a CPU
+ * load benchmark as well.
+ * </p>
+ */
+public class SliceBot implements Runnable {
+	/** Number of ticks ahead the bot predicts. */
+	public static final int HORIZON = 30;
+	/** Farthest the blade moves in one tick, in pixels (about 3,000 pixels a second). */
+	public static final float SPEED = 60f;
+	/** Default planning budget per tick, in nanoseconds (2 ms, a tenth of a tick). */
+	public static final long DEFAULT_BUDGET_NANOS = 2_000_000L;
+	/** Distance between drag samples, in pixels; well under the width of a fruit. */
+	private static final float SAMPLE_STEP = 8f;
+	/** Distance the blade keeps from any bomb, in pixels. */
+	private static final int BOMB_MARGIN = 12;
+	/** Number of objects predicted between checks of the clock. */
+	private static final int CLOCK_CHECK_INTERVAL = 16;
+
+	/** The world being played. */
+	private final GameWorld world;
+	/** The queue the samples are offered to. */
+	private final DragQueue input;
+	/** Planning budget per tick, in nanoseconds. */
+	private final long budgetNanos;
+	/** Blade position. */
+	private float bladeX = Float.NaN, bladeY;
+	/** Where the blade is heading. */
+	private float targetX, targetY;
+	/** Number of ticks left to reach the target. */
+	private int targetSteps;
+	/** Predicted top-left corner of each fruit at each step, indexed fruit * HORIZON + step. */
+	private int[] fruitX = new int[64 * HORIZON], fruitY = new int[64 * HORIZON];
+	/** Width and height of each predicted fruit. */
+	private int[] fruitW = new int[64], fruitH = new int[64];
+	/** Swipe that last hit each fruit, so a fruit is counted once per swipe. */
+	private int[] fruitMark = new int[64];
+	/** Number of the swipe being scored. */
+	private int mark;
+	/** Number of fruits predicted this tick. */
+	private int fruitCount;
+	/** Predicted top-left corner of each bomb at each step, indexed bomb * HORIZON + step. */
+	private int[] bombX = new int[16 * HORIZON], bombY = new int[16 * HORIZON];
+	/** Width and height of each predicted bomb. */
+	private int[] bombW = new int[16], bombH = new int[16];
+	/** Number of bombs predicted this tick. */
+	private int bombCount;
+	/** Ticks planned. */
+	private long plannedTicks;
+	/** Ticks whose planning ran out of budget before considering everything. */
+	private long truncatedTicks;
+	/** Total and longest planning time, in nanoseconds. */
+	private long totalPlanNanos, maxPlanNanos;
+	/** Drag samples offered. */
+	private long samples;
+	/** Copies of the motions being predicted, bombs first, stepped ahead together. */
+	private final MotionBatch paths = new MotionBatch(80);
+
+	/**
+	 * Constructs a SliceBot with the default planning budget.
+	 *
+	 * @param world the world to play; only read from the simulation thread
+	 * @param input the queue to offer drag samples to
+	 */
+	public SliceBot(GameWorld world, DragQueue input) {
+		this(world, input, DEFAULT_BUDGET_NANOS);
+	}
+
+	/**
+	 * Constructs a SliceBot with a custom planning budget.
+	 *
+	 * @param world       the world to play; only read from the simulation thread
+	 * @param input       the queue to offer drag samples to
+	 * @param budgetNanos the planning time allowed per tick, in nanoseconds
+	 */
+	public SliceBot(GameWorld world, DragQueue input, long budgetNanos) {
+		this.world = world;
+		this.input = input;
+		this.budgetNanos = budgetNanos;
+	}
+
+	/**
+	 * Plans one tick and offers its drag samples. Must be called on the
+	 * simulation thread, between ticks.
+	 */
+	@Override
+	public void run() {
+		if (world.isGameOver()) {
+			return;
+		}
+		long start = System.nanoTime();
+		long deadline = start + budgetNanos;
+		if (Float.isNaN(bladeX)) {
+			bladeX = world.getWidth() / 2f;
+			bladeY = world.getHeight() / 2f;
+		}
+		boolean complete = predict(deadline);
+		complete &= plan(deadline);
+		swipe();
+
+		long spent = System.nanoTime() - start;
+		plannedTicks++;
+		totalPlanNanos += spent;
+		maxPlanNanos = Math.max(maxPlanNanos, spent);
+		if (!complete) {
+			truncatedTicks++;
+		}
+	}
+
+	/**
+	 * Predicts the path of every unsliced fruit and every bomb, oldest first,
+	 * until the deadline.
+	 *
+	 * @return true if everything was predicted in time
+	 */
+	boolean predict(long deadline) {
+		List<Fruit> fruits = world.getFruits();
+		List<Bomb> bombs = world.getBombs();
+		fruitCount = 0;
+		bombCount = 0;
+		paths.clear();
+		boolean complete = true;
+		//bombs first: missing a fruit costs points, missing a bomb costs the game
+		for (int i = 0; i < bombs.size(); i++) {
+			if (i % CLOCK_CHECK_INTERVAL == 0 && i > 0 && System.nanoTime() > deadline) {
+				complete = false;
+				break;
+			}
+			Bomb b = bombs.get(i);
+			if (bombCount == bombW.length) {
+				bombW = Arrays.copyOf(bombW, bombCount * 2);
+				bombH = Arrays.copyOf(bombH, bombCount * 2);
+				bombX = Arrays.copyOf(bombX, bombCount * 2 * HORIZON);
+				bombY = Arrays.copyOf(bombY, bombCount * 2 * HORIZON);
+			}
+			bombW[bombCount] = b.getImage().getWidth();
+			bombH[bombCount] = b.getImage().getHeight();
+			paths.add(b.getMotion());
+			bombCount++;
+		}
+		for (int i = 0; i < fruits.size() && complete; i++) {
+			if (i % CLOCK_CHECK_INTERVAL == 0 && i > 0 && System.nanoTime() > deadline) {
+				complete = false;
+				break;
+			}
+			Fruit f = fruits.get(i);
+			if (f.getIsSliced()) {
+				continue;
+			}
+			if (fruitCount == fruitW.length) {
+				fruitW = Arrays.copyOf(fruitW, fruitCount * 2);
+				fruitH = Arrays.copyOf(fruitH, fruitCount * 2);
+				fruitMark = Arrays.copyOf(fruitMark, fruitCount * 2);
+				fruitX = Arrays.copyOf(fruitX, fruitCount * 2 * HORIZON);
+				fruitY = Arrays.copyOf(fruitY, fruitCount * 2 * HORIZON);
+			}
+			fruitW[fruitCount] = (int) f.getWidth();
+			fruitH[fruitCount] = (int) f.getHeight();
+			paths.add(f.getMotion());
+			fruitCount++;
+		}
+		path();
+		return complete;
+	}
+
+	/**
+	 * Steps the copied motions forward HORIZON - 1 ticks with the world's
+	 * sub-steps, recording the whole-pixel position the world will report for
+	 * each at every step.
+	 */
+	private void path() {
+		int substeps = world.getSubsteps();
+		for (int step = 0; step < HORIZON; step++) {
+			for (int i = 0; i < bombCount; i++) {
+				bombX[i * HORIZON + step] = (int) Math.floor(paths.getX(i));
+				bombY[i * HORIZON + step] = (int) Math.floor(paths.getY(i));
+			}
+			for (int i = 0; i < fruitCount; i++) {
+				fruitX[i * HORIZON + step] = (int) Math.floor(paths.getX(bombCount + i));
+				fruitY[i * HORIZON + step] = (int) Math.floor(paths.getY(bombCount + i));
+			}
+			if (step + 1 < HORIZON) {
+				paths.step(substeps);
+			}
+		}
+	}
+
+	/**
+	 * Picks the swipe for this tick: the fruit that can be reached soonest, plus
+	 * one point for every other fruit the swipe passes through, without passing
+	 * near a bomb. Leaves the blade drifting back to the middle when nothing can
+	 * be reached.
+	 *
+	 * @return true if every fruit was considered in time
+	 */
+	boolean plan(long deadline) {
+		int width = world.getWidth();
+		int height = world.getHeight();
+		float bestScore = 0;
+		targetX = width / 2f;
+		targetY = height / 2f;
+		targetSteps = HORIZON;
+		for (int i = 0; i < fruitCount; i++) {
+			//scoring a swipe walks every object, so the clock is cheap next to it
+			if (i > 0 && System.nanoTime() > deadline) {
+				return false;
+			}
+			for (int step = 0; step < HORIZON; step++) {
+				int at = i * HORIZON + step;
+				float cx = fruitX[at] + fruitW[i] / 2f;
+				float cy = fruitY[at] + fruitH[i] / 2f;
+				if (cx < 0 || cx > width || cy > height) {
+					//falls out of reach before the blade could get there
+					break;
+				}
+				float dx = cx - bladeX;
+				float dy = cy - bladeY;
+				if (dx * dx + dy * dy > SPEED * SPEED * (step + 1) * (step + 1)) {
+					continue;
+				}
+				//earliest reachable point of this fruit; score it and move on to the next fruit
+				int hits = sweptHits(cx, cy, step);
+				if (hits > 0) {
+					float score = hits / (float) (step + 1);
+					if (score > bestScore) {
+						bestScore = score;
+						targetX = cx;
+						targetY = cy;
+						targetSteps = step + 1;
+					}
+				}
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Follows a straight swipe from the blade to a point reached after the given
+	 * number of steps, and counts the fruits it passes through.
+	 *
+	 * @return the number of fruits hit, or 0 if the swipe passes near a bomb
+	 */
+	private int sweptHits(float tx, float ty, int steps) {
+		int hits = 0;
+		mark++;
+		for (int step = 0; step <= steps; step++) {
+			float t = (step + 1) / (float) (steps + 1);
+			int x = (int) (bladeX + (tx - bladeX) * t);
+			int y = (int) (bladeY + (ty - bladeY) * t);
+			for (int b = 0; b < bombCount; b++) {
+				int at = b * HORIZON + step;
+				if (near(x, y, bombX[at], bombY[at], bombW[b], bombH[b], BOMB_MARGIN)) {
+					return 0;
+				}
+			}
+			for (int f = 0; f < fruitCount; f++) {
+				int at = f * HORIZON + step;
+				if (fruitMark[f] != mark && near(x, y, fruitX[at], fruitY[at], fruitW[f], fruitH[f], 0)) {
+					fruitMark[f] = mark;
+					hits++;
+				}
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Checks whether a point is inside a box grown by a margin on every side.
+	 */
+	private static boolean near(int px, int py, int x, int y, int w, int h, int margin) {
+		return px >= x - margin && px <= x + w + margin && py >= y - margin && py <= y + h + margin;
+	}
+
+	/**
+	 * Moves the blade one tick towards the target and offers a sample every few
+	 * pixels. The samples are applied before the world next moves, so they are
+	 * checked against the bombs where they are now; the swipe stops short of the
+	 * first sample that would touch one.
+	 */
+	private void swipe() {
+		float dx = (targetX - bladeX) / targetSteps;
+		float dy = (targetY - bladeY) / targetSteps;
+		float length = (float) Math.sqrt(dx * dx + dy * dy);
+		if (length > SPEED) {
+			dx *= SPEED / length;
+			dy *= SPEED / length;
+			length = SPEED;
+		}
+		int count = Math.max(1, (int) Math.ceil(length / SAMPLE_STEP));
+		for (int i = 1; i <= count; i++) {
+			float x = bladeX + dx * i / count;
+			float y = bladeY + dy * i / count;
+			for (int b = 0; b < bombCount; b++) {
+				int at = b * HORIZON;
+				if (near((int) x, (int) y, bombX[at], bombY[at], bombW[b], bombH[b], BOMB_MARGIN)) {
+					//stay where the last safe sample was
+					bladeX += dx * (i - 1) / count;
+					bladeY += dy * (i - 1) / count;
+					return;
+				}
+			}
+			if (input.offer((int) x, (int) y)) {
+				samples++;
+			}
+		}
+		bladeX += dx;
+		bladeY += dy;
+	}
+
+	/**
+	 * Returns a predicted fruit position, for tests.
+	 *
+	 * @param fruit the index among the unsliced fruits, in world order
+	 * @param step  the number of ticks ahead, from 0 to HORIZON - 1
+	 * @return the predicted x-coordinate
+	 */
+	int getPredictedFruitX(int fruit, int step) {
+		return fruitX[fruit * HORIZON + step];
+	}
+
+	/**
+	 * Returns a predicted fruit position, for tests.
+	 *
+	 * @param fruit the index among the unsliced fruits, in world order
+	 * @param step  the number of ticks ahead, from 0 to HORIZON - 1
+	 * @return the predicted y-coordinate
+	 */
+	int getPredictedFruitY(int fruit, int step) {
+		return fruitY[fruit * HORIZON + step];
+	}
+
+	/**
+	 * Returns the number of ticks planned.
+	 *
+	 * @return the planned tick count
+	 */
+	public long getPlannedTicks() {
+		return plannedTicks;
+	}
+
+	/**
+	 * Returns the number of ticks whose planning ran out of budget.
+	 *
+	 * @return the truncated tick count
+	 */
+	public long getTruncatedTicks() {
+		return truncatedTicks;
+	}
+
+	/**
+	 * Returns the average planning time per tick.
+	 *
+	 * @return the average time in nanoseconds
+	 */
+	public long getAveragePlanNanos() {
+		return plannedTicks == 0 ? 0 : totalPlanNanos / plannedTicks;
+	}
+
+	/**
+	 * Returns the longest planning time of any tick.
+	 *
+	 * @return the longest time in nanoseconds
+	 */
+	public long getMaxPlanNanos() {
+		return maxPlanNanos;
+	}
+
+	/**
+	 * Returns the number of drag samples offered.
+	 *
+	 * @return the sample count
+	 */
+	public long getSamples() {
+		return samples;
+	}
+}
@@ -6,22 +6,32 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
-import javax.imageio.ImageIO;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
-import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -50,6 +60,30 @@ import javax.swing.Timer;
 public class SliceItController implements ActionListener {
 	/** The main game window. */
 	private final JFrame gameJFrame;
+	/** Internal size the game is drawn at before scaling to the window, or null to draw at window size. */
+	private final FixedResolution fixedResolution;
+	/** True to let a {@link SliceBot} play every round, as a demo. */
+	private final boolean demoBot;
+	/** This cabinet's player number in a head-to-head match, or -1 to play alone. */
+	private int netPlayer = -1;
+	/** UDP port a head-to-head match listens on. */
+	private int netPort;
+	/** Address of the other cabinet in a head-to-head match. */
+	private InetSocketAddress netPeer;
+	/** Lockstep session of the current head-to-head round, or null when playing alone. */
+	private LockstepSession lockstep;
+	/** True once the head-to-head result is final, settled with the peer or given up on. */
+	private boolean lockstepOver;
+	/** True if the explosion has played and is waiting for the head-to-head result. */
+	private boolean explosionOver;
+	/** Lockstep tick at the last clock update, to notice a peer that has gone quiet. */
+	private long lastLockstepTick;
+	/** Seconds the lockstep tick has not moved. */
+	private int stalledSeconds;
+	/** Seconds a connected peer may stay quiet before the round is ended without it. */
+	private static final int PEER_TIMEOUT_SECONDS = 10;
+	/** Streams every round to spectators, or null when nobody may watch. */
+	private SpectatorServer spectators;
 	/** The main menu panel. */
 	private JPanel mainPanel;
 	/** Panel displaying game rules. */
@@ -64,6 +98,12 @@ public class SliceItController implements ActionListener {
 	private BufferedImage[] slicedFruits;
 	/** Array holding frames for bomb explosion animation. */
 	private BufferedImage[] bombExplosionFrames;
+	/** Atlas id of the first explosion frame. */
+	private int explosionSprite;
+	/** Every sprite of the game packed into a single image. */
+	private TextureAtlas atlas;
+	/** Draws sprites from the atlas. */
+	private SpriteBatch spriteBatch;
 	/** Background image used in gameplay screen. */
 	private BufferedImage backgroundImage;
 	/** Button to start the game. */
@@ -72,40 +112,83 @@ public class SliceItController implements ActionListener {
 	private JButton rulesButton;
 	/** Button to show the leaderboard panel. */
 	private JButton leaderButton;
-	/** Player's current score during the game. */
-	private int points = 0;
-	/** Label to display the current score. */
-	private JLabel pointLabel;
+	/** Draws the background, sprites and HUD of a game frame. */
+	private GameRenderer renderer;
+	/** Lowers the drawing quality when frames take longer than a tick. */
+	private final QualityController quality = new QualityController(SimulationThread.TICK_NANOS);
 	/** Stores the username entered by the player. */
 	private String username;
-	/** Stores leaderboard entries containing usernames and scores. */
-	private List<String> leaderboardData = new ArrayList<>();
+	/** Opens the leaderboard's score store in the background; gives null if it cannot be opened. */
+	private final FutureTask<ScoreStore> scoreStore = new FutureTask<>(SliceItController::openScores);
+	/** Entry of the current username in the score store, or -1 before their first score. */
+	private int scoreRecord = -1;
+	/** Score store entries of the usernames entered since the game was launched. */
+	private final Set<Integer> claimedRecords = new HashSet<>();
+	/** Number of ranks shown on the leaderboard. */
+	private static final int BOARD_SIZE = 5;
+	/** Every player's games, scores and bomb deaths, and the venue's hourly and daily totals. */
+	private PlayerStats playerStats;
 	/** Background music clip playing during the game. */
 	private Clip backgroundClip;
-	/** X-coordinate of the bomb explosion animation. */
-	private int explosionX;
-	/** Y-coordinate of the bomb explosion animation. */
-	private int explosionY;
-	/** Flag indicating whether the explosion should be shown. */
-	private boolean showExplosion = false;
-	/** Index of the current explosion animation frame. */
-	private int explosionFrame = 0;
-	/** Timer controlling the explosion animation. */
-	private Timer explosionTimer;
-	/** Flag indicating whether the game is over. */
-	private boolean gameOver = false;
-	/** List containing all the fruits currently on the screen. */
-	private List<Fruit> fruits = new ArrayList<>();
-	/** List containing all the bombs currently on the screen. */
-	private List<Bomb> bombs = new ArrayList<>();
-	/** Random number generator for spawning fruits and bombs. */
-	private Random rand = new Random();
+	/** How long each explosion frame is shown, in nanoseconds (10 ms, as the old timer). */
+	private static final long EXPLOSION_FRAME_NANOS = 10_000_000L;
+	/** Explosions and other sprite animations playing over the game. */
+	private final SpriteAnimator animations = new SpriteAnimator();
+	/** Area the playing animations cover, reused for every repaint request. */
+	private final Rectangle animationBounds = new Rectangle();
+	/** Area the flying particles cover, reused for every repaint request. */
+	private final Rectangle particleBounds = new Rectangle();
+	/** Area asked to be repainted last time, which has to be painted over next time. */
+	private final Rectangle lastAnimationBounds = new Rectangle();
+	/** Timer ending the animations on time and repainting them and the debris after a bomb hit. */
+	private Timer animationTimer;
+	/** The fruits, bombs and score of the current round. */
+	private GameWorld world;
+	/** Thread advancing the world while a round is running. */
+	private SimulationThread simulation;
+	/** Drag samples on their way from the mouse listener to the simulation. */
+	private DragQueue dragQueue;
+	/** Snapshots handed from the simulation to the game panel. */
+	private SnapshotBuffer snapshots;
 	/** Timer controlling the overall game duration. */
 	private Timer gameTimer;
 	/** Time remaining in the game (in seconds). */
-	private int timeRemaining = 60;
-	/** Label displaying the remaining time. */
-	private JLabel timeLabel;
+	private volatile int timeRemaining;
+	/** Number of ticks between autosaves (3 seconds). */
+	private static final int AUTOSAVE_TICKS = 3 * SpawnSchedule.TICKS_PER_SECOND;
+	/** Where a round in progress is saved so it survives closing the game. */
+	private final GameSave autosave = new GameSave(Paths.get("autosave.bin"));
+	/** Every finished round, kept for replays; null if the archive could not be opened. */
+	private ReplayArchive archive;
+	/** Records the running round for the archive, or null when no round is recorded. */
+	private SessionRecorder recorder;
+	/** Tick and frame telemetry, written without blocking by the simulation and paint code. */
+	private final TelemetryRing telemetry = new TelemetryRing(4096);
+	/** Drains the telemetry to telemetry.gz in the background, or null if the file could not be opened. */
+	private TelemetryWriter telemetryWriter;
+	/** Reloads the sprites, background and difficulty settings when their files change, or null. */
+	private AssetWatcher assetWatcher;
+	/** Decodes the start-up images, sprites and font in the background while the window is built. */
+	private final StartupLoader preload;
+	/** True to quit right after the welcome screen is first painted, to record classes for a start-up archive. */
+	private boolean startupTrain;
+	/** True to print the time to first paint and append it to startup-times.txt. */
+	private boolean startupTimes;
+	/** Measures the allocation of ticks, paints and drags and the collection pauses, or null when not profiling. */
+	private SessionProfiler profiler;
+	/** Welcome screen image. */
+	private static final String WELCOME_IMAGE = "images/welcomee.png";
+	/** Menu button images: play, rules and leaderboard. */
+	private static final String[] MENU_BUTTONS = { "images/playButton.png", "images/rulesButton.png",
+			"images/leaderBoardButton.png" };
+	/** Layout of the sprite sheets. */
+	private static final String SPRITE_SPEC = "images/sprites.txt";
+	/** Gameplay screen background. */
+	private static final String PLAY_BACKGROUND = "images/playBackgrnd.png";
+	/** Spawn rates, launch speeds and round length, read from config/difficulty.properties. */
+	private DifficultyConfig difficulty;
+	/** Settings the current round is played with; a reload only reaches the next round. */
+	private DifficultyConfig roundConfig;
 	/** Timer updating the countdown clock every second. */
 	private Timer countdownTimer;
 	/** Custom panel where the gameplay graphics are drawn. */
@@ -113,13 +196,137 @@ public class SliceItController implements ActionListener {
 
 	/**
 	 * The main entry point launches the Swing application for the SliceIt game.
+	 * Passing --stress as the first argument runs the stress test instead, with
+	 * the remaining arguments as its options, and --replay lists or replays the
+	 * archived rounds, --telemetry prints the recorded telemetry, --render checks
+	 * the drawing against golden images and times it, and --watch follows a game
+	 * streamed by another cabinet, --bundle writes the pre-decoded images to
+	 * assets.bundle, --physics times the batch physics kernel, --broadphase
+	 * times slice queries against the sorted index, --scores times paging
+	 * through a large leaderboard and --stats prints the player statistics.
+	 * Otherwise the start-up images and sprites start decoding right away,
+	 * while Swing builds the window.
 	 * 
-	 * @param args command line arguments (not used)
+	 * @param args command line arguments
+	 * @throws IOException if the stress test cannot load its assets or write results
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("--stress")) {
+			StressTest.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--replay")) {
+			ReplayArchive.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--telemetry")) {
+			TelemetryWriter.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--render")) {
+			RenderHarness.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--watch")) {
+			SpectatorViewer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--bundle")) {
+			AssetBundle.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--physics")) {
+			MotionBatch.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--broadphase")) {
+			SweepIndex.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--scores")) {
+			ScoreStore.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--stats")) {
+			PlayerStats.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		//--render-size 500x500 draws at a fixed size and scales to the window; --smooth fills it with bilinear scaling
+		//--resume carries on the round that was running when the game last closed
+		//--bot lets the slicing bot play, as a demo
+		//--net host|join <port> <peer host:port> plays head to head against another cabinet
+		//--spectate <port> streams every round to viewers started with --watch
+		//--startup-train quits once the welcome screen is painted, see startup.sh
+		//--startup-times prints the time to first paint and appends it to startup-times.txt
+		//--profile writes where the session allocates and how collection pauses line up with slow frames to profile-report.txt
+		StartupLoader preload = new StartupLoader(WELCOME_IMAGE, MENU_BUTTONS, SPRITE_SPEC, PLAY_BACKGROUND);
+		preload.start();
+		String renderSize = null;
+		boolean smooth = false;
+		boolean resume = false;
+		boolean bot = false;
+		int player = -1;
+		int port = 0;
+		InetSocketAddress peer = null;
+		int spectatePort = -1;
+		boolean train = false;
+		boolean times = false;
+		boolean profile = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--render-size") && i + 1 < args.length) {
+				renderSize = args[++i];
+			} else if (args[i].equals("--smooth")) {
+				smooth = true;
+			} else if (args[i].equals("--resume")) {
+				resume = true;
+			} else if (args[i].equals("--bot")) {
+				bot = true;
+			} else if (args[i].equals("--net") && i + 3 < args.length) {
+				player = args[i + 1].equals("host") ? 0 : 1;
+				port = Integer.parseInt(args[i + 2]);
+				peer = LockstepSession.parseAddress(args[i + 3]);
+				i += 3;
+			} else if (args[i].equals("--spectate") && i + 1 < args.length) {
+				spectatePort = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--startup-train")) {
+				train = true;
+			} else if (args[i].equals("--startup-times")) {
+				times = true;
+			} else if (args[i].equals("--profile")) {
+				profile = true;
+			}
+		}
+		if (player >= 0) {
+			//both cabinets must simulate the same play area, whatever their window sizes
+			if (renderSize == null) {
+				renderSize = "500x500";
+			}
+			resume = false;
+		}
+		FixedResolution fixed = renderSize == null ? null : FixedResolution.parse(renderSize, smooth);
+		boolean resumeRound = resume;
+		boolean demoBot = bot;
+		int netPlayer = player;
+		int netPort = port;
+		InetSocketAddress netPeer = peer;
+		int spectatorPort = spectatePort;
+		boolean startupTrain = train;
+		boolean startupTimes = times;
+		boolean profileSession = profile;
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
-				new SliceItController();
+				SliceItController controller = new SliceItController(fixed, resumeRound, demoBot, preload);
+				controller.startupTrain = startupTrain;
+				controller.startupTimes = startupTimes;
+				if (profileSession) {
+					controller.startProfiler();
+				}
+				if (netPlayer >= 0) {
+					controller.setNetwork(netPlayer, netPort, netPeer);
+				}
+				if (spectatorPort >= 0) {
+					controller.startSpectators(spectatorPort);
+				}
 			}
 		});
 	}
@@ -131,11 +338,79 @@ public class SliceItController implements ActionListener {
 	 * loads necessary images, and creates the navigation buttons.
 	 */
 	public SliceItController() {
+		this(null, false);
+	}
+
+	/**
+	 * Constructs a new SliceItController that may draw the game at a fixed
+	 * internal size and may carry on a saved round straight away.
+	 *
+	 * @param fixedResolution the internal size, or null to draw at the window's size
+	 * @param resume          true to resume the autosaved round if there is one
+	 */
+	public SliceItController(FixedResolution fixedResolution, boolean resume) {
+		this(fixedResolution, resume, false);
+	}
+
+	/**
+	 * Constructs a new SliceItController that may draw the game at a fixed
+	 * internal size, may carry on a saved round straight away and may let a bot
+	 * do the slicing.
+	 *
+	 * @param fixedResolution the internal size, or null to draw at the window's size
+	 * @param resume          true to resume the autosaved round if there is one
+	 * @param demoBot         true to let a {@link SliceBot} play every round
+	 */
+	public SliceItController(FixedResolution fixedResolution, boolean resume, boolean demoBot) {
+		this(fixedResolution, resume, demoBot, null);
+	}
+
+	/**
+	 * Constructs a new SliceItController like
+	 * {@link #SliceItController(FixedResolution, boolean, boolean)}, taking its
+	 * images, sprites and HUD font from a loader that may already have decoded
+	 * them.
+	 *
+	 * @param fixedResolution the internal size, or null to draw at the window's size
+	 * @param resume          true to resume the autosaved round if there is one
+	 * @param demoBot         true to let a {@link SliceBot} play every round
+	 * @param preload         a started loader, or null to load everything here
+	 */
+	public SliceItController(FixedResolution fixedResolution, boolean resume, boolean demoBot, StartupLoader preload) {
+		if (preload == null) {
+			preload = new StartupLoader(WELCOME_IMAGE, MENU_BUTTONS, SPRITE_SPEC, PLAY_BACKGROUND);
+			preload.run();
+		}
+		this.preload = preload;
+		this.fixedResolution = fixedResolution;
+		this.demoBot = demoBot;
 		//creating main frame
 		gameJFrame = new JFrame();
 		gameJFrame.setSize(500, 500);
 		gameJFrame.setLocation(50, 50);
 		gameJFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		//save a running round when the window is closed so it can be resumed
+		gameJFrame.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				if (simulation != null && simulation.isAlive() && !world.isGameOver()) {
+					simulation.halt();
+					autosave();
+					endRecording();
+					endLockstep();
+				}
+				if (telemetryWriter != null) {
+					telemetryWriter.halt();
+				}
+				finishProfile();
+				if (spectators != null) {
+					spectators.halt();
+				}
+				if (assetWatcher != null) {
+					assetWatcher.halt();
+				}
+			}
+		});
 		
 
 		/**
@@ -144,15 +419,50 @@ public class SliceItController implements ActionListener {
 		 * Creates a main panel that shows a welcome background.
 		 * This image is used for educational/non-commercial purposes only.
 		 */
-		mainPanel = new BackgroundPanel("images/welcomee.png");
+		mainPanel = new BackgroundPanel(preload.getWelcomeImage()) {
+			@Override
+			protected void paintComponent(Graphics g) {
+				super.paintComponent(g);
+				if (!StartupLoader.markFirstPaint()) {
+					return;
+				}
+				Thread report = startupTimes ? StartupLoader.reportFirstPaint() : null;
+				if (startupTrain) {
+					//let the rest load too, so its classes are recorded, then quit
+					SwingUtilities.invokeLater(() -> {
+						SliceItController.this.preload.awaitAll();
+						try {
+							if (report != null) {
+								report.join();
+							}
+						} catch (InterruptedException e) {
+							e.printStackTrace();
+						}
+						System.exit(0);
+					});
+				}
+			}
+		};
 
 		// Add main panel to the frame (only once)
 		gameJFrame.getContentPane().add(mainPanel);
 
-		// Load images needed for the game.
-		loadFruitImages();
-		loadBombImage();
-		loadBombExplosionImages();
+		// Load images and tuning needed for the game.
+		loadSprites();
+		loadDifficulty();
+		openArchive();
+		startTelemetry();
+		startScores();
+		openStats();
+		world = new GameWorld(atlas);
+		loadBackgroundImage();
+		HudRenderer hud = preload.getHud();
+		renderer = new GameRenderer(backgroundImage, spriteBatch, hud);
+		renderer.setQuality(quality);
+		//sprites, background and settings reload when their files change
+		if (assetWatcher != null) {
+			assetWatcher.start();
+		}
 
 		/**
 		 * Background Image Credit:
@@ -160,7 +470,7 @@ public class SliceItController implements ActionListener {
 		 * It is an image for the play button
 		 * This image is used for educational/non-commercial purposes only.
 		 */
-		ImageIcon playIcon = new ImageIcon("images/playButton.png");
+		ImageIcon playIcon = menuIcon(MENU_BUTTONS[0]);
 		gameButton = new JButton(playIcon);
 		gameButton.setBounds(185, 200, 140, 37);
 		gameButton.addActionListener(this);
@@ -172,7 +482,7 @@ public class SliceItController implements ActionListener {
 		 * It is an image for the rules button
 		 * This image is used for educational/non-commercial purposes only.
 		 */
-		ImageIcon ruleIcon = new ImageIcon("images/rulesButton.png");
+		ImageIcon ruleIcon = menuIcon(MENU_BUTTONS[1]);
 		rulesButton = new JButton(ruleIcon);
 		rulesButton.setBounds(185, 240, 140, 37);
 		rulesButton.addActionListener(this);
@@ -184,7 +494,7 @@ public class SliceItController implements ActionListener {
 		 * It is an image for the leaderboard button
 		 * This image is used for educational/non-commercial purposes only.
 		 */
-		ImageIcon leadIcon = new ImageIcon("images/leaderBoardButton.png");
+		ImageIcon leadIcon = menuIcon(MENU_BUTTONS[2]);
 		leaderButton = new JButton(leadIcon);
 		leaderButton.setBounds(176, 280, 158, 37);
 		leaderButton.addActionListener(this);
@@ -196,9 +506,15 @@ public class SliceItController implements ActionListener {
 		 * © 2008 Sony Music Entertainment / Epic Records
 		 * This song is used for educational/non-commercial purposes only.
 		 */
-		playBackgroundMusic("songs/Pocketful of Sunshine.wav");
+		//opening the clip reads the whole file, so it is done off the event thread
+		Thread music = new Thread(() -> playBackgroundMusic("songs/Pocketful of Sunshine.wav"), "SliceIt-Music");
+		music.setDaemon(true);
+		music.start();
 
 		gameJFrame.setVisible(true);
+		if (resume) {
+			resumeRound();
+		}
 	}
 
 	/**
@@ -211,13 +527,23 @@ public class SliceItController implements ActionListener {
 		public BackgroundPanel(String imagePath) {
 			// Load background image 
 			try {
-				bgImage = ImageIO.read(new File(imagePath));
+				bgImage = AssetBundle.readImage(imagePath);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 			setLayout(null);
 		}
 
+		/**
+		 * Creates a panel drawing an image that has already been decoded.
+		 *
+		 * @param image the background, or null to draw none
+		 */
+		public BackgroundPanel(BufferedImage image) {
+			bgImage = image;
+			setLayout(null);
+		}
+
 		@Override
 		protected void paintComponent(Graphics g) {
 			super.paintComponent(g);
@@ -227,6 +553,15 @@ public class SliceItController implements ActionListener {
 		}
 	}
 
+	/**
+	 * Returns the icon of a menu button, decoded by the start-up loader if it
+	 * could read the image.
+	 */
+	private ImageIcon menuIcon(String path) {
+		BufferedImage image = preload.getButtonImage(path);
+		return image != null ? new ImageIcon(image) : new ImageIcon(path);
+	}
+
 	/**
 	 * Plays the specified background music file.
 	 */
@@ -245,71 +580,272 @@ public class SliceItController implements ActionListener {
 	}
 
 	/**
-	 * OpenAI.(2025). ChatGPT [Large Language Model]
-	 * When prompted with, "How do I read from my spritesheet attached above?" , this was mostly the generated code. I edited the for loop to handle sliced and unsliced fruit at the same time (the spritesheet was provided) 
-	 * Loads fruit images (both unsliced and sliced) from a sprite sheet.
+	 * Loads every sprite (fruits, sliced fruits, bomb and explosion frames) into
+	 * one texture atlas. The cell layout of each sheet is read from
+	 * images/sprites.txt.
 	 */
-	private void loadFruitImages() {
+	private void loadSprites() {
 		try {
-			//sheet for sliced fruits
-			BufferedImage spriteSheet = ImageIO.read(new File("images/fruits.png"));
-			int fruitWidth = 101;
-			int fruitHeight = 85;
-			int rows = 7;
+			//the watcher keeps the decoded sheets, so a changed sheet is all it decodes again
+			try {
+				assetWatcher = new AssetWatcher(SPRITE_SPEC, PLAY_BACKGROUND, "config/difficulty.properties", next -> SwingUtilities.invokeLater(() -> swapAtlas(next)),
+						next -> SwingUtilities.invokeLater(() -> renderer.setBackground(next)),
+						next -> SwingUtilities.invokeLater(() -> difficulty = next));
+				atlas = preload.getAtlas();
+				assetWatcher.adoptAtlas(atlas, preload.getSheets());
+			} catch (IOException e) {
+				e.printStackTrace();
+				assetWatcher = null;
+				atlas = TextureAtlas.load(SPRITE_SPEC);
+			}
+			spriteBatch = new SpriteBatch(atlas);
+			swapAtlas(atlas);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Draws from a newly loaded atlas from the next frame on. Called on the event
+	 * thread, so no frame is being painted. The world keeps the hit areas of the
+	 * sprites it was created with.
+	 *
+	 * @param next the new atlas, giving every sprite the same id as the old one
+	 */
+	private void swapAtlas(TextureAtlas next) {
+		atlas = next;
+		spriteBatch.setAtlas(next);
+		unslicedFruits = next.getImages("fruit");
+		slicedFruits = next.getImages("sliced");
+		bomb = next.getCell(next.getId("bomb"));
+		bombExplosionFrames = next.getImages("explosion");
+		explosionSprite = next.getId("explosion");
+	}
 
-			unslicedFruits = new BufferedImage[rows];
-			slicedFruits = new BufferedImage[rows];
+	/**
+	 * Loads the background of the gameplay screen.
+	 */
+	private void loadBackgroundImage() {
+		/**
+		 * Background Image Credit:
+		 * OpenAI.(2025). ChatGPT [Large Language Model]
+		 * It is an image for the game screen
+		 * This image is used for educational/non-commercial purposes only.
+		 */
+		//decoded by the start-up loader, which reports a file it cannot read
+		backgroundImage = preload.getBackground();
+	}
 
-			
-			for (int i = 0; i < rows; i++) {
-				// store unsliced fruit image
-				unslicedFruits[i] = spriteSheet.getSubimage(0, i * fruitHeight, fruitWidth, fruitHeight);
-				 // store sliced fruit image 
-				slicedFruits[i] = spriteSheet.getSubimage(105, i * fruitHeight, fruitWidth + 10, fruitHeight);
-			}
+	/**
+	 * Loads the spawn and difficulty settings, falling back to the built-in
+	 * defaults if the file is missing or broken.
+	 */
+	private void loadDifficulty() {
+		try {
+			difficulty = DifficultyConfig.load("config/difficulty.properties");
 		} catch (IOException e) {
 			e.printStackTrace();
+			difficulty = new DifficultyConfig();
 		}
 	}
 
 	/**
-	 * Loads the bomb image.
+	 * Opens the archive finished rounds are recorded into. The game still runs,
+	 * without recording, if it cannot be opened.
 	 */
-	private void loadBombImage() {
+	private void openArchive() {
 		try {
-			bomb = ImageIO.read(new File("images/bombimg.png"));
+			archive = new ReplayArchive(Paths.get("archive"));
 		} catch (IOException e) {
 			e.printStackTrace();
+			archive = null;
 		}
 	}
 
 	/**
-	 * Loads the bomb explosion images from a sprite sheet.
+	 * Loads the player statistics. If the file cannot be read they start again
+	 * from nothing, and the broken file is kept aside as player-stats.dat.bad.
 	 */
-	private void loadBombExplosionImages() {
+	private void openStats() {
+		Path file = Paths.get(PlayerStats.DEFAULT_FILE);
+		playerStats = new PlayerStats(ZoneId.systemDefault());
+		if (!Files.exists(file)) {
+			return;
+		}
 		try {
-			//sheet for bomb explosion
-			BufferedImage spriteSheet = ImageIO.read(new File("images/bombSprites.png"));
-			int rows = 4;
-			int cols = 4;
-			int totalFrames = rows * cols;
-
-			int frameWidth = spriteSheet.getWidth() / cols;
-			int frameHeight = spriteSheet.getHeight() / rows;
-
-			bombExplosionFrames = new BufferedImage[totalFrames];
-			int index = 0;
-			//gets image based on what frame it is and displays it on screen
-			for (int row = 0; row < rows; row++) {
-				for (int col = 0; col < cols; col++) {
-					bombExplosionFrames[index] = spriteSheet.getSubimage(col * frameWidth, row * frameHeight,
-							frameWidth, frameHeight);
-					index++;
+			playerStats = PlayerStats.load(file, ZoneId.systemDefault());
+		} catch (IOException e) {
+			e.printStackTrace();
+			try {
+				Files.move(file, file.resolveSibling(file.getFileName() + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Opens the score store on its own thread and then builds its full ranking,
+	 * so the leaderboard opens at once however many scores it holds.
+	 */
+	private void startScores() {
+		Thread thread = new Thread(() -> {
+			scoreStore.run();
+			ScoreStore store = scores();
+			if (store != null) {
+				store.buildRanks();
+			}
+		}, "SliceIt-Scores");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Opens the score store. The game still runs, without a leaderboard, if it
+	 * cannot be opened.
+	 */
+	private static ScoreStore openScores() {
+		try {
+			return new ScoreStore(Paths.get(ScoreStore.DEFAULT_FILE));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the score store, waiting for it to open if needed.
+	 *
+	 * @return the store, or null if it could not be opened
+	 */
+	private ScoreStore scores() {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return scoreStore.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
 				}
 			}
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Starts the thread that writes the telemetry to disk. The game still runs,
+	 * with its telemetry dropped, if the file cannot be opened.
+	 */
+	private void startTelemetry() {
+		try {
+			telemetryWriter = new TelemetryWriter(telemetry, Paths.get("telemetry.gz"));
+			telemetryWriter.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Makes every round a head-to-head match against another cabinet.
+	 *
+	 * @param player    0 to host the match, 1 to join it
+	 * @param localPort the UDP port to listen on
+	 * @param peer      the other cabinet's address
+	 */
+	public void setNetwork(int player, int localPort, InetSocketAddress peer) {
+		netPlayer = player;
+		netPort = localPort;
+		netPeer = peer;
+	}
+
+	/**
+	 * Starts streaming every round to spectators on the given port. If the port
+	 * cannot be opened the game is played without spectators.
+	 *
+	 * @param port the TCP port viewers connect to
+	 */
+	public void startSpectators(int port) {
+		try {
+			spectators = new SpectatorServer(port);
+			spectators.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+			JOptionPane.showMessageDialog(gameJFrame, "Could not open port " + port + ": " + e.getMessage(),
+					"No spectators", JOptionPane.WARNING_MESSAGE);
+		}
+	}
+
+	/**
+	 * Starts measuring where the session allocates and when the collector
+	 * pauses, including any round already resumed. The report is written when
+	 * the window is closed.
+	 */
+	public void startProfiler() {
+		profiler = new SessionProfiler();
+		if (simulation != null) {
+			simulation.setProfiler(profiler);
+		}
+	}
+
+	/**
+	 * Writes the session profile to profile-report.txt, once the simulation has
+	 * stopped, if the game is being profiled.
+	 */
+	private void finishProfile() {
+		if (profiler == null) {
+			return;
+		}
+		if (simulation != null) {
+			simulation.halt();
+		}
+		try {
+			profiler.finish(Paths.get("profile-report.txt"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Closes the head-to-head session once the simulation has been halted. The
+	 * session is kept so its scores can still be read.
+	 */
+	private void endLockstep() {
+		if (lockstep != null) {
+			lockstep.close();
+		}
+	}
+
+	/**
+	 * Returns this player's score: their own slices in a head-to-head round, or
+	 * the world's score when playing alone.
+	 *
+	 * @return the player's points
+	 */
+	private int playerPoints() {
+		return lockstep == null ? world.getPoints() : lockstep.getPoints(netPlayer);
+	}
+
+	/**
+	 * Stops recording the round and appends it to the archive. Must be called
+	 * once the simulation has been halted; does nothing if no round is recorded.
+	 */
+	private void endRecording() {
+		if (recorder == null || archive == null) {
+			recorder = null;
+			return;
+		}
+		try {
+			archive.append(recorder);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		recorder = null;
 	}
 
 	/**
@@ -353,118 +889,99 @@ public class SliceItController implements ActionListener {
 	}
 
 	/**
-     * Initializes and starts the gameplay panel with spawning, timers,
-     * mouse listeners, and game logic.
-     * 
-     * OpenAI.(2025). ChatGPT [Large Language Model]
-	 * When prompted with, "How do I create objects of fruit and bomb using the images from the lists? I also want them to have velocityX and velocityY", the generated code includes the if statements
-     * 
+	 * Resets the clock and the world, with a fresh seed for the spawn schedule,
+	 * and shows the gameplay panel.
+	 */
+	private void startRound() {
+		roundConfig = difficulty;
+		timeRemaining = roundConfig.getGameSeconds();
+		world.reset(roundConfig, System.nanoTime());
+		stopAnimationTimer();
+		animations.clear();
+		gamePanel();
+	}
+
+	/**
+     * Initializes and starts the gameplay panel with the simulation thread,
+     * timers and mouse listeners.
      */
 	private void gamePanel() {
 		// Create a new instance of our custom GamePanel.
 		gamePanel = new GamePanel();
+		dragQueue = new DragQueue(256);
+		snapshots = new SnapshotBuffer();
 
-		// Start a timer that updates the game logic.
-		Timer timer = new Timer(20, new ActionListener() {
-			public void actionPerformed(ActionEvent e) {
-				// spawn a new fruit with a 5% chance each frame
-				if (rand.nextDouble() < 0.05) {
-					int panelWidth = gamePanel.getWidth();
-					// choose a random index for which fruit to spawn
-					int fruitIndex = rand.nextInt(unslicedFruits.length);
-					 // load the unsliced fruit image at that index
-					BufferedImage img = unslicedFruits[fruitIndex];
-					// computes a random x‐position so the fruit appears fully within the panel
-				    // Math.max ensures the bound is at least 1 to avoid IllegalArgumentException
-					int x = rand.nextInt(Math.max(panelWidth - img.getWidth(), 1));
-					// start the fruit at the bottom of the panel
-					int y = gamePanel.getHeight() - img.getHeight();
-					// gives the fruit an initial upward velocity between 10 and 15 pixels/frame
-					float velocityY = -(float) (rand.nextDouble() * 5 + 10);
-					// give the fruit a random horizontal velocity between -2 and +2 pixels/frame
-					float velocityX = (float) (rand.nextDouble() * 4 - 2);
-					// load the  sliced‐fruit image for when it’s cut
-					BufferedImage slicedImg = slicedFruits[fruitIndex];
-					// construct a new Fruit object with the chosen images and velocities
-					Fruit fruit = new Fruit(img, slicedImg, x, y, velocityX, velocityY);
-					// add the new fruit to the list of active fruits so it will be updated and drawn
-					fruits.add(fruit);
-				}
-
-				// Update fruit positions
-				for (int i = fruits.size() - 1; i >= 0; i--) {
-					Fruit f = fruits.get(i);
-					f.update();
-					//remove off-screen fruits
-					if (f.isOffScreen(gamePanel.getWidth(), gamePanel.getHeight())) {
-						fruits.remove(i);
-					}
-				}
-
-				// Go through bombs
-				Iterator<Bomb> bombIterator = bombs.iterator();
-				while (bombIterator.hasNext()) {
-					Bomb b = bombIterator.next();
-					b.update();
-					//remove when off screen
-					if (b.getY() > gamePanel.getHeight()) {
-						bombIterator.remove();
-					}
-				}
-
-				// Spawn a new bomb with a 2% chance each frame
-				if (rand.nextDouble() < 0.02 && bomb != null) {
-					// get the current width of the game panel
-					int panelWidth = gamePanel.getWidth();
-					// choose a random x‐position so the bomb appears fully within the panel
-				    // math.max ensures the bound is at least 1 to avoid an exception
-					int x = rand.nextInt(Math.max(panelWidth - bomb.getWidth(), 1));
-					// position the bomb so its bottom edge sits at the bottom of the panel
-					int y = gamePanel.getHeight() - bomb.getHeight();
-					// give the bomb an initial upward velocity between 10 and 15 pixels/frame
-					float velocityY = -(float) (rand.nextDouble() * 5 + 10);
-					// give the bomb a random horizontal velocity between -2 and +2 pixels/frame
-					float velocityX = (float) (rand.nextDouble() * 4 - 2);
-					// create a new Bomb object with the chosen position and velocities
-					Bomb newBomb = new Bomb(bomb, x, y, velocityX, velocityY);
-					// adds the new bomb to the list so it gets updated and drawn each frame
-					bombs.add(newBomb);
+		// The game logic runs on its own thread; a bomb hit is handed back to the event thread.
+		//in demo mode the bot plans its next swipe on the simulation thread before each repaint
+		//once a bomb is hit only the explosion and the debris move, and the animation timer repaints just those
+		GamePanel panel = gamePanel;
+		GameWorld round = world;
+		Runnable onFrame = () -> {
+			if (!round.isGameOver()) {
+				panel.repaint();
+			}
+		};
+		if (demoBot) {
+			SliceBot bot = new SliceBot(world, dragQueue);
+			onFrame = () -> {
+				bot.run();
+				if (!round.isGameOver()) {
+					panel.repaint();
 				}
-				// Repaint the game panel.
-				gamePanel.repaint();
+			};
+		}
+		simulation = new SimulationThread(world, dragQueue, snapshots, onFrame,
+				() -> SwingUtilities.invokeLater(this::bombSliced));
+		//a head-to-head round cannot be carried on alone, so it is not autosaved
+		if (netPlayer < 0) {
+			//open the save file now, so no save has to create it on the simulation thread
+			try {
+				autosave.prepare(world, roundConfig);
+			} catch (IOException e) {
+				e.printStackTrace();
 			}
-		});
-		timer.start();
+			simulation.setPeriodicTask(this::autosave, AUTOSAVE_TICKS);
+		}
+		simulation.setTelemetry(telemetry);
+		simulation.setProfiler(profiler);
+		if (spectators != null) {
+			spectators.setTimeRemaining(timeRemaining);
+			simulation.setSpectators(spectators);
+		}
 
 		// Game timer (one minute duration).
-		gameTimer = new Timer(60000, new ActionListener() {
+		//a head-to-head round ends on an agreed tick instead, so this is only started when playing alone
+		gameTimer = new Timer(timeRemaining * 1000, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
+				//stop the simulation first so the score can no longer change
+				simulation.halt();
+				//the round is over either way, so there is nothing left to resume
+				autosave.delete();
+				endRecording();
 				//stop time if game is over
-				if (!gameOver) {
-					timer.stop();
+				if (!world.isGameOver()) {
 					//give player their points and add to leaderboard
-					JOptionPane.showMessageDialog(gameJFrame, "You won! Your score: " + points, "CONGRATULATIONS", JOptionPane.INFORMATION_MESSAGE);
-					leaderboardData.add(username + " - " + points + " pts");
+					JOptionPane.showMessageDialog(gameJFrame, "You won! Your score: " + world.getPoints(), "CONGRATULATIONS", JOptionPane.INFORMATION_MESSAGE);
+					roundOver(false);
 					returnToMainPanel();
 				}
 			}
 		});
 		gameTimer.setRepeats(false);
-		gameTimer.start();
-
-		// Time remaining label and countdown timer.
-		timeLabel = new JLabel("Time: " + timeRemaining);
-		timeLabel.setForeground(Color.black);
-		timeLabel.setBounds(300, -7, 120, 30);
-		Font titleFontTime = new Font("Arial Black", Font.BOLD, 24);
-		timeLabel.setFont(titleFontTime);
-		gamePanel.add(timeLabel);
+
+		// Countdown timer, the time itself is drawn by the HUD.
 		//total time decreases by one second every second
 		countdownTimer = new Timer(1000, new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
+				if (lockstep != null) {
+					lockstepClock();
+					return;
+				}
 				timeRemaining--;
-				timeLabel.setText("Time: " + timeRemaining);
+				if (spectators != null) {
+					spectators.setTimeRemaining(timeRemaining);
+				}
 				if (timeRemaining <= 0) {
 					countdownTimer.stop();
 				}
@@ -474,77 +991,128 @@ public class SliceItController implements ActionListener {
 
 		 /** 
 		  * Add mouse motion listener to detect dragging (slicing).
-		  * OpenAI.(2025). ChatGPT [Large Language Model]
-		  * When prompted with, "How can I check if mouse has been dragged on the fruit and bomb?" , I provided the fruit and bomb class as well and this was the generated code. 
+		  * The samples are queued and checked against the fruits and bombs by the simulation thread.
 		  */
 		gamePanel.addMouseMotionListener(new MouseAdapter() {
 			@Override
 			
 			/**
-			 * Checks if the user sliced a bomb or fruit using mouse events.
+			 * Queues the drag position so the simulation can check it for slices.
 			 * @param e       MouseEvent containing details of  drag event
 			 */
 			public void mouseDragged(MouseEvent e) {
-				if (gameOver) {
-					return;
+				if (profiler != null) {
+					profiler.begin(SessionProfiler.INPUT);
 				}
-				//variables for coordinates of mouse clicking
-				int mouseX = e.getX();
-				int mouseY = e.getY();
-
-				// Check if held down mouse is in same coordinate as fruit
-				for (Fruit f : fruits) {
-					if (!f.getIsSliced() && f.contains(mouseX, mouseY)) {
-						f.slice();
-						//if so add points
-						points += 10;
-						pointLabel.setText("Score: " + points);
-					}
+				if (fixedResolution == null) {
+					dragQueue.offer(e.getX(), e.getY());
+				} else {
+					//map the window position back onto the internal frame
+					dragQueue.offer(fixedResolution.toInternalX(e.getX()), fixedResolution.toInternalY(e.getY()));
 				}
-
-				// Check for bomb slicing.
-				for (Iterator<Bomb> it = bombs.iterator(); it.hasNext();) {
-					Bomb b = it.next();
-					// coordinates of bomb
-					int bombLeft = b.getX();
-					int bombRight = b.getX() + b.getImage().getWidth(null);
-					int bombTop = b.getY();
-					int bombBottom = b.getY() + b.getImage().getHeight(null);
-					//check if mouse has hit the bomb
-					if (mouseX >= bombLeft && mouseX <= bombRight && mouseY >= bombTop && mouseY <= bombBottom) {
-						explosionX = b.getX() + (b.getImage().getWidth(null) - bombExplosionFrames[0].getWidth()) / 2;
-						explosionY = b.getY() + (b.getImage().getHeight(null) - bombExplosionFrames[0].getHeight()) / 2;
-						it.remove();
-						gameOver = true;
-						timer.stop();
-						if (gameTimer != null) {
-							gameTimer.stop();
-						}
-						if (countdownTimer != null) {
-							countdownTimer.stop();
-						}
-						//if so then start the explosion
-						startExplosionAnimation();
-						break;
-					}
+				if (profiler != null) {
+					profiler.end(SessionProfiler.INPUT);
 				}
 			}
 		});
 
-		// Score label.
-		pointLabel = new JLabel("Score: " + points);
-		pointLabel.setForeground(Color.black);
-		Font titleFont = new Font("Arial Black", Font.BOLD, 24);
-		pointLabel.setFont(titleFont);
-		pointLabel.setBounds(0, -7, 160, 30);
-		gamePanel.add(pointLabel);
-
 		// Switch the frame content to the game panel.
 		gameJFrame.getContentPane().removeAll();
 		gameJFrame.getContentPane().add(gamePanel);
-		gameJFrame.pack();
+		//a scaled game keeps whatever size the window has been given
+		if (fixedResolution == null) {
+			gameJFrame.pack();
+		}
 		gameJFrame.revalidate();
 		gameJFrame.repaint();
+
+		// start simulating once the panel has its real size
+		world.setSize(gamePanel.getPlayWidth(), gamePanel.getPlayHeight());
+		lockstep = null;
+		lockstepOver = false;
+		explosionOver = false;
+		lastLockstepTick = 0;
+		stalledSeconds = 0;
+		if (netPlayer >= 0) {
+			try {
+				//the session resets the world with the host's seed once the other cabinet answers
+				LockstepSession session = new LockstepSession(world, roundConfig, dragQueue, netPlayer, netPort, netPeer,
+						System.nanoTime(), LockstepSession.DEFAULT_INPUT_DELAY);
+				lockstep = session;
+				simulation.setLockstep(session, () -> SwingUtilities.invokeLater(() -> lockstepFinished(session)));
+			} catch (IOException e) {
+				e.printStackTrace();
+				JOptionPane.showMessageDialog(gameJFrame, "Could not open port " + netPort + ": " + e.getMessage(),
+						"Playing alone", JOptionPane.WARNING_MESSAGE);
+			}
+		}
+		//a replay holds one player's drags, so head-to-head rounds are not archived
+		if (archive != null && lockstep == null) {
+			recorder = new SessionRecorder(world, roundConfig);
+			simulation.setRecorder(recorder);
+		}
+		if (lockstep == null) {
+			gameTimer.start();
+		}
+		simulation.start();
+	}
+
+	/**
+	 * Called on the event thread after the simulation reports that a bomb was
+	 * sliced. Stops the clocks and starts the explosion over the bomb.
+	 */
+	private void bombSliced() {
+		//the simulation keeps running so the debris can fly; it is halted once the explosion is over
+		int x = world.getHitCenterX() - bombExplosionFrames[0].getWidth() / 2;
+		int y = world.getHitCenterY() - bombExplosionFrames[0].getHeight() / 2;
+		if (gameTimer != null) {
+			gameTimer.stop();
+		}
+		//a head-to-head clock keeps watching for a peer that goes quiet before the result is final
+		if (countdownTimer != null && lockstep == null) {
+			countdownTimer.stop();
+		}
+		//if so then start the explosion
+		startExplosionAnimation(x, y);
+	}
+
+	/**
+	 * Carries on the round saved when the game was last closed, if there is one.
+	 * A save that cannot be read is left alone and the main menu is shown.
+	 */
+	private void resumeRound() {
+		if (!autosave.exists()) {
+			return;
+		}
+		try {
+			autosave.load(world);
+		} catch (IOException e) {
+			e.printStackTrace();
+			world.reset(difficulty, System.nanoTime());
+			return;
+		}
+		//the round carries on with the settings it was started with
+		roundConfig = autosave.getConfig();
+		username = autosave.getUsername();
+		timeRemaining = autosave.getTimeRemaining();
+		stopAnimationTimer();
+		animations.clear();
+		gamePanel();
+	}
+
+	/**
+	 * Saves the running round. Called every few seconds on the simulation thread,
+	 * and on the event thread when the window closes.
+	 */
+	private void autosave() {
+		if (world.isGameOver() || timeRemaining <= 0) {
+			return;
+		}
+		try {
+			autosave.save(world, roundConfig, timeRemaining, username);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
@@ -555,47 +1123,129 @@ public class SliceItController implements ActionListener {
 			setLayout(null);
 			setBackground(Color.pink);
 			setPreferredSize(new Dimension(500, 500));
-			
-			/**
-			 * Background Image Credit:
-			 * OpenAI.(2025). ChatGPT [Large Language Model]
-			 * It is an image for the game screen
-			 * This image is used for educational/non-commercial purposes only.
-			 */
-			try {
-				backgroundImage = ImageIO.read(new File("images/playBackgrnd.png"));
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			//keep the world's idea of the play area in step with the panel
+			addComponentListener(new ComponentAdapter() {
+				@Override
+				public void componentResized(ComponentEvent e) {
+					world.setSize(getPlayWidth(), getPlayHeight());
+				}
+			});
+		}
+
+		/**
+		 * Returns the width of the play area, which is the internal width when the
+		 * game is drawn at a fixed size.
+		 *
+		 * @return the play area width
+		 */
+		int getPlayWidth() {
+			return fixedResolution == null ? getWidth() : fixedResolution.getWidth();
+		}
+
+		/**
+		 * Returns the height of the play area, which is the internal height when the
+		 * game is drawn at a fixed size.
+		 *
+		 * @return the play area height
+		 */
+		int getPlayHeight() {
+			return fixedResolution == null ? getHeight() : fixedResolution.getHeight();
 		}
 
 		/**
-		 * Draws background, fruits, bombs, and explosion onto the game panel.
+		 * Draws background, fruits, bombs, and explosion onto the game panel, either
+		 * directly or through the fixed size frame.
 		 */
 		@Override
 		protected void paintComponent(Graphics g) {
 			//clears panel
-			super.paintComponent(g);
-			//draw background image
-			if (backgroundImage != null) {
-				g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+			if (profiler != null) {
+				profiler.begin(SessionProfiler.PAINT);
 			}
+			super.paintComponent(g);
+			long paintStart = System.nanoTime();
 
-			//draw fruit
 			Graphics2D g2d = (Graphics2D) g;
-			for (Fruit f : fruits) {
-				f.draw(g2d);
+			if (fixedResolution == null) {
+				drawFrame(g2d, getWidth(), getHeight());
+			} else {
+				Graphics2D frame = fixedResolution.begin();
+				try {
+					drawFrame(frame, fixedResolution.getWidth(), fixedResolution.getHeight());
+				} finally {
+					frame.dispose();
+				}
+				fixedResolution.present(g2d, getWidth(), getHeight());
+			}
+			//let the quality follow how long painting takes
+			long paintNanos = System.nanoTime() - paintStart;
+			quality.recordFrame(paintNanos);
+			telemetry.frame(simulation.getTicks(), paintNanos);
+			if (profiler != null) {
+				profiler.end(SessionProfiler.PAINT);
+			}
+		}
+
+		/**
+		 * Asks for the next animation frame, repainting only the area the animations
+		 * and particles cover now, together with the area they covered last time so
+		 * nothing is left behind. A scaled frame is always presented whole, so it is
+		 * repainted whole.
+		 */
+		private void repaintAnimations() {
+			if (fixedResolution != null) {
+				repaint();
+				return;
+			}
+			boolean any = animations.getBounds(atlas, animationBounds);
+			boolean flying;
+			WorldSnapshot snapshot = snapshots.acquire();
+			try {
+				flying = snapshot.getParticleBounds(atlas, particleBounds);
+			} finally {
+				snapshots.release();
 			}
-			//draw bombs
-			for (Bomb b : bombs) {
-				g2d.drawImage(b.getImage(), b.getX(), b.getY(), null);
+			if (flying) {
+				if (any) {
+					animationBounds.add(particleBounds);
+				} else {
+					animationBounds.setBounds(particleBounds);
+				}
+				any = true;
+			}
+			if (!any) {
+				animationBounds.setBounds(0, 0, 0, 0);
+			}
+			//the last area is painted over too, then replaced by the new one
+			particleBounds.setBounds(animationBounds);
+			if (!lastAnimationBounds.isEmpty()) {
+				animationBounds.add(lastAnimationBounds);
+			}
+			lastAnimationBounds.setBounds(particleBounds);
+			if (!animationBounds.isEmpty()) {
+				repaint(animationBounds.x, animationBounds.y, animationBounds.width, animationBounds.height);
+			}
+		}
+
+		/**
+		 * Draws one frame of the game at the given size.
+		 */
+		private void drawFrame(Graphics2D g2d, int width, int height) {
+			//draw background, fruit and bombs from the latest snapshot published by the simulation
+			WorldSnapshot snapshot = snapshots.acquire();
+			int points;
+			try {
+				renderer.drawScene(g2d, width, height, snapshot);
+				points = snapshot.getPoints();
+			} finally {
+				snapshots.release();
 			}
 			//OpenAI.(2025). ChatGPT [Large Language Model]
 			//When prompted with, "How do I draw the explosion frames for my bomb explosion animation?" , this was the generated code. 
-			//draw explosion if needed
-			if (showExplosion && bombExplosionFrames != null && explosionFrame < bombExplosionFrames.length) {
-				g2d.drawImage(bombExplosionFrames[explosionFrame], explosionX, explosionY, null);
-			}
+			//draw explosions if needed, skipping frames when drawing is slow
+			animations.draw(g2d, spriteBatch, System.nanoTime(), quality.getExplosionStep());
+			//draw score and time on top
+			renderer.drawHud(g2d, points, timeRemaining);
 		}
 	}
 	
@@ -603,100 +1253,239 @@ public class SliceItController implements ActionListener {
 	
 
 	/**
-	 * Handles the bomb explosion animation.
+	 * Handles the bomb explosion animation. The frames follow the clock, and the
+	 * game over dialogs appear once the last one is over, whether or not the
+	 * window has been painted.
+	 *
+	 * @param x the x-coordinate of the explosion's top left corner
+	 * @param y the y-coordinate of the explosion's top left corner
 	 */
-	private void startExplosionAnimation() {
-		showExplosion = true;
-		explosionFrame = 0;
+	private void startExplosionAnimation(int x, int y) {
+		animations.play(explosionSprite, bombExplosionFrames.length, EXPLOSION_FRAME_NANOS, x, y, System.nanoTime(),
+				this::explosionFinished);
+		//the simulation has stopped repainting the whole panel, so show the hit once in full
+		gamePanel.repaint();
+		startAnimationTimer();
 
-		explosionTimer = new Timer(10, new ActionListener() {
-			@Override
+		//stop game and countdown timers
+		if (gameTimer != null) { 
+			gameTimer.stop();
+		}
+		if (countdownTimer != null && lockstep == null) { 
+			countdownTimer.stop();
+		}
+	}
+
+	/**
+	 * Starts the timer that ends animations on time and repaints them, along with
+	 * the debris the simulation keeps moving until it is halted.
+	 */
+	private void startAnimationTimer() {
+		stopAnimationTimer();
+		lastAnimationBounds.setBounds(0, 0, 0, 0);
+		animationTimer = new Timer((int) (EXPLOSION_FRAME_NANOS / 1_000_000L), new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				//go through the frames of the explosion
-				explosionFrame++;
-				//this tells when to stop going through frames
-				if (explosionFrame >= bombExplosionFrames.length) {
-					//stop game and show points
-					explosionTimer.stop();
-					JOptionPane.showMessageDialog(gameJFrame, "Game Over! You sliced a bomb!", "YOU LOST!", JOptionPane.WARNING_MESSAGE);
-					 updateLeaderboard();
-					int reply = JOptionPane.showConfirmDialog(gameJFrame, "Would you like to play again?", "Play again?", JOptionPane.YES_NO_OPTION);
-					if (reply == 1) {
-						returnToMainPanel();
-					} else {
-						points = 0;
-						timeRemaining = 60;
-						fruits.clear();
-						bombs.clear();
-						gameOver = false;
-						gamePanel();
-					}
-					
-				} else {
-					gamePanel.repaint();
-				}
+				animations.update(System.nanoTime());
+				gamePanel.repaintAnimations();
 			}
 		});
-		explosionTimer.start();
+		animationTimer.start();
+	}
 
-		//stop game and countdown timers
-		if (gameTimer != null) { 
-			gameTimer.stop();
+	/**
+	 * Stops the animation timer, if it is running.
+	 */
+	private void stopAnimationTimer() {
+		if (animationTimer != null) {
+			animationTimer.stop();
+			animationTimer = null;
+		}
+	}
+
+	/**
+	 * Follows the clock of a head-to-head round from the lockstep tick, which
+	 * only starts once the other cabinet has answered, and ends the round if a
+	 * connected peer stops answering. Called every second on the event thread.
+	 */
+	private void lockstepClock() {
+		if (!lockstep.isConnected()) {
+			return;
+		}
+		long tick = lockstep.getTick();
+		if (tick != lastLockstepTick) {
+			lastLockstepTick = tick;
+			stalledSeconds = 0;
+		} else if (++stalledSeconds >= PEER_TIMEOUT_SECONDS && !lockstepOver) {
+			//the other cabinet has gone; end with what has been agreed so far
+			lockstepOver = true;
+			endHeadToHead("The other cabinet stopped answering. ");
+			return;
+		}
+		//after a bomb the clock stays where it stopped
+		if (world.isGameOver()) {
+			return;
+		}
+		int roundTicks = roundConfig.getGameSeconds() * SpawnSchedule.TICKS_PER_SECOND;
+		timeRemaining = (int) Math.max(0, (roundTicks - tick + SpawnSchedule.TICKS_PER_SECOND - 1)
+				/ SpawnSchedule.TICKS_PER_SECOND);
+		if (spectators != null) {
+			spectators.setTimeRemaining(timeRemaining);
+		}
+	}
+
+	/**
+	 * Called on the event thread once a lockstep session reports its round over
+	 * and settled with the peer, so the scores and the loser are final.
+	 *
+	 * @param session the session that finished, ignored if its round has already ended
+	 */
+	private void lockstepFinished(LockstepSession session) {
+		if (session != lockstep || lockstepOver) {
+			return;
 		}
-		if (countdownTimer != null) { 
+		lockstepOver = true;
+		endHeadToHead("");
+	}
+
+	/**
+	 * Ends a head-to-head round once its result is final. A round ended by a bomb
+	 * finishes after its explosion; one that ran out of time shows both scores.
+	 *
+	 * @param note said before the scores instead of "Time's up!", such as why
+	 *             the round ended early; empty when time ran out
+	 */
+	private void endHeadToHead(String note) {
+		if (countdownTimer != null) {
 			countdownTimer.stop();
 		}
+		if (world.isGameOver()) {
+			if (explosionOver) {
+				explosionFinished();
+			}
+			return;
+		}
+		int mine = lockstep.getPoints(netPlayer);
+		int theirs = lockstep.getPoints(1 - netPlayer);
+		//the session keeps answering while the dialog is up, so the other cabinet can settle too
+		JOptionPane.showMessageDialog(gameJFrame, (note.isEmpty() ? "Time's up! " : note) + "You: " + mine + " pts, opponent: " + theirs + " pts",
+				mine > theirs ? "YOU WON!" : mine < theirs ? "YOU LOST!" : "DRAW", JOptionPane.INFORMATION_MESSAGE);
+		simulation.halt();
+		endLockstep();
+		roundOver(false);
+		returnToMainPanel();
 	}
-	
-	
 
 	/**
-	 * Updates the leaderboard with the player's latest score.
-	 * OpenAI.(2025). ChatGPT [Large Language Model]
-	 * When prompted with, "How do I make sure that the user's latest score is displayed in the leaderboard and only the top 5 are shown?" , this was the generated code. 
+	 * Called on the event thread once the explosion has played. Ends the round and
+	 * asks whether to play again. In a head-to-head round this waits until the
+	 * result is final, as a late input from the peer may still change the loser.
 	 */
-	private void updateLeaderboard() {
-	    // Create a flag to check if the username already exists in the leaderboard
-	    boolean userFound = false;
-	    
-	    // Iterate over the leaderboard data to check if the username exists
-	    for (int i = 0; i < leaderboardData.size(); i++) {
-	        String entry = leaderboardData.get(i);
-	        // Extract the username from the string
-	        String existingUsername = entry.split(" - ")[0].trim(); 
-	        if (existingUsername.equalsIgnoreCase(username)) {
-	            // If username found, update the score
-	            leaderboardData.set(i, username + " - " + points + " pts");
-	            userFound = true;
-	            break;
-	        }
-	    }
-	    
-	    // If the username doesn't exist, add a new entry
-	    if (!userFound) {
-	        leaderboardData.add(username + " - " + points + " pts");
-	    }
-	    
-	    // Sort the leaderboard by score in descending order
-	    leaderboardData.sort((a, b) -> {
-	        int scoreA = Integer.parseInt(a.split(" - ")[1].replace(" pts", "").trim());
-	        int scoreB = Integer.parseInt(b.split(" - ")[1].replace(" pts", "").trim());
-	        return Integer.compare(scoreB, scoreA);  // Sort in descending order
-	    });
-	    
-	    // Keep only the top 5 scores
-	    if (leaderboardData.size() > 5) {
-	        leaderboardData = leaderboardData.subList(0, 5);
-	    }
+	private void explosionFinished() {
+		if (lockstep != null && !lockstepOver) {
+			explosionOver = true;
+			return;
+		}
+		//stop game and show points
+		boolean bombDeath = lockstep == null || lockstep.getLoser() == netPlayer;
+		if (!bombDeath) {
+			JOptionPane.showMessageDialog(gameJFrame, "Your opponent sliced a bomb! Your score: " + playerPoints(), "YOU WON!", JOptionPane.INFORMATION_MESSAGE);
+		} else {
+			JOptionPane.showMessageDialog(gameJFrame, "Game Over! You sliced a bomb!", "YOU LOST!", JOptionPane.WARNING_MESSAGE);
+		}
+		//the debris has had its moment; stop the simulation so the world is ours again
+		simulation.halt();
+		stopAnimationTimer();
+		gamePanel.repaintAnimations();
+		autosave.delete();
+		endRecording();
+		endLockstep();
+		roundOver(bombDeath);
+		int reply = JOptionPane.showConfirmDialog(gameJFrame, "Would you like to play again?", "Play again?", JOptionPane.YES_NO_OPTION);
+		if (reply == 1) {
+			returnToMainPanel();
+		} else {
+			startRound();
+		}
 	}
 	
 	
 
+	/**
+	 * Records a finished round on the leaderboard and in the player statistics,
+	 * which are then saved. Must be called once the simulation has been halted.
+	 *
+	 * @param bombDeath true if the round ended because this player sliced a bomb
+	 */
+	private void roundOver(boolean bombDeath) {
+		updateLeaderboard();
+		if (username == null) {
+			return;
+		}
+		int points = playerPoints();
+		long played = world.getTickCount() * SimulationThread.TICK_NANOS / 1_000_000L;
+		playerStats.record(username, System.currentTimeMillis(), points, points / GameWorld.FRUIT_POINTS, played,
+				bombDeath);
+		try {
+			playerStats.save(Paths.get(PlayerStats.DEFAULT_FILE));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Updates the leaderboard with the player's score: a new entry the first
+	 * time a username scores, and after that the same entry, replaced with the
+	 * latest score. A returning player or a resumed round finds the entry the
+	 * player already has.
+	 */
+	private void updateLeaderboard() {
+		ScoreStore store = scores();
+		if (store == null || username == null) {
+			return;
+		}
+		try {
+			if (scoreRecord < 0) {
+				scoreRecord = store.find(username);
+			}
+			if (scoreRecord < 0) {
+				scoreRecord = store.add(username, playerPoints());
+			} else {
+				store.setScore(scoreRecord, playerPoints());
+			}
+			claimedRecords.add(scoreRecord);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 
+	/**
+	 * Checks whether a username is taken: entered since the game was launched
+	 * and still shown on the leaderboard. Names left over from earlier launches
+	 * belong to returning players, who carry on under them.
+	 *
+	 * @param store  the score store
+	 * @param name   the username
+	 * @param record the username's entry, or -1 if it has none
+	 * @return true if the username is taken
+	 * @throws IOException if the board cannot be read
+	 */
+	private boolean isTaken(ScoreStore store, String name, int record) throws IOException {
+		if (record < 0 || !claimedRecords.contains(record)) {
+			return false;
+		}
+		String[] names = new String[BOARD_SIZE];
+		int n = store.readRanks(0, names, new int[BOARD_SIZE]);
+		for (int i = 0; i < n; i++) {
+			if (names[i].equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-	
 	/**
-	 * Displays the leaderboard panel with top 5 scores.
+	 * Displays the leaderboard panel with the top scores, best first. The rows
+	 * are read from the score store as they are shown.
 	 */
 	private void leaderboardPanel() {
 	    
@@ -710,9 +1499,12 @@ public class SliceItController implements ActionListener {
 	    leaderBoardPanel.setLayout(null);
 	    leaderBoardPanel.setBackground(Color.pink);
 
-	    // Create a JList to display the top 5 leaderboard entries
-	    JList<String> leaderBoard = new JList<>(leaderboardData.toArray(new String[0]));
+	    // Create a JList showing the leaderboard a page at a time
+	    ScoreStore store = scores();
+	    JList<String> leaderBoard = store != null ? new JList<>(new LeaderboardModel(store, BOARD_SIZE)) : new JList<>();
 	    leaderBoard.setFont(new Font("Arial", Font.PLAIN, 18));
+	    //a fixed row size stops the list from measuring every row of the board
+	    leaderBoard.setPrototypeCellValue("1000. Player Name - 1000 pts");
 	    leaderBoard.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 	    
 	    // Add leaderboard list to scroll pane
@@ -764,32 +1556,30 @@ public class SliceItController implements ActionListener {
 	                continue;   // back to top of loop
 	            }
 	            
-	           // Check whether the chosen username already exists in the leaderboard
+	           // Disallow a username already on the leaderboard; a returning player carries on under theirs
+	            int record = -1;
 	            boolean taken = false;
-	            for (String entry : leaderboardData) {
-	                String existing = entry.split(" - ")[0].trim();
-	                if (existing.equalsIgnoreCase(input.trim())) {
-	                    taken = true;
-	                    break;
+	            ScoreStore store = scores();
+	            if (store != null) {
+	                try {
+	                    record = store.find(input);
+	                    taken = isTaken(store, input, record);
+	                } catch (IOException ex) {
+	                    ex.printStackTrace();
 	                }
 	            }
-	           // If the username is already taken, show an error and loop again
 	            if (taken) {
 	                JOptionPane.showMessageDialog(gameJFrame, "That username is taken. Please choose another username.","Error", JOptionPane.ERROR_MESSAGE );
-	                continue;   // back to top of loop
+	                continue;
 	            }
 	            // if we reach here, the name is valid
 	            username = input;
+	            scoreRecord = record;
 	            break;
 	        }
 
 	        // 2) now that username is valid, reset your game state and launch
-	        points = 0;
-	        timeRemaining = 60;
-	        fruits.clear();
-	        bombs.clear();
-	        gameOver = false;
-	        gamePanel();
+	        startRound();
 	    }
 	
 	     else if (source == rulesButton) {
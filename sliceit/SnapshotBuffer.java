@@ -0,0 +1,70 @@
+package sliceit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SnapshotBuffer class hands world snapshots from the simulation thread to
+ * the game panel without locking.
+ * <p>
+ * There are two snapshots. The renderer always draws the front one and the
+ * simulation writes the back one, then swaps them. If the renderer is still
+ * drawing the buffer the simulation wants to write next (because a paint took
+ * longer than a tick), the simulation skips publishing for that tick instead
+ * of waiting; the next tick publishes as usual.
+ * </p>
+ */
+public class SnapshotBuffer {
+	/** Marker meaning the renderer is not holding any snapshot. */
+	private static final int NONE = -1;
+
+	/** The two snapshots being swapped. */
+	private final WorldSnapshot[] buffers = { new WorldSnapshot(), new WorldSnapshot() };
+	/** Index of the snapshot the renderer should draw. */
+	private final AtomicInteger front = new AtomicInteger(0);
+	/** Index of the snapshot the renderer is currently drawing, or NONE. */
+	private final AtomicInteger reading = new AtomicInteger(NONE);
+
+	/**
+	 * Returns the back snapshot so the simulation can fill it. Called only by the
+	 * simulation thread.
+	 *
+	 * @return the snapshot to write, or null if the renderer is still using it
+	 */
+	public WorldSnapshot beginWrite() {
+		int back = 1 - front.get();
+		if (reading.get() == back) {
+			return null;
+		}
+		return buffers[back];
+	}
+
+	/**
+	 * Makes the snapshot returned by {@link #beginWrite()} the new front one.
+	 */
+	public void publish() {
+		front.set(1 - front.get());
+	}
+
+	/**
+	 * Returns the front snapshot and marks it as in use so the simulation will not
+	 * overwrite it. Must be paired with {@link #release()}.
+	 *
+	 * @return the latest published snapshot
+	 */
+	public WorldSnapshot acquire() {
+		int f;
+		do {
+			f = front.get();
+			reading.set(f);
+			//if a swap happened in between, the simulation may already be writing f
+		} while (front.get() != f);
+		return buffers[f];
+	}
+
+	/**
+	 * Tells the simulation that the renderer has finished with its snapshot.
+	 */
+	public void release() {
+		reading.set(NONE);
+	}
+}
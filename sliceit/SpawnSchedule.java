@@ -0,0 +1,258 @@
+package sliceit;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The SpawnSchedule class is the list of every fruit and bomb that will be
+ * launched during a round, worked out in advance from a seed and a
+ * {@link DifficultyConfig}.
+ * <p>
+ * All dice are rolled once when the schedule is built, not on every tick. The
+ * events are stored in primitive arrays ordered by tick, with an index of where
+ * each tick's events start, so finding what to spawn on a given tick costs two
+ * array reads no matter how many objects the round contains. The same seed and
+ * configuration always produce the same schedule.
+ * </p>
+ */
+public class SpawnSchedule {
+	/** Event type for a fruit launch. */
+	public static final int FRUIT = 0;
+	/** Event type for a bomb launch. */
+	public static final int BOMB = 1;
+	/** Number of simulation ticks per second (one tick every 20 ms). */
+	public static final int TICKS_PER_SECOND = 50;
+
+	/** Seed the schedule was built from. */
+	private final long seed;
+	/** Number of ticks covered by the schedule; later ticks wrap around. */
+	private final int ticks;
+	/** Index of the first event of each tick; entry ticks is the total event count. */
+	private final int[] firstEvent;
+	/** Type of each event, FRUIT or BOMB. */
+	private int[] type;
+	/** Which fruit to launch (unused for bombs). */
+	private int[] variant;
+	/** Launch position as a fraction of the free panel width, from 0 up to 1. */
+	private float[] xFraction;
+	/** Initial horizontal velocity of each event. */
+	private float[] velocityX;
+	/** Initial vertical velocity of each event. */
+	private float[] velocityY;
+	/** Gravity given to fruits. */
+	private final float fruitGravity;
+	/** Gravity given to bombs. */
+	private final float bombGravity;
+	/** Number of events. */
+	private int count;
+
+	/**
+	 * Builds the schedule for one round.
+	 *
+	 * @param config     the difficulty settings
+	 * @param fruitKinds how many different fruits can be launched
+	 * @param seed       the seed for every random choice in the round
+	 */
+	public SpawnSchedule(DifficultyConfig config, int fruitKinds, long seed) {
+		this.seed = seed;
+		this.ticks = Math.max(1, config.getGameSeconds() * TICKS_PER_SECOND);
+		this.firstEvent = new int[ticks + 1];
+		this.fruitGravity = config.getFruitGravity();
+		this.bombGravity = config.getBombGravity();
+		double scale = config.getCountScale();
+
+		int capacity = 64;
+		type = new int[capacity];
+		variant = new int[capacity];
+		xFraction = new float[capacity];
+		velocityX = new float[capacity];
+		velocityY = new float[capacity];
+
+		//spread the waves over their ticks first so they can be merged in tick order
+		int[] waveFruits = new int[ticks];
+		int[] waveBombs = new int[ticks];
+		for (int[] wave : config.getWaves()) {
+			int start = wave[0] * TICKS_PER_SECOND;
+			spread(waveFruits, start, (int) Math.round(wave[1] * scale), config.getWaveSpread());
+			spread(waveBombs, start, (int) Math.round(wave[2] * scale), config.getWaveSpread());
+		}
+
+		Random rand = new Random(seed);
+		for (int t = 0; t < ticks; t++) {
+			firstEvent[t] = count;
+			float seconds = t / (float) TICKS_PER_SECOND;
+			// fruits come first so they are moved on the tick they appear, as before
+			int fruits = rolls(config.getFruitRate(seconds) * scale, rand) + waveFruits[t];
+			for (int i = 0; i < fruits; i++) {
+				add(FRUIT, rand.nextInt(fruitKinds), rand, config.getFruitSpeedMin(), config.getFruitSpeedMax(),
+						config.getFruitDrift());
+			}
+			int bombs = rolls(config.getBombRate(seconds) * scale, rand) + waveBombs[t];
+			for (int i = 0; i < bombs; i++) {
+				add(BOMB, 0, rand, config.getBombSpeedMin(), config.getBombSpeedMax(), config.getBombDrift());
+			}
+		}
+		firstEvent[ticks] = count;
+	}
+
+	/**
+	 * Turns an expected number of spawns into an actual count: the whole part is
+	 * always spawned and the fraction is the chance of one more.
+	 */
+	private static int rolls(double expected, Random rand) {
+		int whole = (int) expected;
+		return whole + (rand.nextDouble() < expected - whole ? 1 : 0);
+	}
+
+	/**
+	 * Spreads a number of spawns evenly over a run of ticks.
+	 */
+	private void spread(int[] perTick, int start, int amount, int spreadTicks) {
+		for (int i = 0; i < amount; i++) {
+			int t = start + (int) ((long) i * spreadTicks / amount);
+			if (t >= 0 && t < ticks) {
+				perTick[t]++;
+			}
+		}
+	}
+
+	/**
+	 * Appends one event with random position and launch velocity.
+	 */
+	private void add(int eventType, int eventVariant, Random rand, float speedMin, float speedMax, float drift) {
+		if (count == type.length) {
+			int capacity = count * 2;
+			type = Arrays.copyOf(type, capacity);
+			variant = Arrays.copyOf(variant, capacity);
+			xFraction = Arrays.copyOf(xFraction, capacity);
+			velocityX = Arrays.copyOf(velocityX, capacity);
+			velocityY = Arrays.copyOf(velocityY, capacity);
+		}
+		type[count] = eventType;
+		variant[count] = eventVariant;
+		xFraction[count] = rand.nextFloat();
+		// upward launch speed between the configured minimum and maximum
+		velocityY[count] = -(float) (rand.nextDouble() * (speedMax - speedMin) + speedMin);
+		// sideways speed between -drift and +drift
+		velocityX[count] = (float) (rand.nextDouble() * 2 * drift - drift);
+		count++;
+	}
+
+	/**
+	 * Returns the index of the first event of a tick. Ticks past the end of the
+	 * schedule wrap around to the start.
+	 *
+	 * @param tick the tick number since the round started
+	 * @return the index of the tick's first event
+	 */
+	public int getStart(long tick) {
+		return firstEvent[(int) (tick % ticks)];
+	}
+
+	/**
+	 * Returns the index just past the last event of a tick.
+	 *
+	 * @param tick the tick number since the round started
+	 * @return the end index (exclusive) of the tick's events
+	 */
+	public int getEnd(long tick) {
+		return firstEvent[(int) (tick % ticks) + 1];
+	}
+
+	/**
+	 * Returns the type of an event.
+	 *
+	 * @param event the event index
+	 * @return FRUIT or BOMB
+	 */
+	public int getType(int event) {
+		return type[event];
+	}
+
+	/**
+	 * Returns which fruit an event launches.
+	 *
+	 * @param event the event index
+	 * @return the fruit index
+	 */
+	public int getVariant(int event) {
+		return variant[event];
+	}
+
+	/**
+	 * Returns the launch x-coordinate of an event for a given amount of free width.
+	 *
+	 * @param event     the event index
+	 * @param freeWidth panel width minus the object's width
+	 * @return an x-coordinate from 0 up to (but not including) freeWidth
+	 */
+	public int getX(int event, int freeWidth) {
+		// Math.max ensures the bound is at least 1, as the old nextInt call did
+		return (int) (xFraction[event] * Math.max(freeWidth, 1));
+	}
+
+	/**
+	 * Returns the initial horizontal velocity of an event.
+	 *
+	 * @param event the event index
+	 * @return the horizontal velocity
+	 */
+	public float getVelocityX(int event) {
+		return velocityX[event];
+	}
+
+	/**
+	 * Returns the initial vertical velocity of an event.
+	 *
+	 * @param event the event index
+	 * @return the vertical velocity
+	 */
+	public float getVelocityY(int event) {
+		return velocityY[event];
+	}
+
+	/**
+	 * Returns the gravity given to fruits.
+	 *
+	 * @return the fruit gravity
+	 */
+	public float getFruitGravity() {
+		return fruitGravity;
+	}
+
+	/**
+	 * Returns the gravity given to bombs.
+	 *
+	 * @return the bomb gravity
+	 */
+	public float getBombGravity() {
+		return bombGravity;
+	}
+
+	/**
+	 * Returns the total number of events in the schedule.
+	 *
+	 * @return the event count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of ticks the schedule covers.
+	 *
+	 * @return the tick count
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the seed the schedule was built from.
+	 *
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+}
@@ -0,0 +1,235 @@
+package sliceit;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The SpectatorDecoder class rebuilds what a viewer draws from the frames of a
+ * {@link SpectatorEncoder}.
+ * <p>
+ * It keeps the same two tracks as the encoder, as plain arrays of sprites and
+ * quantized positions. Delta frames are ignored until the first key frame, and
+ * a gap in the sequence numbers makes it wait for the next key frame again, so
+ * a viewer that was skipped ahead by the server never draws a mixed-up world.
+ * </p>
+ */
+public class SpectatorDecoder {
+	/** Sprite of each entity, per track. */
+	private int[][] sprites = { new int[64], new int[16] };
+	/** Quantized x-coordinate of each entity, per track. */
+	private int[][] qx = { new int[64], new int[16] };
+	/** Quantized y-coordinate of each entity, per track. */
+	private int[][] qy = { new int[64], new int[16] };
+	/** Number of entities, per track. */
+	private final int[] counts = new int[2];
+	/** Scratch flags marking the entities removed by the frame being applied. */
+	private boolean[] removed = new boolean[64];
+	/** Sequence number of the last frame applied, or -1 before the first key frame. */
+	private long sequence = -1;
+	/** Score in the last frame applied. */
+	private int points;
+	/** Seconds left in the last frame applied. */
+	private int timeRemaining;
+	/** Number of frames ignored while waiting for a key frame. */
+	private long ignored;
+
+	/**
+	 * Applies one frame, without its length prefix.
+	 *
+	 * @param frame the frame, from its type byte to its end
+	 * @return true if the frame was applied, false if it was ignored while
+	 *         waiting for a key frame
+	 */
+	public boolean apply(ByteBuffer frame) {
+		byte type = frame.get();
+		long seq = SpectatorEncoder.getVarLong(frame);
+		if (type != SpectatorEncoder.KEY && (sequence < 0 || seq != sequence + 1)) {
+			sequence = -1;
+			ignored++;
+			return false;
+		}
+		points = SpectatorEncoder.getVarint(frame);
+		timeRemaining = SpectatorEncoder.getVarint(frame);
+		if (type == SpectatorEncoder.KEY) {
+			counts[SpectatorEncoder.FRUITS] = 0;
+			counts[SpectatorEncoder.BOMBS] = 0;
+			readSpawned(frame, SpectatorEncoder.FRUITS);
+			readSpawned(frame, SpectatorEncoder.BOMBS);
+		} else {
+			readDelta(frame, SpectatorEncoder.FRUITS);
+			readDelta(frame, SpectatorEncoder.BOMBS);
+		}
+		sequence = seq;
+		return true;
+	}
+
+	/**
+	 * Appends the entities listed in full to a track.
+	 */
+	private void readSpawned(ByteBuffer in, int track) {
+		int n = SpectatorEncoder.getVarint(in);
+		int count = counts[track];
+		ensureCapacity(track, count + n);
+		for (int i = 0; i < n; i++) {
+			sprites[track][count] = SpectatorEncoder.getVarint(in);
+			qx[track][count] = SpectatorEncoder.getZigzag(in);
+			qy[track][count] = SpectatorEncoder.getZigzag(in);
+			count++;
+		}
+		counts[track] = count;
+	}
+
+	/**
+	 * Applies the removals, moves, sprite changes and spawns of one track.
+	 */
+	private void readDelta(ByteBuffer in, int track) {
+		int count = counts[track];
+		if (removed.length < count) {
+			removed = new boolean[count * 2];
+		}
+		Arrays.fill(removed, 0, count, false);
+		int n = SpectatorEncoder.getVarint(in);
+		int index = -1;
+		for (int i = 0; i < n; i++) {
+			index += SpectatorEncoder.getVarint(in) + 1;
+			removed[index] = true;
+		}
+		//compact the survivors while applying their moves, which are sent in the same order
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (removed[i]) {
+				continue;
+			}
+			sprites[track][kept] = sprites[track][i];
+			qx[track][kept] = qx[track][i] + SpectatorEncoder.getZigzag(in);
+			qy[track][kept] = qy[track][i] + SpectatorEncoder.getZigzag(in);
+			kept++;
+		}
+		counts[track] = kept;
+		int changed = SpectatorEncoder.getVarint(in);
+		index = -1;
+		for (int i = 0; i < changed; i++) {
+			index += SpectatorEncoder.getVarint(in) + 1;
+			sprites[track][index] = SpectatorEncoder.getVarint(in);
+		}
+		readSpawned(in, track);
+	}
+
+	/**
+	 * Grows the arrays of a track to hold at least the given number of entities.
+	 */
+	private void ensureCapacity(int track, int capacity) {
+		if (sprites[track].length < capacity) {
+			capacity = Math.max(capacity, sprites[track].length * 2);
+			sprites[track] = Arrays.copyOf(sprites[track], capacity);
+			qx[track] = Arrays.copyOf(qx[track], capacity);
+			qy[track] = Arrays.copyOf(qy[track], capacity);
+		}
+	}
+
+	/**
+	 * Copies the world as last decoded into a snapshot for drawing: fruits
+	 * first, then bombs, then the score. There are no particles.
+	 *
+	 * @param snapshot the snapshot to overwrite
+	 */
+	public void writeTo(WorldSnapshot snapshot) {
+		snapshot.clear();
+		for (int track = SpectatorEncoder.FRUITS; track <= SpectatorEncoder.BOMBS; track++) {
+			for (int i = 0; i < counts[track]; i++) {
+				snapshot.add(sprites[track][i], qx[track][i] * SpectatorEncoder.QUANTUM,
+						qy[track][i] * SpectatorEncoder.QUANTUM);
+			}
+		}
+		snapshot.setPoints(points);
+	}
+
+	/**
+	 * Returns whether a key frame has been applied and no frame has been missed
+	 * since.
+	 *
+	 * @return true if the decoded world is current
+	 */
+	public boolean isSynced() {
+		return sequence >= 0;
+	}
+
+	/**
+	 * Returns the sequence number of the last frame applied.
+	 *
+	 * @return the sequence number, or -1 while waiting for a key frame
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the number of fruits, or of bombs, decoded.
+	 *
+	 * @param track {@link SpectatorEncoder#FRUITS} or {@link SpectatorEncoder#BOMBS}
+	 * @return the number of entities
+	 */
+	int getCount(int track) {
+		return counts[track];
+	}
+
+	/**
+	 * Returns the sprite of a decoded entity.
+	 *
+	 * @param track {@link SpectatorEncoder#FRUITS} or {@link SpectatorEncoder#BOMBS}
+	 * @param index the index of the entity in its track
+	 * @return the atlas id
+	 */
+	int getSprite(int track, int index) {
+		return sprites[track][index];
+	}
+
+	/**
+	 * Returns the x-coordinate of a decoded entity, in pixels.
+	 *
+	 * @param track {@link SpectatorEncoder#FRUITS} or {@link SpectatorEncoder#BOMBS}
+	 * @param index the index of the entity in its track
+	 * @return the x-coordinate, to within half a quantum
+	 */
+	int getX(int track, int index) {
+		return qx[track][index] * SpectatorEncoder.QUANTUM;
+	}
+
+	/**
+	 * Returns the y-coordinate of a decoded entity, in pixels.
+	 *
+	 * @param track {@link SpectatorEncoder#FRUITS} or {@link SpectatorEncoder#BOMBS}
+	 * @param index the index of the entity in its track
+	 * @return the y-coordinate, to within half a quantum
+	 */
+	int getY(int track, int index) {
+		return qy[track][index] * SpectatorEncoder.QUANTUM;
+	}
+
+	/**
+	 * Returns the score in the last frame applied.
+	 *
+	 * @return the score
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * Returns the seconds left in the round in the last frame applied.
+	 *
+	 * @return the seconds left
+	 */
+	public int getTimeRemaining() {
+		return timeRemaining;
+	}
+
+	/**
+	 * Returns the number of frames ignored while waiting for a key frame.
+	 *
+	 * @return the number of frames
+	 */
+	public long getIgnored() {
+		return ignored;
+	}
+}
@@ -0,0 +1,276 @@
+package sliceit;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The SpectatorEncoder class turns the world into a compact stream of frames
+ * for lobby screens to follow a game.
+ * <p>
+ * The fruits and the bombs are kept as two tracks. A key frame lists every
+ * entity of each track with its sprite and position. A delta frame lists, for
+ * each track, which of the previous frame's entities were removed, how far each
+ * remaining one moved, which changed sprite (a fruit being sliced) and which
+ * were spawned. The world only ever appends new entities and removes old ones
+ * without reordering, so entities are matched between frames by walking both
+ * lists in order and need no ids on the wire.
+ * </p>
+ * <p>
+ * Positions are quantized to {@link #QUANTUM} pixels and every number is
+ * written as a variable-length integer, signed ones zigzag encoded, so an
+ * entity that keeps moving costs two bytes a tick. Each frame starts with its
+ * length, its type, its sequence number, the score and the seconds left.
+ * </p>
+ */
+public class SpectatorEncoder {
+	/** Frame type listing every entity. */
+	public static final byte KEY = 1;
+	/** Frame type listing changes since the previous frame. */
+	public static final byte DELTA = 2;
+	/** Pixels per position unit on the wire. */
+	public static final int QUANTUM = 2;
+	/** Track of the fruits. */
+	static final int FRUITS = 0;
+	/** Track of the bombs. */
+	static final int BOMBS = 1;
+
+	/** The entities sent in the previous frame, per track. */
+	private Object[][] refs = { new Object[64], new Object[16] };
+	/** Sprite, and quantized position as the viewers have it, of each sent entity, per track. */
+	private int[][] sprites = { new int[64], new int[16] }, qx = { new int[64], new int[16] },
+			qy = { new int[64], new int[16] };
+	/** Number of entities sent in the previous frame, per track. */
+	private final int[] counts = new int[2];
+	/** Index in the current list of each entity of the previous frame, or -1 if removed; reused. */
+	private int[] matched = new int[64];
+	/** Sequence number of the next frame. */
+	private long sequence;
+
+	/**
+	 * Encodes the world as the next frame. Must be called from the thread that
+	 * owns the world.
+	 *
+	 * @param world         the world to encode
+	 * @param timeRemaining the seconds left in the round
+	 * @param key           true for a key frame that a viewer can start from
+	 * @param out           where the frame is written, length first
+	 * @throws java.nio.BufferOverflowException if the frame does not fit; the
+	 *                                          encoder is then unchanged
+	 */
+	public void encode(GameWorld world, int timeRemaining, boolean key, ByteBuffer out) {
+		int start = out.position();
+		out.putInt(0);
+		out.put(key ? KEY : DELTA);
+		putVarLong(out, sequence);
+		putVarint(out, world.getPoints());
+		putVarint(out, Math.max(0, timeRemaining));
+		//encode both tracks before remembering either, so an overflow leaves nothing half updated
+		List<Fruit> fruits = world.getFruits();
+		List<Bomb> bombs = world.getBombs();
+		if (key) {
+			writeKey(out, fruits);
+			writeKey(out, bombs);
+		} else {
+			writeDelta(out, FRUITS, fruits);
+			writeDelta(out, BOMBS, bombs);
+		}
+		out.putInt(start, out.position() - start - 4);
+		remember(FRUITS, fruits);
+		remember(BOMBS, bombs);
+		sequence++;
+	}
+
+	/**
+	 * Writes every entity of a track.
+	 */
+	private static void writeKey(ByteBuffer out, List<?> entities) {
+		putVarint(out, entities.size());
+		for (int i = 0; i < entities.size(); i++) {
+			Object e = entities.get(i);
+			putVarint(out, spriteOf(e));
+			putZigzag(out, quantize(xOf(e)));
+			putZigzag(out, quantize(yOf(e)));
+		}
+	}
+
+	/**
+	 * Writes the changes to a track since the previous frame.
+	 */
+	private void writeDelta(ByteBuffer out, int track, List<?> entities) {
+		int previous = counts[track];
+		if (matched.length < previous) {
+			matched = new int[previous * 2];
+		}
+		//walk both lists in order; an entity of the old list that is not next in the new one was removed
+		int j = 0;
+		int removed = 0;
+		for (int i = 0; i < previous; i++) {
+			if (j < entities.size() && entities.get(j) == refs[track][i]) {
+				matched[i] = j++;
+			} else {
+				matched[i] = -1;
+				removed++;
+			}
+		}
+		int kept = j;
+
+		putVarint(out, removed);
+		int last = -1;
+		for (int i = 0; i < previous; i++) {
+			if (matched[i] < 0) {
+				putVarint(out, i - last - 1);
+				last = i;
+			}
+		}
+		int changed = 0;
+		for (int i = 0; i < previous; i++) {
+			if (matched[i] >= 0) {
+				Object e = entities.get(matched[i]);
+				putZigzag(out, quantize(xOf(e)) - qx[track][i]);
+				putZigzag(out, quantize(yOf(e)) - qy[track][i]);
+				if (spriteOf(e) != sprites[track][i]) {
+					changed++;
+				}
+			}
+		}
+		putVarint(out, changed);
+		//matches are in order, so the kept entities come out numbered 0, 1, 2...
+		last = -1;
+		for (int i = 0; i < previous; i++) {
+			int k = matched[i];
+			if (k >= 0 && spriteOf(entities.get(k)) != sprites[track][i]) {
+				putVarint(out, k - last - 1);
+				putVarint(out, spriteOf(entities.get(k)));
+				last = k;
+			}
+		}
+		writeKey(out, entities.subList(kept, entities.size()));
+	}
+
+	/**
+	 * Records a track as sent.
+	 */
+	private void remember(int track, List<?> entities) {
+		int n = entities.size();
+		if (refs[track].length < n) {
+			int capacity = Math.max(n, refs[track].length * 2);
+			refs[track] = Arrays.copyOf(refs[track], capacity);
+			sprites[track] = Arrays.copyOf(sprites[track], capacity);
+			qx[track] = Arrays.copyOf(qx[track], capacity);
+			qy[track] = Arrays.copyOf(qy[track], capacity);
+		}
+		for (int i = 0; i < n; i++) {
+			Object e = entities.get(i);
+			refs[track][i] = e;
+			sprites[track][i] = spriteOf(e);
+			qx[track][i] = quantize(xOf(e));
+			qy[track][i] = quantize(yOf(e));
+		}
+		//let go of entities that have left the world
+		Arrays.fill(refs[track], n, Math.max(n, counts[track]), null);
+		counts[track] = n;
+	}
+
+	/**
+	 * Returns the sequence number the next frame will have.
+	 *
+	 * @return the sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Converts a pixel coordinate to wire units, rounding to nearest.
+	 */
+	static int quantize(int pixels) {
+		return Math.floorDiv(pixels + QUANTUM / 2, QUANTUM);
+	}
+
+	/**
+	 * Returns the sprite of a fruit or bomb.
+	 */
+	private static int spriteOf(Object e) {
+		return e instanceof Fruit ? ((Fruit) e).getSpriteId() : ((Bomb) e).getSpriteId();
+	}
+
+	/**
+	 * Returns the x-coordinate of a fruit or bomb.
+	 */
+	private static int xOf(Object e) {
+		return e instanceof Fruit ? ((Fruit) e).getX() : ((Bomb) e).getX();
+	}
+
+	/**
+	 * Returns the y-coordinate of a fruit or bomb.
+	 */
+	private static int yOf(Object e) {
+		return e instanceof Fruit ? ((Fruit) e).getY() : ((Bomb) e).getY();
+	}
+
+	/**
+	 * Writes a non-negative int in seven-bit groups, low group first.
+	 */
+	static void putVarint(ByteBuffer out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	/**
+	 * Writes a non-negative long in seven-bit groups, low group first.
+	 */
+	static void putVarLong(ByteBuffer out, long value) {
+		while ((value & ~0x7fL) != 0) {
+			out.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	/**
+	 * Writes a signed int so small values of either sign take one byte.
+	 */
+	static void putZigzag(ByteBuffer out, int value) {
+		putVarint(out, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Reads a varint written by {@link #putVarint(ByteBuffer, int)}.
+	 */
+	static int getVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Reads a varint written by {@link #putVarLong(ByteBuffer, long)}.
+	 */
+	static long getVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Reads a signed int written by {@link #putZigzag(ByteBuffer, int)}.
+	 */
+	static int getZigzag(ByteBuffer in) {
+		int value = getVarint(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,425 @@
+package sliceit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The SpectatorServer thread streams the running game to any number of
+ * viewers over TCP, such as the screens in a lobby.
+ * <p>
+ * Every tick the simulation thread calls {@link #publish(GameWorld)}, which
+ * encodes the world with a {@link SpectatorEncoder} into a new immutable frame,
+ * puts it in a ring of the last {@link #RING} frames and wakes the server. The
+ * simulation never touches a socket, so the cabinet's frame time does not
+ * depend on how many viewers there are or how slow they are. Every
+ * {@link #KEY_INTERVAL} frames is a key frame, so a viewer can start watching
+ * within half a second. While no viewer is connected nothing is encoded at
+ * all, and the first frame after a viewer connects is a key frame.
+ * </p>
+ * <p>
+ * The server thread uses a single selector for all viewers. Each viewer has
+ * the sequence number of the next frame it should get and, while a frame is
+ * only partly written, its own view of that frame's bytes; a viewer only asks
+ * to be woken for writing while its socket is full. A viewer that falls
+ * {@link #MAX_BEHIND} frames behind, or whose next frame has already left the
+ * ring, does not hold anything up: once its current frame is finished it jumps
+ * straight to the latest key frame and the frames in between are counted as
+ * skipped.
+ * </p>
+ */
+public class SpectatorServer extends Thread {
+	/** Number of recent frames kept for viewers that are behind. */
+	public static final int RING = 64;
+	/** Number of frames between key frames (half a second). */
+	public static final int KEY_INTERVAL = 25;
+	/** How many frames a viewer may fall behind before it is skipped to the latest key frame. */
+	public static final int MAX_BEHIND = 25;
+	/** Kernel send buffer of each viewer, in bytes; a fixed size keeps a stalled viewer from hoarding frames. */
+	private static final int SEND_BUFFER = 64 * 1024;
+	/** How long the selector waits when nothing happens, in milliseconds. */
+	private static final long IDLE_MILLIS = 100;
+
+	/**
+	 * A frame that has been published, with its sequence number so a viewer can
+	 * tell whether the ring slot still holds the frame it wants.
+	 */
+	private static final class Frame {
+		/** Sequence number of the frame. */
+		final long sequence;
+		/** The encoded frame, length first. */
+		final byte[] bytes;
+
+		/**
+		 * Constructs a Frame.
+		 *
+		 * @param sequence the sequence number
+		 * @param bytes    the encoded frame
+		 */
+		Frame(long sequence, byte[] bytes) {
+			this.sequence = sequence;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * The state of one connected viewer, touched only by the server thread.
+	 */
+	private static final class Viewer {
+		/** The viewer's connection. */
+		final SocketChannel channel;
+		/** Sequence number of the next frame to send, or -1 to start at the next key frame. */
+		long next = -1;
+		/** The rest of the frame being written, or null between frames. */
+		ByteBuffer sending;
+
+		/**
+		 * Constructs a Viewer.
+		 *
+		 * @param channel the viewer's connection
+		 */
+		Viewer(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	/** The listening socket. */
+	private final ServerSocketChannel server;
+	/** Selector for the listening socket and every viewer. */
+	private final Selector selector;
+	/** The most recent frames, by sequence number modulo {@link #RING}. */
+	private final AtomicReferenceArray<Frame> frames = new AtomicReferenceArray<>(RING);
+	/** Turns the world into frames; used only by the simulation thread. */
+	private final SpectatorEncoder encoder = new SpectatorEncoder();
+	/** Reused buffer frames are encoded into before being copied. */
+	private ByteBuffer scratch = ByteBuffer.allocate(16 * 1024);
+	/** True while frames are being skipped for want of viewers; used only by the simulation thread. */
+	private boolean idle = true;
+	/** Connected viewers. */
+	private final List<Viewer> viewers = new ArrayList<>();
+	/** Reused buffer for whatever viewers send, which is ignored. */
+	private final ByteBuffer discard = ByteBuffer.allocate(256);
+	/** Sequence number of the latest frame, or -1 before the first. */
+	private volatile long latest = -1;
+	/** Sequence number of the latest key frame, or -1 before the first. */
+	private volatile long latestKey = -1;
+	/** Seconds left in the round, sent with every frame. */
+	private volatile int timeRemaining;
+	/** Number of frames published. */
+	private volatile long published;
+	/** Time the simulation thread has spent publishing, in nanoseconds. */
+	private volatile long publishNanos;
+	/** Number of viewers connected. */
+	private volatile int viewerCount;
+	/** Number of frames written out in full, over all viewers. */
+	private volatile long framesSent;
+	/** Number of bytes written, over all viewers. */
+	private volatile long bytesSent;
+	/** Number of frames viewers missed because they were too slow. */
+	private volatile long skipped;
+	/** Flag telling the loop to keep going. */
+	private volatile boolean running = true;
+
+	/**
+	 * Constructs a SpectatorServer listening on the given port. The thread does
+	 * nothing until started.
+	 *
+	 * @param port the TCP port, or 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public SpectatorServer(int port) throws IOException {
+		super("SliceIt-Spectators");
+		setDaemon(true);
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Encodes the world as the next frame and hands it to the server thread.
+	 * Called by the thread that owns the world, once per tick. Does nothing
+	 * while no viewer is connected.
+	 *
+	 * @param world the world to broadcast
+	 */
+	public void publish(GameWorld world) {
+		if (viewerCount == 0) {
+			if (!idle) {
+				//the frames kept are out of date, so a viewer that connects waits for the next key frame
+				latestKey = -1;
+				idle = true;
+			}
+			return;
+		}
+		long start = System.nanoTime();
+		long sequence = encoder.getSequence();
+		//the deltas after a gap would be against frames nobody has seen
+		boolean key = idle || sequence % KEY_INTERVAL == 0;
+		idle = false;
+		while (true) {
+			scratch.clear();
+			try {
+				encoder.encode(world, timeRemaining, key, scratch);
+				break;
+			} catch (BufferOverflowException e) {
+				scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+			}
+		}
+		frames.set((int) (sequence % RING), new Frame(sequence, Arrays.copyOf(scratch.array(), scratch.position())));
+		if (key) {
+			latestKey = sequence;
+		}
+		latest = sequence;
+		published++;
+		publishNanos += System.nanoTime() - start;
+		selector.wakeup();
+	}
+
+	/**
+	 * Sets the seconds left in the round, sent with every following frame.
+	 *
+	 * @param timeRemaining the seconds left
+	 */
+	public void setTimeRemaining(int timeRemaining) {
+		this.timeRemaining = timeRemaining;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				selector.select(IDLE_MILLIS);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else if (key.isReadable()) {
+						read(key);
+					}
+				}
+				//every wake up may be a new frame, so give every viewer what it can take
+				for (int i = viewers.size() - 1; i >= 0; i--) {
+					Viewer viewer = viewers.get(i);
+					try {
+						pump(viewer);
+					} catch (IOException e) {
+						close(viewer);
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (int i = viewers.size() - 1; i >= 0; i--) {
+				close(viewers.get(i));
+			}
+			try {
+				server.close();
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Accepts every waiting viewer.
+	 */
+	private void accept() throws IOException {
+		for (SocketChannel channel = server.accept(); channel != null; channel = server.accept()) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setSendBufferSize(SEND_BUFFER);
+			Viewer viewer = new Viewer(channel);
+			//viewers send nothing, but reading tells us when they hang up
+			channel.register(selector, SelectionKey.OP_READ, viewer);
+			viewers.add(viewer);
+			viewerCount = viewers.size();
+		}
+	}
+
+	/**
+	 * Reads and ignores whatever a viewer sent, closing it once it hangs up.
+	 */
+	private void read(SelectionKey key) {
+		Viewer viewer = (Viewer) key.attachment();
+		try {
+			discard.clear();
+			if (viewer.channel.read(discard) < 0) {
+				close(viewer);
+			}
+		} catch (IOException e) {
+			close(viewer);
+		}
+	}
+
+	/**
+	 * Writes frames to a viewer until it is up to date or its socket is full.
+	 */
+	private void pump(Viewer viewer) throws IOException {
+		while (true) {
+			if (viewer.sending == null) {
+				Frame frame = nextFrame(viewer);
+				if (frame == null) {
+					break;
+				}
+				viewer.sending = ByteBuffer.wrap(frame.bytes);
+				viewer.next = frame.sequence + 1;
+			}
+			bytesSent += viewer.channel.write(viewer.sending);
+			if (viewer.sending.hasRemaining()) {
+				break;
+			}
+			viewer.sending = null;
+			framesSent++;
+		}
+		//only ask to hear about free space while there is something left to write
+		SelectionKey key = viewer.channel.keyFor(selector);
+		int ops = viewer.sending == null ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+		if (key != null && key.isValid() && key.interestOps() != ops) {
+			key.interestOps(ops);
+		}
+	}
+
+	/**
+	 * Picks the next frame for a viewer, skipping it ahead to the latest key frame
+	 * if it is new or has fallen too far behind.
+	 *
+	 * @return the frame, or null if the viewer is up to date
+	 */
+	private Frame nextFrame(Viewer viewer) {
+		long newest = latest;
+		if (viewer.next >= 0 && viewer.next > newest) {
+			return null;
+		}
+		Frame frame = null;
+		if (viewer.next >= 0 && newest - viewer.next < MAX_BEHIND) {
+			frame = frames.get((int) (viewer.next % RING));
+			if (frame != null && frame.sequence != viewer.next) {
+				frame = null;
+			}
+		}
+		if (frame == null) {
+			long key = latestKey;
+			if (key < 0) {
+				return null;
+			}
+			if (viewer.next >= 0) {
+				skipped += key - viewer.next;
+			}
+			frame = frames.get((int) (key % RING));
+			if (frame == null || frame.sequence != key) {
+				return null;
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * Disconnects a viewer.
+	 */
+	private void close(Viewer viewer) {
+		viewers.remove(viewer);
+		viewerCount = viewers.size();
+		try {
+			viewer.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops the server, disconnects every viewer and waits for the thread to
+	 * finish.
+	 */
+	public void halt() {
+		running = false;
+		selector.wakeup();
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 *
+	 * @return the local port
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the number of viewers connected.
+	 *
+	 * @return the number of viewers
+	 */
+	public int getViewerCount() {
+		return viewerCount;
+	}
+
+	/**
+	 * Returns the number of frames published.
+	 *
+	 * @return the number of frames
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * Returns the average time the publishing thread spent encoding a frame.
+	 *
+	 * @return the average time in nanoseconds, or 0 before the first frame
+	 */
+	public long getAveragePublishNanos() {
+		long n = published;
+		return n == 0 ? 0 : publishNanos / n;
+	}
+
+	/**
+	 * Returns the number of frames written out in full, over all viewers.
+	 *
+	 * @return the number of frames
+	 */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/**
+	 * Returns the number of bytes written, over all viewers.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of frames slow viewers were skipped past.
+	 *
+	 * @return the number of frames
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+}
@@ -0,0 +1,220 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * The SpectatorViewer thread follows a game streamed by a
+ * {@link SpectatorServer} and hands each decoded frame to a
+ * {@link SnapshotBuffer}, as the simulation thread does for the cabinet.
+ * <p>
+ * Run {@code java sliceit.SliceItController --watch host:port} to open a
+ * window that draws the stream with the game's own sprites, background and
+ * HUD. The stream carries no particles, so sliced fruit is shown whole in its
+ * sliced sprite and explosions are not shown.
+ * </p>
+ */
+public class SpectatorViewer extends Thread {
+	/** Largest frame accepted, in bytes; anything longer means the stream is garbled. */
+	private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+	/** Connection to the server. */
+	private final SocketChannel channel;
+	/** Rebuilds the world from the frames. */
+	private final SpectatorDecoder decoder = new SpectatorDecoder();
+	/** Where decoded frames are published. */
+	private final SnapshotBuffer snapshots;
+	/** Called after every published snapshot, typically to request a repaint. */
+	private final Runnable onFrame;
+	/** Reused buffer holding a frame's length. */
+	private final ByteBuffer header = ByteBuffer.allocate(4);
+	/** Reused buffer holding a frame, grown as needed. */
+	private ByteBuffer body = ByteBuffer.allocate(16 * 1024);
+	/** Number of frames received. */
+	private volatile long frames;
+	/** Seconds left in the round in the latest frame. */
+	private volatile int timeRemaining;
+	/** Flag telling the loop to keep going. */
+	private volatile boolean running = true;
+
+	/**
+	 * Connects to a server. The thread does nothing until started.
+	 *
+	 * @param address   the server's address
+	 * @param snapshots buffer receiving a snapshot after each applied frame
+	 * @param onFrame   callback run after each published snapshot
+	 * @throws IOException if the server cannot be reached
+	 */
+	public SpectatorViewer(InetSocketAddress address, SnapshotBuffer snapshots, Runnable onFrame) throws IOException {
+		super("SliceIt-Viewer");
+		setDaemon(true);
+		this.snapshots = snapshots;
+		this.onFrame = onFrame;
+		channel = SocketChannel.open(address);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				readFully(header.clear());
+				int length = header.getInt(0);
+				if (length <= 0 || length > MAX_FRAME) {
+					throw new IOException("bad frame length " + length);
+				}
+				if (body.capacity() < length) {
+					body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+				}
+				body.clear().limit(length);
+				readFully(body);
+				body.flip();
+				frames++;
+				if (!decoder.apply(body)) {
+					continue;
+				}
+				timeRemaining = decoder.getTimeRemaining();
+				WorldSnapshot back = snapshots.beginWrite();
+				if (back != null) {
+					decoder.writeTo(back);
+					snapshots.publish();
+				}
+				onFrame.run();
+			}
+		} catch (IOException e) {
+			//halting closes the channel under the read, which is not worth reporting
+			if (running) {
+				e.printStackTrace();
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Reads until the buffer is full.
+	 */
+	private void readFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("server closed the stream");
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	private void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Disconnects and waits for the thread to finish, after which the decoder
+	 * may be read safely.
+	 */
+	public void halt() {
+		running = false;
+		close();
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of frames received, including those ignored while
+	 * waiting for a key frame.
+	 *
+	 * @return the number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Returns the seconds left in the round in the latest frame.
+	 *
+	 * @return the seconds left
+	 */
+	public int getTimeRemaining() {
+		return timeRemaining;
+	}
+
+	/**
+	 * Returns the decoder. Only safe to read once the thread has finished.
+	 *
+	 * @return the decoder
+	 */
+	SpectatorDecoder getDecoder() {
+		return decoder;
+	}
+
+	/**
+	 * Opens a window following the game streamed from the given address.
+	 *
+	 * @param args the server's host:port
+	 * @throws IOException if the sprites cannot be loaded or the server cannot be
+	 *                     reached
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: --watch <host:port>");
+			return;
+		}
+		InetSocketAddress address = LockstepSession.parseAddress(args[0]);
+		TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+		BufferedImage background = null;
+		try {
+			background = AssetBundle.readImage("images/playBackgrnd.png");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		GameRenderer renderer = new GameRenderer(background, new SpriteBatch(atlas),
+				new HudRenderer(new Font("Arial Black", Font.BOLD, 24), Color.black));
+		SnapshotBuffer snapshots = new SnapshotBuffer();
+		SpectatorViewer[] viewer = new SpectatorViewer[1];
+		JPanel panel = new JPanel() {
+			@Override
+			protected void paintComponent(Graphics g) {
+				super.paintComponent(g);
+				WorldSnapshot snapshot = snapshots.acquire();
+				int points;
+				try {
+					renderer.drawScene((Graphics2D) g, getWidth(), getHeight(), snapshot);
+					points = snapshot.getPoints();
+				} finally {
+					snapshots.release();
+				}
+				renderer.drawHud((Graphics2D) g, points, viewer[0] == null ? 0 : viewer[0].getTimeRemaining());
+			}
+		};
+		panel.setPreferredSize(new Dimension(500, 500));
+		viewer[0] = new SpectatorViewer(address, snapshots, panel::repaint);
+		SwingUtilities.invokeLater(() -> {
+			JFrame frame = new JFrame("SliceIt - watching " + args[0]);
+			frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+			frame.getContentPane().add(panel);
+			frame.pack();
+			frame.setVisible(true);
+		});
+		viewer[0].start();
+	}
+}
@@ -0,0 +1,179 @@
+package sliceit;
+
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The SpriteAnimator class plays frame-by-frame sprite animations, such as the
+ * bomb explosion, from a run of consecutive atlas sprites.
+ * <p>
+ * Which frame to show is worked out from how much time has passed since the
+ * animation started, so an animation always takes the same time to play no
+ * matter how often it is drawn; a busy event thread just shows fewer of its
+ * frames. Any number of animations can play at once. Drawing never ends an
+ * animation: the owner calls {@link #update(long)} from a timer, so an
+ * animation finishes and its callback runs on time even when the window is
+ * never painted, and uses {@link #getBounds(TextureAtlas, Rectangle)} to
+ * repaint only the area the animations cover.
+ * </p>
+ */
+public class SpriteAnimator {
+	/** Atlas id of the first frame of each animation. */
+	private int[] firstSprite = new int[4];
+	/** Number of frames of each animation. */
+	private int[] frameCount = new int[4];
+	/** How long each frame of each animation is shown, in nanoseconds. */
+	private long[] frameNanos = new long[4];
+	/** When each animation started, from System.nanoTime(). */
+	private long[] startNanos = new long[4];
+	/** Where each animation is drawn. */
+	private int[] xs = new int[4], ys = new int[4];
+	/** Called on the event thread once each animation has finished, or null. */
+	private Runnable[] onFinished = new Runnable[4];
+	/** Number of animations playing. */
+	private int count;
+
+	/**
+	 * Starts an animation.
+	 *
+	 * @param sprite    the atlas id of the first frame; the others follow it
+	 * @param frames    the number of frames
+	 * @param nanosEach how long each frame is shown, in nanoseconds
+	 * @param x         the x-coordinate of the frames' top left corner
+	 * @param y         the y-coordinate of the frames' top left corner
+	 * @param now       the current time from System.nanoTime()
+	 * @param whenDone  run on the event thread after the last frame, or null
+	 */
+	public void play(int sprite, int frames, long nanosEach, int x, int y, long now, Runnable whenDone) {
+		if (count == firstSprite.length) {
+			int capacity = count * 2;
+			firstSprite = Arrays.copyOf(firstSprite, capacity);
+			frameCount = Arrays.copyOf(frameCount, capacity);
+			frameNanos = Arrays.copyOf(frameNanos, capacity);
+			startNanos = Arrays.copyOf(startNanos, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			onFinished = Arrays.copyOf(onFinished, capacity);
+		}
+		firstSprite[count] = sprite;
+		frameCount[count] = frames;
+		frameNanos[count] = nanosEach;
+		startNanos[count] = now;
+		xs[count] = x;
+		ys[count] = y;
+		onFinished[count] = whenDone;
+		count++;
+	}
+
+	/**
+	 * Draws the current frame of every animation. Animations that have run past
+	 * their last frame are not drawn, but are only removed by
+	 * {@link #update(long)}.
+	 *
+	 * @param g2d       the graphics context to draw on
+	 * @param batch     the sprite batch to draw with
+	 * @param now       the current time from System.nanoTime()
+	 * @param frameStep only every frameStep-th frame is shown; 1 shows them all
+	 */
+	public void draw(Graphics2D g2d, SpriteBatch batch, long now, int frameStep) {
+		for (int i = 0; i < count; i++) {
+			int frame = frameAt(i, now);
+			if (frame < 0) {
+				continue;
+			}
+			frame -= frame % frameStep;
+			batch.draw(g2d, firstSprite[i] + frame, xs[i], ys[i]);
+		}
+	}
+
+	/**
+	 * Removes the animations that have finished, handing their callbacks to the
+	 * event thread.
+	 *
+	 * @param now the current time from System.nanoTime()
+	 * @return true if any animation finished
+	 */
+	public boolean update(long now) {
+		boolean finished = false;
+		int i = 0;
+		while (i < count) {
+			if (frameAt(i, now) < 0) {
+				finish(i);
+				finished = true;
+			} else {
+				i++;
+			}
+		}
+		return finished;
+	}
+
+	/**
+	 * Returns which frame an animation is on, or -1 once it has finished.
+	 */
+	private int frameAt(int i, long now) {
+		long frame = Math.max(0, now - startNanos[i]) / frameNanos[i];
+		return frame < frameCount[i] ? (int) frame : -1;
+	}
+
+	/**
+	 * Removes a finished animation by moving the last one into its place.
+	 */
+	private void finish(int i) {
+		Runnable whenDone = onFinished[i];
+		count--;
+		firstSprite[i] = firstSprite[count];
+		frameCount[i] = frameCount[count];
+		frameNanos[i] = frameNanos[count];
+		startNanos[i] = startNanos[count];
+		xs[i] = xs[count];
+		ys[i] = ys[count];
+		onFinished[i] = onFinished[count];
+		onFinished[count] = null;
+		if (whenDone != null) {
+			//run after the caller is done with the animator, never in the middle of it
+			EventQueue.invokeLater(whenDone);
+		}
+	}
+
+	/**
+	 * Works out the smallest rectangle covering every playing animation.
+	 *
+	 * @param atlas  the atlas the frames come from, for their sizes
+	 * @param bounds set to the covered area
+	 * @return true if any animation is playing; false if bounds is unchanged
+	 */
+	public boolean getBounds(TextureAtlas atlas, Rectangle bounds) {
+		if (count == 0) {
+			return false;
+		}
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			left = Math.min(left, xs[i]);
+			top = Math.min(top, ys[i]);
+			right = Math.max(right, xs[i] + atlas.getCellWidth(firstSprite[i]));
+			bottom = Math.max(bottom, ys[i] + atlas.getCellHeight(firstSprite[i]));
+		}
+		bounds.setBounds(left, top, right - left, bottom - top);
+		return true;
+	}
+
+	/**
+	 * Stops every animation without running their callbacks.
+	 */
+	public void clear() {
+		Arrays.fill(onFinished, null);
+		count = 0;
+	}
+
+	/**
+	 * Returns the number of animations playing.
+	 *
+	 * @return the animation count
+	 */
+	public int getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,87 @@
+package sliceit;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * The SpriteBatch class draws sprites by id from a {@link TextureAtlas}.
+ * <p>
+ * Every sprite comes from the same packed image, so a whole frame of fruits,
+ * bombs and explosions is drawn from one source surface in a single pass
+ * instead of switching between separate sheets.
+ * </p>
+ */
+public class SpriteBatch {
+	/** The atlas the sprites are drawn from; replaced whole when the sprites are reloaded. */
+	private volatile TextureAtlas atlas;
+
+	/**
+	 * Constructs a SpriteBatch drawing from the given atlas.
+	 *
+	 * @param atlas the packed sprites
+	 */
+	public SpriteBatch(TextureAtlas atlas) {
+		this.atlas = atlas;
+	}
+
+	/**
+	 * Draws a run of sprites in order.
+	 *
+	 * @param g2d   the graphics context to draw on
+	 * @param ids   the sprite id of each sprite
+	 * @param xs    the x-coordinate of each sprite
+	 * @param ys    the y-coordinate of each sprite
+	 * @param count how many entries of the arrays to draw
+	 */
+	public void draw(Graphics2D g2d, int[] ids, int[] xs, int[] ys, int count) {
+		//read the atlas once so a reload cannot mix two atlases in one run
+		TextureAtlas current = atlas;
+		BufferedImage sheet = current.getImage();
+		for (int i = 0; i < count; i++) {
+			drawCell(g2d, current, sheet, ids[i], xs[i], ys[i]);
+		}
+	}
+
+	/**
+	 * Draws a single sprite.
+	 *
+	 * @param g2d the graphics context to draw on
+	 * @param id  the sprite id
+	 * @param x   the x-coordinate of the sprite's top left corner
+	 * @param y   the y-coordinate of the sprite's top left corner
+	 */
+	public void draw(Graphics2D g2d, int id, int x, int y) {
+		TextureAtlas current = atlas;
+		drawCell(g2d, current, current.getImage(), id, x, y);
+	}
+
+	/**
+	 * Copies one atlas cell to the screen.
+	 */
+	private static void drawCell(Graphics2D g2d, TextureAtlas atlas, BufferedImage sheet, int id, int x, int y) {
+		int sx = atlas.getCellX(id);
+		int sy = atlas.getCellY(id);
+		int w = atlas.getCellWidth(id);
+		int h = atlas.getCellHeight(id);
+		g2d.drawImage(sheet, x, y, x + w, y + h, sx, sy, sx + w, sy + h, null);
+	}
+
+	/**
+	 * Returns the atlas this batch draws from.
+	 *
+	 * @return the atlas
+	 */
+	public TextureAtlas getAtlas() {
+		return atlas;
+	}
+
+	/**
+	 * Draws from another atlas from now on. The new atlas must give every
+	 * sprite the same id, see {@link TextureAtlas#hasSameIds(TextureAtlas)}.
+	 *
+	 * @param atlas the new packed sprites
+	 */
+	public void setAtlas(TextureAtlas atlas) {
+		this.atlas = atlas;
+	}
+}
@@ -0,0 +1,280 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * The StartupLoader thread decodes what the game needs while Swing is still
+ * starting up, so the welcome screen can be painted as soon as the window
+ * exists.
+ * <p>
+ * It is started first thing in main, before the event thread builds the
+ * window. It decodes, in the order they are needed: the welcome image, the
+ * menu button images, the sprite sheets and atlas, the play background and
+ * the HUD glyphs, and finally loads the audio providers so the music starts
+ * quickly. Images come from the {@link AssetBundle} when it is current for
+ * them; otherwise the first decode also loads the ImageIO plugins. The HUD
+ * loads the font, one of the slowest first uses in the JDK. The
+ * controller asks for each result when it needs it and only waits if that
+ * part is not finished yet.
+ * </p>
+ * <p>
+ * It also measures time to first paint: the welcome panel calls
+ * {@link #markFirstPaint()} when it is first painted, which records the time
+ * since the JVM started. With {@code --startup-times},
+ * {@link #reportFirstPaint()} then prints it and appends it to
+ * startup-times.txt on a thread of its own, off the event thread. With
+ * {@code --startup-train} the game quits right after that first paint and
+ * after everything here has loaded, which is how startup.sh records the
+ * classes for its class data sharing archive.
+ * </p>
+ */
+public class StartupLoader extends Thread {
+	/** File each launch's time to first paint is appended to. */
+	private static final String TIMES_FILE = "startup-times.txt";
+	/** Milliseconds from JVM start to the first paint of the welcome screen, or -1 before it. */
+	private static volatile long firstPaintMillis = -1;
+
+	/** Decodes the welcome image. */
+	private final FutureTask<BufferedImage> welcome;
+	/** Decodes the menu button images, by path. */
+	private final FutureTask<Map<String, BufferedImage>> buttons;
+	/** Decodes the sprite sheets into the sheet cache and packs the atlas. */
+	private final FutureTask<TextureAtlas> atlas;
+	/** Decodes the play background. */
+	private final FutureTask<BufferedImage> background;
+	/** Renders the HUD glyphs, loading the font. */
+	private final FutureTask<HudRenderer> hud;
+	/** Loads the audio providers. */
+	private final FutureTask<Void> audio;
+	/** Sprite sheets decoded for the atlas, by the path given in the layout file. */
+	private final Map<String, BufferedImage> sheets = new HashMap<>();
+
+	/**
+	 * Constructs a StartupLoader. Nothing is loaded until the thread is started
+	 * or run.
+	 *
+	 * @param welcomePath    path of the welcome screen image
+	 * @param buttonPaths    paths of the menu button images
+	 * @param specPath       path of the sprite layout file
+	 * @param backgroundPath path of the play background
+	 */
+	public StartupLoader(String welcomePath, String[] buttonPaths, String specPath, String backgroundPath) {
+		super("SliceIt-Startup");
+		setDaemon(true);
+		welcome = new FutureTask<>(() -> readImage(welcomePath));
+		buttons = new FutureTask<>(() -> {
+			Map<String, BufferedImage> images = new HashMap<>();
+			for (String path : buttonPaths) {
+				images.put(path, readImage(path));
+			}
+			return images;
+		});
+		atlas = new FutureTask<>(() -> TextureAtlas.load(specPath, sheets));
+		background = new FutureTask<>(() -> readImage(backgroundPath));
+		hud = new FutureTask<>(() -> new HudRenderer(new Font("Arial Black", Font.BOLD, 24), Color.black));
+		audio = new FutureTask<>(() -> {
+			AudioSystem.getMixerInfo();
+			AudioSystem.getAudioFileTypes();
+			return null;
+		});
+	}
+
+	@Override
+	public void run() {
+		welcome.run();
+		buttons.run();
+		atlas.run();
+		background.run();
+		hud.run();
+		audio.run();
+	}
+
+	/**
+	 * Decodes an image, reporting and returning null if it cannot be read.
+	 */
+	private static BufferedImage readImage(String path) {
+		try {
+			return AssetBundle.readImage(path);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Waits for a task and returns its result.
+	 */
+	private static <T> T await(FutureTask<T> task) throws IOException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the welcome image, waiting for it if needed.
+	 *
+	 * @return the image, or null if it could not be read
+	 */
+	public BufferedImage getWelcomeImage() {
+		try {
+			return await(welcome);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a menu button image, waiting for the buttons if needed.
+	 *
+	 * @param path one of the paths given to the constructor
+	 * @return the image, or null if it could not be read
+	 */
+	public BufferedImage getButtonImage(String path) {
+		try {
+			return await(buttons).get(path);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the sprite atlas, waiting for it if needed.
+	 *
+	 * @return the packed atlas
+	 * @throws IOException if the layout file or a sheet could not be read
+	 */
+	public TextureAtlas getAtlas() throws IOException {
+		return await(atlas);
+	}
+
+	/**
+	 * Returns the sheets the atlas was packed from, so they need not be decoded
+	 * again when one of the others changes. Waits for the atlas if needed.
+	 *
+	 * @return the decoded sheets by the path given in the layout file
+	 * @throws IOException if the layout file or a sheet could not be read
+	 */
+	public Map<String, BufferedImage> getSheets() throws IOException {
+		await(atlas);
+		return sheets;
+	}
+
+	/**
+	 * Returns the play background, waiting for it if needed.
+	 *
+	 * @return the image, or null if it could not be read
+	 */
+	public BufferedImage getBackground() {
+		try {
+			return await(background);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the HUD renderer, waiting for it if needed.
+	 *
+	 * @return the HUD renderer
+	 */
+	public HudRenderer getHud() {
+		try {
+			return await(hud);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Waits until everything has been loaded.
+	 */
+	public void awaitAll() {
+		try {
+			await(audio);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the time the JVM started.
+	 *
+	 * @return the start time in milliseconds since the epoch
+	 */
+	public static long getJvmStartMillis() {
+		return ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+	/**
+	 * Records the first paint of the welcome screen. Only the first call counts;
+	 * it records the time since the JVM started and nothing else, since it is
+	 * called while painting.
+	 *
+	 * @return true if this was the first call
+	 */
+	public static synchronized boolean markFirstPaint() {
+		if (firstPaintMillis >= 0) {
+			return false;
+		}
+		firstPaintMillis = System.currentTimeMillis() - getJvmStartMillis();
+		return true;
+	}
+
+	/**
+	 * Prints the time to first paint and appends it to startup-times.txt on a
+	 * new thread, so the event thread never waits for the file.
+	 *
+	 * @return the started thread, which can be joined to wait for the write
+	 */
+	public static Thread reportFirstPaint() {
+		long millis = firstPaintMillis;
+		Thread report = new Thread(() -> {
+			System.out.println("First paint " + millis + " ms after JVM start");
+			try (PrintWriter out = new PrintWriter(new FileWriter(TIMES_FILE, true))) {
+				out.println(new Date() + " " + millis);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}, "SliceIt-StartupTimes");
+		report.start();
+		return report;
+	}
+
+	/**
+	 * Returns the time from JVM start to the first paint of the welcome screen.
+	 *
+	 * @return the time in milliseconds, or -1 if there has been no paint yet
+	 */
+	public static long getFirstPaintMillis() {
+		return firstPaintMillis;
+	}
+}
@@ -0,0 +1,400 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The StressTest class is a benchmark mode that runs the real simulation and
+ * renderer with far more fruits and bombs than a normal round.
+ * <p>
+ * For each level (1,000, 10,000 and 100,000 live entities by default) it
+ * raises the spawn rate until about that many objects are on screen, lets a
+ * bot slice through them, and measures ticks per second, frames per second,
+ * allocation rate and garbage collection. The simulation is paced at the
+ * normal 50 ticks per second, as in the game, and the time each tick takes is
+ * measured to give the tick rate the simulation could reach flat out. The
+ * results are written to a text file. A level at or below the gate size that
+ * cannot keep up with 50 ticks and 50 frames per second makes the run exit
+ * with status 1, so the mode can be used as a scaling regression check.
+ * </p>
+ * <p>
+ * Run it with {@code java sliceit.SliceItController --stress [options]} or
+ * {@code java sliceit.StressTest [options]}. Options are
+ * {@code --levels 1000,10000,100000}, {@code --seconds 5},
+ * {@code --out stress-results.txt} and {@code --gate 1000}. Frames are drawn
+ * at full quality unless {@code --quality} gives a fixed level (0 to 3) or
+ * {@code adaptive} to let a {@link QualityController} pick. The slicing is
+ * done by a bot sweeping across the screen, or with {@code --bot predict} by a
+ * {@link SliceBot}, whose planning time is then reported for each level.
+ * </p>
+ */
+public class StressTest {
+	/** Width and height of the offscreen frame, the same as the game window. */
+	private static final int SIZE = 500;
+	/** Seed used for every level so runs are comparable. */
+	private static final long SEED = 42L;
+	/** Ticks and frames per second a gated level must reach to pass. */
+	private static final double REAL_TIME_RATE = 1_000_000_000.0 / SimulationThread.TICK_NANOS;
+
+	/** The sprites shared by every level. */
+	private final TextureAtlas atlas;
+	/** Draws the offscreen frames. */
+	private final GameRenderer renderer;
+	/** Difficulty settings the levels are scaled from. */
+	private final DifficultyConfig baseConfig;
+	/** Quality used for the offscreen frames, or null for full quality. */
+	private QualityController quality;
+	/** True to slice with a SliceBot instead of the sweeping bot. */
+	private boolean predictingBot;
+	/** Used to read per-thread allocation counters, or null if the JVM has none. */
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	/**
+	 * Runs the stress test from the command line.
+	 *
+	 * @param args the options described in the class comment
+	 * @throws IOException if the assets cannot be loaded or the results cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int[] levels = { 1000, 10000, 100000 };
+		int seconds = 5;
+		String out = "stress-results.txt";
+		int gate = 1000;
+		String qualityLevel = null;
+		String bot = "sweep";
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--levels":
+				String[] parts = args[i + 1].split(",");
+				levels = new int[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					levels[j] = Integer.parseInt(parts[j].trim());
+				}
+				break;
+			case "--seconds":
+				seconds = Integer.parseInt(args[i + 1]);
+				break;
+			case "--out":
+				out = args[i + 1];
+				break;
+			case "--gate":
+				gate = Integer.parseInt(args[i + 1]);
+				break;
+			case "--quality":
+				qualityLevel = args[i + 1];
+				break;
+			case "--bot":
+				bot = args[i + 1];
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+
+		StressTest test = new StressTest();
+		if (qualityLevel != null) {
+			test.setQuality(qualityLevel.equals("adaptive") ? -1 : Integer.parseInt(qualityLevel));
+		}
+		test.setPredictingBot(bot.equals("predict"));
+		boolean passed = test.run(levels, seconds, new File(out), gate);
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Constructs a StressTest, loading the same sprites, background and difficulty
+	 * settings as the game.
+	 *
+	 * @throws IOException if the sprites cannot be loaded
+	 */
+	public StressTest() throws IOException {
+		atlas = TextureAtlas.load("images/sprites.txt");
+		BufferedImage background = null;
+		try {
+			background = ImageIO.read(new File("images/playBackgrnd.png"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		HudRenderer hud = new HudRenderer(new Font("Arial Black", Font.BOLD, 24), Color.black);
+		renderer = new GameRenderer(background, new SpriteBatch(atlas), hud);
+
+		DifficultyConfig config;
+		try {
+			config = DifficultyConfig.load("config/difficulty.properties");
+		} catch (IOException e) {
+			config = new DifficultyConfig();
+		}
+		baseConfig = config;
+
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threadBean = null;
+		}
+	}
+
+	/**
+	 * Draws the offscreen frames through a quality controller.
+	 *
+	 * @param level the fixed quality level, or -1 to adapt to the frame times
+	 */
+	public void setQuality(int level) {
+		quality = new QualityController(SimulationThread.TICK_NANOS);
+		quality.setFixedLevel(level);
+		renderer.setQuality(quality);
+	}
+
+	/**
+	 * Chooses which bot slices during the levels.
+	 *
+	 * @param predicting true for a {@link SliceBot}; false for the sweeping bot
+	 */
+	public void setPredictingBot(boolean predicting) {
+		predictingBot = predicting;
+	}
+
+	/**
+	 * Runs every level and writes the results.
+	 *
+	 * @param levels  target numbers of live entities
+	 * @param seconds how long each level is measured for
+	 * @param out     the results file
+	 * @param gate    levels up to this size must run in real time
+	 * @return true if every gated level kept up
+	 * @throws IOException if the results cannot be written
+	 */
+	public boolean run(int[] levels, int seconds, File out, int gate) throws IOException {
+		boolean passed = true;
+		try (PrintWriter writer = new PrintWriter(new FileWriter(out))) {
+			writer.println("# SliceIt stress test " + new Date() + ", Java " + System.getProperty("java.version")
+					+ ", " + Runtime.getRuntime().availableProcessors() + " cpus, " + seconds + " s per level");
+			writer.println("# target live ticks/s max-ticks/s frames/s alloc-MB/s gc-count gc-ms sliced bombs-hit result");
+			for (int level : levels) {
+				LevelResult r = runLevel(level, seconds);
+				boolean gated = level <= gate;
+				boolean ok = !gated || (r.maxTicksPerSecond >= REAL_TIME_RATE && r.framesPerSecond >= REAL_TIME_RATE);
+				passed &= ok;
+				String line = String.format("%d %d %.1f %.1f %.1f %.2f %d %d %d %d %s", level, r.averageLive,
+						r.ticksPerSecond, r.maxTicksPerSecond, r.framesPerSecond, r.allocatedMegabytesPerSecond,
+						r.gcCount, r.gcMillis, r.sliced, r.bombsHit, gated ? (ok ? "PASS" : "FAIL") : "-");
+				writer.println(line);
+				System.out.println(line);
+				if (r.planTicks > 0) {
+					String plan = String.format("#   bot plan avg %.3f ms, max %.3f ms, %d of %d ticks cut short",
+							r.planAverageNanos / 1e6, r.planMaxNanos / 1e6, r.planTruncated, r.planTicks);
+					writer.println(plan);
+					System.out.println(plan);
+				}
+				writer.flush();
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * Measures one level: the simulation runs at its normal rate on its own thread
+	 * while this thread renders snapshots into an offscreen image as fast as it
+	 * can.
+	 */
+	private LevelResult runLevel(int target, int seconds) {
+		DifficultyConfig config = baseConfig;
+		config.setCountScale(countScaleFor(config, target));
+
+		GameWorld world = new GameWorld(atlas);
+		world.setBombsEndGame(false);
+		world.setSize(SIZE, SIZE);
+		world.reset(config, SEED);
+		DragQueue input = new DragQueue(1024);
+		SnapshotBuffer snapshots = new SnapshotBuffer();
+		SliceBot sliceBot = predictingBot ? new SliceBot(world, input) : null;
+		Runnable bot = predictingBot ? sliceBot : new SweepBot(input);
+		//the live count is read on the simulation thread, which owns the world
+		AtomicLong liveSum = new AtomicLong();
+		AtomicLong liveTicks = new AtomicLong();
+		Runnable onFrame = () -> {
+			liveSum.addAndGet(world.getFruits().size() + world.getBombs().size());
+			liveTicks.incrementAndGet();
+			bot.run();
+		};
+		SimulationThread simulation = new SimulationThread(world, input, snapshots, onFrame, () -> {
+		});
+
+		BufferedImage frame = TextureAtlas.createCompatibleImage(SIZE, SIZE);
+		Graphics2D g2d = frame.createGraphics();
+		simulation.start();
+
+		//warm up: let the JIT settle and the population grow to its steady size
+		long warmUpEnd = System.nanoTime() + 1_000_000_000L;
+		while (System.nanoTime() < warmUpEnd) {
+			renderFrame(g2d, snapshots);
+		}
+
+		long startLive = liveSum.get();
+		long startLiveTicks = liveTicks.get();
+		long startTicks = simulation.getTicks();
+		long startBusy = simulation.getBusyNanos();
+		long startAllocated = allocatedBytes(simulation) + allocatedBytes(Thread.currentThread());
+		long[] startGc = gcTotals();
+		long start = System.nanoTime();
+		long end = start + seconds * 1_000_000_000L;
+		long frames = 0;
+		long now;
+		while ((now = System.nanoTime()) < end) {
+			renderFrame(g2d, snapshots);
+			frames++;
+		}
+		long live = liveSum.get() - startLive;
+		long liveCount = liveTicks.get() - startLiveTicks;
+		double elapsed = (now - start) / 1e9;
+		long ticks = simulation.getTicks() - startTicks;
+		long busy = simulation.getBusyNanos() - startBusy;
+		long allocated = allocatedBytes(simulation) + allocatedBytes(Thread.currentThread()) - startAllocated;
+		long[] endGc = gcTotals();
+		simulation.halt();
+		g2d.dispose();
+
+		LevelResult r = new LevelResult();
+		r.averageLive = liveCount == 0 ? 0 : (int) (live / liveCount);
+		r.ticksPerSecond = ticks / elapsed;
+		r.maxTicksPerSecond = busy == 0 ? 0 : ticks / (busy / 1e9);
+		r.framesPerSecond = frames / elapsed;
+		r.allocatedMegabytesPerSecond = startAllocated < 0 ? -1 : allocated / elapsed / (1024 * 1024);
+		r.gcCount = endGc[0] - startGc[0];
+		r.gcMillis = endGc[1] - startGc[1];
+		r.sliced = world.getPoints() / GameWorld.FRUIT_POINTS;
+		r.bombsHit = world.getBombsHit();
+		if (sliceBot != null) {
+			r.planTicks = sliceBot.getPlannedTicks();
+			r.planTruncated = sliceBot.getTruncatedTicks();
+			r.planAverageNanos = sliceBot.getAveragePlanNanos();
+			r.planMaxNanos = sliceBot.getMaxPlanNanos();
+		}
+		return r;
+	}
+
+	/**
+	 * Draws the latest snapshot into the offscreen frame.
+	 */
+	private void renderFrame(Graphics2D g2d, SnapshotBuffer snapshots) {
+		long start = System.nanoTime();
+		WorldSnapshot snapshot = snapshots.acquire();
+		try {
+			renderer.drawScene(g2d, SIZE, SIZE, snapshot);
+			renderer.drawHud(g2d, snapshot.getPoints(), 60);
+		} finally {
+			snapshots.release();
+			if (quality != null) {
+				quality.recordFrame(System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * Works out the count scale that keeps roughly the target number of objects
+	 * alive. An object launched at speed v against gravity g stays up for about
+	 * 2v/g ticks, so the live count is the spawn rate times that lifetime.
+	 */
+	static double countScaleFor(DifficultyConfig config, int target) {
+		float fruitSpeed = (config.getFruitSpeedMin() + config.getFruitSpeedMax()) / 2;
+		float bombSpeed = (config.getBombSpeedMin() + config.getBombSpeedMax()) / 2;
+		double fruitLife = 2 * fruitSpeed / config.getFruitGravity();
+		double bombLife = 2 * bombSpeed / config.getBombGravity();
+		double livePerScale = config.getFruitRate(0) * fruitLife + config.getBombRate(0) * bombLife;
+		return target / Math.max(livePerScale, 1e-6);
+	}
+
+	/**
+	 * Returns the bytes allocated so far by a thread, or -1 if unknown.
+	 */
+	private long allocatedBytes(Thread thread) {
+		if (threadBean == null) {
+			return -1;
+		}
+		return threadBean.getThreadAllocatedBytes(thread.getId());
+	}
+
+	/**
+	 * Returns the total collection count and time of every garbage collector.
+	 */
+	private static long[] gcTotals() {
+		long count = 0;
+		long millis = 0;
+		List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+		for (GarbageCollectorMXBean bean : beans) {
+			count += Math.max(bean.getCollectionCount(), 0);
+			millis += Math.max(bean.getCollectionTime(), 0);
+		}
+		return new long[] { count, millis };
+	}
+
+	/**
+	 * The numbers measured for one level.
+	 */
+	private static class LevelResult {
+		int averageLive;
+		double ticksPerSecond;
+		double maxTicksPerSecond;
+		double framesPerSecond;
+		double allocatedMegabytesPerSecond;
+		long gcCount;
+		long gcMillis;
+		int sliced;
+		int bombsHit;
+		long planTicks;
+		long planTruncated;
+		long planAverageNanos;
+		long planMaxNanos;
+	}
+
+	/**
+	 * A simple bot that drags back and forth across the screen, a little lower each
+	 * pass, feeding its samples through the same queue as the mouse. It runs on the
+	 * simulation thread after every tick.
+	 */
+	private static class SweepBot implements Runnable {
+		/** Drag samples fed per tick, about what a fast mouse produces. */
+		private static final int SAMPLES_PER_TICK = 8;
+		/** Distance moved between samples. */
+		private static final int STEP = 12;
+
+		/** The queue the samples are offered to. */
+		private final DragQueue input;
+		/** Current pointer position. */
+		private int x, y = 60;
+		/** Direction of travel along x, +1 or -1. */
+		private int direction = 1;
+
+		SweepBot(DragQueue input) {
+			this.input = input;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < SAMPLES_PER_TICK; i++) {
+				x += direction * STEP;
+				if (x < 0 || x > SIZE) {
+					//turn around and move down a row, wrapping back to the top
+					direction = -direction;
+					x += direction * STEP;
+					y = y + 40 > SIZE - 40 ? 60 : y + 40;
+				}
+				input.offer(x, y);
+			}
+		}
+	}
+}
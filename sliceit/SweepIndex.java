@@ -0,0 +1,501 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The SweepIndex class keeps the fruits or bombs of a world sorted by the top
+ * of the path each took over the last tick, so a drag sample only has to be
+ * checked against the objects in a band around it rather than against all of
+ * them.
+ * <p>
+ * Objects move a few pixels a tick and rarely pass each other, so after a
+ * tick the order is almost right already; {@link #update()} re-reads every
+ * key and repairs the order with an insertion sort, which costs little more
+ * than the read when only a few neighbours swapped. A point can only lie in
+ * an object's swept box if the top of the path is at most the point's y and
+ * no more than the tallest swept box above it, so {@link #start(float)} and
+ * {@link #end(float)} find that band by binary search. Objects falling out of
+ * the bottom of the screen have the largest keys, so {@link #cull(int,
+ * Predicate)} mostly just drops them off the end.
+ * </p>
+ * <p>
+ * The order of the index depends on how objects passed each other, so every
+ * entry also carries a serial number counting up in the order the objects were
+ * added. Sorting hits by serial gives the order of the world's own lists,
+ * which keeps slicing deterministic for replays and networked games.
+ * </p>
+ * <p>
+ * Run {@code java sliceit.SliceItController --broadphase [options]} to time
+ * band queries against scanning every object. Options are
+ * {@code --count 20000}, {@code --ticks 200} and {@code --samples 10} (drag
+ * samples per tick).
+ * </p>
+ *
+ * @param <E> the type of object indexed
+ */
+public class SweepIndex<E> {
+	/**
+	 * Shifts the insertion sort may make, per object and per doubling of the
+	 * object count, before sorting from scratch is cheaper; measured, a full
+	 * sort costs about as much as ten shifts per object per doubling.
+	 */
+	public static final int SHIFTS_PER_LEVEL = 8;
+	/** Gives the motion of an object. */
+	private final Function<E, Motion> motionOf;
+	/** Gives the height of an object's box. */
+	private final ToIntFunction<E> heightOf;
+	/** The objects, sorted by key. */
+	private Object[] entries;
+	/** Top of each object's path over the last tick. */
+	private float[] keys;
+	/** Order each object was added in. */
+	private int[] serials;
+	/** Number of objects. */
+	private int count;
+	/** Serial number of the next object added. */
+	private int nextSerial;
+	/** Tallest swept box, from the top of its path to the bottom of its box. */
+	private float reach;
+	/** Keys packed with their positions, for {@link #sortAll()}. */
+	private long[] order = new long[0];
+	/** Spare objects array {@link #sortAll()} sorts into, then swaps with {@link #entries}; always empty. */
+	private Object[] spareEntries = new Object[0];
+	/** Spare keys array {@link #sortAll()} sorts into, then swaps with {@link #keys}. */
+	private float[] spareKeys = new float[0];
+	/** Spare serials array {@link #sortAll()} sorts into, then swaps with {@link #serials}. */
+	private int[] spareSerials = new int[0];
+	/** Whether the last full sort moved too much for an insertion sort to catch up. */
+	private boolean crowded;
+
+	/**
+	 * Constructs an empty SweepIndex.
+	 *
+	 * @param motionOf gives the motion of an object
+	 * @param heightOf gives the height of an object's box
+	 */
+	public SweepIndex(Function<E, Motion> motionOf, ToIntFunction<E> heightOf) {
+		this.motionOf = motionOf;
+		this.heightOf = heightOf;
+		entries = new Object[64];
+		keys = new float[64];
+		serials = new int[64];
+	}
+
+	/**
+	 * Removes every object.
+	 */
+	public void clear() {
+		Arrays.fill(entries, 0, count, null);
+		count = 0;
+		nextSerial = 0;
+		reach = 0;
+	}
+
+	/**
+	 * Replaces the index with the objects of a list, numbering them in list
+	 * order.
+	 *
+	 * @param list the objects to index
+	 */
+	public void rebuild(List<E> list) {
+		clear();
+		for (int i = 0; i < list.size(); i++) {
+			add(list.get(i));
+		}
+	}
+
+	/**
+	 * Adds an object after every object already added, placing it by the top of
+	 * its last path.
+	 *
+	 * @param e the object to add
+	 */
+	public void add(E e) {
+		if (count == entries.length) {
+			int capacity = count * 2;
+			entries = Arrays.copyOf(entries, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			serials = Arrays.copyOf(serials, capacity);
+		}
+		Motion motion = motionOf.apply(e);
+		float key = motion.getMinY();
+		reach = Math.max(reach, motion.getMaxY() + heightOf.applyAsInt(e) - key);
+		//new objects start at the bottom of the screen, so this is nearly always the end
+		int at = upperBound(key);
+		System.arraycopy(entries, at, entries, at + 1, count - at);
+		System.arraycopy(keys, at, keys, at + 1, count - at);
+		System.arraycopy(serials, at, serials, at + 1, count - at);
+		entries[at] = e;
+		keys[at] = key;
+		serials[at] = nextSerial++;
+		count++;
+	}
+
+	/**
+	 * Re-reads the path of every object after a tick and restores the order.
+	 */
+	public void update() {
+		float tallest = 0;
+		for (int i = 0; i < count; i++) {
+			Motion motion = motionOf.apply(get(i));
+			float key = motion.getMinY();
+			keys[i] = key;
+			tallest = Math.max(tallest, motion.getMaxY() + heightOf.applyAsInt(get(i)) - key);
+		}
+		reach = tallest;
+		long budget = budget();
+		if (crowded) {
+			sortAll();
+			return;
+		}
+		//insertion sort: each object only moves past the few it overtook
+		for (int i = 1; i < count; i++) {
+			float key = keys[i];
+			if (keys[i - 1] <= key) {
+				continue;
+			}
+			Object e = entries[i];
+			int serial = serials[i];
+			int j = i - 1;
+			while (j >= 0 && keys[j] > key) {
+				entries[j + 1] = entries[j];
+				keys[j + 1] = keys[j];
+				serials[j + 1] = serials[j];
+				j--;
+			}
+			entries[j + 1] = e;
+			keys[j + 1] = key;
+			serials[j + 1] = serial;
+			budget -= i - 1 - j;
+			if (budget < 0) {
+				//so crowded that objects overtake many others every tick
+				sortAll();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of shifts an insertion sort may make before a full
+	 * sort would have been cheaper.
+	 */
+	private long budget() {
+		return (long) count * (32 - Integer.numberOfLeadingZeros(count)) * SHIFTS_PER_LEVEL;
+	}
+
+	/**
+	 * Sorts the whole index at once, for when too many objects swapped places
+	 * for the insertion sort to be cheap. Each key is packed with its position
+	 * into a long that orders the same way, so one primitive sort does it. The
+	 * objects are copied into the spare arrays in order, which are then swapped
+	 * with the current ones. How far the objects moved tells whether the next
+	 * tick can go back to the insertion sort.
+	 */
+	private void sortAll() {
+		if (order.length < count) {
+			order = new long[entries.length];
+		}
+		if (spareEntries.length != entries.length) {
+			spareEntries = new Object[entries.length];
+			spareKeys = new float[entries.length];
+			spareSerials = new int[entries.length];
+		}
+		for (int i = 0; i < count; i++) {
+			int bits = Float.floatToIntBits(keys[i]);
+			//flip the magnitude of negative floats so the bits compare as ints
+			bits ^= (bits >> 31) & 0x7fffffff;
+			order[i] = (long) bits << 32 | i;
+		}
+		Arrays.sort(order, 0, count);
+		Object[] sortedEntries = spareEntries;
+		float[] sortedKeys = spareKeys;
+		int[] sortedSerials = spareSerials;
+		//an insertion sort would have made between half this many shifts and this many
+		long moved = 0;
+		for (int i = 0; i < count; i++) {
+			int from = (int) order[i];
+			sortedEntries[i] = entries[from];
+			sortedKeys[i] = keys[from];
+			sortedSerials[i] = serials[from];
+			moved += Math.abs(from - i);
+		}
+		crowded = moved > budget();
+		//the old arrays become the spares, emptied so they hold on to nothing
+		Arrays.fill(entries, 0, count, null);
+		spareEntries = entries;
+		spareKeys = keys;
+		spareSerials = serials;
+		entries = sortedEntries;
+		keys = sortedKeys;
+		serials = sortedSerials;
+	}
+
+	/**
+	 * Removes the objects the world dropped this tick. Those that fell out of
+	 * the bottom are at the end and are popped from there; only when some left
+	 * through a side is the whole index compacted.
+	 *
+	 * @param removed the number of objects the world dropped
+	 * @param gone    the test the world dropped them by
+	 */
+	public void cull(int removed, Predicate<E> gone) {
+		while (removed > 0 && count > 0 && gone.test(get(count - 1))) {
+			entries[--count] = null;
+			removed--;
+		}
+		if (removed == 0) {
+			return;
+		}
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (!gone.test(get(i))) {
+				entries[kept] = entries[i];
+				keys[kept] = keys[i];
+				serials[kept] = serials[i];
+				kept++;
+			}
+		}
+		Arrays.fill(entries, kept, count, null);
+		count = kept;
+	}
+
+	/**
+	 * Removes one object, looked for by the key it was last sorted by and, if
+	 * it was placed somewhere else since, by checking every object.
+	 *
+	 * @param e the object to remove
+	 * @return true if the object was in the index
+	 */
+	public boolean remove(E e) {
+		float key = motionOf.apply(e).getMinY();
+		for (int i = lowerBound(key); i < count && keys[i] == key; i++) {
+			if (entries[i] == e) {
+				removeAt(i);
+				return true;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (entries[i] == e) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the object at a position, keeping the rest in order.
+	 */
+	private void removeAt(int i) {
+		System.arraycopy(entries, i + 1, entries, i, count - i - 1);
+		System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+		System.arraycopy(serials, i + 1, serials, i, count - i - 1);
+		entries[--count] = null;
+	}
+
+	/**
+	 * Returns the position of the first object whose swept box might reach down
+	 * to a y-coordinate.
+	 *
+	 * @param y the y-coordinate of the point
+	 * @return the first position of the band
+	 */
+	public int start(float y) {
+		return lowerBound(y - reach);
+	}
+
+	/**
+	 * Returns the position after the last object whose path starts at or above
+	 * a y-coordinate.
+	 *
+	 * @param y the y-coordinate of the point
+	 * @return the end of the band, exclusive
+	 */
+	public int end(float y) {
+		return upperBound(y);
+	}
+
+	/**
+	 * Finds the first position whose key is at least the given key.
+	 */
+	private int lowerBound(float key) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first position whose key is greater than the given key.
+	 */
+	private int upperBound(float key) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the object at a position.
+	 *
+	 * @param i the position, from 0 to {@link #size()}
+	 * @return the object
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		return (E) entries[i];
+	}
+
+	/**
+	 * Returns the serial number of the object at a position, which orders
+	 * objects the way they were added.
+	 *
+	 * @param i the position, from 0 to {@link #size()}
+	 * @return the serial number
+	 */
+	public int getSerial(int i) {
+		return serials[i];
+	}
+
+	/**
+	 * Returns the number of objects.
+	 *
+	 * @return the number of objects
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Times answering drag samples from a band of the index against checking
+	 * every fruit, over fruits launched and falling as in a busy round, and
+	 * checks that both find the same fruits.
+	 *
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		int count = 20_000;
+		int ticks = 200;
+		int samples = 10;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--count":
+				count = Integer.parseInt(args[i + 1]);
+				break;
+			case "--ticks":
+				ticks = Integer.parseInt(args[i + 1]);
+				break;
+			case "--samples":
+				samples = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		int width = 800;
+		int height = 600;
+		Random random = new Random(42L);
+		BufferedImage image = new BufferedImage(60, 60, BufferedImage.TYPE_INT_ARGB);
+		List<Fruit> fruits = new ArrayList<>(count);
+		SweepIndex<Fruit> index = new SweepIndex<>(Fruit::getMotion, f -> (int) Math.ceil(f.getHeight()));
+		for (int i = 0; i < count; i++) {
+			//spread the launches out so the fruits are at every height
+			Fruit fruit = launch(image, width, height, random);
+			for (int t = random.nextInt(80); t > 0; t--) {
+				fruit.update();
+			}
+			fruits.add(fruit);
+			index.add(fruit);
+		}
+		List<Fruit> launched = new ArrayList<>();
+
+		long scanNanos = 0;
+		long bandNanos = 0;
+		long updateNanos = 0;
+		long scanHits = 0;
+		long bandHits = 0;
+		long candidates = 0;
+		for (int t = 0; t < ticks; t++) {
+			//fruits leaving the screen are replaced, keeping the count steady
+			int removed = 0;
+			launched.clear();
+			for (int i = 0; i < fruits.size(); i++) {
+				Fruit fruit = fruits.get(i);
+				fruit.update();
+				if (fruit.isOffScreen(width, height)) {
+					Fruit replacement = launch(image, width, height, random);
+					fruits.set(i, replacement);
+					launched.add(replacement);
+					removed++;
+				}
+			}
+			long start = System.nanoTime();
+			index.update();
+			if (removed > 0) {
+				index.cull(removed, f -> f.isOffScreen(width, height));
+			}
+			for (int i = 0; i < launched.size(); i++) {
+				index.add(launched.get(i));
+			}
+			updateNanos += System.nanoTime() - start;
+			for (int s = 0; s < samples; s++) {
+				int mx = random.nextInt(width);
+				int my = random.nextInt(height);
+				start = System.nanoTime();
+				for (int i = 0; i < fruits.size(); i++) {
+					if (fruits.get(i).contains(mx, my)) {
+						scanHits++;
+					}
+				}
+				long middle = System.nanoTime();
+				int end = index.end(my);
+				for (int i = index.start(my); i < end; i++) {
+					candidates++;
+					if (index.get(i).contains(mx, my)) {
+						bandHits++;
+					}
+				}
+				bandNanos += System.nanoTime() - middle;
+				scanNanos += middle - start;
+			}
+		}
+		int queries = ticks * samples;
+		System.out.printf("%d fruits, %d ticks, %d samples per tick, %d hits by scan, %d by band%n", count, ticks,
+				samples, scanHits, bandHits);
+		System.out.printf("Full scan:  %.1f us per sample%n", scanNanos / 1e3 / queries);
+		System.out.printf("Band query: %.1f us per sample, %.0f candidates on average%n", bandNanos / 1e3 / queries,
+				(double) candidates / queries);
+		System.out.printf("Index upkeep: %.1f us per tick%n", updateNanos / 1e3 / ticks);
+	}
+
+	/**
+	 * Makes a fruit launched upwards from the bottom of the screen.
+	 */
+	private static Fruit launch(BufferedImage image, int width, int height, Random random) {
+		Fruit fruit = new Fruit(image, image, random.nextInt(width - image.getWidth()), height - image.getHeight(),
+				random.nextFloat() * 4 - 2, -10 - random.nextFloat() * 5);
+		fruit.setGravity(0.3f);
+		return fruit;
+	}
+}
@@ -0,0 +1,175 @@
+package sliceit;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The TelemetryRing class collects fixed-size binary telemetry records from
+ * the game threads without slowing them down.
+ * <p>
+ * Records are written straight into a ring held in one off-heap
+ * {@link ByteBuffer} that is allocated up front, so recording a tick or a
+ * frame allocates nothing, formats nothing and never touches the disk. Any
+ * thread may write; a {@link TelemetryWriter} drains the ring in batches on
+ * its own thread. Writers never wait: when the ring is full the record is
+ * dropped and counted.
+ * </p>
+ * <p>
+ * Every record is {@link #RECORD_SIZE} bytes: a kind byte, a padding byte, the
+ * slice count as a short, the fruit and bomb counts as shorts, the particle
+ * count and the score as ints, the tick number as a long and a duration in
+ * nanoseconds as a long.
+ * </p>
+ */
+public class TelemetryRing {
+	/** Bytes per record. */
+	public static final int RECORD_SIZE = 32;
+	/** Record kind for one simulation tick; its duration is the tick's busy time. */
+	public static final byte KIND_TICK = 1;
+	/** Record kind for one painted frame; its duration is the paint time. */
+	public static final byte KIND_FRAME = 2;
+	/** Record kind written by the writer when records were dropped; its score field holds the total dropped. */
+	public static final byte KIND_DROPPED = 3;
+
+	/** The records, off the Java heap. */
+	private final ByteBuffer ring;
+	/** Per-slot sequence numbers telling writers and the reader whose turn it is. */
+	private final AtomicLongArray sequence;
+	/** Mask used to turn a position into a slot index. */
+	private final int mask;
+	/** Position the next writer will claim. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Position the reader will read next; only touched by the reader. */
+	private long head;
+	/** Number of records dropped because the ring was full. */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Constructs a TelemetryRing holding at least the given number of records.
+	 *
+	 * @param capacity the minimum number of records the ring can hold
+	 */
+	public TelemetryRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		ring = ByteBuffer.allocateDirect(size * RECORD_SIZE);
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequence.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Records one simulation tick.
+	 *
+	 * @param tick      the tick number
+	 * @param slices    the number of drag samples applied during the tick
+	 * @param fruits    the number of fruits after the tick
+	 * @param bombs     the number of bombs after the tick
+	 * @param particles the number of live particles after the tick
+	 * @param points    the score after the tick
+	 * @param busyNanos how long the tick took
+	 * @return true if the record was kept; false if the ring was full
+	 */
+	public boolean tick(long tick, int slices, int fruits, int bombs, int particles, int points, long busyNanos) {
+		return write(KIND_TICK, tick, slices, fruits, bombs, particles, points, busyNanos);
+	}
+
+	/**
+	 * Records one painted frame.
+	 *
+	 * @param tick       the tick number of the snapshot that was drawn
+	 * @param paintNanos how long painting took
+	 * @return true if the record was kept; false if the ring was full
+	 */
+	public boolean frame(long tick, long paintNanos) {
+		return write(KIND_FRAME, tick, 0, 0, 0, 0, 0, paintNanos);
+	}
+
+	/**
+	 * Claims a slot, fills it and hands it to the reader.
+	 */
+	private boolean write(byte kind, long tick, int slices, int fruits, int bombs, int particles, int points,
+			long nanos) {
+		long pos;
+		while (true) {
+			pos = tail.get();
+			long diff = sequence.get((int) pos & mask) - pos;
+			if (diff == 0) {
+				//slot is free, try to claim it
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+			} else if (diff < 0) {
+				//the writer has not drained this slot yet, so the ring is full
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+		int slot = (int) pos & mask;
+		int at = slot * RECORD_SIZE;
+		ring.put(at, kind);
+		ring.put(at + 1, (byte) 0);
+		ring.putShort(at + 2, toShort(slices));
+		ring.putShort(at + 4, toShort(fruits));
+		ring.putShort(at + 6, toShort(bombs));
+		ring.putInt(at + 8, particles);
+		ring.putInt(at + 12, points);
+		ring.putLong(at + 16, tick);
+		ring.putLong(at + 24, nanos);
+		sequence.lazySet(slot, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Fits a count into an unsigned short.
+	 */
+	private static short toShort(int count) {
+		return (short) Math.max(0, Math.min(0xffff, count));
+	}
+
+	/**
+	 * Copies waiting records into a buffer, oldest first, and frees their slots.
+	 * Only one thread may drain a ring.
+	 *
+	 * @param out where to copy the records; filled from its position
+	 * @return the number of records copied
+	 */
+	public int drainTo(ByteBuffer out) {
+		int copied = 0;
+		while (out.remaining() >= RECORD_SIZE) {
+			int slot = (int) head & mask;
+			if (sequence.get(slot) != head + 1) {
+				//the next record is not finished yet
+				break;
+			}
+			int at = slot * RECORD_SIZE;
+			for (int i = 0; i < RECORD_SIZE; i += 8) {
+				out.putLong(ring.getLong(at + i));
+			}
+			sequence.lazySet(slot, head + mask + 1);
+			head++;
+			copied++;
+		}
+		return copied;
+	}
+
+	/**
+	 * Returns the number of records dropped because the ring was full.
+	 *
+	 * @return the dropped count
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of records the ring can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+}
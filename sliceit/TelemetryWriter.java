@@ -0,0 +1,257 @@
+package sliceit;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The TelemetryWriter thread drains a {@link TelemetryRing} to a gzip file,
+ * so the game threads never do I/O for their telemetry.
+ * <p>
+ * It copies whatever records are waiting into a batch, writes the batch
+ * through the compressor and, once the ring is empty, flushes the compressor
+ * and sleeps for a moment. Whenever the ring's dropped count has grown it
+ * also writes a {@link TelemetryRing#KIND_DROPPED} record, so a gap in the
+ * file can be told apart from a quiet game. Each launch appends its own gzip
+ * member to the file, which gzip readers treat as one stream.
+ * </p>
+ * <p>
+ * The file is rolled by size: when it has grown past {@link #MAX_BYTES}, at
+ * launch or after a flush, it is closed and renamed to {@code telemetry.gz.1},
+ * the older rolled files move up one number, the oldest past
+ * {@link #KEPT_FILES} is deleted, and a new file is started. A cabinet left
+ * running keeps at most that many files of telemetry.
+ * </p>
+ * <p>
+ * Run {@code java sliceit.SliceItController --telemetry [file]} to print a
+ * file's records as text.
+ * </p>
+ */
+public class TelemetryWriter extends Thread {
+	/** How long to sleep when the ring is empty, in nanoseconds (100 ms). */
+	private static final long IDLE_NANOS = 100_000_000L;
+	/** Records copied out of the ring per batch. */
+	private static final int BATCH_RECORDS = 256;
+	/** Size past which the file is rolled (16 MB). */
+	public static final long MAX_BYTES = 16L << 20;
+	/** Number of rolled files kept besides the current one. */
+	public static final int KEPT_FILES = 4;
+
+	/** The ring being drained. */
+	private final TelemetryRing ring;
+	/** Path of the current file. */
+	private final Path file;
+	/** Size past which the file is rolled. */
+	private final long maxBytes;
+	/** Number of rolled files kept. */
+	private final int keptFiles;
+	/** The compressed output file. */
+	private OutputStream out;
+	/** Reused batch the records are copied into. */
+	private final ByteBuffer batch = ByteBuffer.allocate(BATCH_RECORDS * TelemetryRing.RECORD_SIZE);
+	/** Dropped count already reported in the file. */
+	private long reportedDropped;
+	/** Number of records written to the file. */
+	private volatile long written;
+	/** Flag telling the loop to keep going. */
+	private volatile boolean running = true;
+
+	/**
+	 * Constructs a TelemetryWriter appending to the given file, rolled at
+	 * {@link #MAX_BYTES} with {@link #KEPT_FILES} rolled files kept. The thread
+	 * does nothing until started.
+	 *
+	 * @param ring the ring to drain
+	 * @param file the gzip file to append to
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TelemetryWriter(TelemetryRing ring, Path file) throws IOException {
+		this(ring, file, MAX_BYTES, KEPT_FILES);
+	}
+
+	/**
+	 * Constructs a TelemetryWriter appending to the given file, rolled at the
+	 * given size. The thread does nothing until started.
+	 *
+	 * @param ring      the ring to drain
+	 * @param file      the gzip file to append to
+	 * @param maxBytes  the size past which the file is rolled
+	 * @param keptFiles the number of rolled files kept
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TelemetryWriter(TelemetryRing ring, Path file, long maxBytes, int keptFiles) throws IOException {
+		super("SliceIt-Telemetry");
+		setDaemon(true);
+		setPriority(Thread.MIN_PRIORITY);
+		this.ring = ring;
+		this.file = file;
+		this.maxBytes = maxBytes;
+		this.keptFiles = keptFiles;
+		if (Files.exists(file) && Files.size(file) >= maxBytes) {
+			roll();
+		}
+		open();
+	}
+
+	/**
+	 * Opens the current file for appending.
+	 */
+	private void open() throws IOException {
+		//sync flushing makes every flushed batch readable even if the game is killed
+		out = new GZIPOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024, true);
+	}
+
+	/**
+	 * Renames the current file to the first rolled file, moving the older ones
+	 * up a number and deleting the oldest.
+	 */
+	private void roll() throws IOException {
+		Files.deleteIfExists(rolled(keptFiles));
+		for (int i = keptFiles - 1; i >= 1; i--) {
+			Path older = rolled(i);
+			if (Files.exists(older)) {
+				Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		if (keptFiles > 0) {
+			Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Returns the path of a rolled file.
+	 *
+	 * @param number the file's number, 1 for the most recent
+	 * @return the path, the current file's with the number added
+	 */
+	public Path rolled(int number) {
+		return file.resolveSibling(file.getFileName() + "." + number);
+	}
+
+	@Override
+	public void run() {
+		try {
+			boolean dirty = false;
+			while (running) {
+				if (drainOnce()) {
+					dirty = true;
+					continue;
+				}
+				if (dirty) {
+					out.flush();
+					dirty = false;
+					if (Files.size(file) >= maxBytes) {
+						out.close();
+						try {
+							roll();
+						} catch (IOException e) {
+							//keep appending to the full file rather than losing the telemetry
+							e.printStackTrace();
+						}
+						open();
+					}
+				}
+				LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+			//write whatever was recorded before halt was called
+			while (drainOnce()) {
+				//keep draining until the ring is empty
+			}
+			out.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes one batch of records, and a dropped record if more have been dropped.
+	 *
+	 * @return true if anything was written
+	 */
+	private boolean drainOnce() throws IOException {
+		batch.clear();
+		int count = ring.drainTo(batch);
+		long dropped = ring.getDropped();
+		if (dropped != reportedDropped && batch.remaining() >= TelemetryRing.RECORD_SIZE) {
+			batch.put(TelemetryRing.KIND_DROPPED).put((byte) 0).putShort((short) 0).putShort((short) 0)
+					.putShort((short) 0).putInt(0).putInt((int) Math.min(dropped, Integer.MAX_VALUE)).putLong(0)
+					.putLong(0);
+			reportedDropped = dropped;
+			count++;
+		}
+		if (count == 0) {
+			return false;
+		}
+		out.write(batch.array(), 0, batch.position());
+		written += count;
+		return true;
+	}
+
+	/**
+	 * Stops the thread once everything recorded so far is written, and closes the
+	 * file.
+	 */
+	public void halt() {
+		running = false;
+		LockSupport.unpark(this);
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of records written, including dropped records.
+	 *
+	 * @return the written count
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Prints the records of a telemetry file as text, one line per record.
+	 *
+	 * @param args the file to read (default "telemetry.gz")
+	 * @throws IOException if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : "telemetry.gz");
+		byte[] record = new byte[TelemetryRing.RECORD_SIZE];
+		ByteBuffer in = ByteBuffer.wrap(record);
+		try (DataInputStream data = new DataInputStream(new GZIPInputStream(new FileInputStream(file.toFile())))) {
+			while (true) {
+				try {
+					data.readFully(record);
+				} catch (EOFException e) {
+					break;
+				}
+				byte kind = in.get(0);
+				long tick = in.getLong(16);
+				if (kind == TelemetryRing.KIND_TICK) {
+					System.out.printf("tick %d slices=%d fruits=%d bombs=%d particles=%d points=%d busy=%.3fms%n", tick,
+							in.getShort(2) & 0xffff, in.getShort(4) & 0xffff, in.getShort(6) & 0xffff, in.getInt(8),
+							in.getInt(12), in.getLong(24) / 1e6);
+				} else if (kind == TelemetryRing.KIND_FRAME) {
+					System.out.printf("frame %d paint=%.3fms%n", tick, in.getLong(24) / 1e6);
+				} else if (kind == TelemetryRing.KIND_DROPPED) {
+					System.out.printf("dropped total=%d%n", in.getInt(12));
+				}
+			}
+		}
+	}
+}
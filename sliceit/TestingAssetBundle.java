@@ -0,0 +1,143 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Unit tests for the AssetBundle class.
+ * <p>
+ * This class contains static test methods for verifying that bundled images
+ * come back with the pixels of their PNGs, that an image whose PNG has changed
+ * is no longer taken from the bundle, and that a damaged bundle is refused.
+ * </p>
+ */
+public class TestingAssetBundle {
+	public static void main(String[] args) {
+		testRoundTrip();
+		testStale();
+		testCorrupt();
+	}
+
+	/**
+	 * Checks that two images show the same colours: exactly where a pixel is
+	 * opaque, within premultiplying's rounding where it is translucent, and not
+	 * at all where it is fully transparent.
+	 */
+	static boolean sameColours(BufferedImage expected, BufferedImage actual) {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+			return false;
+		}
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				int a = expected.getRGB(x, y);
+				int b = actual.getRGB(x, y);
+				int alpha = a >>> 24;
+				if ((b >>> 24) != alpha) {
+					return false;
+				}
+				if (alpha == 0) {
+					continue;
+				}
+				//dividing out the alpha again loses up to 255 / alpha
+				int tolerance = alpha == 255 ? 0 : 255 / alpha + 1;
+				for (int shift = 0; shift < 24; shift += 8) {
+					if (Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff)) > tolerance) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Tests that translucent sheets and an opaque background come back from the
+	 * bundle with their PNGs' pixels, and that an image never bundled is not
+	 * found.
+	 */
+	static void testRoundTrip() {
+		try {
+			Path dir = TestingAssetWatcher.copyAssets();
+			String bomb = dir.resolve("bombimg.png").toString();
+			String fruits = dir.resolve("fruits.png").toString();
+			String background = dir.resolve("playBackgrnd.png").toString();
+			Path file = dir.resolve("assets.bundle");
+			AssetBundle.build(file, bomb, fruits, background);
+			AssetBundle bundle = AssetBundle.open(file);
+			boolean ok = bundle.size() == 3 && bundle.getImage(dir.resolve("bombSprites.png").toString()) == null;
+			for (String path : new String[] { bomb, fruits, background }) {
+				BufferedImage image = bundle.getImage(path);
+				ok &= image != null && sameColours(ImageIO.read(Path.of(path).toFile()), image);
+			}
+			ok &= bundle.getImage(bomb).getType() == BufferedImage.TYPE_INT_ARGB_PRE;
+			if (ok) {
+				System.out.println("testRoundTrip passed");
+			} else {
+				System.out.println("testRoundTrip failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testRoundTrip failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that an image whose PNG has been rewritten since bundling is no
+	 * longer served from the bundle.
+	 */
+	static void testStale() {
+		try {
+			Path dir = TestingAssetWatcher.copyAssets();
+			Path bomb = dir.resolve("bombimg.png");
+			Path file = dir.resolve("assets.bundle");
+			AssetBundle.build(file, bomb.toString());
+			AssetBundle bundle = AssetBundle.open(file);
+			boolean ok = bundle.isCurrent(bomb.toString());
+			TestingAssetWatcher.invert(bomb);
+			ok &= !bundle.isCurrent(bomb.toString()) && bundle.getImage(bomb.toString()) == null;
+			if (ok) {
+				System.out.println("testStale passed");
+			} else {
+				System.out.println("testStale failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testStale failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a file that is not a bundle, and a bundle cut short, are both
+	 * refused when opened.
+	 */
+	static void testCorrupt() {
+		try {
+			Path dir = TestingAssetWatcher.copyAssets();
+			Path file = dir.resolve("assets.bundle");
+			AssetBundle.build(file, dir.resolve("bombimg.png").toString());
+			byte[] bytes = Files.readAllBytes(file);
+			Path truncated = dir.resolve("truncated.bundle");
+			Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+			Path garbage = dir.resolve("garbage.bundle");
+			Files.write(garbage, "not a bundle".getBytes("UTF-8"));
+			int refused = 0;
+			for (Path path : new Path[] { truncated, garbage }) {
+				try {
+					AssetBundle.open(path);
+				} catch (IOException e) {
+					refused++;
+				}
+			}
+			if (refused == 2) {
+				System.out.println("testCorrupt passed");
+			} else {
+				System.out.println("testCorrupt failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testCorrupt failed due to exception: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Unit tests for the AssetWatcher class.
+ * <p>
+ * This class contains static test methods that copy the game's assets into a
+ * temporary folder, change them while a watcher runs, and check that only the
+ * changed sheet is decoded again, that the settings and background are handed
+ * over too, and that a layout with different sprites or an unreadable file is
+ * refused while the old assets stay in use.
+ * </p>
+ */
+public class TestingAssetWatcher {
+	public static void main(String[] args) {
+		testReloadChangedSheet();
+		testConfigAndBackground();
+		testRefused();
+	}
+
+	/**
+	 * Copies the sprite sheets, layout, background and settings into a temporary
+	 * folder, pointing the layout at the copies.
+	 */
+	static Path copyAssets() throws IOException {
+		Path dir = Files.createTempDirectory("sliceit-assets");
+		for (String name : new String[] { "fruits.png", "bombimg.png", "bombSprites.png", "playBackgrnd.png" }) {
+			Files.copy(new File("images", name).toPath(), dir.resolve(name));
+		}
+		Files.copy(new File("config", "difficulty.properties").toPath(), dir.resolve("difficulty.properties"));
+		String spec = new String(Files.readAllBytes(new File("images", "sprites.txt").toPath()), "UTF-8");
+		Files.write(dir.resolve("sprites.txt"), spec.replace("images/", dir.toString() + "/").getBytes("UTF-8"));
+		return dir;
+	}
+
+	// Helper method to open a watcher on copied assets, recording what it hands over.
+	static AssetWatcher open(Path dir, AtomicReference<TextureAtlas> atlas, AtomicReference<BufferedImage> background,
+			AtomicReference<DifficultyConfig> config) throws IOException {
+		return new AssetWatcher(dir.resolve("sprites.txt").toString(), dir.resolve("playBackgrnd.png").toString(),
+				dir.resolve("difficulty.properties").toString(), atlas::set, background::set, config::set);
+	}
+
+	// Helper method to write a copy of an image with every pixel's colours inverted, by renaming into place.
+	static void invert(Path file) throws IOException {
+		BufferedImage image = ImageIO.read(file.toFile());
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				image.setRGB(x, y, image.getRGB(x, y) ^ 0x00ffffff);
+			}
+		}
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		ImageIO.write(image, "png", temporary.toFile());
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Tests that changing one sheet reloads the atlas with the new pixels and the
+	 * same ids, decoding that sheet alone, and that a sprite batch given the new
+	 * atlas draws from it.
+	 */
+	static void testReloadChangedSheet() {
+		AssetWatcher watcher = null;
+		try {
+			Path dir = copyAssets();
+			AtomicReference<TextureAtlas> reloaded = new AtomicReference<>();
+			watcher = open(dir, reloaded, new AtomicReference<>(), new AtomicReference<>());
+			TextureAtlas first = watcher.loadAtlas();
+			int decoded = watcher.getDecodedSheets();
+			watcher.start();
+			int bombId = first.getId("bomb");
+			int before = first.getCell(bombId).getRGB(40, 40);
+			invert(dir.resolve("bombimg.png"));
+			boolean ok = TestingSpectator.await(() -> reloaded.get() != null, 5000);
+			TextureAtlas next = reloaded.get();
+			SpriteBatch batch = new SpriteBatch(first);
+			batch.setAtlas(next);
+			ok &= next != null && next.hasSameIds(first) && next.getCell(bombId).getRGB(40, 40) != before
+					&& batch.getAtlas() == next;
+			if (ok && decoded == 3 && watcher.getDecodedSheets() == 4 && watcher.getFailures() == 0) {
+				System.out.println("testReloadChangedSheet passed");
+			} else {
+				System.out.println("testReloadChangedSheet failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testReloadChangedSheet failed due to exception: " + e.getMessage());
+		} finally {
+			if (watcher != null) {
+				watcher.halt();
+			}
+		}
+	}
+
+	/**
+	 * Tests that changed settings and a changed background are read again and
+	 * handed over, without touching the sprites.
+	 */
+	static void testConfigAndBackground() {
+		AssetWatcher watcher = null;
+		try {
+			Path dir = copyAssets();
+			AtomicReference<TextureAtlas> atlas = new AtomicReference<>();
+			AtomicReference<BufferedImage> background = new AtomicReference<>();
+			AtomicReference<DifficultyConfig> config = new AtomicReference<>();
+			watcher = open(dir, atlas, background, config);
+			watcher.loadAtlas();
+			watcher.start();
+			Files.write(dir.resolve("difficulty.properties"), "\ngame.seconds = 33\n".getBytes("UTF-8"),
+					StandardOpenOption.APPEND);
+			invert(dir.resolve("playBackgrnd.png"));
+			boolean ok = TestingSpectator.await(() -> config.get() != null && background.get() != null, 5000);
+			ok &= ok && config.get().getGameSeconds() == 33 && atlas.get() == null;
+			if (ok && watcher.getDecodedSheets() == 3 && watcher.getReloads() == 2) {
+				System.out.println("testConfigAndBackground passed");
+			} else {
+				System.out.println("testConfigAndBackground failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testConfigAndBackground failed due to exception: " + e.getMessage());
+		} finally {
+			if (watcher != null) {
+				watcher.halt();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a layout listing more sprites and a sheet that is not an image
+	 * are both refused without handing anything over, and that the sheet is
+	 * picked up once it is fixed.
+	 */
+	static void testRefused() {
+		AssetWatcher watcher = null;
+		try {
+			Path dir = copyAssets();
+			AtomicReference<TextureAtlas> reloaded = new AtomicReference<>();
+			watcher = open(dir, reloaded, new AtomicReference<>(), new AtomicReference<>());
+			watcher.loadAtlas();
+			watcher.start();
+			AssetWatcher w = watcher;
+			Path spec = dir.resolve("sprites.txt");
+			byte[] original = Files.readAllBytes(spec);
+			Files.write(spec, ("image extra " + dir.resolve("bombimg.png") + "\n").getBytes("UTF-8"),
+					StandardOpenOption.APPEND);
+			boolean ok = TestingSpectator.await(() -> w.getFailures() == 1, 5000);
+			ok &= reloaded.get() == null;
+			//putting the layout back gives the same sprites again, which is a normal reload
+			Files.write(spec, original);
+			ok &= TestingSpectator.await(() -> reloaded.get() != null, 5000);
+			reloaded.set(null);
+			Path bomb = dir.resolve("bombimg.png");
+			Path good = dir.resolve("bomb.good");
+			Files.copy(bomb, good);
+			Files.write(bomb, "not a png".getBytes("UTF-8"));
+			ok &= TestingSpectator.await(() -> w.getFailures() == 2, 5000) && reloaded.get() == null;
+			Files.move(good, bomb, StandardCopyOption.REPLACE_EXISTING);
+			ok &= TestingSpectator.await(() -> reloaded.get() != null, 5000);
+			if (ok && watcher.getFailures() == 2) {
+				System.out.println("testRefused passed");
+			} else {
+				System.out.println("testRefused failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testRefused failed due to exception: " + e.getMessage());
+		} finally {
+			if (watcher != null) {
+				watcher.halt();
+			}
+		}
+	}
+}
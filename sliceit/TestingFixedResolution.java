@@ -0,0 +1,84 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Unit tests for the FixedResolution class.
+ * <p>
+ * This class contains static test methods for verifying whole-number and
+ * smooth scaling, that mouse positions map back onto the internal frame, and
+ * that presenting fills the window with the frame and black borders.
+ * </p>
+ */
+public class TestingFixedResolution {
+	public static void main(String[] args) {
+		testIntegerScale();
+		testSmoothScale();
+		testPresent();
+	}
+
+	/**
+	 * Tests that a 500x500 frame in a 1920x1080 window is doubled and centred,
+	 * and that window positions map back to the right internal pixels.
+	 */
+	static void testIntegerScale() {
+		FixedResolution fixed = FixedResolution.parse("500x500", false);
+		fixed.layout(1920, 1080);
+		// the frame covers x 460..1459 and y 40..1039
+		boolean corners = fixed.toInternalX(460) == 0 && fixed.toInternalY(40) == 0
+				&& fixed.toInternalX(1459) == 499 && fixed.toInternalY(1039) == 499;
+		boolean outside = fixed.toInternalX(0) < 0 && fixed.toInternalY(1079) >= 500;
+		if (corners && outside && fixed.toInternalX(961) == 250) {
+			System.out.println("testIntegerScale passed");
+		} else {
+			System.out.println("testIntegerScale failed");
+		}
+	}
+
+	/**
+	 * Tests that smooth mode fills the window's height with a fractional scale and
+	 * that a window smaller than the frame shrinks it in either mode.
+	 */
+	static void testSmoothScale() {
+		FixedResolution smooth = new FixedResolution(500, 500, true);
+		smooth.layout(1920, 1080);
+		boolean fills = smooth.toInternalY(0) == 0 && smooth.toInternalY(1079) == 499 && smooth.toInternalX(420) == 0;
+		FixedResolution small = new FixedResolution(500, 500, false);
+		small.layout(250, 300);
+		boolean shrinks = small.toInternalX(0) == 0 && small.toInternalX(249) == 498 && small.toInternalY(25) == 0;
+		if (fills && shrinks) {
+			System.out.println("testSmoothScale passed");
+		} else {
+			System.out.println("testSmoothScale failed");
+		}
+	}
+
+	/**
+	 * Tests that presenting a frame scales its pixels into place and paints the
+	 * border black.
+	 */
+	static void testPresent() {
+		FixedResolution fixed = new FixedResolution(10, 10, false);
+		Graphics2D frame = fixed.begin();
+		frame.setColor(Color.red);
+		frame.fillRect(0, 0, 10, 10);
+		frame.dispose();
+
+		BufferedImage window = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = window.createGraphics();
+		g2d.setColor(Color.white);
+		g2d.fillRect(0, 0, 40, 30);
+		fixed.present(g2d, 40, 30);
+		g2d.dispose();
+
+		// scaled 3x to 30x30, centred at x 5..34
+		if (window.getRGB(5, 0) == Color.red.getRGB() && window.getRGB(34, 29) == Color.red.getRGB()
+				&& window.getRGB(4, 15) == Color.black.getRGB() && window.getRGB(35, 15) == Color.black.getRGB()) {
+			System.out.println("testPresent passed");
+		} else {
+			System.out.println("testPresent failed");
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Unit tests for the GameSave class.
+ * <p>
+ * This class contains static test methods for verifying that a saved round
+ * comes back with the same fruits, bombs, particles, score, clock and
+ * difficulty settings, that it then plays on exactly as the original would
+ * have however the settings have changed since, that opening a file and
+ * outgrowing its slots never loses the save already in it, and that files
+ * from another format version are refused.
+ * </p>
+ */
+public class TestingGameSave {
+	public static void main(String[] args) {
+		testRoundTrip();
+		testKeepsSave();
+		testVersion();
+	}
+
+	// Helper method to play a round for a number of ticks, slicing along a line.
+	static void play(GameWorld world, int ticks) {
+		for (int t = 0; t < ticks; t++) {
+			long tick = world.getTickCount();
+			world.slice((int) (tick * 7 % 500), 250);
+			world.tick();
+		}
+	}
+
+	// Helper method to compare everything two snapshots would draw.
+	static boolean sameSnapshot(GameWorld a, GameWorld b) {
+		WorldSnapshot sa = new WorldSnapshot();
+		WorldSnapshot sb = new WorldSnapshot();
+		a.writeSnapshot(sa);
+		b.writeSnapshot(sb);
+		ByteBuffer stateA = ByteBuffer.allocate(1 << 20);
+		ByteBuffer stateB = ByteBuffer.allocate(1 << 20);
+		a.writeState(stateA);
+		b.writeState(stateB);
+		stateA.flip();
+		stateB.flip();
+		return sa.getCount() == sb.getCount() && sa.getParticleCount() == sb.getParticleCount()
+				&& sa.getPoints() == sb.getPoints() && stateA.equals(stateB);
+	}
+
+	/**
+	 * Tests that a round saved halfway through loads back identical, with the
+	 * settings it was saved with rather than the ones now in use, and that both
+	 * copies stay identical as they keep playing. Also prints how long the first
+	 * and later saves of a busy screen take, against the 1 ms target.
+	 */
+	static void testRoundTrip() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			DifficultyConfig config = new DifficultyConfig();
+			config.setCountScale(10);
+			GameWorld original = new GameWorld(atlas);
+			original.setSize(500, 500);
+			original.setBombsEndGame(false);
+			original.reset(config, 77L);
+			play(original, 300);
+
+			Path file = Files.createTempFile("sliceit", ".bin");
+			GameSave save = new GameSave(file);
+			save.prepare(original, config);
+			//in the game the first save comes seconds after the round starts, and the later ones as far apart
+			Thread.sleep(50);
+			save.save(original, config, 42, "tester");
+			long first = save.getLastSaveNanos();
+			long[] later = new long[9];
+			for (int i = 0; i < later.length; i++) {
+				Thread.sleep(50);
+				save.save(original, config, 42, "tester");
+				later[i] = save.getLastSaveNanos();
+			}
+			Arrays.sort(later);
+			System.out.printf("saved %d fruits, %d bombs, %d particles: first save %.3f ms, median of %d more "
+					+ "%.3f ms (target under 1 ms)%n", original.getFruits().size(), original.getBombs().size(),
+					original.getParticles().getLive(), first / 1e6, later.length, later[later.length / 2] / 1e6);
+
+			//the settings file has changed since the round was saved
+			config.setCountScale(1);
+			GameWorld restored = new GameWorld(atlas);
+			restored.setSize(500, 500);
+			restored.setBombsEndGame(false);
+			GameSave reader = new GameSave(file);
+			reader.load(restored);
+			boolean loaded = sameSnapshot(original, restored) && reader.getTimeRemaining() == 42
+					&& "tester".equals(reader.getUsername()) && restored.getTickCount() == 300
+					&& reader.getConfig().getCountScale() == 10;
+
+			play(original, 300);
+			play(restored, 300);
+			boolean playedOn = sameSnapshot(original, restored) && original.getPoints() == restored.getPoints();
+			save.delete();
+
+			if (loaded && playedOn && original.getPoints() > 0 && !save.exists()) {
+				System.out.println("testRoundTrip passed");
+			} else {
+				System.out.println("testRoundTrip failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testRoundTrip failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that preparing a file that holds a save keeps that save, that the
+	 * next save goes to the other slot, and that a save too big for the slots
+	 * replaces the file whole with bigger slots.
+	 */
+	static void testKeepsSave() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			DifficultyConfig config = new DifficultyConfig();
+			GameWorld world = new GameWorld(atlas);
+			world.setSize(500, 500);
+			world.setBombsEndGame(false);
+			world.reset(config, 5L);
+			play(world, 100);
+			Path file = Files.createTempFile("sliceit", ".bin");
+			GameSave first = new GameSave(file);
+			first.prepare(world, config);
+			first.save(world, config, 30, "first");
+			first.close();
+			long size = Files.size(file);
+
+			//as after a relaunch: opening the file must not touch the save in it
+			GameSave second = new GameSave(file);
+			second.prepare(world, config);
+			GameSave reader = new GameSave(file);
+			GameWorld restored = new GameWorld(atlas);
+			restored.setSize(500, 500);
+			reader.load(restored);
+			boolean ok = Files.size(file) == size && "first".equals(reader.getUsername());
+			second.save(world, config, 20, "second");
+			reader.load(restored);
+			ok &= "second".equals(reader.getUsername()) && reader.getTimeRemaining() == 20;
+
+			//a screen far busier than the slots were made for
+			config.setCountScale(200);
+			GameWorld busy = new GameWorld(atlas);
+			busy.setSize(500, 500);
+			busy.setBombsEndGame(false);
+			busy.reset(config, 6L);
+			play(busy, 200);
+			second.save(busy, config, 10, "busy");
+			ok &= Files.size(file) > 2 * size && !Files.exists(file.resolveSibling(file.getFileName() + ".tmp"));
+			reader.load(restored);
+			ok &= "busy".equals(reader.getUsername()) && sameSnapshot(busy, restored);
+			second.save(busy, config, 9, "busy again");
+			reader.load(restored);
+			ok &= reader.getTimeRemaining() == 9;
+			second.delete();
+			if (ok) {
+				System.out.println("testKeepsSave passed");
+			} else {
+				System.out.println("testKeepsSave failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testKeepsSave failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a save with another format version is refused with an
+	 * IOException.
+	 */
+	static void testVersion() {
+		try {
+			Path file = Files.createTempFile("sliceit", ".bin");
+			ByteBuffer header = ByteBuffer.allocate(6);
+			header.putInt(GameSave.MAGIC).putShort((short) (GameSave.VERSION + 1));
+			Files.write(file, header.array());
+			GameWorld world = new GameWorld(TextureAtlas.load("images/sprites.txt"));
+			try {
+				new GameSave(file).load(world);
+				System.out.println("testVersion failed");
+			} catch (IOException expected) {
+				System.out.println("testVersion passed");
+			}
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			System.out.println("testVersion failed due to exception: " + e.getMessage());
+		}
+	}
+}
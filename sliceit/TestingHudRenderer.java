@@ -0,0 +1,73 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Unit tests for the HudRenderer class.
+ * <p>
+ * This class contains static test methods for verifying the allocation-free
+ * integer formatting and that drawing the HUD puts pixels on the screen.
+ * </p>
+ */
+public class TestingHudRenderer {
+	public static void main(String[] args) {
+		testFormatInt();
+		testDraw();
+	}
+
+	// Helper method turning formatted atlas entries back into text.
+	static String format(int value) {
+		int[] out = new int[11];
+		int count = HudRenderer.formatInt(value, out);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(HudRenderer.entryChar(out[i]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Tests that formatInt produces the same digits as Integer.toString for
+	 * zero, positive, negative and extreme values.
+	 */
+	static void testFormatInt() {
+		int[] values = { 0, 7, 10, 60, 1234, -5, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		boolean passed = true;
+		for (int v : values) {
+			if (!format(v).equals(Integer.toString(v))) {
+				System.out.println("testFormatInt failed for " + v + " got " + format(v));
+				passed = false;
+			}
+		}
+		if (passed) {
+			System.out.println("testFormatInt passed");
+		}
+	}
+
+	/**
+	 * Tests that drawing the score moves the pen to the right and leaves
+	 * non-transparent pixels on the canvas.
+	 */
+	static void testDraw() {
+		HudRenderer hud = new HudRenderer(new Font("Dialog", Font.BOLD, 24), Color.black);
+		BufferedImage canvas = new BufferedImage(300, 60, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = canvas.createGraphics();
+		int end = hud.drawScore(g2d, 0, 0, 120);
+		g2d.dispose();
+
+		boolean painted = false;
+		for (int y = 0; y < hud.getHeight() && !painted; y++) {
+			for (int x = 0; x < end && !painted; x++) {
+				painted = (canvas.getRGB(x, y) >>> 24) != 0;
+			}
+		}
+		if (end > 0 && painted) {
+			System.out.println("testDraw passed");
+		} else {
+			System.out.println("testDraw failed");
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package sliceit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Unit tests for the LockstepSession class.
+ * <p>
+ * This class contains static test methods that play two sessions against each
+ * other over the loopback interface, checking that the joiner picks up the
+ * host's seed even when it starts late, that with a stalling peer and lost
+ * packets both worlds still end up identical at a few KB/s, that both sides
+ * stop on the schedule's last tick and agree on the result before calling the
+ * round finished, and that a round ended by a bomb stays over through the
+ * rollbacks that follow.
+ * </p>
+ */
+public class TestingLockstep {
+	/** Ports the two test sessions listen on. */
+	private static final int PORT_A = 47301, PORT_B = 47302;
+
+	public static void main(String[] args) {
+		testHandshake();
+		testMatch();
+		testTimeUp();
+		testBombEndsMatch();
+	}
+
+	// Helper method to create a 500x500 world whose bombs do not end the game.
+	static GameWorld createWorld(TextureAtlas atlas) {
+		GameWorld world = new GameWorld(atlas);
+		world.setSize(500, 500);
+		world.setBombsEndGame(false);
+		return world;
+	}
+
+	// Helper method to open a session for one of the two test players.
+	static LockstepSession open(GameWorld world, DragQueue input, int player) throws IOException {
+		int local = player == 0 ? PORT_A : PORT_B;
+		int remote = player == 0 ? PORT_B : PORT_A;
+		return new LockstepSession(world, new DifficultyConfig(), input, player, local,
+				new InetSocketAddress("127.0.0.1", remote), 1234L, LockstepSession.DEFAULT_INPUT_DELAY);
+	}
+
+	// Helper method returning the saved state of a world.
+	static ByteBuffer stateOf(GameWorld world) {
+		ByteBuffer state = ByteBuffer.allocate(1 << 20);
+		world.writeState(state);
+		state.flip();
+		return state;
+	}
+
+	// Helper method returning a bot that drags back and forth across the screen, a little lower each pass.
+	static Runnable sweeper(DragQueue input) {
+		int[] position = { 0, 60, 12 };
+		return () -> {
+			for (int i = 0; i < 4; i++) {
+				position[0] += position[2];
+				if (position[0] < 0 || position[0] > 500) {
+					position[2] = -position[2];
+					position[0] += position[2];
+					position[1] = position[1] + 40 > 460 ? 60 : position[1] + 40;
+				}
+				input.offer(position[0], position[1]);
+			}
+		};
+	}
+
+	/**
+	 * Tests that a joiner started after the host's first hellos were sent to no one
+	 * still connects, with the host's seed.
+	 */
+	static void testHandshake() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			LockstepSession host = open(createWorld(atlas), new DragQueue(64), 0);
+			for (int i = 0; i < 10; i++) {
+				host.advance();
+			}
+			LockstepSession joiner = open(createWorld(atlas), new DragQueue(64), 1);
+			for (int i = 0; i < 20 && !(host.isConnected() && joiner.isConnected()); i++) {
+				joiner.advance();
+				Thread.sleep(1);
+				host.advance();
+				Thread.sleep(1);
+			}
+			boolean ok = host.isConnected() && joiner.isConnected() && joiner.getSeed() == 1234L;
+			host.close();
+			joiner.close();
+			if (ok) {
+				System.out.println("testHandshake passed");
+			} else {
+				System.out.println("testHandshake failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testHandshake failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests a long match between two bots in which the joiner regularly stalls
+	 * and drops a packet in seven: the host must roll back, both sides must agree
+	 * on every checksum and end with identical worlds and scores, and each must
+	 * send only a few KB/s.
+	 */
+	static void testMatch() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			GameWorld worldA = createWorld(atlas);
+			GameWorld worldB = createWorld(atlas);
+			DragQueue inputA = new DragQueue(256);
+			DragQueue inputB = new DragQueue(256);
+			LockstepSession a = open(worldA, inputA, 0);
+			LockstepSession b = open(worldB, inputB, 1);
+			b.setDropEvery(7);
+			SliceBot botA = new SliceBot(worldA, inputA);
+			//two identical bots would race for the same fruit, which the host always wins
+			Runnable botB = sweeper(inputB);
+			int target = 1500;
+			int iterations = 0;
+			while (a.getTick() < target || b.getTick() < target) {
+				iterations++;
+				if (a.getTick() < target && a.advance()) {
+					botA.run();
+				}
+				//the joiner falls behind for 8 ticks in every 100, as a slow cabinet would
+				boolean hiccup = iterations % 100 >= 92;
+				if (!hiccup && b.getTick() < target && b.advance()) {
+					botB.run();
+				}
+				Thread.sleep(0, 200_000);
+				if (iterations > 20 * target) {
+					break;
+				}
+			}
+			//let the last inputs and checksums cross over
+			for (int i = 0; i < 50; i++) {
+				a.sync();
+				b.sync();
+				Thread.sleep(1);
+			}
+			double seconds = target / (double) SpawnSchedule.TICKS_PER_SECOND;
+			double rateA = a.getBytesSent() / seconds / 1024;
+			double rateB = b.getBytesSent() / seconds / 1024;
+			System.out.printf("host %d points, joiner %d points; %d rollbacks of %d ticks, %d stalls; "
+					+ "%.2f and %.2f KB/s%n", a.getPoints(0), a.getPoints(1), a.getRollbacks(),
+					a.getResimulatedTicks(), a.getStalls() + b.getStalls(), rateA, rateB);
+			boolean same = a.getTick() == target && b.getTick() == target && stateOf(worldA).equals(stateOf(worldB))
+					&& a.getPoints(0) == b.getPoints(0) && a.getPoints(1) == b.getPoints(1)
+					&& a.getPoints(0) > 0 && a.getPoints(1) > 0;
+			boolean ok = same && a.getRollbacks() > 0 && a.getDesyncs() == 0 && b.getDesyncs() == 0
+					&& a.getComparedTick() >= target - 2 * LockstepSession.CHECK_INTERVAL && rateA < 4
+					&& rateB < 4;
+			a.close();
+			b.close();
+			if (ok) {
+				System.out.println("testMatch passed");
+			} else {
+				System.out.println("testMatch failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testMatch failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests a whole round in which the joiner stalls and drops packets: neither
+	 * side simulates past the last tick of the schedule, and once both report
+	 * the round finished they agree on the scores and the world.
+	 */
+	static void testTimeUp() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			GameWorld worldA = createWorld(atlas);
+			GameWorld worldB = createWorld(atlas);
+			DragQueue inputA = new DragQueue(256);
+			DragQueue inputB = new DragQueue(256);
+			LockstepSession a = open(worldA, inputA, 0);
+			LockstepSession b = open(worldB, inputB, 1);
+			b.setDropEvery(5);
+			SliceBot botA = new SliceBot(worldA, inputA);
+			Runnable botB = sweeper(inputB);
+			boolean early = false;
+			int iterations = 0;
+			while (!(a.isFinished() && b.isFinished()) && iterations < 40_000) {
+				iterations++;
+				if (a.advance()) {
+					botA.run();
+				}
+				//the joiner also stalls at the very end, so the host has to wait for its last inputs
+				boolean hiccup = iterations % 100 >= 90;
+				if (!hiccup && b.advance()) {
+					botB.run();
+				}
+				early |= a.isFinished() && a.getRemoteConfirmed() < worldA.getSchedule().getTicks() - 1;
+				Thread.sleep(0, 200_000);
+			}
+			int last = worldA.getSchedule().getTicks();
+			boolean ok = a.isFinished() && b.isFinished() && !early && a.getTick() == last && b.getTick() == last
+					&& worldA.getTickCount() == last && stateOf(worldA).equals(stateOf(worldB))
+					&& a.getPoints(0) == b.getPoints(0) && a.getPoints(1) == b.getPoints(1) && a.getPoints(0) > 0
+					&& !a.advance() && a.getTick() == last;
+			a.close();
+			b.close();
+			if (ok) {
+				System.out.println("testTimeUp passed");
+			} else {
+				System.out.println("testTimeUp failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testTimeUp failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests a match played until a bomb is sliced, with the joiner stalling so
+	 * its inputs keep arriving late: once a world is over, no rollback may bring
+	 * it back, and both sides must end over with the same loser and world.
+	 */
+	static void testBombEndsMatch() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			GameWorld worldA = createWorld(atlas);
+			GameWorld worldB = createWorld(atlas);
+			worldA.setBombsEndGame(true);
+			worldB.setBombsEndGame(true);
+			DragQueue inputA = new DragQueue(256);
+			DragQueue inputB = new DragQueue(256);
+			LockstepSession a = open(worldA, inputA, 0);
+			LockstepSession b = open(worldB, inputB, 1);
+			//both sweep everything, bombs included; the joiner's pass starts lower
+			Runnable sweepA = sweeper(inputA);
+			Runnable sweepB = sweeper(inputB);
+			for (int i = 0; i < 3; i++) {
+				sweepB.run();
+			}
+			inputB.clear();
+			boolean revived = false;
+			boolean overA = false, overB = false;
+			long endTick = -1;
+			int iterations = 0;
+			while (endTick < 0 || a.getTick() < endTick || b.getTick() < endTick) {
+				iterations++;
+				if ((endTick < 0 || a.getTick() < endTick) && a.advance()) {
+					sweepA.run();
+				}
+				boolean hiccup = iterations % 50 >= 42;
+				if (!hiccup && (endTick < 0 || b.getTick() < endTick) && b.advance()) {
+					sweepB.run();
+				}
+				revived |= overA && !worldA.isGameOver() || overB && !worldB.isGameOver();
+				overA = worldA.isGameOver();
+				overB = worldB.isGameOver();
+				//play on for a while after both have seen the hit, so late inputs roll them back
+				if (endTick < 0 && overA && overB) {
+					endTick = Math.max(a.getTick(), b.getTick()) + 60;
+				}
+				Thread.sleep(0, 200_000);
+				if (iterations > 40_000) {
+					break;
+				}
+			}
+			for (int i = 0; i < 50; i++) {
+				a.sync();
+				b.sync();
+				revived |= overA && !worldA.isGameOver() || overB && !worldB.isGameOver();
+				Thread.sleep(1);
+			}
+			boolean ok = endTick > 0 && !revived && worldA.isGameOver() && worldB.isGameOver()
+					&& a.isFinished() && b.isFinished() && a.getRollbacks() > 0 && a.getLoser() >= 0 && a.getLoser() == b.getLoser()
+					&& a.getTick() == b.getTick() && stateOf(worldA).equals(stateOf(worldB));
+			a.close();
+			b.close();
+			if (ok) {
+				System.out.println("testBombEndsMatch passed");
+			} else {
+				System.out.println("testBombEndsMatch failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testBombEndsMatch failed due to exception: " + e.getMessage());
+		}
+	}
+}
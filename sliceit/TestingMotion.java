@@ -0,0 +1,160 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * Unit tests for the Motion class.
+ * <p>
+ * This class contains static test methods for verifying that one sub-step is
+ * the game's original update without the rounding to whole pixels, that more
+ * sub-steps follow the true parabola more closely, that a point is hit
+ * anywhere along the last tick's path and nowhere off it, that a saved motion
+ * comes back bit for bit, and that objects are only culled once a whole tick
+ * was off screen.
+ * </p>
+ */
+public class TestingMotion {
+	public static void main(String[] args) {
+		testSingleSubstep();
+		testSubsteps();
+		testSweptContains();
+		testState();
+		testCulling();
+	}
+
+	/**
+	 * Tests that with one sub-step the position takes the velocity and then
+	 * gravity is added, keeping fractions of a pixel.
+	 */
+	static void testSingleSubstep() {
+		Motion motion = new Motion(100, 200, 0.4f, -3f, 0.3f);
+		float x = 100;
+		float y = 200;
+		float vy = -3f;
+		boolean ok = true;
+		for (int t = 0; t < 10; t++) {
+			motion.step(1);
+			x += 0.4f;
+			y += vy;
+			vy += 0.3f;
+			ok &= motion.getX() == x && motion.getY() == y && motion.getVelocityY() == vy;
+		}
+		//0.4 a tick used to be truncated away entirely
+		Fruit fruit = new Fruit(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB),
+				new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), 100, 200, 0.4f, 0f);
+		fruit.setGravity(0);
+		for (int t = 0; t < 10; t++) {
+			fruit.update(1);
+		}
+		if (ok && fruit.getX() == 104) {
+			System.out.println("testSingleSubstep passed");
+		} else {
+			System.out.println("testSingleSubstep failed");
+		}
+	}
+
+	/**
+	 * Tests that more sub-steps land closer to the exact parabola.
+	 */
+	static void testSubsteps() {
+		int ticks = 40;
+		double exact = 500 - 15.0 * ticks + 0.5 * 0.5 * ticks * ticks;
+		double previous = Double.MAX_VALUE;
+		boolean ok = true;
+		for (int substeps : new int[] { 1, 2, 4, 16 }) {
+			Motion motion = new Motion(0, 500, 0, -15f, 0.5f);
+			for (int t = 0; t < ticks; t++) {
+				motion.step(substeps);
+			}
+			double error = Math.abs(motion.getY() - exact);
+			ok &= error < previous;
+			previous = error;
+		}
+		if (ok && previous < 1) {
+			System.out.println("testSubsteps passed");
+		} else {
+			System.out.println("testSubsteps failed");
+		}
+	}
+
+	/**
+	 * Tests that a fast object is hit where it passed during the last tick but
+	 * neither at its start nor at its end, is missed beside its path, and that a
+	 * placed object is only hit where it is.
+	 */
+	static void testSweptContains() {
+		//a 20 pixel box moving 100 pixels to the right in one tick
+		Motion motion = new Motion(0, 0, 100f, 0f, 0f);
+		motion.step(Motion.DEFAULT_SUBSTEPS);
+		boolean ok = motion.sweptContains(55, 10, 20, 20) && motion.sweptContains(5, 5, 20, 20)
+				&& motion.sweptContains(115, 15, 20, 20);
+		ok &= !motion.sweptContains(55, 25, 20, 20) && !motion.sweptContains(125, 10, 20, 20);
+		//a falling, drifting box: the corner of the path's bounding box is never covered
+		Motion diagonal = new Motion(0, 0, 50f, 50f, 0f);
+		diagonal.step(1);
+		ok &= diagonal.sweptContains(35, 35, 10, 10) && !diagonal.sweptContains(55, 5, 10, 10);
+		motion.moveTo(300, 300);
+		ok &= !motion.sweptContains(55, 10, 20, 20) && motion.sweptContains(310, 310, 20, 20);
+		if (ok) {
+			System.out.println("testSweptContains passed");
+		} else {
+			System.out.println("testSweptContains failed");
+		}
+	}
+
+	/**
+	 * Tests that a motion read back from its saved state has the same position,
+	 * velocity and path, and goes on exactly as the original.
+	 */
+	static void testState() {
+		Motion motion = new Motion(10.5f, 480.25f, 1.7f, -13.3f, 0.3f);
+		for (int t = 0; t < 17; t++) {
+			motion.step(3);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		motion.writeState(buffer);
+		buffer.flip();
+		Motion copy = new Motion(0, 0, 0, 0, 0);
+		copy.readState(buffer);
+		boolean ok = same(motion, copy);
+		for (int t = 0; t < 25; t++) {
+			motion.step(3);
+			copy.step(3);
+			ok &= same(motion, copy);
+		}
+		if (ok) {
+			System.out.println("testState passed");
+		} else {
+			System.out.println("testState failed");
+		}
+	}
+
+	// Helper method to compare two motions bit for bit.
+	static boolean same(Motion a, Motion b) {
+		return Float.floatToIntBits(a.getX()) == Float.floatToIntBits(b.getX())
+				&& Float.floatToIntBits(a.getY()) == Float.floatToIntBits(b.getY())
+				&& Float.floatToIntBits(a.getVelocityY()) == Float.floatToIntBits(b.getVelocityY())
+				&& a.getMinX() == b.getMinX() && a.getMaxX() == b.getMaxX() && a.getMinY() == b.getMinY()
+				&& a.getMaxY() == b.getMaxY();
+	}
+
+	/**
+	 * Tests that a bomb that drops below the screen during a tick is kept until
+	 * a whole tick has been below it.
+	 */
+	static void testCulling() {
+		BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+		Bomb bomb = new Bomb(image, 100, 390, 0f, 20f);
+		bomb.setGravity(0);
+		bomb.update();
+		boolean ok = bomb.getY() == 410 && !bomb.isOffScreen(400, 400);
+		bomb.update();
+		ok &= bomb.isOffScreen(400, 400);
+		if (ok) {
+			System.out.println("testCulling passed");
+		} else {
+			System.out.println("testCulling failed");
+		}
+	}
+}
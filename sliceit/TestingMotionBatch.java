@@ -0,0 +1,75 @@
+package sliceit;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the MotionBatch class.
+ * <p>
+ * This class contains static test methods for verifying that stepping a batch
+ * gives bit for bit what stepping each {@link Motion} gives, across block
+ * boundaries and for any number of sub-steps, and that the batch grows and
+ * empties as expected.
+ * </p>
+ */
+public class TestingMotionBatch {
+	public static void main(String[] args) {
+		testMatchesMotion();
+		testGrowAndClear();
+	}
+
+	/**
+	 * Tests that every path of a batch larger than one block ends exactly where
+	 * the same Motion object does, with the same swept bounds.
+	 */
+	static void testMatchesMotion() {
+		int count = MotionBatch.BLOCK * 2 + 37;
+		boolean ok = true;
+		for (int substeps : new int[] { 1, 3, 4 }) {
+			Random random = new Random(substeps);
+			Motion[] motions = new Motion[count];
+			MotionBatch batch = new MotionBatch(16);
+			for (int i = 0; i < count; i++) {
+				motions[i] = new Motion(random.nextFloat() * 500, 480 + random.nextFloat() * 20,
+						random.nextFloat() * 6 - 3, -8 - random.nextFloat() * 9, 0.2f + random.nextFloat() * 0.4f);
+				batch.add(motions[i]);
+			}
+			for (int t = 0; t < 60; t++) {
+				batch.step(substeps);
+				for (Motion motion : motions) {
+					motion.step(substeps);
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				Motion m = motions[i];
+				ok &= Float.floatToIntBits(m.getX()) == Float.floatToIntBits(batch.getX(i))
+						&& Float.floatToIntBits(m.getY()) == Float.floatToIntBits(batch.getY(i))
+						&& Float.floatToIntBits(m.getVelocityY()) == Float.floatToIntBits(batch.getVelocityY(i))
+						&& m.getMinY() == batch.getMinY(i) && m.getMaxY() == batch.getMaxY(i);
+			}
+		}
+		if (ok) {
+			System.out.println("testMatchesMotion passed");
+		} else {
+			System.out.println("testMatchesMotion failed");
+		}
+	}
+
+	/**
+	 * Tests that adding past the capacity keeps the earlier paths and that a
+	 * cleared batch starts again from index 0.
+	 */
+	static void testGrowAndClear() {
+		MotionBatch batch = new MotionBatch(2);
+		for (int i = 0; i < 10; i++) {
+			batch.add(i, 100 + i, 0, 0, 0);
+		}
+		boolean ok = batch.size() == 10 && batch.getX(0) == 0 && batch.getY(9) == 109;
+		batch.clear();
+		ok &= batch.size() == 0 && batch.add(5, 6, 0, 0, 0) == 0 && batch.getX(0) == 5;
+		if (ok) {
+			System.out.println("testGrowAndClear passed");
+		} else {
+			System.out.println("testGrowAndClear failed");
+		}
+	}
+}
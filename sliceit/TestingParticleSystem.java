@@ -0,0 +1,157 @@
+package sliceit;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Unit tests for the ParticleSystem class.
+ * <p>
+ * This class contains static test methods for verifying that the particle
+ * ring never holds more than its capacity, that particles expire, that bursts
+ * are reproducible from the seed, that slicing in a GameWorld emits juice,
+ * fruit halves and debris, and that a snapshot's particle bounds cover every
+ * particle.
+ * </p>
+ */
+public class TestingParticleSystem {
+	public static void main(String[] args) {
+		testCapacity();
+		testExpire();
+		testSameSeed();
+		testWorldParticles();
+		testSnapshotBounds();
+	}
+
+	/**
+	 * Tests that emitting far more than the capacity keeps the live count at the
+	 * capacity and thins out the later bursts.
+	 */
+	static void testCapacity() {
+		ParticleSystem particles = new ParticleSystem(100);
+		particles.reset(42L);
+		int firstBurst = particles.burst(0f, 0f, 50, 3f, 0, 2, 100, 0f);
+		for (int i = 0; i < 20; i++) {
+			particles.burst(0f, 0f, 50, 3f, 0, 2, 100, 0f);
+		}
+		if (firstBurst == 50 && particles.getLive() == 100 && particles.getThinned() > 0) {
+			System.out.println("testCapacity passed");
+		} else {
+			System.out.println("testCapacity failed");
+		}
+	}
+
+	/**
+	 * Tests that particles disappear after their lifetime and when they fall below
+	 * the play area.
+	 */
+	static void testExpire() {
+		ParticleSystem particles = new ParticleSystem(16);
+		particles.reset(1L);
+		particles.emitSprite(0f, 0f, 0f, 0f, 0, 3, 0f);
+		particles.emitSprite(0f, 90f, 0f, 20f, 0, 100, 0f);
+		particles.update(100);
+		int afterOne = particles.getLive();
+		particles.update(100);
+		particles.update(100);
+		if (afterOne == 1 && particles.getLive() == 0) {
+			System.out.println("testExpire passed");
+		} else {
+			System.out.println("testExpire failed");
+		}
+	}
+
+	/**
+	 * Tests that two systems with the same seed produce the same particles.
+	 */
+	static void testSameSeed() {
+		ParticleSystem a = new ParticleSystem(64);
+		ParticleSystem b = new ParticleSystem(64);
+		a.reset(7L);
+		b.reset(7L);
+		a.burst(100f, 100f, 30, 5f, 1, 2, 50, 0.2f);
+		b.burst(100f, 100f, 30, 5f, 1, 2, 50, 0.2f);
+		for (int i = 0; i < 10; i++) {
+			a.update(1000);
+			b.update(1000);
+		}
+		WorldSnapshot sa = new WorldSnapshot();
+		WorldSnapshot sb = new WorldSnapshot();
+		a.writeTo(sa);
+		b.writeTo(sb);
+		BufferedImage ia = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage ib = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+		SpriteBatch batch = new SpriteBatch(new TextureAtlas(new String[0], new BufferedImage[0][]));
+		sa.draw(ia.createGraphics(), batch);
+		sb.draw(ib.createGraphics(), batch);
+		boolean same = sa.getParticleCount() == 30 && sb.getParticleCount() == 30;
+		for (int y = 0; y < 200 && same; y++) {
+			for (int x = 0; x < 200 && same; x++) {
+				same = ia.getRGB(x, y) == ib.getRGB(x, y);
+			}
+		}
+		if (same) {
+			System.out.println("testSameSeed passed");
+		} else {
+			System.out.println("testSameSeed failed");
+		}
+	}
+
+	/**
+	 * Tests that slicing a fruit throws juice and two halves, that the sliced fruit
+	 * itself is then left out of the snapshot, and that a bomb adds debris which
+	 * keeps moving after the game is over.
+	 */
+	static void testWorldParticles() {
+		BufferedImage img = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage half = new BufferedImage(25, 50, BufferedImage.TYPE_INT_ARGB);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "fruit", "sliced", "bomb", "halfLeft", "halfRight" },
+				new BufferedImage[][] { { img }, { img }, { img }, { half }, { half } });
+		GameWorld world = new GameWorld(atlas);
+		world.setSize(500, 500);
+		Fruit fruit = new Fruit(img, img, 100, 100, 0f, 0f);
+		fruit.setSpriteIds(atlas.getId("fruit"), atlas.getId("sliced"));
+		world.getFruits().add(fruit);
+		world.getBombs().add(new Bomb(img, 300, 300, 0f, 0f));
+
+		world.slice(110, 110);
+		int afterFruit = world.getParticles().getLive();
+		WorldSnapshot snapshot = new WorldSnapshot();
+		world.writeSnapshot(snapshot);
+		int spritesAfterFruit = snapshot.getCount();
+
+		world.slice(310, 310);
+		int afterBomb = world.getParticles().getLive();
+		world.writeSnapshot(snapshot);
+		world.tick();
+		boolean fruitFrozen = fruit.getY() == 100;
+
+		if (afterFruit == 26 && spritesAfterFruit == 1 && afterBomb == 26 + 150 && world.isGameOver()
+				&& fruitFrozen && world.getParticles().getLive() > 0) {
+			System.out.println("testWorldParticles passed");
+		} else {
+			System.out.println("testWorldParticles failed");
+		}
+	}
+
+	/**
+	 * Tests that the particle bounds of a snapshot cover square particles by
+	 * their size and sprite particles by their frame, and that there are none
+	 * once the snapshot is cleared.
+	 */
+	static void testSnapshotBounds() {
+		BufferedImage half = new BufferedImage(25, 50, BufferedImage.TYPE_INT_ARGB);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "halfLeft" }, new BufferedImage[][] { { half } });
+		WorldSnapshot snapshot = new WorldSnapshot();
+		Rectangle bounds = new Rectangle();
+		boolean none = !snapshot.getParticleBounds(atlas, bounds);
+		snapshot.addParticle(10, 20, atlas.getId("halfLeft"), 0, 0);
+		snapshot.addParticle(100, 5, ParticleSystem.NO_SPRITE, 0, 4);
+		boolean some = snapshot.getParticleBounds(atlas, bounds);
+		snapshot.clear();
+		if (none && some && bounds.equals(new Rectangle(10, 5, 94, 65)) && !snapshot.getParticleBounds(atlas, bounds)) {
+			System.out.println("testSnapshotBounds passed");
+		} else {
+			System.out.println("testSnapshotBounds failed");
+		}
+	}
+}
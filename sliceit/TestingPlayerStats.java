@@ -0,0 +1,176 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Unit tests for the PlayerStats class.
+ * <p>
+ * This class contains static test methods for verifying that each player's
+ * games, best and average scores, slicing rate and bomb deaths add up, that
+ * the hourly and daily totals stay correct when old hours are folded into
+ * their days, that days follow the venue's time zone, and that saved
+ * statistics load back the same.
+ * </p>
+ */
+public class TestingPlayerStats {
+	public static void main(String[] args) {
+		testPlayer();
+		testRollups();
+		testZone();
+		testSaveLoad();
+	}
+
+	// Helper method to turn a UTC date and hour into milliseconds since the epoch.
+	static long utc(int day, int hour, int minute) {
+		return ZonedDateTime.of(2026, 3, day, hour, minute, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Tests one player's totals over a few rounds, with names matched ignoring
+	 * case.
+	 */
+	static void testPlayer() {
+		PlayerStats stats = new PlayerStats(ZoneOffset.UTC);
+		stats.record("Alice", utc(1, 10, 0), 120, 12, 60_000, false);
+		stats.record("alice", utc(1, 10, 5), 40, 4, 20_000, true);
+		stats.record("Bob", utc(1, 10, 6), 0, 0, 5_000, true);
+		stats.record("ALICE", utc(1, 11, 0), 200, 20, 60_000, false);
+		int alice = stats.find("aLiCe");
+		int bob = stats.find("bob");
+		boolean ok = stats.getPlayerCount() == 2 && stats.find("Carol") == -1;
+		ok &= stats.getName(alice).equals("Alice") && stats.getGames(alice) == 3;
+		ok &= stats.getBestScore(alice) == 200 && stats.getAverageScore(alice) == 120.0;
+		ok &= stats.getSlicesPerMinute(alice) == 36 * 60_000.0 / 140_000 && stats.getBombDeaths(alice) == 1;
+		ok &= stats.getGames(bob) == 1 && stats.getBestScore(bob) == 0 && stats.getBombDeaths(bob) == 1;
+		if (ok) {
+			System.out.println("testPlayer passed");
+		} else {
+			System.out.println("testPlayer failed");
+		}
+	}
+
+	/**
+	 * Tests that hourly and daily totals match the rounds played, and that once
+	 * an hour has been folded into its day the hour reads 0 while the day
+	 * still counts it.
+	 */
+	static void testRollups() {
+		PlayerStats stats = new PlayerStats(ZoneOffset.UTC);
+		stats.record("Alice", utc(1, 9, 0), 100, 10, 60_000, false);
+		stats.record("Bob", utc(1, 9, 30), 50, 5, 30_000, true);
+		stats.record("Alice", utc(1, 20, 0), 30, 3, 10_000, true);
+		boolean ok = stats.getHourTotal(utc(1, 9, 15), PlayerStats.GAMES) == 2;
+		ok &= stats.getHourTotal(utc(1, 9, 59), PlayerStats.POINTS) == 150;
+		ok &= stats.getHourTotal(utc(1, 10, 0), PlayerStats.GAMES) == 0;
+		ok &= stats.getDayTotal(utc(1, 0, 0), PlayerStats.GAMES) == 3;
+		ok &= stats.getDayTotal(utc(1, 23, 0), PlayerStats.BOMB_DEATHS) == 2;
+		//a round the next morning leaves 9:00 outside the hourly detail
+		stats.record("Bob", utc(2, 10, 0), 70, 7, 40_000, false);
+		ok &= stats.getHourTotal(utc(1, 9, 0), PlayerStats.GAMES) == 0;
+		ok &= stats.getHourTotal(utc(1, 20, 0), PlayerStats.GAMES) == 1;
+		ok &= stats.getDayTotal(utc(1, 12, 0), PlayerStats.GAMES) == 3;
+		ok &= stats.getDayTotal(utc(1, 12, 0), PlayerStats.POINTS) == 180;
+		ok &= stats.getDayTotal(utc(1, 12, 0), PlayerStats.PLAY_MILLIS) == 100_000;
+		ok &= stats.getDayTotal(utc(2, 12, 0), PlayerStats.SLICES) == 7;
+		//a round late for its hour goes straight to its day
+		stats.record("Alice", utc(1, 8, 0), 10, 1, 1_000, false);
+		ok &= stats.getHourTotal(utc(1, 8, 0), PlayerStats.GAMES) == 0;
+		ok &= stats.getDayTotal(utc(1, 8, 0), PlayerStats.GAMES) == 4;
+		//a month later every hour of the 1st has been folded, and the day is kept
+		stats.record("Bob", utc(31, 10, 0), 0, 0, 1_000, true);
+		ok &= stats.getDayTotal(utc(1, 12, 0), PlayerStats.GAMES) == 4;
+		ok &= stats.getDayTotal(utc(2, 12, 0), PlayerStats.GAMES) == 1;
+		ok &= stats.getHourTotal(utc(2, 10, 0), PlayerStats.GAMES) == 0;
+		if (ok) {
+			System.out.println("testRollups passed");
+		} else {
+			System.out.println("testRollups failed");
+		}
+	}
+
+	/**
+	 * Tests that hours and days follow the venue's time zone rather than UTC.
+	 */
+	static void testZone() {
+		//20:00 and 23:30 UTC on the 1st are 5:00 and 8:30 on the 2nd in Tokyo
+		PlayerStats tokyo = new PlayerStats(ZoneId.of("Asia/Tokyo"));
+		PlayerStats utc = new PlayerStats(ZoneOffset.UTC);
+		for (PlayerStats stats : new PlayerStats[] { tokyo, utc }) {
+			stats.record("Alice", utc(1, 14, 0), 10, 1, 1_000, false);
+			stats.record("Alice", utc(1, 20, 0), 20, 2, 1_000, false);
+			stats.record("Alice", utc(1, 23, 30), 30, 3, 1_000, false);
+		}
+		boolean ok = utc.getDayTotal(utc(1, 12, 0), PlayerStats.POINTS) == 60;
+		ok &= tokyo.getDayTotal(utc(1, 12, 0), PlayerStats.POINTS) == 10;
+		ok &= tokyo.getDayTotal(utc(1, 20, 0), PlayerStats.POINTS) == 50;
+		ok &= tokyo.getHourTotal(utc(1, 23, 45), PlayerStats.POINTS) == 30;
+		if (ok) {
+			System.out.println("testZone passed");
+		} else {
+			System.out.println("testZone failed");
+		}
+	}
+
+	/**
+	 * Tests that saved statistics load back with the same players and totals,
+	 * and carry on folding hours as before.
+	 */
+	static void testSaveLoad() {
+		boolean ok = true;
+		try {
+			Path dir = Files.createTempDirectory("sliceit-stats");
+			Path file = dir.resolve(PlayerStats.DEFAULT_FILE);
+			PlayerStats stats = new PlayerStats(ZoneOffset.UTC);
+			for (int i = 0; i < 40; i++) {
+				stats.record("player" + (i % 13), utc(1 + i / 10, i % 24, 0), i * 10, i, 30_000, i % 4 == 0);
+			}
+			stats.save(file);
+			PlayerStats loaded = PlayerStats.load(file, ZoneOffset.UTC);
+			ok &= loaded.getPlayerCount() == 13;
+			for (int id = 0; id < 13; id++) {
+				int other = loaded.find(stats.getName(id));
+				ok &= loaded.getGames(other) == stats.getGames(id) && loaded.getBestScore(other) == stats.getBestScore(id);
+				ok &= loaded.getAverageScore(other) == stats.getAverageScore(id);
+				ok &= loaded.getSlicesPerMinute(other) == stats.getSlicesPerMinute(id);
+				ok &= loaded.getBombDeaths(other) == stats.getBombDeaths(id);
+			}
+			for (int day = 1; day <= 5; day++) {
+				for (int field = 0; field < PlayerStats.FIELDS; field++) {
+					ok &= loaded.getDayTotal(utc(day, 12, 0), field) == stats.getDayTotal(utc(day, 12, 0), field);
+				}
+				for (int hour = 0; hour < 24; hour++) {
+					ok &= loaded.getHourTotal(utc(day, hour, 0), PlayerStats.GAMES) == stats
+							.getHourTotal(utc(day, hour, 0), PlayerStats.GAMES);
+				}
+			}
+			stats.record("player0", utc(6, 12, 0), 5, 1, 1_000, false);
+			loaded.record("player0", utc(6, 12, 0), 5, 1, 1_000, false);
+			for (int day = 1; day <= 6; day++) {
+				ok &= loaded.getDayTotal(utc(day, 0, 0), PlayerStats.POINTS) == stats.getDayTotal(utc(day, 0, 0),
+						PlayerStats.POINTS);
+			}
+			Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+			try {
+				PlayerStats.load(file, ZoneOffset.UTC);
+				ok = false;
+			} catch (IOException e) {
+				//expected
+			}
+			Files.delete(file);
+			Files.delete(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+			ok = false;
+		}
+		if (ok) {
+			System.out.println("testSaveLoad passed");
+		} else {
+			System.out.println("testSaveLoad failed");
+		}
+	}
+}
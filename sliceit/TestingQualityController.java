@@ -0,0 +1,109 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Unit tests for the QualityController class.
+ * <p>
+ * This class contains static test methods for verifying that slow frames
+ * lower the quality one level per window, that raising it again needs several
+ * fast windows, that frames near the budget leave the level alone, and that
+ * the quality level never changes how a round plays out.
+ * </p>
+ */
+public class TestingQualityController {
+	/** Budget used by the tests, 20 ms like the game. */
+	private static final long BUDGET = 20_000_000L;
+
+	public static void main(String[] args) {
+		testStepDown();
+		testHysteresis();
+		testSimulationUnchanged();
+	}
+
+	// Helper method to record the same frame time many times.
+	static void record(QualityController quality, long nanos, int frames) {
+		for (int i = 0; i < frames; i++) {
+			quality.recordFrame(nanos);
+		}
+	}
+
+	/**
+	 * Tests that each window of slow frames drops one level and that the level
+	 * stops at LOWEST.
+	 */
+	static void testStepDown() {
+		QualityController quality = new QualityController(BUDGET);
+		record(quality, 30_000_000L, QualityController.WINDOW - 1);
+		int beforeWindow = quality.getLevel();
+		record(quality, 30_000_000L, 1);
+		int afterWindow = quality.getLevel();
+		record(quality, 30_000_000L, QualityController.WINDOW * 10);
+		if (beforeWindow == QualityController.HIGH && afterWindow == 1
+				&& quality.getLevel() == QualityController.LOWEST && quality.getRenderScale() < 1f) {
+			System.out.println("testStepDown passed");
+		} else {
+			System.out.println("testStepDown failed");
+		}
+	}
+
+	/**
+	 * Tests that one fast window is not enough to raise the quality, several are,
+	 * and frames just under the budget keep the level where it is.
+	 */
+	static void testHysteresis() {
+		QualityController quality = new QualityController(BUDGET);
+		record(quality, 30_000_000L, QualityController.WINDOW * 2);
+		int lowered = quality.getLevel();
+		record(quality, 15_000_000L, QualityController.WINDOW * 10);
+		int steady = quality.getLevel();
+		record(quality, 2_000_000L, QualityController.WINDOW);
+		int afterOneFast = quality.getLevel();
+		record(quality, 2_000_000L, QualityController.WINDOW * 3);
+		if (lowered == 2 && steady == 2 && afterOneFast == 2 && quality.getLevel() == 1) {
+			System.out.println("testHysteresis passed");
+		} else {
+			System.out.println("testHysteresis failed");
+		}
+	}
+
+	/**
+	 * Tests that two worlds with the same seed, one drawn at the highest quality
+	 * and one at the lowest, end with the same score, tick count and snapshot.
+	 */
+	static void testSimulationUnchanged() {
+		BufferedImage img = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "fruit", "sliced", "bomb" },
+				new BufferedImage[][] { { img }, { img }, { img } });
+		HudRenderer hud = new HudRenderer(new java.awt.Font("Dialog", java.awt.Font.BOLD, 24), java.awt.Color.black);
+		WorldSnapshot[] last = new WorldSnapshot[2];
+		int[] points = new int[2];
+		for (int run = 0; run < 2; run++) {
+			QualityController quality = new QualityController(BUDGET);
+			quality.setFixedLevel(run == 0 ? QualityController.HIGH : QualityController.LOWEST);
+			GameRenderer renderer = new GameRenderer(null, new SpriteBatch(atlas), hud);
+			renderer.setQuality(quality);
+			DifficultyConfig config = new DifficultyConfig();
+			config.setCountScale(20);
+			GameWorld world = new GameWorld(atlas);
+			world.setSize(500, 500);
+			world.reset(config, 5L);
+			BufferedImage frame = new BufferedImage(500, 500, BufferedImage.TYPE_INT_ARGB);
+			WorldSnapshot snapshot = new WorldSnapshot();
+			for (int t = 0; t < 200; t++) {
+				world.slice(100 + t, 300);
+				world.tick();
+				world.writeSnapshot(snapshot);
+				renderer.drawScene(frame.createGraphics(), 500, 500, snapshot);
+			}
+			last[run] = snapshot;
+			points[run] = world.getPoints();
+		}
+		if (points[0] == points[1] && points[0] > 0 && last[0].getCount() == last[1].getCount()
+				&& last[0].getParticleCount() == last[1].getParticleCount()) {
+			System.out.println("testSimulationUnchanged passed");
+		} else {
+			System.out.println("testSimulationUnchanged failed");
+		}
+	}
+}
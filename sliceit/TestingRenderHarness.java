@@ -0,0 +1,108 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Unit tests for the RenderHarness class.
+ * <p>
+ * This class contains static test methods for verifying that the scripted
+ * scenes draw the same every time and match the golden images, that the image
+ * comparison honours its tolerance, and that drawing more sprites takes
+ * longer.
+ * </p>
+ */
+public class TestingRenderHarness {
+	public static void main(String[] args) {
+		testDeterministic();
+		testGolden();
+		testTolerance();
+		testThroughput();
+	}
+
+	/**
+	 * Tests that drawing a scene twice gives identical images.
+	 */
+	static void testDeterministic() {
+		try {
+			RenderHarness harness = new RenderHarness();
+			boolean ok = true;
+			for (String scene : RenderHarness.SCENES) {
+				ok &= RenderHarness.countDiffering(harness.render(scene), harness.render(scene), 0, null) == 0;
+			}
+			if (ok) {
+				System.out.println("testDeterministic passed");
+			} else {
+				System.out.println("testDeterministic failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testDeterministic failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that every scene matches its golden image.
+	 */
+	static void testGolden() {
+		try {
+			if (new RenderHarness().checkGolden(new File("golden"))) {
+				System.out.println("testGolden passed");
+			} else {
+				System.out.println("testGolden failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testGolden failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that small changes in every pixel are tolerated, that a larger change
+	 * in a single pixel is counted, and that images of different sizes differ
+	 * everywhere.
+	 */
+	static void testTolerance() {
+		BufferedImage a = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		BufferedImage b = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 10; y++) {
+			for (int x = 0; x < 20; x++) {
+				a.setRGB(x, y, 0x804020);
+				b.setRGB(x, y, 0x84441c);
+			}
+		}
+		int tolerated = RenderHarness.countDiffering(a, b, RenderHarness.CHANNEL_TOLERANCE, null);
+		b.setRGB(3, 4, 0x806020);
+		BufferedImage diff = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		int one = RenderHarness.countDiffering(a, b, RenderHarness.CHANNEL_TOLERANCE, diff);
+		int sizes = RenderHarness.countDiffering(a, new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), 255, null);
+		if (tolerated == 0 && one == 1 && (diff.getRGB(3, 4) & 0xffffff) == 0xff0000 && sizes == 100) {
+			System.out.println("testTolerance passed");
+		} else {
+			System.out.println("testTolerance failed");
+		}
+	}
+
+	/**
+	 * Tests that a crowded scene draws at a lower frame rate than a sparse one.
+	 */
+	static void testThroughput() {
+		try {
+			RenderHarness harness = new RenderHarness();
+			WorldSnapshot sparse = new WorldSnapshot();
+			harness.playWorld(100, 150).writeSnapshot(sparse);
+			WorldSnapshot crowded = new WorldSnapshot();
+			harness.playWorld(10000, 150).writeSnapshot(crowded);
+			double sparseFps = harness.measureFramesPerSecond(sparse, 400);
+			double crowdedFps = harness.measureFramesPerSecond(crowded, 400);
+			System.out.printf("%d sprites at %.1f frames/s, %d sprites at %.1f frames/s%n", sparse.getCount(),
+					sparseFps, crowded.getCount(), crowdedFps);
+			if (sparseFps > 0 && crowdedFps > 0 && sparseFps > crowdedFps) {
+				System.out.println("testThroughput passed");
+			} else {
+				System.out.println("testThroughput failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testThroughput failed due to exception: " + e.getMessage());
+		}
+	}
+}
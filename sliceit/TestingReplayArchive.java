@@ -0,0 +1,179 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the ReplayArchive, SessionRecorder and SessionReader classes.
+ * <p>
+ * This class contains static test methods for verifying that recorded rounds
+ * spread over several segments can be found by id after the archive is
+ * reopened, that they replay to exactly the recorded score, that old
+ * segments are pruned, and that an index entry torn by a crash does not lose
+ * the rounds archived after it.
+ * </p>
+ */
+public class TestingReplayArchive {
+	public static void main(String[] args) {
+		testRecordAndReplay();
+		testPrune();
+		testTornIndex();
+	}
+
+	// Helper method to record a round of a number of ticks, slicing along a line as the simulation thread would.
+	// Bombs do not end the round, so every round runs its full length.
+	static SessionRecorder record(TextureAtlas atlas, DifficultyConfig config, long seed, int ticks) {
+		GameWorld world = new GameWorld(atlas);
+		world.setSize(500, 500);
+		world.setBombsEndGame(false);
+		world.reset(config, seed);
+		SessionRecorder recorder = new SessionRecorder(world, config);
+		for (int t = 0; t < ticks; t++) {
+			int x = (int) ((t * 13 + seed) % 500);
+			for (int y = 100; y <= 400; y += 150) {
+				world.slice(x, y);
+				recorder.drag(x, y);
+			}
+			world.tick();
+			recorder.endTick(world, 1000L);
+		}
+		return recorder;
+	}
+
+	// Helper method to delete an archive directory and everything in it.
+	static void deleteAll(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	// Helper method to count the segment files in an archive directory.
+	static long countSegments(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().startsWith("segment-")).count();
+		}
+	}
+
+	/**
+	 * Tests that rounds appended to small segments roll over into new ones, that
+	 * a reopened archive finds each round by id, and that replaying a round gives
+	 * the same score on every tick.
+	 */
+	static void testRecordAndReplay() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			DifficultyConfig config = new DifficultyConfig();
+			config.setCountScale(4);
+			Path dir = Files.createTempDirectory("sliceit-archive");
+			ReplayArchive archive = new ReplayArchive(dir, 32 * 1024, ReplayArchive.RETENTION_MILLIS);
+			int[] scores = new int[5];
+			for (int i = 0; i < scores.length; i++) {
+				SessionRecorder recorder = record(atlas, config, 100 + i, 600);
+				scores[i] = recorder.getPoints();
+				archive.append(recorder);
+			}
+			archive.close();
+			long segments = countSegments(dir);
+
+			ReplayArchive reopened = new ReplayArchive(dir, 32 * 1024, ReplayArchive.RETENTION_MILLIS);
+			boolean replayed = reopened.size() == scores.length;
+			for (int i = scores.length - 1; i >= 0 && replayed; i--) {
+				SessionReader reader = reopened.open(reopened.getId(i));
+				GameWorld world = new GameWorld(atlas);
+				world.setBombsEndGame(false);
+				int mismatches = reader.replay(world);
+				replayed = mismatches == 0 && world.getPoints() == scores[i] && world.getTickCount() == 600;
+			}
+			reopened.close();
+			deleteAll(dir);
+			if (segments > 1 && replayed && scores[0] > 0) {
+				System.out.println("testRecordAndReplay passed");
+			} else {
+				System.out.println("testRecordAndReplay failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testRecordAndReplay failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that reopening an archive with a retention period that has passed
+	 * deletes every segment but the newest and drops their rounds from the index.
+	 */
+	static void testPrune() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			DifficultyConfig config = new DifficultyConfig();
+			Path dir = Files.createTempDirectory("sliceit-archive");
+			ReplayArchive archive = new ReplayArchive(dir, 1024, ReplayArchive.RETENTION_MILLIS);
+			for (int i = 0; i < 3; i++) {
+				archive.append(record(atlas, config, i, 200));
+			}
+			archive.close();
+			long before = countSegments(dir);
+			Thread.sleep(5);
+
+			ReplayArchive pruned = new ReplayArchive(dir, 1024, 1);
+			int left = pruned.size();
+			long lastId = left == 0 ? -1 : pruned.getId(0);
+			pruned.close();
+			long after = countSegments(dir);
+			deleteAll(dir);
+			if (before == 3 && after == 1 && left == 1 && lastId == 3) {
+				System.out.println("testPrune passed");
+			} else {
+				System.out.println("testPrune failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testPrune failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that after a crash leaves half an index entry behind, the archive
+	 * drops that entry and the rounds appended afterwards are still found when it
+	 * is opened again.
+	 */
+	static void testTornIndex() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			DifficultyConfig config = new DifficultyConfig();
+			Path dir = Files.createTempDirectory("sliceit-archive");
+			ReplayArchive archive = new ReplayArchive(dir);
+			archive.append(record(atlas, config, 1, 100));
+			archive.close();
+			//a crash partway through writing the next entry
+			Files.write(dir.resolve("sessions.idx"), new byte[17], StandardOpenOption.APPEND);
+
+			ReplayArchive afterCrash = new ReplayArchive(dir);
+			int found = afterCrash.size();
+			SessionRecorder second = record(atlas, config, 2, 100);
+			long id = afterCrash.append(second);
+			afterCrash.close();
+
+			ReplayArchive reopened = new ReplayArchive(dir);
+			boolean ok = found == 1 && reopened.size() == 2 && reopened.getId(1) == id
+					&& Files.size(dir.resolve("sessions.idx")) == 80;
+			if (ok) {
+				GameWorld world = new GameWorld(atlas);
+				world.setBombsEndGame(false);
+				ok = reopened.open(id).replay(world) == 0 && world.getPoints() == second.getPoints();
+			}
+			reopened.close();
+			deleteAll(dir);
+			if (ok) {
+				System.out.println("testTornIndex passed");
+			} else {
+				System.out.println("testTornIndex failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testTornIndex failed due to exception: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package sliceit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the ScoreStore, TopScores and LeaderboardModel classes.
+ * <p>
+ * This class contains static test methods for verifying that the bounded heap
+ * keeps exactly the best scores of a stream, that the store ranks scores the
+ * same before and after its full ranking is built and after scores change,
+ * that a reopened store reads back what was written and finds names ignoring
+ * case, so a returning player keeps their entry and score, that a torn entry
+ * is ignored and a foreign file rejected, and that the list model pages the
+ * ranks in order.
+ * </p>
+ */
+public class TestingScoreStore {
+	public static void main(String[] args) {
+		testTopScores();
+		testRanks();
+		testReopen();
+		testDamaged();
+		testModel();
+	}
+
+	/**
+	 * Tests that the heap ends up with the best scores of a long stream, best
+	 * first and earlier entries first among equal scores.
+	 */
+	static void testTopScores() {
+		Random random = new Random(1);
+		int n = 10_000;
+		int[] all = new int[n];
+		TopScores top = new TopScores(50);
+		for (int i = 0; i < n; i++) {
+			all[i] = random.nextInt(500);
+			top.offer(all[i], i);
+		}
+		int[] scores = new int[50];
+		int[] records = new int[50];
+		int kept = top.sorted(scores, records);
+		//the expected order, by a full sort of packed scores
+		long[] packed = new long[n];
+		for (int i = 0; i < n; i++) {
+			packed[i] = (long) (Integer.MAX_VALUE - all[i]) << 32 | i;
+		}
+		Arrays.sort(packed);
+		boolean ok = kept == 50;
+		for (int i = 0; i < kept; i++) {
+			ok &= records[i] == (int) packed[i] && scores[i] == all[records[i]];
+		}
+		if (ok) {
+			System.out.println("testTopScores passed");
+		} else {
+			System.out.println("testTopScores failed");
+		}
+	}
+
+	/**
+	 * Tests that the top ranks read from the heap match those read from the full
+	 * ranking, and that raised and lowered scores move to their new ranks both
+	 * before and after it is built.
+	 */
+	static void testRanks() {
+		boolean ok = true;
+		try {
+			Path dir = Files.createTempDirectory("sliceit-scores");
+			Path file = dir.resolve(ScoreStore.DEFAULT_FILE);
+			ScoreStore store = new ScoreStore(file);
+			Random random = new Random(2);
+			int n = 400;
+			int[] expected = new int[n];
+			for (int i = 0; i < n; i++) {
+				expected[i] = random.nextInt(100) * 10;
+				store.add("player" + i, expected[i]);
+			}
+			//lower one of the best and raise one of the worst before ranking
+			store.setScore(best(expected), 0);
+			expected[best(expected)] = 0;
+			store.setScore(3, 5000);
+			expected[3] = 5000;
+			String[] names = new String[ScoreStore.TOP_SIZE];
+			int[] scores = new int[ScoreStore.TOP_SIZE];
+			ok &= !store.isRanked() && store.readRanks(0, names, scores) == ScoreStore.TOP_SIZE;
+			ok &= names[0].equals("player3") && ranked(expected, names, scores, 0);
+			store.buildRanks();
+			String[] again = new String[ScoreStore.TOP_SIZE];
+			int[] againScores = new int[ScoreStore.TOP_SIZE];
+			store.readRanks(0, again, againScores);
+			ok &= store.isRanked() && Arrays.equals(names, again) && Arrays.equals(scores, againScores);
+			//changes after ranking, and a new player at the top
+			store.setScore(7, 4000);
+			expected[7] = 4000;
+			store.setScore(3, 10);
+			expected[3] = 10;
+			ok &= store.add("newcomer", 4500) == n;
+			expected = Arrays.copyOf(expected, n + 1);
+			expected[n] = 4500;
+			String[] all = new String[n + 10];
+			int[] allScores = new int[n + 10];
+			ok &= store.readRanks(0, all, allScores) == n + 1;
+			ok &= all[0].equals("newcomer") && all[1].equals("player7") && ranked(expected, all, allScores, 0);
+			store.close();
+			Files.delete(file);
+			Files.delete(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+			ok = false;
+		}
+		if (ok) {
+			System.out.println("testRanks passed");
+		} else {
+			System.out.println("testRanks failed");
+		}
+	}
+
+	// Helper method to find the entry with the best score, the earliest among equals.
+	static int best(int[] scores) {
+		int best = 0;
+		for (int i = 1; i < scores.length; i++) {
+			if (scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	// Helper method to check ranks read from a store against the expected scores of "player" + i entries.
+	static boolean ranked(int[] expected, String[] names, int[] scores, int from) {
+		long[] packed = new long[expected.length];
+		for (int i = 0; i < expected.length; i++) {
+			packed[i] = (long) (Integer.MAX_VALUE - expected[i]) << 32 | i;
+		}
+		Arrays.sort(packed);
+		boolean ok = true;
+		for (int i = 0; i < names.length && from + i < expected.length; i++) {
+			int record = (int) packed[from + i];
+			ok &= scores[i] == expected[record];
+			if (!names[i].equals("newcomer")) {
+				ok &= names[i].equals("player" + record);
+			}
+		}
+		return ok;
+	}
+
+	/**
+	 * Tests that a reopened store has the same scores, that names are found
+	 * whatever their case and that long names are cut short without splitting a
+	 * character.
+	 */
+	static void testReopen() {
+		boolean ok = true;
+		try {
+			Path dir = Files.createTempDirectory("sliceit-scores");
+			Path file = dir.resolve(ScoreStore.DEFAULT_FILE);
+			ScoreStore store = new ScoreStore(file);
+			store.add("Alice", 120);
+			int bob = store.add("Bob", 300);
+			//27 bytes fit, so the last two-byte character must go whole
+			String longName = "abcdefghijklmnopqrstuvwxy\u00e9";
+			store.add(longName, 50);
+			store.setScore(bob, 90);
+			store.close();
+
+			store = new ScoreStore(file);
+			String[] names = new String[5];
+			int[] scores = new int[5];
+			int n = store.readRanks(0, names, scores);
+			ok &= n == 3 && names[0].equals("Alice") && scores[0] == 120 && names[1].equals("Bob") && scores[1] == 90;
+			ok &= names[2].equals(longName) && store.find(longName) == 2;
+			ok &= store.find("aLiCe") == 0 && store.find("BOB") == 1 && store.find("Carol") == -1;
+			ok &= store.getScore(store.find("bob")) == 90;
+			String tooLong = "abcdefghijklmnopqrstuvwxyz\u00e9";
+			int cut = store.add(tooLong, 10);
+			store.readRanks(3, names, scores);
+			ok &= names[0].equals("abcdefghijklmnopqrstuvwxyz") && store.find(tooLong) == cut;
+			store.close();
+			Files.delete(file);
+			Files.delete(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+			ok = false;
+		}
+		if (ok) {
+			System.out.println("testReopen passed");
+		} else {
+			System.out.println("testReopen failed");
+		}
+	}
+
+	/**
+	 * Tests that a half-written last entry is ignored and that a file that is not
+	 * a score file is refused.
+	 */
+	static void testDamaged() {
+		boolean ok = true;
+		try {
+			Path dir = Files.createTempDirectory("sliceit-scores");
+			Path file = dir.resolve(ScoreStore.DEFAULT_FILE);
+			ScoreStore store = new ScoreStore(file);
+			store.add("Alice", 120);
+			store.add("Bob", 300);
+			store.close();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(channel.size() - 10);
+			}
+			store = new ScoreStore(file);
+			ok &= store.size() == 1 && store.find("Alice") == 0 && store.find("Bob") == -1;
+			store.close();
+
+			Files.write(file, ByteBuffer.allocate(64).putInt(0x12345678).array());
+			try {
+				new ScoreStore(file).close();
+				ok = false;
+			} catch (IOException e) {
+				//expected
+			}
+			Files.delete(file);
+			Files.delete(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+			ok = false;
+		}
+		if (ok) {
+			System.out.println("testDamaged passed");
+		} else {
+			System.out.println("testDamaged failed");
+		}
+	}
+
+	/**
+	 * Tests that the list model shows the top rows at once, holds the rows below
+	 * the top scores back until the ranking is built, and then shows every rank
+	 * in order; a limited model shows only the best ranks.
+	 */
+	static void testModel() {
+		boolean ok = true;
+		try {
+			Path dir = Files.createTempDirectory("sliceit-scores");
+			Path file = dir.resolve(ScoreStore.DEFAULT_FILE);
+			ScoreStore store = new ScoreStore(file);
+			int n = 300;
+			for (int i = 0; i < n; i++) {
+				store.add("player" + i, i);
+			}
+			store.close();
+			store = new ScoreStore(file);
+			LeaderboardModel model = new LeaderboardModel(store);
+			ok &= model.getSize() == n && model.getElementAt(0).equals("1. player299 - 299 pts");
+			ok &= model.getElementAt(200).equals(LeaderboardModel.PENDING);
+			LeaderboardModel top = new LeaderboardModel(store, 5);
+			ok &= top.getSize() == 5 && top.getElementAt(4).equals("5. player295 - 295 pts");
+			store.buildRanks();
+			model.refresh();
+			for (int i = 0; i < n; i++) {
+				int player = n - 1 - i;
+				ok &= model.getElementAt(i).equals((i + 1) + ". player" + player + " - " + player + " pts");
+			}
+			store.close();
+			Files.delete(file);
+			Files.delete(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+			ok = false;
+		}
+		if (ok) {
+			System.out.println("testModel passed");
+		} else {
+			System.out.println("testModel failed");
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package sliceit;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Unit tests for the SessionProfiler class.
+ * <p>
+ * This class contains static test methods for verifying that a section's
+ * allocation is counted on the thread measuring it, that slow and late
+ * samples are found as spikes and matched with the pauses they overlap, and
+ * that real collections are recorded and reported.
+ * </p>
+ */
+public class TestingSessionProfiler {
+	/** Keeps the test allocation reachable so it cannot be optimized away. */
+	static byte[] sink;
+
+	public static void main(String[] args) {
+		testAllocation();
+		testSpikes();
+		testCollections();
+	}
+
+	/**
+	 * Tests that a section that allocates a megabyte is charged at least that
+	 * much, and one that allocates nothing next to nothing.
+	 */
+	static void testAllocation() {
+		SessionProfiler profiler = new SessionProfiler();
+		for (int i = 0; i < 3; i++) {
+			profiler.begin(SessionProfiler.TICK);
+			sink = new byte[1 << 20];
+			profiler.end(SessionProfiler.TICK);
+			profiler.begin(SessionProfiler.INPUT);
+			profiler.end(SessionProfiler.INPUT);
+		}
+		profiler.close();
+		boolean ok = profiler.getSamples(SessionProfiler.TICK) == 3 && profiler.getSamples(SessionProfiler.INPUT) == 3;
+		ok &= profiler.getAllocatedBytes(SessionProfiler.TICK) >= 3 << 20;
+		ok &= profiler.getAllocatedBytes(SessionProfiler.INPUT) < 1024;
+		ok &= profiler.getSamples(SessionProfiler.PAINT) == 0;
+		if (ok) {
+			System.out.println("testAllocation passed");
+		} else {
+			System.out.println("testAllocation failed");
+		}
+	}
+
+	/**
+	 * Tests that a slow tick, a late tick and a slow drag are spikes, that a
+	 * long gap between rounds is not, and that only the spikes a pause overlaps
+	 * are put down to it.
+	 */
+	static void testSpikes() {
+		SessionProfiler profiler = new SessionProfiler();
+		profiler.close();
+		//a real collection reported just before the listener was removed would add to the pauses
+		boolean real = profiler.getPauses() > 0;
+		long tick = SimulationThread.TICK_NANOS;
+		long t = 1_000_000_000_000L;
+		for (int i = 0; i < 100; i++) {
+			//tick 30 is slow, tick 60 is late and tick 80 comes after a break between rounds
+			if (i == 60) {
+				t += 3 * tick;
+			} else if (i == 80) {
+				t += 5_000_000_000L;
+			}
+			long busy = i == 30 ? 2 * tick : 2_000_000L;
+			profiler.sample(SessionProfiler.TICK, t, busy, 1000);
+			profiler.sample(SessionProfiler.PAINT, t + busy, 3_000_000L, 0);
+			t += Math.max(tick, busy);
+		}
+		profiler.sample(SessionProfiler.INPUT, t, 2 * tick, 64);
+		profiler.sample(SessionProfiler.INPUT, t + tick, 100_000L, 64);
+		//a pause over the slow tick, and one while nothing was slow
+		profiler.pause("Test", "test", 1_000_000_000_000L + 30 * tick + 5_000_000L, 10_000_000L);
+		profiler.pause("Test", "test", 1_000_000_000_000L + 10 * tick + 5_000_000L, 3_000_000L);
+		boolean ok = profiler.countSpikes(SessionProfiler.TICK) == 2;
+		ok &= profiler.countSpikesDuringPauses(SessionProfiler.TICK) == 1;
+		//the slow tick also made the next paint late; the late tick delayed its paint too
+		ok &= profiler.countSpikes(SessionProfiler.PAINT) == 2;
+		ok &= profiler.countSpikesDuringPauses(SessionProfiler.PAINT) == 1;
+		ok &= profiler.countSpikes(SessionProfiler.INPUT) == 1;
+		ok &= profiler.countSpikesDuringPauses(SessionProfiler.INPUT) == 0;
+		ok &= profiler.getAllocatedBytes(SessionProfiler.TICK) == 100_000;
+		StringWriter text = new StringWriter();
+		profiler.report(new PrintWriter(text));
+		ok &= real || text.toString().contains("2 collection pauses, 13.0 ms in all; 1 of the last 2 overlap a spike");
+		if (ok) {
+			System.out.println("testSpikes passed");
+		} else {
+			System.out.println("testSpikes failed");
+		}
+	}
+
+	/**
+	 * Tests that a real collection is recorded and named in the report.
+	 */
+	static void testCollections() {
+		SessionProfiler profiler = new SessionProfiler();
+		System.gc();
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (profiler.getPauses() == 0 && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		profiler.close();
+		StringWriter text = new StringWriter();
+		profiler.report(new PrintWriter(text));
+		boolean ok = profiler.getPauses() > 0 && text.toString().contains(Thread.currentThread().getName());
+		if (ok) {
+			System.out.println("testCollections passed");
+		} else {
+			System.out.println("testCollections failed");
+		}
+	}
+}
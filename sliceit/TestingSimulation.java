@@ -0,0 +1,157 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Unit tests for the simulation thread hand-off classes.
+ * <p>
+ * This class contains static test methods for verifying the DragQueue ring,
+ * the SnapshotBuffer swap rules and the slicing logic of GameWorld, and that
+ * slicing allocates no memory.
+ * </p>
+ */
+public class TestingSimulation {
+	public static void main(String[] args) {
+		testDragQueueOrder();
+		testDragQueueOverflow();
+		testSnapshotBuffer();
+		testWorldSlice();
+		testSliceNoAllocation();
+	}
+
+	// Helper method to create a dummy BufferedImage for testing.
+	static BufferedImage createTestImage(int width, int height) {
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Tests that samples come out in the order they went in, including negative
+	 * coordinates, and that an empty queue reports EMPTY.
+	 */
+	static void testDragQueueOrder() {
+		DragQueue queue = new DragQueue(4);
+		queue.offer(10, 20);
+		queue.offer(-3, -4);
+		long a = queue.poll();
+		long b = queue.poll();
+		if (DragQueue.x(a) == 10 && DragQueue.y(a) == 20 && DragQueue.x(b) == -3 && DragQueue.y(b) == -4
+				&& queue.poll() == DragQueue.EMPTY) {
+			System.out.println("testDragQueueOrder passed");
+		} else {
+			System.out.println("testDragQueueOrder failed");
+		}
+	}
+
+	/**
+	 * Tests that a full queue drops and counts new samples, and accepts samples
+	 * again once drained.
+	 */
+	static void testDragQueueOverflow() {
+		DragQueue queue = new DragQueue(2);
+		boolean first = queue.offer(1, 1);
+		boolean second = queue.offer(2, 2);
+		boolean third = queue.offer(3, 3);
+		queue.poll();
+		boolean fourth = queue.offer(4, 4);
+		if (first && second && !third && fourth && queue.getDropped() == 1) {
+			System.out.println("testDragQueueOverflow passed");
+		} else {
+			System.out.println("testDragQueueOverflow failed");
+		}
+	}
+
+	/**
+	 * Tests that the writer never gets the snapshot the reader holds and that a
+	 * published snapshot becomes visible to the reader.
+	 */
+	static void testSnapshotBuffer() {
+		SnapshotBuffer buffer = new SnapshotBuffer();
+
+		WorldSnapshot back = buffer.beginWrite();
+		back.clear();
+		back.add(0, 1, 2);
+		buffer.publish();
+
+		WorldSnapshot front = buffer.acquire();
+		// while the reader holds the front, the writer gets the other one
+		WorldSnapshot next = buffer.beginWrite();
+		boolean separate = next != null && next != front;
+		buffer.publish();
+		// the reader still holds the old front, which is now the back buffer
+		boolean blocked = buffer.beginWrite() == null;
+		buffer.release();
+		boolean freed = buffer.beginWrite() != null;
+
+		if (front.getCount() == 1 && separate && blocked && freed) {
+			System.out.println("testSnapshotBuffer passed");
+		} else {
+			System.out.println("testSnapshotBuffer failed");
+		}
+	}
+
+	/**
+	 * Tests that slicing a fruit scores 10 points once, and slicing a bomb ends
+	 * the game and removes the bomb.
+	 */
+	static void testWorldSlice() {
+		BufferedImage img = createTestImage(50, 50);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "fruit", "sliced", "bomb" },
+				new BufferedImage[][] { { img }, { img }, { img } });
+		GameWorld world = new GameWorld(atlas);
+		world.getFruits().add(new Fruit(img, img, 100, 100, 0f, 0f));
+		world.getBombs().add(new Bomb(img, 300, 300, 0f, 0f));
+
+		boolean hit1 = world.slice(110, 110);
+		boolean hit2 = world.slice(120, 120);
+		int pointsAfterFruit = world.getPoints();
+		boolean hit3 = world.slice(310, 310);
+
+		if (!hit1 && !hit2 && pointsAfterFruit == 10 && hit3 && world.isGameOver() && world.getBombs().isEmpty()
+				&& world.getHitCenterX() == 325) {
+			System.out.println("testWorldSlice passed");
+		} else {
+			System.out.println("testWorldSlice failed");
+		}
+	}
+
+	/**
+	 * Tests that slicing fruits and bombs allocates no memory once the world's
+	 * scratch arrays are in place.
+	 */
+	static void testSliceNoAllocation() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("testSliceNoAllocation skipped, allocation counting not supported");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		BufferedImage img = createTestImage(50, 50);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "fruit", "sliced", "bomb" },
+				new BufferedImage[][] { { img }, { img }, { img } });
+		GameWorld world = new GameWorld(atlas);
+		world.setBombsEndGame(false);
+		for (int i = 0; i < 200; i++) {
+			world.getFruits().add(new Fruit(img, img, i * 100, 100, 0f, 0f));
+			world.getBombs().add(new Bomb(img, i * 100, 300, 0f, 0f));
+		}
+		//the first slices build the indexes for the objects added above and load every class used
+		world.slice(10, 110);
+		world.slice(10, 310);
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 1; i < 200; i++) {
+			world.slice(i * 100 + 10, 110);
+			world.slice(i * 100 + 10, 310);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		boolean ok = world.getPoints() == 200 * GameWorld.FRUIT_POINTS && world.getBombsHit() == 200
+				&& world.getBombs().isEmpty();
+		//the counter itself may allocate a few bytes
+		if (ok && allocated < 1024) {
+			System.out.println("testSliceNoAllocation passed");
+		} else {
+			System.out.println("testSliceNoAllocation failed, " + allocated + " bytes allocated");
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package sliceit;
+
+/**
+ * Unit tests for the SliceBot class.
+ * <p>
+ * This class contains static test methods for verifying that the predicted
+ * paths match where the world really moves its fruits, that the bot scores
+ * well without touching a bomb, and that planning stays within its budget
+ * with hundreds of objects on screen.
+ * </p>
+ */
+public class TestingSliceBot {
+	public static void main(String[] args) {
+		testPrediction();
+		testPlaysWell();
+		testBudget();
+	}
+
+	// Helper method to create a world with the given count scale that bombs do not end.
+	static GameWorld createWorld(double countScale, long seed) {
+		try {
+			DifficultyConfig config = new DifficultyConfig();
+			config.setCountScale(countScale);
+			GameWorld world = new GameWorld(TextureAtlas.load("images/sprites.txt"));
+			world.setSize(500, 500);
+			world.setBombsEndGame(false);
+			world.reset(config, seed);
+			return world;
+		} catch (java.io.IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Helper method to run the bot against a world, applying its samples as the simulation thread does.
+	static void play(GameWorld world, DragQueue input, SliceBot bot, int ticks) {
+		for (int t = 0; t < ticks; t++) {
+			for (long s = input.poll(); s != DragQueue.EMPTY; s = input.poll()) {
+				world.slice(DragQueue.x(s), DragQueue.y(s));
+			}
+			world.tick();
+			bot.run();
+		}
+	}
+
+	/**
+	 * Tests that the predicted position of a fruit some ticks ahead is exactly
+	 * where the world puts it.
+	 */
+	static void testPrediction() {
+		GameWorld world = createWorld(3, 5L);
+		for (int t = 0; t < 100 && world.getFruits().isEmpty(); t++) {
+			world.tick();
+		}
+		SliceBot bot = new SliceBot(world, new DragQueue(256));
+		bot.predict(Long.MAX_VALUE);
+		Fruit first = world.getFruits().get(0);
+		int steps = 20;
+		for (int t = 0; t < steps; t++) {
+			world.tick();
+		}
+		if (first.getX() == bot.getPredictedFruitX(0, steps) && first.getY() == bot.getPredictedFruitY(0, steps)) {
+			System.out.println("testPrediction passed");
+		} else {
+			System.out.println("testPrediction failed");
+		}
+	}
+
+	/**
+	 * Tests that over a long round the bot slices plenty of fruit and no bombs.
+	 */
+	static void testPlaysWell() {
+		GameWorld world = createWorld(1, 11L);
+		DragQueue input = new DragQueue(256);
+		SliceBot bot = new SliceBot(world, input);
+		play(world, input, bot, 3000);
+		System.out.printf("bot sliced %d fruits, hit %d bombs, %d samples%n", world.getPoints() / 10,
+				world.getBombsHit(), bot.getSamples());
+		if (world.getPoints() >= 1000 && world.getBombsHit() == 0) {
+			System.out.println("testPlaysWell passed");
+		} else {
+			System.out.println("testPlaysWell failed");
+		}
+	}
+
+	/**
+	 * Tests that with hundreds of objects on screen planning runs out of budget
+	 * rather than overrunning it, and that the bot keeps slicing.
+	 */
+	static void testBudget() {
+		GameWorld world = createWorld(40, 3L);
+		DragQueue input = new DragQueue(1024);
+		long budget = 500_000L;
+		SliceBot bot = new SliceBot(world, input, budget);
+		play(world, input, bot, 1000);
+		int live = world.getFruits().size() + world.getBombs().size();
+		System.out.printf("%d objects, average plan %.3f ms, longest %.3f ms, %d of %d ticks cut short%n", live,
+				bot.getAveragePlanNanos() / 1e6, bot.getMaxPlanNanos() / 1e6, bot.getTruncatedTicks(),
+				bot.getPlannedTicks());
+		//allow the last candidate before the clock check and a stray pause of the sandbox
+		if (live >= 200 && bot.getTruncatedTicks() > 0 && bot.getAveragePlanNanos() < budget * 2
+				&& world.getPoints() > 0) {
+			System.out.println("testBudget passed");
+		} else {
+			System.out.println("testBudget failed");
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package sliceit;
+
+import java.io.IOException;
+
+/**
+ * Unit tests for the SpawnSchedule and DifficultyConfig classes.
+ * <p>
+ * This class contains static test methods for verifying that schedules are
+ * reproducible from their seed, that count scaling and waves add the expected
+ * number of launches, and that the shipped configuration file matches the
+ * built-in defaults.
+ * </p>
+ */
+public class TestingSpawnSchedule {
+	public static void main(String[] args) {
+		testSameSeed();
+		testCountScale();
+		testCurve();
+		testLoadConfig();
+	}
+
+	/**
+	 * Tests that two schedules built from the same seed contain exactly the same
+	 * events, and that the per-tick index covers every event once.
+	 */
+	static void testSameSeed() {
+		DifficultyConfig config = new DifficultyConfig();
+		SpawnSchedule a = new SpawnSchedule(config, 7, 1234L);
+		SpawnSchedule b = new SpawnSchedule(config, 7, 1234L);
+		boolean same = a.size() == b.size() && a.size() > 0;
+		for (int e = 0; e < a.size() && same; e++) {
+			same = a.getType(e) == b.getType(e) && a.getVariant(e) == b.getVariant(e)
+					&& a.getX(e, 400) == b.getX(e, 400) && a.getVelocityY(e) == b.getVelocityY(e);
+		}
+		int covered = 0;
+		for (int t = 0; t < a.getTicks(); t++) {
+			covered += a.getEnd(t) - a.getStart(t);
+		}
+		if (same && covered == a.size()) {
+			System.out.println("testSameSeed passed");
+		} else {
+			System.out.println("testSameSeed failed");
+		}
+	}
+
+	/**
+	 * Tests that a count scale of 100 turns the default 5% fruit and 2% bomb
+	 * chances into exactly 5 fruits and 2 bombs on every tick.
+	 */
+	static void testCountScale() {
+		DifficultyConfig config = new DifficultyConfig();
+		config.setCountScale(100);
+		SpawnSchedule schedule = new SpawnSchedule(config, 7, 99L);
+		boolean passed = schedule.size() == schedule.getTicks() * 7;
+		int fruits = 0;
+		for (int e = schedule.getStart(10); e < schedule.getEnd(10); e++) {
+			if (schedule.getType(e) == SpawnSchedule.FRUIT) {
+				fruits++;
+			}
+		}
+		if (passed && fruits == 5) {
+			System.out.println("testCountScale passed");
+		} else {
+			System.out.println("testCountScale failed");
+		}
+	}
+
+	/**
+	 * Tests that curve points are interpolated and held past the last point.
+	 */
+	static void testCurve() {
+		float[][] curve = { { 0f, 10f }, { 0f, 1f } };
+		if (DifficultyConfig.sample(curve, 5f) == 0.5f && DifficultyConfig.sample(curve, 30f) == 1f
+				&& DifficultyConfig.sample(curve, -1f) == 0f) {
+			System.out.println("testCurve passed");
+		} else {
+			System.out.println("testCurve failed");
+		}
+	}
+
+	/**
+	 * Tests that config/difficulty.properties loads and keeps the original game's
+	 * values.
+	 */
+	static void testLoadConfig() {
+		try {
+			DifficultyConfig config = DifficultyConfig.load("config/difficulty.properties");
+			if (config.getGameSeconds() == 60 && config.getFruitRate(30f) == 0.05f && config.getBombRate(0f) == 0.02f
+					&& config.getFruitGravity() == 0.3f && config.getBombGravity() == 0.5f
+					&& config.getWaves().length == 0) {
+				System.out.println("testLoadConfig passed");
+			} else {
+				System.out.println("testLoadConfig failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testLoadConfig failed due to exception: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package sliceit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the spectator stream.
+ * <p>
+ * This class contains static test methods that check that decoding the
+ * frames rebuilds the world, also for a viewer that starts halfway, that one
+ * server feeds many viewers while publishing stays cheap, and that a viewer
+ * that stops reading is skipped ahead to a key frame without holding up the
+ * others, and that nothing is encoded while nobody watches.
+ * </p>
+ */
+public class TestingSpectator {
+	public static void main(String[] args) {
+		testRoundTrip();
+		testManyViewers();
+		testSlowViewer();
+		testNoViewers();
+	}
+
+	// Helper method to create a world with the given count scale that bombs do not end.
+	static GameWorld createWorld(double countScale, long seed) {
+		return TestingSliceBot.createWorld(countScale, seed);
+	}
+
+	// Helper method to advance a world one tick, slicing along a line that sweeps down the screen.
+	static void step(GameWorld world, int t) {
+		int y = 40 + (t * 7) % 420;
+		for (int x = 0; x < 500; x += 25) {
+			world.slice(x, y);
+		}
+		world.tick();
+	}
+
+	// Helper method checking that a decoder holds the world's fruits and bombs, to within the quantum.
+	static boolean matches(SpectatorDecoder decoder, GameWorld world) {
+		if (decoder.getPoints() != world.getPoints()) {
+			return false;
+		}
+		List<Fruit> fruits = world.getFruits();
+		List<Bomb> bombs = world.getBombs();
+		if (decoder.getCount(SpectatorEncoder.FRUITS) != fruits.size()
+				|| decoder.getCount(SpectatorEncoder.BOMBS) != bombs.size()) {
+			return false;
+		}
+		int half = SpectatorEncoder.QUANTUM / 2;
+		for (int i = 0; i < fruits.size(); i++) {
+			Fruit f = fruits.get(i);
+			if (decoder.getSprite(SpectatorEncoder.FRUITS, i) != f.getSpriteId()
+					|| Math.abs(decoder.getX(SpectatorEncoder.FRUITS, i) - f.getX()) > half
+					|| Math.abs(decoder.getY(SpectatorEncoder.FRUITS, i) - f.getY()) > half) {
+				return false;
+			}
+		}
+		for (int i = 0; i < bombs.size(); i++) {
+			Bomb b = bombs.get(i);
+			if (decoder.getSprite(SpectatorEncoder.BOMBS, i) != b.getSpriteId()
+					|| Math.abs(decoder.getX(SpectatorEncoder.BOMBS, i) - b.getX()) > half
+					|| Math.abs(decoder.getY(SpectatorEncoder.BOMBS, i) - b.getY()) > half) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Helper method waiting until a condition holds, for at most the given time.
+	static boolean await(java.util.function.BooleanSupplier condition, long millis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + millis;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	/**
+	 * Tests that decoding every frame rebuilds the world after every tick,
+	 * through spawns, slices and removals, that a decoder starting halfway waits
+	 * for a key frame and then keeps up too, and that delta frames are small.
+	 */
+	static void testRoundTrip() {
+		GameWorld world = createWorld(3, 7L);
+		SpectatorEncoder encoder = new SpectatorEncoder();
+		SpectatorDecoder decoder = new SpectatorDecoder();
+		SpectatorDecoder late = new SpectatorDecoder();
+		ByteBuffer frame = ByteBuffer.allocate(1 << 20);
+		boolean ok = true;
+		long deltaBytes = 0;
+		int deltas = 0;
+		for (int t = 0; t < 1000 && ok; t++) {
+			step(world, t);
+			boolean key = t % SpectatorServer.KEY_INTERVAL == 0;
+			frame.clear();
+			encoder.encode(world, 60 - t / 50, key, frame);
+			frame.flip();
+			if (frame.getInt() != frame.remaining()) {
+				ok = false;
+			}
+			if (!key) {
+				deltaBytes += frame.limit();
+				deltas++;
+			}
+			ok &= decoder.apply(frame.duplicate()) && matches(decoder, world)
+					&& decoder.getTimeRemaining() == 60 - t / 50;
+			if (t >= 510) {
+				late.apply(frame);
+				ok &= t < 525 ? !late.isSynced() : matches(late, world);
+			}
+		}
+		System.out.printf("%d points, average delta frame %d bytes%n", world.getPoints(), deltaBytes / deltas);
+		if (ok && world.getPoints() > 0 && late.getIgnored() == 15 && deltaBytes / deltas < 200) {
+			System.out.println("testRoundTrip passed");
+		} else {
+			System.out.println("testRoundTrip failed");
+		}
+	}
+
+	/**
+	 * Tests that thirty viewers all follow the whole round and end with the
+	 * world as it is, while publishing costs the simulation only microseconds.
+	 */
+	static void testManyViewers() {
+		SpectatorServer server = null;
+		List<SpectatorViewer> viewers = new ArrayList<>();
+		try {
+			server = new SpectatorServer(0);
+			server.start();
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+			for (int i = 0; i < 30; i++) {
+				SpectatorViewer viewer = new SpectatorViewer(address, new SnapshotBuffer(), () -> {
+				});
+				viewer.start();
+				viewers.add(viewer);
+			}
+			SpectatorServer s = server;
+			boolean ok = await(() -> s.getViewerCount() == 30, 5000);
+			GameWorld world = createWorld(3, 9L);
+			for (int t = 0; t < 300; t++) {
+				step(world, t);
+				server.publish(world);
+				Thread.sleep(2);
+			}
+			for (SpectatorViewer viewer : viewers) {
+				ok &= await(() -> viewer.getFrames() >= s.getPublished(), 5000);
+			}
+			for (SpectatorViewer viewer : viewers) {
+				viewer.halt();
+				ok &= viewer.getDecoder().getIgnored() == 0 && matches(viewer.getDecoder(), world);
+			}
+			System.out.printf("%d frames to %d viewers, %d KB sent, %.1f us per publish%n", server.getPublished(),
+					viewers.size(), server.getBytesSent() / 1024, server.getAveragePublishNanos() / 1e3);
+			if (ok && server.getSkipped() == 0 && server.getAveragePublishNanos() < 1_000_000L) {
+				System.out.println("testManyViewers passed");
+			} else {
+				System.out.println("testManyViewers failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testManyViewers failed due to exception: " + e.getMessage());
+		} finally {
+			for (SpectatorViewer viewer : viewers) {
+				viewer.halt();
+			}
+			if (server != null) {
+				server.halt();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a viewer that stops reading is skipped past frames it could not
+	 * take, while another viewer gets every frame, and that once it reads again
+	 * it picks up from a key frame and ends with the world as it is.
+	 */
+	static void testSlowViewer() {
+		SpectatorServer server = null;
+		SpectatorViewer fast = null;
+		try {
+			server = new SpectatorServer(0);
+			server.start();
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+			fast = new SpectatorViewer(address, new SnapshotBuffer(), () -> {
+			});
+			fast.start();
+			SocketChannel slow = SocketChannel.open();
+			slow.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+			slow.connect(address);
+			SpectatorServer s = server;
+			boolean ok = await(() -> s.getViewerCount() == 2, 5000);
+			//a crowded screen makes frames big enough to fill the slow viewer's socket quickly
+			GameWorld world = createWorld(150, 13L);
+			for (int t = 0; t < 600; t++) {
+				step(world, t);
+				server.publish(world);
+				Thread.sleep(1);
+			}
+			//now drain the slow viewer until it has the last frame
+			SpectatorDecoder decoder = new SpectatorDecoder();
+			ByteBuffer header = ByteBuffer.allocate(4);
+			ByteBuffer body = ByteBuffer.allocate(1 << 20);
+			long last = server.getPublished() - 1;
+			while (decoder.getSequence() != last) {
+				header.clear();
+				while (header.hasRemaining()) {
+					slow.read(header);
+				}
+				body.clear().limit(header.getInt(0));
+				while (body.hasRemaining()) {
+					slow.read(body);
+				}
+				body.flip();
+				decoder.apply(body);
+			}
+			slow.close();
+			//the skip happens once the frame stuck in the full socket has gone out
+			long skipped = server.getSkipped();
+			SpectatorViewer f = fast;
+			ok &= await(() -> f.getFrames() >= s.getPublished(), 5000);
+			fast.halt();
+			System.out.printf("slow viewer skipped %d frames%n", skipped);
+			if (ok && skipped > 0 && matches(decoder, world) && fast.getDecoder().getIgnored() == 0
+					&& matches(fast.getDecoder(), world)) {
+				System.out.println("testSlowViewer passed");
+			} else {
+				System.out.println("testSlowViewer failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testSlowViewer failed due to exception: " + e.getMessage());
+		} finally {
+			if (fast != null) {
+				fast.halt();
+			}
+			if (server != null) {
+				server.halt();
+			}
+		}
+	}
+
+	/**
+	 * Tests that no frames are published while no viewer is connected, and that
+	 * a viewer connecting later starts from a key frame and keeps up.
+	 */
+	static void testNoViewers() {
+		SpectatorServer server = null;
+		SpectatorViewer viewer = null;
+		try {
+			server = new SpectatorServer(0);
+			server.start();
+			GameWorld world = createWorld(3, 21L);
+			for (int t = 0; t < 100; t++) {
+				step(world, t);
+				server.publish(world);
+			}
+			boolean ok = server.getPublished() == 0;
+			viewer = new SpectatorViewer(new InetSocketAddress("127.0.0.1", server.getPort()), new SnapshotBuffer(),
+					() -> {
+					});
+			viewer.start();
+			SpectatorServer s = server;
+			ok &= await(() -> s.getViewerCount() == 1, 5000);
+			for (int t = 100; t < 200; t++) {
+				step(world, t);
+				server.publish(world);
+				Thread.sleep(2);
+			}
+			SpectatorViewer v = viewer;
+			ok &= await(() -> v.getFrames() >= s.getPublished(), 5000);
+			viewer.halt();
+			if (ok && server.getPublished() == 100 && viewer.getDecoder().getIgnored() == 0
+					&& matches(viewer.getDecoder(), world)) {
+				System.out.println("testNoViewers passed");
+			} else {
+				System.out.println("testNoViewers failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testNoViewers failed due to exception: " + e.getMessage());
+		} finally {
+			if (viewer != null) {
+				viewer.halt();
+			}
+			if (server != null) {
+				server.halt();
+			}
+		}
+	}
+}
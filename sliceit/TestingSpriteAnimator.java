@@ -0,0 +1,154 @@
+package sliceit;
+
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Unit tests for the SpriteAnimator class.
+ * <p>
+ * This class contains static test methods for verifying that frames are
+ * chosen from elapsed time, that several animations play at once and finish
+ * independently, that an animation finishes on time without ever being
+ * drawn, and that the repaint bounds cover every playing animation.
+ * </p>
+ */
+public class TestingSpriteAnimator {
+	/** Length of a frame in the tests, 10 ms. */
+	private static final long FRAME = 10_000_000L;
+
+	public static void main(String[] args) {
+		testFrameFromTime();
+		testConcurrent();
+		testFinishWithoutDrawing();
+		testBounds();
+	}
+
+	// Helper method to build an atlas of four 10x10 frames, each a different shade of red.
+	static TextureAtlas createFrames() {
+		BufferedImage[] frames = new BufferedImage[4];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = frames[i].createGraphics();
+			g.setColor(new Color(50 + i * 50, 0, 0));
+			g.fillRect(0, 0, 10, 10);
+			g.dispose();
+		}
+		return new TextureAtlas(new String[] { "boom" }, new BufferedImage[][] { frames });
+	}
+
+	// Helper method returning the red value drawn at a point after drawing the animator at a time.
+	static int redAt(SpriteAnimator animator, SpriteBatch batch, long now, int frameStep, int x, int y) {
+		BufferedImage canvas = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = canvas.createGraphics();
+		animator.draw(g, batch, now, frameStep);
+		g.dispose();
+		return (canvas.getRGB(x, y) >> 16) & 0xff;
+	}
+
+	/**
+	 * Tests that the frame shown depends only on the time since the start, that
+	 * a frame step skips frames, and that the animation ends after its last frame.
+	 */
+	static void testFrameFromTime() {
+		TextureAtlas atlas = createFrames();
+		SpriteBatch batch = new SpriteBatch(atlas);
+		SpriteAnimator animator = new SpriteAnimator();
+		animator.play(atlas.getId("boom"), 4, FRAME, 0, 0, 1000L, null);
+		int first = redAt(animator, batch, 1000L, 1, 5, 5);
+		int third = redAt(animator, batch, 1000L + 2 * FRAME + 1, 1, 5, 5);
+		int stepped = redAt(animator, batch, 1000L + 3 * FRAME, 2, 5, 5);
+		int playingBeforeEnd = animator.getCount();
+		int after = redAt(animator, batch, 1000L + 4 * FRAME, 1, 5, 5);
+		//drawing past the end shows nothing but leaves ending the animation to update
+		int playingAfterDraw = animator.getCount();
+		boolean ended = animator.update(1000L + 4 * FRAME);
+		if (first == 50 && third == 150 && stepped == 150 && playingBeforeEnd == 1 && after == 0
+				&& playingAfterDraw == 1 && ended && animator.getCount() == 0) {
+			System.out.println("testFrameFromTime passed");
+		} else {
+			System.out.println("testFrameFromTime failed");
+		}
+	}
+
+	/**
+	 * Tests that two animations started at different times play side by side,
+	 * that the first to end is removed while the other keeps playing, and that
+	 * only the finished one's callback runs.
+	 */
+	static void testConcurrent() {
+		TextureAtlas atlas = createFrames();
+		SpriteBatch batch = new SpriteBatch(atlas);
+		SpriteAnimator animator = new SpriteAnimator();
+		boolean[] done = new boolean[2];
+		animator.play(atlas.getId("boom"), 4, FRAME, 0, 0, 0L, () -> done[0] = true);
+		animator.play(atlas.getId("boom"), 4, FRAME, 50, 50, 2 * FRAME, () -> done[1] = true);
+		int left = redAt(animator, batch, 3 * FRAME, 1, 5, 5);
+		int right = redAt(animator, batch, 3 * FRAME, 1, 55, 55);
+		int secondOnly = redAt(animator, batch, 5 * FRAME, 1, 55, 55);
+		animator.update(5 * FRAME);
+		try {
+			//callbacks are posted to the event thread; wait for them to run
+			EventQueue.invokeAndWait(() -> {
+			});
+		} catch (InterruptedException | InvocationTargetException e) {
+			System.out.println("testConcurrent failed due to exception: " + e.getMessage());
+			return;
+		}
+		if (left == 200 && right == 100 && secondOnly == 200 && animator.getCount() == 1 && done[0] && !done[1]) {
+			System.out.println("testConcurrent passed");
+		} else {
+			System.out.println("testConcurrent failed");
+		}
+	}
+
+	/**
+	 * Tests that an animation that is never drawn, as when the window is
+	 * minimized, still ends and runs its callback exactly once when updated
+	 * after its last frame, and not before.
+	 */
+	static void testFinishWithoutDrawing() {
+		SpriteAnimator animator = new SpriteAnimator();
+		int[] done = new int[1];
+		animator.play(0, 4, FRAME, 0, 0, 0L, () -> done[0]++);
+		boolean early = animator.update(4 * FRAME - 1);
+		boolean ended = animator.update(4 * FRAME);
+		boolean again = animator.update(10 * FRAME);
+		try {
+			//callbacks are posted to the event thread; wait for them to run
+			EventQueue.invokeAndWait(() -> {
+			});
+		} catch (InterruptedException | InvocationTargetException e) {
+			System.out.println("testFinishWithoutDrawing failed due to exception: " + e.getMessage());
+			return;
+		}
+		if (!early && ended && !again && done[0] == 1 && animator.getCount() == 0) {
+			System.out.println("testFinishWithoutDrawing passed");
+		} else {
+			System.out.println("testFinishWithoutDrawing failed");
+		}
+	}
+
+	/**
+	 * Tests that the bounds cover every playing animation and that there are none
+	 * once nothing is playing.
+	 */
+	static void testBounds() {
+		TextureAtlas atlas = createFrames();
+		SpriteAnimator animator = new SpriteAnimator();
+		Rectangle bounds = new Rectangle();
+		boolean none = !animator.getBounds(atlas, bounds);
+		animator.play(atlas.getId("boom"), 4, FRAME, 20, 30, 0L, null);
+		animator.play(atlas.getId("boom"), 4, FRAME, 60, 5, 0L, null);
+		boolean some = animator.getBounds(atlas, bounds);
+		animator.clear();
+		if (none && some && bounds.equals(new Rectangle(20, 5, 50, 35)) && !animator.getBounds(atlas, bounds)) {
+			System.out.println("testBounds passed");
+		} else {
+			System.out.println("testBounds failed");
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package sliceit;
+
+import java.io.IOException;
+
+/**
+ * Unit tests for the StartupLoader class.
+ * <p>
+ * This class contains static test methods for verifying that the loader
+ * decodes the same sprites as a plain load, that a missing image or layout is
+ * reported to the caller, and that only the first paint is recorded.
+ * </p>
+ */
+public class TestingStartupLoader {
+	public static void main(String[] args) {
+		testPreload();
+		testMissing();
+		testFirstPaint();
+	}
+
+	/**
+	 * Tests that the preloaded atlas gives every sprite the same id as a plain
+	 * load, that its sheets are kept, and that the menu images are decoded.
+	 */
+	static void testPreload() {
+		try {
+			String[] buttons = { "images/playButton.png", "images/rulesButton.png" };
+			StartupLoader loader = new StartupLoader("images/welcomee.png", buttons, "images/sprites.txt",
+					"images/playBackgrnd.png");
+			loader.start();
+			TextureAtlas atlas = loader.getAtlas();
+			boolean ok = atlas.hasSameIds(TextureAtlas.load("images/sprites.txt")) && loader.getSheets().size() == 3;
+			ok &= loader.getWelcomeImage() != null && loader.getButtonImage(buttons[0]) != null
+					&& loader.getButtonImage(buttons[1]) != null && loader.getBackground() != null
+					&& loader.getHud() != null;
+			loader.awaitAll();
+			if (ok) {
+				System.out.println("testPreload passed");
+			} else {
+				System.out.println("testPreload failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testPreload failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a missing image comes back as null and a missing layout file
+	 * makes the atlas throw.
+	 */
+	static void testMissing() {
+		StartupLoader loader = new StartupLoader("images/none.png", new String[] { "images/none.png" },
+				"images/none.txt", "images/none.png");
+		loader.run();
+		boolean ok = loader.getWelcomeImage() == null && loader.getButtonImage("images/none.png") == null
+				&& loader.getBackground() == null;
+		try {
+			loader.getAtlas();
+			ok = false;
+		} catch (IOException e) {
+			//expected
+		}
+		if (ok) {
+			System.out.println("testMissing passed");
+		} else {
+			System.out.println("testMissing failed");
+		}
+	}
+
+	/**
+	 * Tests that the first paint is recorded once and later ones are ignored.
+	 */
+	static void testFirstPaint() {
+		boolean first = StartupLoader.markFirstPaint();
+		long millis = StartupLoader.getFirstPaintMillis();
+		boolean second = StartupLoader.markFirstPaint();
+		if (first && !second && millis >= 0 && StartupLoader.getFirstPaintMillis() == millis) {
+			System.out.println("testFirstPaint passed");
+		} else {
+			System.out.println("testFirstPaint failed");
+		}
+	}
+}
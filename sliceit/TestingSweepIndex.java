@@ -0,0 +1,294 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests for the SweepIndex class.
+ * <p>
+ * This class contains static test methods for verifying that the index stays
+ * sorted as objects move, that a band query finds exactly the objects a full
+ * scan finds, that culling leaves the index holding what the list holds, that
+ * sorting from scratch reuses its arrays, and that a busy world slices exactly
+ * as checking every object in list order would.
+ * </p>
+ */
+public class TestingSweepIndex {
+	public static void main(String[] args) {
+		testOrder();
+		testQuery();
+		testCull();
+		testSortAllAllocation();
+		testWorldMatchesScan();
+	}
+
+	/**
+	 * Tests that after every tick the keys are in order and every object is
+	 * still in the index, including when every object changed places at once
+	 * and the index sorts from scratch.
+	 */
+	static void testOrder() {
+		Random random = new Random(1);
+		BufferedImage image = new BufferedImage(30, 30, BufferedImage.TYPE_INT_ARGB);
+		List<Fruit> fruits = launch(image, 300, random);
+		SweepIndex<Fruit> index = index(fruits);
+		boolean ok = true;
+		for (int t = 0; t < 80; t++) {
+			for (Fruit f : fruits) {
+				f.update();
+			}
+			index.update();
+			for (int i = 1; i < index.size(); i++) {
+				ok &= index.get(i - 1).getMotion().getMinY() <= index.get(i).getMotion().getMinY();
+			}
+			ok &= index.size() == fruits.size() && contains(index, fruits);
+		}
+		//turn the order upside down
+		for (int i = 0; i < index.size(); i++) {
+			Fruit f = index.get(i);
+			f.setY(1000 - f.getY());
+		}
+		for (int t = 0; t < 3; t++) {
+			index.update();
+			for (int i = 1; i < index.size(); i++) {
+				ok &= index.get(i - 1).getMotion().getMinY() <= index.get(i).getMotion().getMinY();
+			}
+			ok &= index.size() == fruits.size() && contains(index, fruits);
+		}
+		if (ok) {
+			System.out.println("testOrder passed");
+		} else {
+			System.out.println("testOrder failed");
+		}
+	}
+
+	/**
+	 * Tests that the objects checked in the band around a point include every
+	 * object a full scan finds under it.
+	 */
+	static void testQuery() {
+		Random random = new Random(2);
+		BufferedImage image = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+		List<Fruit> fruits = launch(image, 500, random);
+		SweepIndex<Fruit> index = index(fruits);
+		boolean ok = true;
+		int hits = 0;
+		for (int t = 0; t < 60; t++) {
+			for (Fruit f : fruits) {
+				f.update();
+			}
+			index.update();
+			for (int s = 0; s < 20; s++) {
+				int mx = random.nextInt(400);
+				int my = random.nextInt(500);
+				int scan = 0;
+				for (Fruit f : fruits) {
+					if (f.contains(mx, my)) {
+						scan++;
+					}
+				}
+				int band = 0;
+				for (int i = index.start(my); i < index.end(my); i++) {
+					if (index.get(i).contains(mx, my)) {
+						band++;
+					}
+				}
+				ok &= scan == band;
+				hits += scan;
+			}
+		}
+		if (ok && hits > 0) {
+			System.out.println("testQuery passed");
+		} else {
+			System.out.println("testQuery failed");
+		}
+	}
+
+	/**
+	 * Tests that culling the objects dropped from the list, whether below the
+	 * screen or through a side, leaves the same objects in the index.
+	 */
+	static void testCull() {
+		Random random = new Random(3);
+		BufferedImage image = new BufferedImage(30, 30, BufferedImage.TYPE_INT_ARGB);
+		List<Fruit> fruits = launch(image, 200, random);
+		//a few fast drifters leave through the sides
+		for (int i = 0; i < 10; i++) {
+			fruits.get(i).getMotion().set(new Motion(200, 470, i % 2 == 0 ? 40 : -40, -12, 0.3f));
+		}
+		SweepIndex<Fruit> index = index(fruits);
+		boolean ok = true;
+		for (int t = 0; t < 120; t++) {
+			int removed = 0;
+			for (int i = fruits.size() - 1; i >= 0; i--) {
+				fruits.get(i).update();
+				if (fruits.get(i).isOffScreen(400, 500)) {
+					fruits.remove(i);
+					removed++;
+				}
+			}
+			index.update();
+			if (removed > 0) {
+				index.cull(removed, f -> f.isOffScreen(400, 500));
+			}
+			ok &= index.size() == fruits.size() && contains(index, fruits);
+		}
+		if (ok && fruits.isEmpty()) {
+			System.out.println("testCull passed");
+		} else {
+			System.out.println("testCull failed");
+		}
+	}
+
+	/**
+	 * Tests that sorting from scratch every tick reuses the index's arrays once
+	 * warmed up, and still leaves every object in order.
+	 */
+	static void testSortAllAllocation() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("testSortAllAllocation skipped, allocation counting not supported");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		Random random = new Random(4);
+		BufferedImage image = new BufferedImage(30, 30, BufferedImage.TYPE_INT_ARGB);
+		List<Fruit> fruits = launch(image, 300, random);
+		SweepIndex<Fruit> index = index(fruits);
+		boolean ok = true;
+		long id = Thread.currentThread().getId();
+		long allocated = 0;
+		for (int t = 0; t < 400; t++) {
+			//scatter every fruit, so the insertion sort gives up and everything is sorted again
+			for (int i = 0; i < fruits.size(); i++) {
+				fruits.get(i).setY(random.nextInt(500));
+			}
+			long before = threads.getThreadAllocatedBytes(id);
+			index.update();
+			if (t >= 200) {
+				allocated += threads.getThreadAllocatedBytes(id) - before;
+			}
+		}
+		for (int i = 1; i < index.size(); i++) {
+			ok &= index.get(i - 1).getMotion().getMinY() <= index.get(i).getMotion().getMinY();
+		}
+		ok &= index.size() == fruits.size() && contains(index, fruits);
+		//Arrays.sort may take a buffer of its own to merge runs, but new index arrays would cost more than that
+		if (ok && allocated < 200L * (fruits.size() * 8 + 1024)) {
+			System.out.println("testSortAllAllocation passed");
+		} else {
+			System.out.println("testSortAllAllocation failed, " + allocated + " bytes allocated");
+		}
+	}
+
+	/**
+	 * Tests that a busy world slicing through its index slices every fruit and
+	 * bomb a full scan finds, and that a copy restored half way through, whose
+	 * index is rebuilt from scratch, goes on to the same state byte for byte.
+	 */
+	static void testWorldMatchesScan() {
+		BufferedImage img = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "fruit", "sliced", "bomb" },
+				new BufferedImage[][] { { img }, { img }, { img } });
+		DifficultyConfig config = new DifficultyConfig();
+		config.setCountScale(40);
+		GameWorld world = new GameWorld(atlas);
+		world.setSize(500, 500);
+		world.setBombsEndGame(false);
+		world.reset(config, 7L);
+		GameWorld copy = new GameWorld(atlas);
+		copy.setSize(500, 500);
+		copy.setBombsEndGame(false);
+		Random random = new Random(4);
+		boolean ok = true;
+		int scanPoints = 0;
+		int scanBombs = 0;
+		for (int t = 0; t < 300; t++) {
+			if (t == 150) {
+				ByteBuffer saved = ByteBuffer.allocate(1 << 20);
+				world.writeState(saved);
+				saved.flip();
+				try {
+					copy.readState(saved, config);
+				} catch (IOException e) {
+					e.printStackTrace();
+					ok = false;
+				}
+			}
+			world.tick();
+			copy.tick();
+			for (int s = 0; s < 3; s++) {
+				int mx = random.nextInt(500);
+				int my = random.nextInt(500);
+				//what a full scan in list order would hit
+				List<Fruit> expected = new ArrayList<>();
+				for (Fruit f : world.getFruits()) {
+					if (!f.getIsSliced() && f.contains(mx, my)) {
+						expected.add(f);
+					}
+				}
+				for (Bomb b : world.getBombs()) {
+					if (b.isHit(mx, my)) {
+						scanBombs++;
+					}
+				}
+				scanPoints += expected.size() * 10;
+				world.slice(mx, my);
+				copy.slice(mx, my);
+				for (Fruit f : expected) {
+					ok &= f.getIsSliced();
+				}
+			}
+		}
+		ok &= world.getPoints() == scanPoints && world.getBombsHit() == scanBombs;
+		ByteBuffer a = ByteBuffer.allocate(1 << 20);
+		ByteBuffer b = ByteBuffer.allocate(1 << 20);
+		world.writeState(a);
+		copy.writeState(b);
+		ok &= a.flip().equals(b.flip());
+		if (ok && scanPoints > 0 && scanBombs > 0) {
+			System.out.println("testWorldMatchesScan passed");
+		} else {
+			System.out.println("testWorldMatchesScan failed");
+		}
+	}
+
+	// Helper method to launch fruits from the bottom of a 400 by 500 screen at different times.
+	static List<Fruit> launch(BufferedImage image, int count, Random random) {
+		List<Fruit> fruits = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Fruit fruit = new Fruit(image, image, random.nextInt(370), 470, random.nextFloat() * 4 - 2,
+					-10 - random.nextFloat() * 5);
+			fruit.setGravity(0.3f);
+			for (int t = random.nextInt(40); t > 0; t--) {
+				fruit.update();
+			}
+			fruits.add(fruit);
+		}
+		return fruits;
+	}
+
+	// Helper method to index a list of fruits.
+	static SweepIndex<Fruit> index(List<Fruit> fruits) {
+		SweepIndex<Fruit> index = new SweepIndex<>(Fruit::getMotion, f -> (int) Math.ceil(f.getHeight()));
+		index.rebuild(fruits);
+		return index;
+	}
+
+	// Helper method to check that every fruit of a list is in the index.
+	static boolean contains(SweepIndex<Fruit> index, List<Fruit> fruits) {
+		Set<Fruit> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < index.size(); i++) {
+			indexed.add(index.get(i));
+		}
+		return indexed.containsAll(fruits);
+	}
+}
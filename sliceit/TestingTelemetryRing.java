@@ -0,0 +1,215 @@
+package sliceit;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Unit tests for the TelemetryRing and TelemetryWriter classes.
+ * <p>
+ * This class contains static test methods for verifying that a full ring drops
+ * and counts records instead of waiting, that recording allocates nothing,
+ * that every record written reaches the compressed file intact and in
+ * order, and that the file is rolled by size.
+ * </p>
+ */
+public class TestingTelemetryRing {
+	public static void main(String[] args) {
+		testDropWhenFull();
+		testNoAllocation();
+		testWriteToFile();
+		testRollBySize();
+	}
+
+	/**
+	 * Tests that once the ring is full further records are dropped and counted,
+	 * and that draining makes room again.
+	 */
+	static void testDropWhenFull() {
+		TelemetryRing ring = new TelemetryRing(8);
+		int kept = 0;
+		for (int i = 0; i < 20; i++) {
+			if (ring.tick(i, 1, 2, 3, 4, 5, 6)) {
+				kept++;
+			}
+		}
+		ByteBuffer out = ByteBuffer.allocate(4 * TelemetryRing.RECORD_SIZE);
+		int drained = ring.drainTo(out);
+		boolean roomAgain = ring.frame(99, 1);
+		if (kept == 8 && ring.getDropped() == 12 && drained == 4 && out.getLong(16) == 0
+				&& out.getLong(3 * TelemetryRing.RECORD_SIZE + 16) == 3 && roomAgain) {
+			System.out.println("testDropWhenFull passed");
+		} else {
+			System.out.println("testDropWhenFull failed");
+		}
+	}
+
+	/**
+	 * Tests that recording and draining allocate no memory once warmed up.
+	 */
+	static void testNoAllocation() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("testNoAllocation skipped, allocation counting not supported");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		TelemetryRing ring = new TelemetryRing(1024);
+		ByteBuffer out = ByteBuffer.allocate(1024 * TelemetryRing.RECORD_SIZE);
+		//warm up so the loop below is compiled
+		for (int round = 0; round < 200; round++) {
+			fillAndDrain(ring, out);
+		}
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int round = 0; round < 200; round++) {
+			fillAndDrain(ring, out);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		//the counter itself may allocate a few bytes, so allow less than one byte per record
+		if (allocated < 200 * 1024) {
+			System.out.println("testNoAllocation passed");
+		} else {
+			System.out.println("testNoAllocation failed, " + allocated + " bytes allocated");
+		}
+	}
+
+	// Helper method to fill a ring with ticks and frames and drain it again.
+	static void fillAndDrain(TelemetryRing ring, ByteBuffer out) {
+		for (int i = 0; i < 1024; i++) {
+			if ((i & 1) == 0) {
+				ring.tick(i, 3, 10, 2, 400, i * 10, 150_000L);
+			} else {
+				ring.frame(i, 2_000_000L);
+			}
+		}
+		out.clear();
+		ring.drainTo(out);
+	}
+
+	/**
+	 * Tests that records written from two threads while the writer runs all end up
+	 * in the gzip file, in order for each thread, with their fields intact.
+	 */
+	static void testWriteToFile() {
+		try {
+			Path file = Files.createTempFile("sliceit-telemetry", ".gz");
+			Files.delete(file);
+			TelemetryRing ring = new TelemetryRing(64);
+			TelemetryWriter writer = new TelemetryWriter(ring, file);
+			writer.start();
+			Thread frames = new Thread(() -> {
+				for (int i = 0; i < 5000; i++) {
+					while (!ring.frame(i, i * 2L)) {
+						Thread.yield();
+					}
+				}
+			});
+			frames.start();
+			for (int i = 0; i < 5000; i++) {
+				while (!ring.tick(i, i % 7, i % 50, i % 3, i, i * 10, i * 1000L)) {
+					Thread.yield();
+				}
+			}
+			frames.join();
+			writer.halt();
+
+			long nextTick = 0, nextFrame = 0;
+			boolean intact = true;
+			byte[] record = new byte[TelemetryRing.RECORD_SIZE];
+			ByteBuffer in = ByteBuffer.wrap(record);
+			try (DataInputStream data = new DataInputStream(new GZIPInputStream(new FileInputStream(file.toFile())))) {
+				while (true) {
+					try {
+						data.readFully(record);
+					} catch (EOFException e) {
+						break;
+					}
+					long tick = in.getLong(16);
+					if (in.get(0) == TelemetryRing.KIND_TICK) {
+						intact &= tick == nextTick++ && in.getShort(2) == tick % 7 && in.getInt(12) == tick * 10
+								&& in.getLong(24) == tick * 1000L;
+					} else if (in.get(0) == TelemetryRing.KIND_FRAME) {
+						intact &= tick == nextFrame++ && in.getLong(24) == tick * 2L;
+					}
+				}
+			}
+			Files.delete(file);
+			if (intact && nextTick == 5000 && nextFrame == 5000) {
+				System.out.println("testWriteToFile passed");
+			} else {
+				System.out.println("testWriteToFile failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testWriteToFile failed due to exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a file grown past its size is rolled, at launch and while
+	 * writing, that only the given number of rolled files are kept, and that
+	 * each of them is a complete gzip file.
+	 */
+	static void testRollBySize() {
+		try {
+			Path dir = Files.createTempDirectory("sliceit-telemetry");
+			Path file = dir.resolve("telemetry.gz");
+			Files.write(file, new byte[4096]);
+			TelemetryRing ring = new TelemetryRing(256);
+			TelemetryWriter writer = new TelemetryWriter(ring, file, 2048, 2);
+			boolean ok = Files.size(writer.rolled(1)) == 4096 && Files.size(file) < 2048;
+			writer.start();
+			Random random = new Random(1);
+			//random fields barely compress, so every burst fills a file
+			for (int burst = 0; burst < 6; burst++) {
+				for (int i = 0; i < 200; i++) {
+					while (!ring.tick(i, random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt(),
+							random.nextInt(), random.nextLong())) {
+						Thread.yield();
+					}
+				}
+				//let the writer go idle, flush and roll
+				Thread.sleep(250);
+			}
+			writer.halt();
+			ok &= Files.exists(writer.rolled(2)) && !Files.exists(writer.rolled(3));
+			for (int i = 1; i <= 2; i++) {
+				long records = 0;
+				try (DataInputStream data = new DataInputStream(
+						new GZIPInputStream(new FileInputStream(writer.rolled(i).toFile())))) {
+					byte[] record = new byte[TelemetryRing.RECORD_SIZE];
+					while (true) {
+						try {
+							data.readFully(record);
+						} catch (EOFException e) {
+							break;
+						}
+						records++;
+					}
+				}
+				ok &= records > 0 && Files.size(writer.rolled(i)) < 2048 + 200 * TelemetryRing.RECORD_SIZE * 2;
+			}
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+				for (Path f : files) {
+					Files.delete(f);
+				}
+			}
+			Files.delete(dir);
+			if (ok) {
+				System.out.println("testRollBySize passed");
+			} else {
+				System.out.println("testRollBySize failed");
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("testRollBySize failed due to exception: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package sliceit;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Unit tests for the TextureAtlas class.
+ * <p>
+ * This class contains static test methods for verifying that packed sprites
+ * keep their pixels, never overlap, and that the sprite layout file in the
+ * images folder loads every group the game needs.
+ * </p>
+ */
+public class TestingTextureAtlas {
+	public static void main(String[] args) {
+		testPack();
+		testLoad();
+	}
+
+	// Helper method to create an image filled with one color.
+	static BufferedImage createFilledImage(int width, int height, int argb) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				img.setRGB(x, y, argb);
+			}
+		}
+		return img;
+	}
+
+	/**
+	 * Tests that ids within a group are consecutive, sprites keep their size and
+	 * pixels, and no two cells overlap inside the packed image.
+	 */
+	static void testPack() {
+		BufferedImage red = createFilledImage(30, 20, 0xffff0000);
+		BufferedImage green = createFilledImage(10, 40, 0xff00ff00);
+		BufferedImage blue = createFilledImage(25, 25, 0xff0000ff);
+		TextureAtlas atlas = new TextureAtlas(new String[] { "a", "b" },
+				new BufferedImage[][] { { red, green }, { blue } });
+
+		boolean passed = atlas.size() == 3 && atlas.getId("a") == 0 && atlas.getId("b") == 2
+				&& atlas.getCount("a") == 2;
+		int[] colors = { 0xffff0000, 0xff00ff00, 0xff0000ff };
+		for (int i = 0; i < 3 && passed; i++) {
+			BufferedImage cell = atlas.getCell(i);
+			passed = cell.getRGB(0, 0) == colors[i] && cell.getRGB(cell.getWidth() - 1, cell.getHeight() - 1) == colors[i];
+			for (int j = 0; j < i && passed; j++) {
+				boolean apart = atlas.getCellX(i) + atlas.getCellWidth(i) <= atlas.getCellX(j)
+						|| atlas.getCellX(j) + atlas.getCellWidth(j) <= atlas.getCellX(i)
+						|| atlas.getCellY(i) + atlas.getCellHeight(i) <= atlas.getCellY(j)
+						|| atlas.getCellY(j) + atlas.getCellHeight(j) <= atlas.getCellY(i);
+				passed = apart;
+			}
+		}
+		if (passed && atlas.getCell(1).getWidth() == 10 && atlas.getCell(1).getHeight() == 40) {
+			System.out.println("testPack passed");
+		} else {
+			System.out.println("testPack failed");
+		}
+	}
+
+	/**
+	 * Tests that images/sprites.txt describes 7 fruits, 7 sliced fruits, a bomb
+	 * and 16 explosion frames with the sizes the game expects.
+	 */
+	static void testLoad() {
+		try {
+			TextureAtlas atlas = TextureAtlas.load("images/sprites.txt");
+			BufferedImage fruit = atlas.getCell(atlas.getId("fruit"));
+			BufferedImage sliced = atlas.getCell(atlas.getId("sliced"));
+			if (atlas.getCount("fruit") == 7 && atlas.getCount("sliced") == 7 && atlas.getCount("bomb") == 1
+					&& atlas.getCount("explosion") == 16 && fruit.getWidth() == 101 && fruit.getHeight() == 85
+					&& sliced.getWidth() == 111) {
+				System.out.println("testLoad passed");
+			} else {
+				System.out.println("testLoad failed");
+			}
+		} catch (IOException e) {
+			System.out.println("testLoad failed due to exception: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package sliceit;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The TextureAtlas class packs every sprite of the game into a single image.
+ * <p>
+ * Sprites are organised in named groups ("fruit", "sliced", "bomb",
+ * "explosion", ...). Each sprite gets an integer id; the ids of a group are
+ * consecutive, so the n-th fruit is {@code getId("fruit") + n}. The atlas
+ * remembers where every id lives inside the packed image so a
+ * {@link SpriteBatch} can draw any sprite straight from the one surface.
+ * </p>
+ * <p>
+ * Where the cells come from is described by a small text file (see
+ * images/sprites.txt) rather than being hard-coded in the loaders.
+ * </p>
+ */
+public class TextureAtlas {
+	/** Empty pixels left around every cell so scaled drawing never bleeds into a neighbour. */
+	private static final int PADDING = 1;
+
+	/** The packed image holding every sprite. */
+	private final BufferedImage image;
+	/** The x-coordinate of each sprite inside the packed image. */
+	private final int[] cellX;
+	/** The y-coordinate of each sprite inside the packed image. */
+	private final int[] cellY;
+	/** The width of each sprite. */
+	private final int[] cellWidth;
+	/** The height of each sprite. */
+	private final int[] cellHeight;
+	/** Each sprite as its own image sharing the packed pixels. */
+	private final BufferedImage[] cells;
+	/** First id of every group, by group name. */
+	private final Map<String, Integer> groupStart = new HashMap<>();
+	/** Number of sprites in every group, by group name. */
+	private final Map<String, Integer> groupSize = new HashMap<>();
+
+	/**
+	 * Constructs a TextureAtlas by packing the given groups of images.
+	 *
+	 * @param groupNames the name of each group
+	 * @param groups     the images of each group, in the same order as the names
+	 */
+	public TextureAtlas(String[] groupNames, BufferedImage[][] groups) {
+		int total = 0;
+		for (int g = 0; g < groups.length; g++) {
+			groupStart.put(groupNames[g], total);
+			groupSize.put(groupNames[g], groups[g].length);
+			total += groups[g].length;
+		}
+
+		BufferedImage[] sources = new BufferedImage[total];
+		int id = 0;
+		for (BufferedImage[] group : groups) {
+			for (BufferedImage img : group) {
+				sources[id++] = img;
+			}
+		}
+
+		cellX = new int[total];
+		cellY = new int[total];
+		cellWidth = new int[total];
+		cellHeight = new int[total];
+		int[] size = pack(sources);
+
+		//copy every sprite into its place in the packed image
+		image = createCompatibleImage(size[0], size[1]);
+		Graphics2D g2d = image.createGraphics();
+		cells = new BufferedImage[total];
+		for (int i = 0; i < total; i++) {
+			g2d.drawImage(sources[i], cellX[i], cellY[i], null);
+			cells[i] = image.getSubimage(cellX[i], cellY[i], cellWidth[i], cellHeight[i]);
+		}
+		g2d.dispose();
+	}
+
+	/**
+	 * Places the sprites in shelves: tallest sprites first, left to right, starting
+	 * a new shelf whenever the current one is full.
+	 *
+	 * @return the width and height of the packed image
+	 */
+	private int[] pack(BufferedImage[] sources) {
+		int total = sources.length;
+		long area = 0;
+		int widest = 1;
+		Integer[] order = new Integer[total];
+		for (int i = 0; i < total; i++) {
+			order[i] = i;
+			cellWidth[i] = sources[i].getWidth();
+			cellHeight[i] = sources[i].getHeight();
+			area += (long) (cellWidth[i] + PADDING) * (cellHeight[i] + PADDING);
+			widest = Math.max(widest, cellWidth[i] + PADDING);
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(cellHeight[b], cellHeight[a]));
+
+		//aim for a roughly square image, but never narrower than the widest sprite
+		int maxWidth = Math.max(widest, (int) Math.ceil(Math.sqrt(area * 1.1)));
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		int usedWidth = 1;
+		for (int n = 0; n < total; n++) {
+			int i = order[n];
+			if (x + cellWidth[i] + PADDING > maxWidth) {
+				//start a new shelf below the current one
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			cellX[i] = x;
+			cellY[i] = y;
+			x += cellWidth[i] + PADDING;
+			shelfHeight = Math.max(shelfHeight, cellHeight[i] + PADDING);
+			usedWidth = Math.max(usedWidth, x);
+		}
+		return new int[] { usedWidth, Math.max(y + shelfHeight, 1) };
+	}
+
+	/**
+	 * Reads a sprite layout file, cuts the listed cells out of their sheets and
+	 * packs them into an atlas. Each sheet is decoded only once even if several
+	 * entries use it.
+	 *
+	 * @param specPath path of the layout file
+	 * @return the packed atlas
+	 * @throws IOException if the layout file or one of the sheets cannot be read
+	 */
+	public static TextureAtlas load(String specPath) throws IOException {
+		return load(specPath, new HashMap<>());
+	}
+
+	/**
+	 * Reads a sprite layout file and packs its cells into an atlas, taking the
+	 * sheets already in the cache as they are and adding the ones it has to
+	 * decode. Reloading after one sheet has changed then decodes only that sheet,
+	 * once it has been removed from the cache.
+	 *
+	 * @param specPath path of the layout file
+	 * @param sheets   decoded sheets by the path given in the layout file
+	 * @return the packed atlas
+	 * @throws IOException if the layout file or one of the sheets cannot be read
+	 */
+	public static TextureAtlas load(String specPath, Map<String, BufferedImage> sheets) throws IOException {
+		Map<String, BufferedImage[]> groups = new LinkedHashMap<>();
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(specPath))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				//skip blank lines and comments
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				try {
+					BufferedImage sheet = sheets.get(parts[2]);
+					if (sheet == null) {
+						sheet = AssetBundle.readImage(parts[2]);
+						if (sheet == null) {
+							throw new IOException("Not an image: " + parts[2]);
+						}
+						sheets.put(parts[2], sheet);
+					}
+					groups.put(parts[1], cutCells(parts, sheet));
+				} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+					throw new IOException(specPath + ":" + lineNumber + ": malformed entry: " + line, e);
+				}
+			}
+		}
+
+		String[] names = groups.keySet().toArray(new String[0]);
+		return new TextureAtlas(names, groups.values().toArray(new BufferedImage[0][]));
+	}
+
+	/**
+	 * Cuts the cells described by one layout entry out of its sheet.
+	 *
+	 * OpenAI.(2025). ChatGPT [Large Language Model]
+	 * When prompted with, "How do I read from my spritesheet attached above?" , this was mostly the generated code. I edited the for loop to handle sliced and unsliced fruit at the same time (the spritesheet was provided)
+	 */
+	private static BufferedImage[] cutCells(String[] parts, BufferedImage sheet) throws IOException {
+		switch (parts[0]) {
+		case "image":
+			return new BufferedImage[] { sheet };
+		case "strip": {
+			int x = Integer.parseInt(parts[3]);
+			int y = Integer.parseInt(parts[4]);
+			int width = Integer.parseInt(parts[5]);
+			int height = Integer.parseInt(parts[6]);
+			int count = Integer.parseInt(parts[7]);
+			int stepX = Integer.parseInt(parts[8]);
+			int stepY = Integer.parseInt(parts[9]);
+			BufferedImage[] cells = new BufferedImage[count];
+			for (int i = 0; i < count; i++) {
+				cells[i] = sheet.getSubimage(x + i * stepX, y + i * stepY, width, height);
+			}
+			return cells;
+		}
+		case "grid": {
+			int cols = Integer.parseInt(parts[3]);
+			int rows = Integer.parseInt(parts[4]);
+			int frameWidth = sheet.getWidth() / cols;
+			int frameHeight = sheet.getHeight() / rows;
+			BufferedImage[] cells = new BufferedImage[rows * cols];
+			int index = 0;
+			//read the grid row by row
+			for (int row = 0; row < rows; row++) {
+				for (int col = 0; col < cols; col++) {
+					cells[index++] = sheet.getSubimage(col * frameWidth, row * frameHeight, frameWidth, frameHeight);
+				}
+			}
+			return cells;
+		}
+		default:
+			throw new IOException("Unknown sprite entry type: " + parts[0]);
+		}
+	}
+
+	/**
+	 * Creates a translucent image, matching the screen's pixel format when a
+	 * screen is available so drawing from it is as cheap as possible.
+	 *
+	 * @param width  the width of the image
+	 * @param height the height of the image
+	 * @return a new, fully transparent image
+	 */
+	static BufferedImage createCompatibleImage(int width, int height) {
+		width = Math.max(width, 1);
+		height = Math.max(height, 1);
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Returns the id of the first sprite in a group.
+	 *
+	 * @param group the group name
+	 * @return the id of the group's first sprite
+	 * @throws IllegalArgumentException if there is no such group
+	 */
+	public int getId(String group) {
+		Integer start = groupStart.get(group);
+		if (start == null) {
+			throw new IllegalArgumentException("No sprite group named " + group);
+		}
+		return start;
+	}
+
+	/**
+	 * Returns the number of sprites in a group.
+	 *
+	 * @param group the group name
+	 * @return the number of sprites, or 0 if there is no such group
+	 */
+	public int getCount(String group) {
+		Integer size = groupSize.get(group);
+		return size == null ? 0 : size;
+	}
+
+	/**
+	 * Checks whether another atlas gives every sprite the same id as this one,
+	 * so one can replace the other while ids are in use.
+	 *
+	 * @param other the other atlas
+	 * @return true if both have the same groups with the same counts
+	 */
+	public boolean hasSameIds(TextureAtlas other) {
+		return groupStart.equals(other.groupStart) && groupSize.equals(other.groupSize);
+	}
+
+	/**
+	 * Returns every sprite of a group as separate images, in id order.
+	 *
+	 * @param group the group name
+	 * @return the sprites of the group
+	 */
+	public BufferedImage[] getImages(String group) {
+		int start = getId(group);
+		BufferedImage[] result = new BufferedImage[getCount(group)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = cells[start + i];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a single sprite as its own image.
+	 *
+	 * @param id the sprite id
+	 * @return the sprite image
+	 */
+	public BufferedImage getCell(int id) {
+		return cells[id];
+	}
+
+	/**
+	 * Returns the packed image holding all sprites.
+	 *
+	 * @return the atlas image
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * Returns the x-coordinate of the sprite inside the atlas image.
+	 *
+	 * @return the x-coordinate of the sprite inside the atlas image
+	 */
+	int getCellX(int id) {
+		return cellX[id];
+	}
+
+	/**
+	 * Returns the y-coordinate of the sprite inside the atlas image.
+	 *
+	 * @return the y-coordinate of the sprite inside the atlas image
+	 */
+	int getCellY(int id) {
+		return cellY[id];
+	}
+
+	/**
+	 * Returns the width of the sprite.
+	 *
+	 * @return the width of the sprite
+	 */
+	int getCellWidth(int id) {
+		return cellWidth[id];
+	}
+
+	/**
+	 * Returns the height of the sprite.
+	 *
+	 * @return the height of the sprite
+	 */
+	int getCellHeight(int id) {
+		return cellHeight[id];
+	}
+
+	/**
+	 * Returns the total number of sprites in the atlas.
+	 *
+	 * @return the sprite count
+	 */
+	public int size() {
+		return cells.length;
+	}
+}
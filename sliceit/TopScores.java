@@ -0,0 +1,155 @@
+package sliceit;
+
+/**
+ * The TopScores class keeps the best few scores of a stream of any length,
+ * in a bounded min-heap.
+ * <p>
+ * The heap holds at most {@link #capacity()} scores with the worst of them at
+ * the root, so each new score is compared with the root and is either dropped
+ * straight away (nearly always, once the heap is full) or replaces the root
+ * and sinks to its place. Finding the top k of n scores takes one pass and
+ * O(n log k) time in the worst case, and only k entries of memory. Each score
+ * comes with the number of the record it belongs to; equal scores rank the
+ * earlier record first.
+ * </p>
+ */
+public class TopScores {
+	/** Scores in the heap, the worst at index 0. */
+	private final int[] scores;
+	/** Record number of each score in the heap. */
+	private final int[] records;
+	/** Number of scores in the heap. */
+	private int count;
+
+	/**
+	 * Constructs an empty TopScores.
+	 *
+	 * @param capacity the number of best scores to keep, at least 1
+	 */
+	public TopScores(int capacity) {
+		capacity = Math.max(capacity, 1);
+		scores = new int[capacity];
+		records = new int[capacity];
+	}
+
+	/**
+	 * Removes every score.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Offers a score, keeping it if it is among the best seen so far.
+	 *
+	 * @param score  the score
+	 * @param record the number of the record it belongs to
+	 * @return true if the score was kept
+	 */
+	public boolean offer(int score, int record) {
+		if (count < scores.length) {
+			//sift the new score up from the end
+			int i = count++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (!worse(score, record, scores[parent], records[parent])) {
+					break;
+				}
+				scores[i] = scores[parent];
+				records[i] = records[parent];
+				i = parent;
+			}
+			scores[i] = score;
+			records[i] = record;
+			return true;
+		}
+		if (!worse(scores[0], records[0], score, record)) {
+			return false;
+		}
+		//replace the worst and sift it down
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= count) {
+				break;
+			}
+			if (child + 1 < count && worse(scores[child + 1], records[child + 1], scores[child], records[child])) {
+				child++;
+			}
+			if (!worse(scores[child], records[child], score, record)) {
+				break;
+			}
+			scores[i] = scores[child];
+			records[i] = records[child];
+			i = child;
+		}
+		scores[i] = score;
+		records[i] = record;
+		return true;
+	}
+
+	/**
+	 * Checks whether score a of record ra ranks below score b of record rb.
+	 */
+	private static boolean worse(int a, int ra, int b, int rb) {
+		return a < b || (a == b && ra > rb);
+	}
+
+	/**
+	 * Copies the kept scores out best first, leaving the heap as it is.
+	 *
+	 * @param outScores  array to receive the scores, at least {@link #size()} long
+	 * @param outRecords array to receive the record numbers, at least {@link #size()} long
+	 * @return the number of scores copied
+	 */
+	public int sorted(int[] outScores, int[] outRecords) {
+		//heap sort a copy: repeatedly move the worst to the back
+		int n = count;
+		System.arraycopy(scores, 0, outScores, 0, n);
+		System.arraycopy(records, 0, outRecords, 0, n);
+		for (int end = n - 1; end > 0; end--) {
+			int score = outScores[end];
+			int record = outRecords[end];
+			outScores[end] = outScores[0];
+			outRecords[end] = outRecords[0];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= end) {
+					break;
+				}
+				if (child + 1 < end
+						&& worse(outScores[child + 1], outRecords[child + 1], outScores[child], outRecords[child])) {
+					child++;
+				}
+				if (!worse(outScores[child], outRecords[child], score, record)) {
+					break;
+				}
+				outScores[i] = outScores[child];
+				outRecords[i] = outRecords[child];
+				i = child;
+			}
+			outScores[i] = score;
+			outRecords[i] = record;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of scores kept.
+	 *
+	 * @return the number of scores
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the largest number of scores kept.
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return scores.length;
+	}
+}
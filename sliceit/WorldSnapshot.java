@@ -0,0 +1,198 @@
+package sliceit;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * A WorldSnapshot is a flat copy of everything the game panel needs to draw a
+ * frame: one atlas sprite id and position per sprite, the live particles, plus
+ * the score.
+ * <p>
+ * Snapshots are written by the simulation thread and read by the game panel.
+ * The arrays are reused from tick to tick and only grow when more sprites are
+ * on screen than ever before, so writing a snapshot does not create garbage.
+ * </p>
+ */
+public class WorldSnapshot {
+	/** The atlas id of each sprite, in draw order. */
+	private int[] sprites = new int[64];
+	/** The x-coordinate of each sprite. */
+	private int[] xs = new int[64];
+	/** The y-coordinate of each sprite. */
+	private int[] ys = new int[64];
+	/** Number of sprites in the snapshot. */
+	private int count;
+	/** The x-coordinate of each particle. */
+	private int[] particleXs = new int[256];
+	/** The y-coordinate of each particle. */
+	private int[] particleYs = new int[256];
+	/** The atlas id of each particle, or {@link ParticleSystem#NO_SPRITE} for a square. */
+	private int[] particleSprites = new int[256];
+	/** The palette index of each square particle. */
+	private int[] particleColors = new int[256];
+	/** The size of each square particle. */
+	private int[] particleSizes = new int[256];
+	/** Number of particles in the snapshot. */
+	private int particleCount;
+	/** Player's score at the time of the snapshot. */
+	private int points;
+
+	/**
+	 * Removes all sprites and particles from the snapshot.
+	 */
+	public void clear() {
+		count = 0;
+		particleCount = 0;
+	}
+
+	/**
+	 * Adds a sprite to the end of the draw list.
+	 *
+	 * @param sprite the atlas id of the sprite to draw
+	 * @param x      the x-coordinate to draw it at
+	 * @param y      the y-coordinate to draw it at
+	 */
+	public void add(int sprite, int x, int y) {
+		if (count == sprites.length) {
+			int capacity = count * 2;
+			sprites = Arrays.copyOf(sprites, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+		sprites[count] = sprite;
+		xs[count] = x;
+		ys[count] = y;
+		count++;
+	}
+
+	/**
+	 * Adds a particle to the snapshot. Particles are drawn on top of every sprite.
+	 *
+	 * @param x      the x-coordinate of the particle
+	 * @param y      the y-coordinate of the particle
+	 * @param sprite the atlas id to draw, or {@link ParticleSystem#NO_SPRITE}
+	 * @param color  the palette index of a square particle
+	 * @param size   the size of a square particle
+	 */
+	public void addParticle(int x, int y, int sprite, int color, int size) {
+		if (particleCount == particleXs.length) {
+			int capacity = particleCount * 2;
+			particleXs = Arrays.copyOf(particleXs, capacity);
+			particleYs = Arrays.copyOf(particleYs, capacity);
+			particleSprites = Arrays.copyOf(particleSprites, capacity);
+			particleColors = Arrays.copyOf(particleColors, capacity);
+			particleSizes = Arrays.copyOf(particleSizes, capacity);
+		}
+		particleXs[particleCount] = x;
+		particleYs[particleCount] = y;
+		particleSprites[particleCount] = sprite;
+		particleColors[particleCount] = color;
+		particleSizes[particleCount] = size;
+		particleCount++;
+	}
+
+	/**
+	 * Draws every sprite in the snapshot in the order they were added, then every
+	 * particle in a single pass over the particle arrays.
+	 *
+	 * @param g2d   the graphics context to draw on
+	 * @param batch the sprite batch to draw with
+	 */
+	public void draw(Graphics2D g2d, SpriteBatch batch) {
+		draw(g2d, batch, 1);
+	}
+
+	/**
+	 * Draws every sprite, but only one square particle out of every
+	 * particleStride, for when frames are taking too long. Sprite particles such
+	 * as fruit halves are always drawn.
+	 *
+	 * @param g2d            the graphics context to draw on
+	 * @param batch          the sprite batch to draw with
+	 * @param particleStride 1 to draw every square particle, 2 for every other one
+	 */
+	public void draw(Graphics2D g2d, SpriteBatch batch, int particleStride) {
+		batch.draw(g2d, sprites, xs, ys, count);
+		int currentColor = -1;
+		for (int i = 0; i < particleCount; i++) {
+			if (particleSprites[i] != ParticleSystem.NO_SPRITE) {
+				batch.draw(g2d, particleSprites[i], particleXs[i], particleYs[i]);
+				continue;
+			}
+			if (i % particleStride != 0) {
+				continue;
+			}
+			//only switch colors when the next particle needs a different one
+			if (particleColors[i] != currentColor) {
+				currentColor = particleColors[i];
+				g2d.setColor(ParticleSystem.PALETTE[currentColor]);
+			}
+			g2d.fillRect(particleXs[i], particleYs[i], particleSizes[i], particleSizes[i]);
+		}
+	}
+
+	/**
+	 * Works out the smallest rectangle covering every particle.
+	 *
+	 * @param atlas  the atlas sprite particles come from, for their sizes
+	 * @param bounds set to the covered area
+	 * @return true if there are any particles; false if bounds is unchanged
+	 */
+	public boolean getParticleBounds(TextureAtlas atlas, Rectangle bounds) {
+		if (particleCount == 0) {
+			return false;
+		}
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+		for (int i = 0; i < particleCount; i++) {
+			int width = particleSizes[i], height = particleSizes[i];
+			if (particleSprites[i] != ParticleSystem.NO_SPRITE) {
+				width = atlas.getCellWidth(particleSprites[i]);
+				height = atlas.getCellHeight(particleSprites[i]);
+			}
+			left = Math.min(left, particleXs[i]);
+			top = Math.min(top, particleYs[i]);
+			right = Math.max(right, particleXs[i] + width);
+			bottom = Math.max(bottom, particleYs[i] + height);
+		}
+		bounds.setBounds(left, top, right - left, bottom - top);
+		return true;
+	}
+
+	/**
+	 * Returns the number of sprites in the snapshot.
+	 *
+	 * @return the sprite count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of particles in the snapshot.
+	 *
+	 * @return the particle count
+	 */
+	public int getParticleCount() {
+		return particleCount;
+	}
+
+	/**
+	 * Returns the score stored in the snapshot.
+	 *
+	 * @return the score
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * Sets the score stored in the snapshot.
+	 *
+	 * @param points the score
+	 */
+	public void setPoints(int points) {
+		this.points = points;
+	}
+}
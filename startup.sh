@@ -0,0 +1,25 @@
+#!/bin/sh
+# Starts SliceIt with a class data sharing archive of the classes it loads
+# before the welcome screen appears, which shortens the time to first paint.
+#
+# The first run (or any run with --train) launches the game once with
+# --startup-train, which quits as soon as the welcome screen is painted and
+# writes sliceit.jsa. Later runs map that archive instead of loading and
+# verifying the classes again. Each launch is started with --startup-times,
+# which appends its time to first paint to startup-times.txt, so runs with
+# and without the archive can be compared.
+#
+# CP is the class path holding the compiled sliceit classes (default: out).
+# Any other arguments are passed to the game.
+
+CP=${CP:-out}
+ARCHIVE=sliceit.jsa
+
+if [ "$1" = "--train" ]; then
+	shift
+	rm -f "$ARCHIVE"
+fi
+if [ ! -f "$ARCHIVE" ]; then
+	java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CP" sliceit.SliceItController --startup-train --startup-times || exit 1
+fi
+exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$CP" sliceit.SliceItController "$@" --startup-times